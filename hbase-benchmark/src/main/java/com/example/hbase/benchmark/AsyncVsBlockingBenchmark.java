@@ -0,0 +1,143 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.async.HbaseAsyncTemplate;
+import com.example.hbase.async.ReactiveHbaseTemplate;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阻塞的HbaseTemplate与基于AsyncConnection的模板对比:同样保持OUTSTANDING个在途请求,
+ * 阻塞路径需要callerThreads个线程,异步路径只占用少量回调线程
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class AsyncVsBlockingBenchmark {
+
+    private static final TableName TABLE = TableName.valueOf("bench_async");
+
+    private static final int ROWS = 100_000;
+
+    private static final int OUTSTANDING = 1000;
+
+    @Param({"16", "128"})
+    private int callerThreads;
+
+    private Connection connection;
+
+    private AsyncConnection asyncConnection;
+
+    private ExecutorService clientPool;
+
+    private ExecutorService callbackPool;
+
+    private ExecutorService callers;
+
+    private HbaseTemplate template;
+
+    private HbaseAsyncTemplate asyncTemplate;
+
+    private ReactiveHbaseTemplate reactiveTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Configuration conf = MiniCluster.acquire().getConfiguration();
+        clientPool = Executors.newFixedThreadPool(32);
+        callbackPool = Executors.newFixedThreadPool(4);
+        callers = Executors.newFixedThreadPool(callerThreads);
+        connection = ConnectionFactory.createConnection(conf, clientPool);
+        asyncConnection = ConnectionFactory.createAsyncConnection(conf).get();
+        MiniCluster.createAndLoad(connection, TABLE, ROWS, 3, 8);
+        template = new HbaseTemplate(connection, clientPool, new HbaseConnectionMetrics());
+        asyncTemplate = new HbaseAsyncTemplate(asyncConnection, callbackPool);
+        reactiveTemplate = new ReactiveHbaseTemplate(asyncTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        asyncConnection.close();
+        connection.close();
+        callers.shutdown();
+        callbackPool.shutdown();
+        clientPool.shutdown();
+        MiniCluster.release();
+    }
+
+    private static Get randomGet() {
+        return new Get(Bytes.toBytes(MiniCluster.rowKey(ThreadLocalRandom.current().nextInt(ROWS))));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OUTSTANDING)
+    public int blockingGets() throws Exception {
+        List<Future<Result>> futures = new ArrayList<>(OUTSTANDING);
+        for (int i = 0; i < OUTSTANDING; i++) {
+            futures.add(callers.submit(() -> template.get(TABLE.getNameAsString(), randomGet(), (result, rowNum) -> result)));
+        }
+        int found = 0;
+        for (Future<Result> future : futures) {
+            if (future.get() != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OUTSTANDING)
+    public int asyncGets() {
+        List<CompletableFuture<Result>> futures = new ArrayList<>(OUTSTANDING);
+        for (int i = 0; i < OUTSTANDING; i++) {
+            futures.add(asyncTemplate.get(TABLE.getNameAsString(), randomGet()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return futures.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int blockingScan() {
+        return template.find(TABLE.getNameAsString(), new Scan().setCaching(500), (result, rowNum) -> rowNum).size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long reactiveScan() {
+        return reactiveTemplate.scan(TABLE.getNameAsString(), new Scan().setCaching(500)).count().block();
+    }
+}
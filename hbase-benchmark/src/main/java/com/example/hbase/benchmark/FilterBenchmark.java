@@ -0,0 +1,206 @@
+package com.example.hbase.benchmark;
+
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.FamilyFilter;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.FuzzyRowFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultipleColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.filter.QualifierFilter;
+import org.apache.hadoop.hbase.filter.RowFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.filter.SubstringComparator;
+import org.apache.hadoop.hbase.filter.ValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HbaseApplicationTests中用到的每一种过滤器在全表扫描上的开销,条件按benchmark数据等比换算
+ * <p>
+ * 需要整行判断的过滤器(hasFilterRow)与Scan.setBatch不兼容,这类过滤器忽略batch参数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class FilterBenchmark {
+
+    private static final byte[] NAME = Bytes.toBytes("name");
+
+    private static final byte[] SEX = Bytes.toBytes("sex");
+
+    private static final byte[] AGE = Bytes.toBytes("age");
+
+    private static final byte[] ADDRESS = Bytes.toBytes("address");
+
+    public enum FilterCase {
+        VALUE_SUBSTRING {
+            @Override
+            Filter create() {
+                return new ValueFilter(CompareOperator.EQUAL, new SubstringComparator("张"));
+            }
+        },
+        VALUE_EQUAL {
+            @Override
+            Filter create() {
+                return new ValueFilter(CompareOperator.EQUAL, new BinaryComparator(Bytes.toBytes("张100")));
+            }
+        },
+        VALUE_GREATER {
+            @Override
+            Filter create() {
+                return new ValueFilter(CompareOperator.GREATER, new BinaryComparator(Bytes.toBytes("张")));
+            }
+        },
+        SINGLE_COLUMN_VALUE {
+            @Override
+            Filter create() {
+                return new SingleColumnValueFilter(MiniCluster.FAMILY, SEX, CompareOperator.EQUAL, new SubstringComparator("男"));
+            }
+        },
+        SINGLE_COLUMN_VALUE_GREATER_NUM {
+            @Override
+            Filter create() {
+                return new SingleColumnValueFilter(MiniCluster.FAMILY, AGE, CompareOperator.GREATER,
+                        new BinaryComparator(Bytes.toBytes(10)));
+            }
+        },
+        FAMILY {
+            @Override
+            Filter create() {
+                return new FamilyFilter(CompareOperator.EQUAL, new BinaryComparator(MiniCluster.FILLER_FAMILY));
+            }
+        },
+        QUALIFIER {
+            @Override
+            Filter create() {
+                return new QualifierFilter(CompareOperator.EQUAL, new BinaryComparator(NAME));
+            }
+        },
+        FILTER_LIST {
+            @Override
+            Filter create() {
+                return new FilterList(FilterList.Operator.MUST_PASS_ALL,
+                        new FamilyFilter(CompareOperator.EQUAL, new BinaryComparator(MiniCluster.FAMILY)),
+                        new QualifierFilter(CompareOperator.EQUAL, new BinaryComparator(NAME)),
+                        new ValueFilter(CompareOperator.EQUAL, new SubstringComparator("张")));
+            }
+        },
+        NESTED_FILTER_LIST {
+            @Override
+            Filter create() {
+                FilterList inner = new FilterList(FilterList.Operator.MUST_PASS_ONE,
+                        new SingleColumnValueFilter(MiniCluster.FAMILY, ADDRESS, CompareOperator.EQUAL,
+                                new BinaryComparator(Bytes.toBytes("beijing"))),
+                        new SingleColumnValueFilter(MiniCluster.FAMILY, ADDRESS, CompareOperator.EQUAL,
+                                new BinaryComparator(Bytes.toBytes("shanghai"))));
+                return new FilterList(FilterList.Operator.MUST_PASS_ALL, inner,
+                        new SingleColumnValueFilter(MiniCluster.FAMILY, NAME, CompareOperator.EQUAL,
+                                new BinaryComparator(Bytes.toBytes("张100"))));
+            }
+        },
+        ROW {
+            @Override
+            Filter create() {
+                return new RowFilter(CompareOperator.LESS_OR_EQUAL,
+                        new BinaryComparator(Bytes.toBytes(MiniCluster.rowKey(PeopleTable.ROWS / 10))));
+            }
+        },
+        MULTI_ROW_RANGE {
+            @Override
+            Filter create() {
+                return new MultiRowRangeFilter(Arrays.asList(
+                        new MultiRowRangeFilter.RowRange(MiniCluster.rowKey(5000), true, MiniCluster.rowKey(7000), true),
+                        new MultiRowRangeFilter.RowRange(MiniCluster.rowKey(1000), true, MiniCluster.rowKey(2000), true)));
+            }
+        },
+        PREFIX {
+            @Override
+            Filter create() {
+                return new PrefixFilter(Bytes.toBytes("row00001"));
+            }
+        },
+        FUZZY_ROW {
+            @Override
+            Filter create() {
+                //row + 8位数字,只固定倒数第二位为2,命中1/10的行
+                byte[] key = Bytes.toBytes("row\0\0\0\0\0\0" + "2\0");
+                byte[] mask = {0, 0, 0, 1, 1, 1, 1, 1, 1, 0, 1};
+                return new FuzzyRowFilter(Collections.singletonList(new Pair<>(key, mask)));
+            }
+        },
+        COLUMN_PREFIX {
+            @Override
+            Filter create() {
+                return new ColumnPrefixFilter(Bytes.toBytes("na"));
+            }
+        },
+        MULTI_COLUMN_PREFIX {
+            @Override
+            Filter create() {
+                return new MultipleColumnPrefixFilter(new byte[][]{Bytes.toBytes("na"), Bytes.toBytes("se"), Bytes.toBytes("da")});
+            }
+        },
+        KEY_ONLY {
+            @Override
+            Filter create() {
+                return new KeyOnlyFilter();
+            }
+        },
+        FIRST_KEY_ONLY {
+            @Override
+            Filter create() {
+                return new FirstKeyOnlyFilter();
+            }
+        };
+
+        abstract Filter create();
+    }
+
+    @Param
+    private FilterCase filter;
+
+    @Param({"100", "1000"})
+    private int caching;
+
+    /**
+     * 每个Result最多包含的列数,0表示不设置
+     */
+    @Param({"0", "16"})
+    private int batch;
+
+    @Benchmark
+    public long filteredScan(PeopleTable people) {
+        Filter f = filter.create();
+        Scan scan = new Scan();
+        scan.setCaching(caching);
+        if (batch > 0 && !f.hasFilterRow()) {
+            scan.setBatch(batch);
+        }
+        scan.setFilter(f);
+        return people.scan(scan);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.hbase.benchmark;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.filter.ColumnCountGetFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单行Get、批量Get以及HbaseApplicationTests中带ColumnCountGetFilter的Get,按行宽分组
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class GetBenchmark {
+
+    /**
+     * 批量Get一次请求的行数,结果按整批计时
+     */
+    @Param({"10", "100"})
+    private int multiGetSize;
+
+    @Benchmark
+    public int singleGet(PeopleTable people) {
+        Result result = people.template().execute(people.tableName(), table -> table.get(new Get(PeopleTable.randomRow())));
+        return result.size();
+    }
+
+    @Benchmark
+    public int multiGet(PeopleTable people) {
+        List<Get> gets = new ArrayList<>(multiGetSize);
+        for (int i = 0; i < multiGetSize; i++) {
+            gets.add(new Get(PeopleTable.randomRow()));
+        }
+        Result[] results = people.template().execute(people.tableName(), table -> table.get(gets));
+        return results.length;
+    }
+
+    @Benchmark
+    public int columnCountGet(PeopleTable people) {
+        Get get = new Get(PeopleTable.randomRow());
+        get.setFilter(new ColumnCountGetFilter(3));
+        Result result = people.template().execute(people.tableName(), table -> table.get(get));
+        return result.size();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.metrics.HbaseClientMetrics;
+import com.example.hbase.metrics.InstrumentedConnection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InstrumentedTable本身的开销:底层Table直接返回固定Result,不需要集群
+ * <p>
+ * 建议加上-prof gc确认记录指标不产生分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InstrumentationOverheadBenchmark {
+
+    private static final TableName TABLE = TableName.valueOf("bench_overhead");
+
+    private final Get get = new Get(Bytes.toBytes("row1"));
+
+    private Table raw;
+
+    private Table instrumented;
+
+    @Setup
+    public void setUp() throws IOException {
+        Result result = Result.create(new Cell[]{
+                new KeyValue(get.getRow(), MiniCluster.FAMILY, Bytes.toBytes("name"), 1L, Bytes.toBytes("zhangsan"))});
+        raw = new Table() {
+            @Override
+            public TableName getName() {
+                return TABLE;
+            }
+
+            @Override
+            public Configuration getConfiguration() {
+                return null;
+            }
+
+            @Override
+            public TableDescriptor getDescriptor() {
+                return null;
+            }
+
+            @Override
+            public Result get(Get get) {
+                return result;
+            }
+        };
+        HbaseClientMetrics metrics = new HbaseClientMetrics();
+        metrics.bindTo(new SimpleMeterRegistry());
+        instrumented = new InstrumentedConnection(new FixedTableConnection(raw), metrics).getTable(TABLE);
+    }
+
+    @Benchmark
+    public Result rawGet() throws IOException {
+        return raw.get(get);
+    }
+
+    @Benchmark
+    public Result instrumentedGet() throws IOException {
+        return instrumented.get(get);
+    }
+
+    private static final class FixedTableConnection implements Connection {
+
+        private final Table table;
+
+        FixedTableConnection(Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public Configuration getConfiguration() {
+            return null;
+        }
+
+        @Override
+        public Table getTable(TableName tableName) {
+            return table;
+        }
+
+        @Override
+        public BufferedMutator getBufferedMutator(TableName tableName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BufferedMutator getBufferedMutator(BufferedMutatorParams params) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public RegionLocator getRegionLocator(TableName tableName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Admin getAdmin() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public TableBuilder getTableBuilder(TableName tableName, ExecutorService pool) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void abort(String why, Throwable e) {
+        }
+
+        @Override
+        public boolean isAborted() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.hbase.benchmark;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+
+/**
+ * 进程内的HBase mini-cluster,同一个JMH fork内的所有benchmark共享
+ */
+public final class MiniCluster {
+
+    public static final byte[] FAMILY = Bytes.toBytes("cf1");
+
+    /**
+     * 宽行中填充列所在的列簇,用于FamilyFilter等区分列簇的场景
+     */
+    public static final byte[] FILLER_FAMILY = Bytes.toBytes("cf2");
+
+    public static final String[] ADDRESSES = {"beijing", "shanghai", "hangzhou"};
+
+    private static HBaseTestingUtility utility;
+
+    private static int users;
+
+    private MiniCluster() {
+    }
+
+    public static synchronized HBaseTestingUtility acquire() throws Exception {
+        if (utility == null) {
+            utility = new HBaseTestingUtility();
+            utility.startMiniCluster();
+        }
+        users++;
+        return utility;
+    }
+
+    public static synchronized void release() throws Exception {
+        if (--users == 0 && utility != null) {
+            utility.shutdownMiniCluster();
+            utility = null;
+        }
+    }
+
+    public static String rowKey(int i) {
+        return String.format("row%08d", i);
+    }
+
+    /**
+     * 建表并写入rows行数据,每行columns列,列名为c0..cN,行键为row00000000格式
+     *
+     * @param connection
+     * @param tableName
+     * @param rows
+     * @param columns
+     * @param splits     预分区数
+     * @throws IOException
+     */
+    public static void createAndLoad(Connection connection, TableName tableName, int rows, int columns, int splits)
+            throws IOException {
+        if (!create(connection, tableName, rows, splits, FAMILY)) {
+            return;
+        }
+        try (BufferedMutator mutator = connection.getBufferedMutator(tableName)) {
+            for (int i = 0; i < rows; i++) {
+                Put put = new Put(Bytes.toBytes(rowKey(i)));
+                for (int c = 0; c < columns; c++) {
+                    put.addColumn(FAMILY, Bytes.toBytes("c" + c), Bytes.toBytes("value-" + i + "-" + c));
+                }
+                mutator.mutate(put);
+            }
+        }
+    }
+
+    /**
+     * 建表并写入与HbaseApplicationTests相同结构的人员数据:cf1下name/sex/age/address四列,
+     * cf2下width-4个填充列,用来控制行宽
+     *
+     * @param connection
+     * @param tableName
+     * @param rows
+     * @param width      每行总列数,至少为4
+     * @param splits     预分区数
+     * @throws IOException
+     */
+    public static void createAndLoadPeople(Connection connection, TableName tableName, int rows, int width, int splits)
+            throws IOException {
+        if (!create(connection, tableName, rows, splits, FAMILY, FILLER_FAMILY)) {
+            return;
+        }
+        try (BufferedMutator mutator = connection.getBufferedMutator(tableName)) {
+            for (int i = 0; i < rows; i++) {
+                mutator.mutate(person(i, width));
+            }
+        }
+    }
+
+    public static Put person(int i, int width) {
+        Put put = new Put(Bytes.toBytes(rowKey(i)));
+        put.addColumn(FAMILY, Bytes.toBytes("name"), Bytes.toBytes((i % 10 == 0 ? "张" : "wang") + i));
+        put.addColumn(FAMILY, Bytes.toBytes("sex"), Bytes.toBytes(i % 2 == 0 ? "男" : "女"));
+        put.addColumn(FAMILY, Bytes.toBytes("age"), Bytes.toBytes(i % 100));
+        put.addColumn(FAMILY, Bytes.toBytes("address"), Bytes.toBytes(ADDRESSES[i % ADDRESSES.length]));
+        for (int c = 0; c < width - 4; c++) {
+            put.addColumn(FILLER_FAMILY, Bytes.toBytes("c" + c), Bytes.toBytes("value-" + i + "-" + c));
+        }
+        return put;
+    }
+
+    private static boolean create(Connection connection, TableName tableName, int rows, int splits, byte[]... families)
+            throws IOException {
+        if (connection.getAdmin().tableExists(tableName)) {
+            return false;
+        }
+        byte[][] splitKeys = new byte[Math.max(0, splits - 1)][];
+        for (int i = 0; i < splitKeys.length; i++) {
+            splitKeys[i] = Bytes.toBytes(rowKey((int) ((long) rows * (i + 1) / splits)));
+        }
+        utility.createTable(tableName, families, splitKeys);
+        return true;
+    }
+}
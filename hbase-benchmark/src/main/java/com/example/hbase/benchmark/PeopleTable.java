@@ -0,0 +1,92 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Get/Put/Scan/Filter几组benchmark共享的表:每种行宽一张表,表不存在时才建表和导入
+ */
+@State(Scope.Benchmark)
+public class PeopleTable {
+
+    public static final int ROWS = 20_000;
+
+    private static final int SPLITS = 4;
+
+    /**
+     * 每行总列数,cf1固定4列,其余在cf2
+     */
+    @Param({"4", "64"})
+    public int rowWidth;
+
+    private Connection connection;
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    private TableName tableName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pool = Executors.newFixedThreadPool(32);
+        connection = ConnectionFactory.createConnection(MiniCluster.acquire().getConfiguration(), pool);
+        tableName = TableName.valueOf("bench_people_w" + rowWidth);
+        MiniCluster.createAndLoadPeople(connection, tableName, ROWS, rowWidth, SPLITS);
+        template = new HbaseTemplate(connection, pool, new HbaseConnectionMetrics());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        pool.shutdown();
+        MiniCluster.release();
+    }
+
+    public HbaseTemplate template() {
+        return template;
+    }
+
+    public TableName tableName() {
+        return tableName;
+    }
+
+    public static byte[] randomRow() {
+        return Bytes.toBytes(MiniCluster.rowKey(ThreadLocalRandom.current().nextInt(ROWS)));
+    }
+
+    /**
+     * 扫描到底并返回cell数,保证结果被完整读取和解码
+     *
+     * @param scan
+     * @return
+     */
+    public long scan(Scan scan) {
+        return template.execute(tableName, table -> {
+            long cells = 0;
+            try (ResultScanner scanner = table.getScanner(scan)) {
+                for (Result result : scanner) {
+                    cells += result.size();
+                }
+            }
+            return cells;
+        });
+    }
+}
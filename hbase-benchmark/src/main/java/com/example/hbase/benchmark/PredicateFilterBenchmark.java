@@ -0,0 +1,67 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.query.Predicate;
+import com.example.hbase.query.Query;
+import com.example.hbase.query.QueryPlan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.hbase.query.Predicate.and;
+import static com.example.hbase.query.Predicate.contains;
+import static com.example.hbase.query.Predicate.eq;
+import static com.example.hbase.query.Predicate.gt;
+import static com.example.hbase.query.Predicate.lt;
+import static com.example.hbase.query.Predicate.or;
+
+/**
+ * 同一个嵌套条件分别按嵌套FilterList和编译后的PredicateFilter全表扫描,两者返回相同的行
+ * <p>
+ * 条件里每一列都出现多次,FilterList每个叶子各自解析一遍列值,PredicateFilter每行每列只取一次
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class PredicateFilterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean compiled;
+
+    @Param({"100", "1000"})
+    private int caching;
+
+    private QueryPlan plan;
+
+    static Predicate predicate() {
+        return or(
+                and(eq("cf1:sex", "男"), or(eq("cf1:address", "beijing"), gt("cf1:age", Bytes.toBytes(90)))),
+                and(eq("cf1:address", "shanghai"), or(lt("cf1:age", Bytes.toBytes(10)), contains("cf1:name", "张"))),
+                and(eq("cf1:sex", "女"), eq("cf1:address", "hangzhou"), lt("cf1:age", Bytes.toBytes(50))));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(PeopleTable people) {
+        Query query = Query.from(people.tableName()).where(predicate());
+        plan = (compiled ? query.compiled() : query).plan();
+    }
+
+    @Benchmark
+    public long filteredScan(PeopleTable people) {
+        return people.scan(plan.getScan().setCaching(caching));
+    }
+}
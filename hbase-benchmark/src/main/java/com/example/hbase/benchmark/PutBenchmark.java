@@ -0,0 +1,46 @@
+package com.example.hbase.benchmark;
+
+import org.apache.hadoop.hbase.client.Put;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过HbaseTemplate.put(List)批量写入,覆盖写已有行,表中数据内容不变,不影响同一fork内的读benchmark
+ * <p>
+ * 结果按整批计时,单行开销需除以batchSize
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class PutBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    @Benchmark
+    public int batchedPut(PeopleTable people) {
+        List<Put> puts = new ArrayList<>(batchSize);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < batchSize; i++) {
+            puts.add(MiniCluster.person(random.nextInt(PeopleTable.ROWS), people.rowWidth));
+        }
+        people.template().put(people.tableName().getNameAsString(), puts);
+        return puts.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.cache.RowCache;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热点倾斜访问下有无行缓存的Get延迟分布,SampleTime模式输出p99
+ * <p>
+ * 行号按近似Zipf分布抽取:hotRows行承担约90%的访问
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class RowCacheBenchmark {
+
+    @Param({"100"})
+    private int hotRows;
+
+    private HbaseTemplate cachedTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp(PeopleTable people) {
+        HbaseTemplate template = people.template();
+        RowCache rowCache = new RowCache(Collections.singleton(people.tableName()), 64L * 1024 * 1024, Duration.ofMinutes(5));
+        cachedTemplate = new HbaseTemplate(template.getConnection(), template.getPool(), new HbaseConnectionMetrics(), rowCache);
+    }
+
+    private String skewedRow() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int row = random.nextInt(10) < 9 ? random.nextInt(hotRows) : random.nextInt(PeopleTable.ROWS);
+        return MiniCluster.rowKey(row);
+    }
+
+    @Benchmark
+    public Result uncachedGet(PeopleTable people) {
+        return people.template().get(people.tableName().getNameAsString(), skewedRow(), (result, rowNum) -> result);
+    }
+
+    @Benchmark
+    public Result cachedGet(PeopleTable people) {
+        return cachedTemplate.get(people.tableName().getNameAsString(), skewedRow(), (result, rowNum) -> result);
+    }
+
+    @Benchmark
+    public int cachedDecode(PeopleTable people) {
+        Result result = cachedTemplate.get(people.tableName().getNameAsString(), MiniCluster.rowKey(0), (r, rowNum) -> r);
+        return Bytes.toInt(result.getValue(MiniCluster.FAMILY, Bytes.toBytes("age")));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.loader.RowLoader;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 64个调用线程各自发单行Get与通过RowLoader合并成批量Get的吞吐对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(64)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class RowLoaderBenchmark {
+
+    /**
+     * 合并窗口,单位微秒,0表示只合并已经排队的请求
+     */
+    @Param({"0", "500"})
+    private long windowMicros;
+
+    private RowLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp(PeopleTable people) {
+        loader = new RowLoader(people.template(), people.tableName(), Get::new, 100,
+                TimeUnit.MICROSECONDS.toNanos(windowMicros));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loader.close();
+    }
+
+    @Benchmark
+    public Result directGet(PeopleTable people) {
+        return people.template().execute(people.tableName(), table -> table.get(new Get(PeopleTable.randomRow())));
+    }
+
+    @Benchmark
+    public Result coalescedGet() {
+        return loader.load(PeopleTable.randomRow()).join();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.hbase.benchmark;
+
+import com.example.hbase.mapper.Column;
+import com.example.hbase.mapper.EntityMapper;
+import com.example.hbase.mapper.HbaseTable;
+import com.example.hbase.mapper.RowKey;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityMapper与HbaseApplicationTests中手工解码方式(每个cell四次Bytes.toString + getMap)的对比,不需要集群
+ * <p>
+ * 建议加上-prof gc查看每行的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowMapperBenchmark {
+
+    @HbaseTable("myage")
+    public static class Person {
+
+        @RowKey
+        private String id;
+
+        @Column(family = "mycf")
+        private String name;
+
+        @Column(family = "mycf")
+        private String sex;
+
+        @Column(family = "mycf")
+        private String address;
+
+        @Column(family = "mycf")
+        private int age;
+
+        @Column(family = "mycf")
+        private long score;
+    }
+
+    private final EntityMapper<Person> mapper = EntityMapper.of(Person.class);
+
+    private Result result;
+
+    private Person person;
+
+    @Setup
+    public void setUp() {
+        person = new Person();
+        person.id = "row00000001";
+        person.name = "zhangsan";
+        person.sex = "男";
+        person.address = "beijing";
+        person.age = 18;
+        person.score = 987654321L;
+        Put put = mapper.toPut(person);
+        List<Cell> cells = new ArrayList<>();
+        put.getFamilyCellMap().values().forEach(cells::addAll);
+        cells.sort(CellComparator.getInstance());
+        result = Result.create(cells);
+    }
+
+    @Benchmark
+    public Person manualDecode() {
+        NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map = result.getMap();
+        Person decoded = new Person();
+        for (Cell cell : result.rawCells()) {
+            String row = Bytes.toString(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+            String family = Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+            String column = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+            decoded.id = row;
+            if (!"mycf".equals(family)) {
+                continue;
+            }
+            switch (column) {
+                case "name":
+                    decoded.name = Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                    break;
+                case "sex":
+                    decoded.sex = Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                    break;
+                case "address":
+                    decoded.address = Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                    break;
+                case "age":
+                    decoded.age = Bytes.toInt(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                    break;
+                case "score":
+                    decoded.score = Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                    break;
+                default:
+            }
+        }
+        return map.isEmpty() ? null : decoded;
+    }
+
+    @Benchmark
+    public Person entityMapperDecode() {
+        return mapper.mapRow(result, 0);
+    }
+
+    @Benchmark
+    public Put entityMapperEncode() {
+        return mapper.toPut(person);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.hbase.benchmark;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全表扫描和范围扫描,按caching、batch和行宽组合
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+public class ScanBenchmark {
+
+    private static final int RANGE_ROWS = 1000;
+
+    @Param({"10", "100", "1000"})
+    private int caching;
+
+    /**
+     * 每个Result最多包含的列数,0表示不设置
+     */
+    @Param({"0", "16"})
+    private int batch;
+
+    private Scan newScan() {
+        Scan scan = new Scan();
+        scan.setCaching(caching);
+        if (batch > 0) {
+            scan.setBatch(batch);
+        }
+        return scan;
+    }
+
+    @Benchmark
+    public long fullScan(PeopleTable people) {
+        return people.scan(newScan());
+    }
+
+    @Benchmark
+    public long rangedScan(PeopleTable people) {
+        int start = ThreadLocalRandom.current().nextInt(PeopleTable.ROWS - RANGE_ROWS);
+        Scan scan = newScan()
+                .withStartRow(Bytes.toBytes(MiniCluster.rowKey(start)))
+                .withStopRow(Bytes.toBytes(MiniCluster.rowKey(start + RANGE_ROWS)));
+        return people.scan(scan);
+    }
+}
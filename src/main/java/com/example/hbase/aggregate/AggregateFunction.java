@@ -0,0 +1,41 @@
+package com.example.hbase.aggregate;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+
+/**
+ * 聚合函数:每个region在自己的累加器上累加,最后合并所有region的累加器得到结果
+ * <p>
+ * 累加器只在一个线程上使用,实现类应当用基本类型保存中间状态,累加时不要装箱
+ *
+ * @param <A> 累加器
+ * @param <R> 结果
+ */
+public interface AggregateFunction<A, R> {
+
+    A create();
+
+    void accumulate(A accumulator, Result row);
+
+    /**
+     * 把other合并进accumulator,可以直接修改并返回accumulator
+     */
+    A merge(A accumulator, A other);
+
+    /**
+     * 计算结果,不能修改累加器,返回的结果也不能与累加器共享可变状态
+     */
+    R finish(A accumulator);
+
+    /**
+     * 是否只需要行键,为true时scan只返回每行第一个cell的键
+     */
+    default boolean keysOnly() {
+        return false;
+    }
+
+    /**
+     * 把需要读取的列加入scan
+     */
+    void addColumns(Scan scan);
+}
@@ -0,0 +1,42 @@
+package com.example.hbase.aggregate;
+
+/**
+ * 聚合进度:已完成的region数和这些region合并后的结果
+ *
+ * @param <R>
+ */
+public class AggregateProgress<R> {
+
+    private final int completedRegions;
+
+    private final int totalRegions;
+
+    private final R result;
+
+    AggregateProgress(int completedRegions, int totalRegions, R result) {
+        this.completedRegions = completedRegions;
+        this.totalRegions = totalRegions;
+        this.result = result;
+    }
+
+    public int getCompletedRegions() {
+        return completedRegions;
+    }
+
+    public int getTotalRegions() {
+        return totalRegions;
+    }
+
+    public R getResult() {
+        return result;
+    }
+
+    public boolean isComplete() {
+        return completedRegions == totalRegions;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateProgress{" + completedRegions + "/" + totalRegions + ", result=" + result + "}";
+    }
+}
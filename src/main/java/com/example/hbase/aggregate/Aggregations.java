@@ -0,0 +1,324 @@
+package com.example.hbase.aggregate;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 常用聚合函数
+ * <p>
+ * 列统一写成family:qualifier,只看最新版本;没有该列的行不参与列上的聚合
+ */
+public final class Aggregations {
+
+    public static final int DEFAULT_PRECISION = 14;
+
+    private Aggregations() {
+    }
+
+    /**
+     * 行数,只读取每行第一个cell的键
+     */
+    public static AggregateFunction<long[], Long> count() {
+        return new AggregateFunction<long[], Long>() {
+            @Override
+            public long[] create() {
+                return new long[1];
+            }
+
+            @Override
+            public void accumulate(long[] accumulator, Result row) {
+                accumulator[0]++;
+            }
+
+            @Override
+            public long[] merge(long[] accumulator, long[] other) {
+                accumulator[0] += other[0];
+                return accumulator;
+            }
+
+            @Override
+            public Long finish(long[] accumulator) {
+                return accumulator[0];
+            }
+
+            @Override
+            public boolean keysOnly() {
+                return true;
+            }
+
+            @Override
+            public void addColumns(Scan scan) {
+            }
+        };
+    }
+
+    /**
+     * 整数列的count/sum/min/max/average
+     */
+    public static AggregateFunction<LongSummaryStatistics, LongSummaryStatistics> longStats(String column,
+                                                                                           NumberEncoding encoding) {
+        if (!encoding.isIntegral()) {
+            throw new IllegalArgumentException(encoding + " is not an integral encoding, use doubleStats");
+        }
+        return new ColumnFunction<LongSummaryStatistics, LongSummaryStatistics>(column) {
+            @Override
+            public LongSummaryStatistics create() {
+                return new LongSummaryStatistics();
+            }
+
+            @Override
+            void accumulate(LongSummaryStatistics accumulator, Result row, Cell cell) {
+                accumulator.accept(encoding.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+            }
+
+            @Override
+            public LongSummaryStatistics merge(LongSummaryStatistics accumulator, LongSummaryStatistics other) {
+                accumulator.combine(other);
+                return accumulator;
+            }
+
+            @Override
+            public LongSummaryStatistics finish(LongSummaryStatistics accumulator) {
+                LongSummaryStatistics copy = new LongSummaryStatistics();
+                copy.combine(accumulator);
+                return copy;
+            }
+        };
+    }
+
+    /**
+     * 浮点列的count/sum/min/max/average
+     */
+    public static AggregateFunction<DoubleSummaryStatistics, DoubleSummaryStatistics> doubleStats(
+            String column, NumberEncoding encoding) {
+        return new ColumnFunction<DoubleSummaryStatistics, DoubleSummaryStatistics>(column) {
+            @Override
+            public DoubleSummaryStatistics create() {
+                return new DoubleSummaryStatistics();
+            }
+
+            @Override
+            void accumulate(DoubleSummaryStatistics accumulator, Result row, Cell cell) {
+                accumulator.accept(encoding.toDouble(cell.getValueArray(), cell.getValueOffset(),
+                        cell.getValueLength()));
+            }
+
+            @Override
+            public DoubleSummaryStatistics merge(DoubleSummaryStatistics accumulator, DoubleSummaryStatistics other) {
+                accumulator.combine(other);
+                return accumulator;
+            }
+
+            @Override
+            public DoubleSummaryStatistics finish(DoubleSummaryStatistics accumulator) {
+                DoubleSummaryStatistics copy = new DoubleSummaryStatistics();
+                copy.combine(accumulator);
+                return copy;
+            }
+        };
+    }
+
+    public static AggregateFunction<LongSummaryStatistics, Long> sum(String column, NumberEncoding encoding) {
+        return map(longStats(column, encoding), LongSummaryStatistics::getSum);
+    }
+
+    /**
+     * @return 没有行时为null
+     */
+    public static AggregateFunction<LongSummaryStatistics, Long> min(String column, NumberEncoding encoding) {
+        return map(longStats(column, encoding), stats -> stats.getCount() == 0 ? null : stats.getMin());
+    }
+
+    /**
+     * @return 没有行时为null
+     */
+    public static AggregateFunction<LongSummaryStatistics, Long> max(String column, NumberEncoding encoding) {
+        return map(longStats(column, encoding), stats -> stats.getCount() == 0 ? null : stats.getMax());
+    }
+
+    /**
+     * @return 没有行时为null
+     */
+    public static AggregateFunction<LongSummaryStatistics, Double> avg(String column, NumberEncoding encoding) {
+        return map(longStats(column, encoding), stats -> stats.getCount() == 0 ? null : stats.getAverage());
+    }
+
+    public static AggregateFunction<HyperLogLog, Long> distinct(String column) {
+        return distinct(column, DEFAULT_PRECISION);
+    }
+
+    /**
+     * 列值的近似去重计数
+     *
+     * @param column
+     * @param precision HyperLogLog精度
+     * @return
+     */
+    public static AggregateFunction<HyperLogLog, Long> distinct(String column, int precision) {
+        return new ColumnFunction<HyperLogLog, Long>(column) {
+            @Override
+            public HyperLogLog create() {
+                return new HyperLogLog(precision);
+            }
+
+            @Override
+            void accumulate(HyperLogLog accumulator, Result row, Cell cell) {
+                accumulator.add(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            }
+
+            @Override
+            public HyperLogLog merge(HyperLogLog accumulator, HyperLogLog other) {
+                accumulator.merge(other);
+                return accumulator;
+            }
+
+            @Override
+            public Long finish(HyperLogLog accumulator) {
+                return accumulator.estimate();
+            }
+        };
+    }
+
+    /**
+     * 按列值(UTF-8字符串)分组,每组分别聚合,没有分组列的行被跳过
+     *
+     * @param column    分组列
+     * @param aggregate 组内的聚合函数
+     * @return 按分组值排序的结果
+     */
+    public static <A, R> AggregateFunction<Map<ByteBuffer, A>, SortedMap<String, R>> groupBy(
+            String column, AggregateFunction<A, R> aggregate) {
+        return new ColumnFunction<Map<ByteBuffer, A>, SortedMap<String, R>>(column) {
+            @Override
+            public Map<ByteBuffer, A> create() {
+                return new HashMap<>();
+            }
+
+            @Override
+            void accumulate(Map<ByteBuffer, A> accumulator, Result row, Cell cell) {
+                //用不复制的ByteBuffer查找,只有新的分组才复制一份作为键
+                ByteBuffer key = ByteBuffer.wrap(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                A group = accumulator.get(key);
+                if (group == null) {
+                    group = aggregate.create();
+                    accumulator.put(ByteBuffer.wrap(Arrays.copyOfRange(cell.getValueArray(), cell.getValueOffset(),
+                            cell.getValueOffset() + cell.getValueLength())), group);
+                }
+                aggregate.accumulate(group, row);
+            }
+
+            @Override
+            public Map<ByteBuffer, A> merge(Map<ByteBuffer, A> accumulator, Map<ByteBuffer, A> other) {
+                for (Map.Entry<ByteBuffer, A> entry : other.entrySet()) {
+                    accumulator.merge(entry.getKey(), entry.getValue(), aggregate::merge);
+                }
+                return accumulator;
+            }
+
+            @Override
+            public SortedMap<String, R> finish(Map<ByteBuffer, A> accumulator) {
+                SortedMap<String, R> result = new TreeMap<>();
+                for (Map.Entry<ByteBuffer, A> entry : accumulator.entrySet()) {
+                    result.put(Bytes.toString(entry.getKey().array()), aggregate.finish(entry.getValue()));
+                }
+                return result;
+            }
+
+            @Override
+            public void addColumns(Scan scan) {
+                super.addColumns(scan);
+                aggregate.addColumns(scan);
+            }
+        };
+    }
+
+    /**
+     * 对结果做一次转换
+     */
+    public static <A, R, T> AggregateFunction<A, T> map(AggregateFunction<A, R> aggregate, Function<R, T> mapper) {
+        return new AggregateFunction<A, T>() {
+            @Override
+            public A create() {
+                return aggregate.create();
+            }
+
+            @Override
+            public void accumulate(A accumulator, Result row) {
+                aggregate.accumulate(accumulator, row);
+            }
+
+            @Override
+            public A merge(A accumulator, A other) {
+                return aggregate.merge(accumulator, other);
+            }
+
+            @Override
+            public T finish(A accumulator) {
+                return mapper.apply(aggregate.finish(accumulator));
+            }
+
+            @Override
+            public boolean keysOnly() {
+                return aggregate.keysOnly();
+            }
+
+            @Override
+            public void addColumns(Scan scan) {
+                aggregate.addColumns(scan);
+            }
+        };
+    }
+
+    /**
+     * 作用在一列上的聚合
+     */
+    private abstract static class ColumnFunction<A, R> implements AggregateFunction<A, R> {
+
+        private final byte[] family;
+
+        private final byte[] qualifier;
+
+        ColumnFunction(String column) {
+            int colon = column.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Column must be family:qualifier: " + column);
+            }
+            this.family = Bytes.toBytes(column.substring(0, colon));
+            this.qualifier = Bytes.toBytes(column.substring(colon + 1));
+        }
+
+        @Override
+        public void accumulate(A accumulator, Result row) {
+            Cell cell = row.getColumnLatestCell(family, qualifier);
+            if (cell != null) {
+                accumulate(accumulator, row, cell);
+            }
+        }
+
+        abstract void accumulate(A accumulator, Result row, Cell cell);
+
+        /**
+         * 已经读取整个列族时不再addColumn,否则会把列族缩小成一列
+         */
+        @Override
+        public void addColumns(Scan scan) {
+            Map<byte[], NavigableSet<byte[]>> families = scan.getFamilyMap();
+            if (!families.containsKey(family) || families.get(family) != null) {
+                scan.addColumn(family, qualifier);
+            }
+        }
+    }
+}
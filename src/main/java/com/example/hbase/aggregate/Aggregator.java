@@ -0,0 +1,133 @@
+package com.example.hbase.aggregate;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.query.Query;
+import com.example.hbase.query.QueryPlan;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 并行聚合:按region切分scan,每个region在后台线程上独立累加,最后合并各region的累加器
+ * <p>
+ * 只需要行键的聚合(如count)用FirstKeyOnlyFilter和KeyOnlyFilter,每行只返回一个不带值的cell;
+ * 其他聚合在scan没有指定列且没有过滤器时只读取用到的列。scan带过滤器时不缩小投影,避免过滤器看不到它依赖的列
+ */
+public class Aggregator {
+
+    private final HbaseTemplate template;
+
+    private final ParallelScanner scanner;
+
+    private final Scheduler scheduler;
+
+    private final int parallelism;
+
+    /**
+     * @param template
+     * @param scanner     切分region
+     * @param pool        执行region扫描的线程池
+     * @param parallelism 单次聚合同时扫描的最大region数
+     */
+    public Aggregator(HbaseTemplate template, ParallelScanner scanner, ExecutorService pool, int parallelism) {
+        this.template = template;
+        this.scanner = scanner;
+        this.scheduler = Schedulers.fromExecutorService(pool);
+        this.parallelism = parallelism;
+    }
+
+    public <A, R> R aggregate(String tableName, Scan scan, AggregateFunction<A, R> function) {
+        TableName table = TableName.valueOf(tableName);
+        A merged = partials(table, subScans(table, scan, function), function)
+                .reduce(function::merge)
+                .blockOptional()
+                .orElseGet(function::create);
+        return function.finish(merged);
+    }
+
+    /**
+     * 按查询计划聚合,条件不可能满足时不访问HBase
+     */
+    public <A, R> R aggregate(Query query, AggregateFunction<A, R> function) {
+        QueryPlan plan = query.plan();
+        if (plan.isEmpty()) {
+            return function.finish(function.create());
+        }
+        return aggregate(plan.getTableName().getNameAsString(), plan.getScan(), function);
+    }
+
+    /**
+     * 每完成一个region发出一次到目前为止的合并结果,最后一个元素即最终结果
+     *
+     * @param tableName
+     * @param scan
+     * @param function
+     * @return
+     */
+    public <A, R> Flux<AggregateProgress<R>> stream(String tableName, Scan scan, AggregateFunction<A, R> function) {
+        TableName table = TableName.valueOf(tableName);
+        return Flux.defer(() -> {
+            List<Scan> subScans = subScans(table, scan, function);
+            if (subScans.isEmpty()) {
+                return Flux.just(new AggregateProgress<>(0, 0, function.finish(function.create())));
+            }
+            //flatMap的输出是串行的,scan依次把每个region的累加器合并进第一个累加器
+            return partials(table, subScans, function)
+                    .scan(function::merge)
+                    .index((completed, merged) -> new AggregateProgress<>(completed.intValue() + 1, subScans.size(),
+                            function.finish(merged)));
+        });
+    }
+
+    private <A> Flux<A> partials(TableName tableName, List<Scan> subScans, AggregateFunction<A, ?> function) {
+        return Flux.fromIterable(subScans)
+                .flatMap(subScan -> Mono.fromCallable(() -> scanRegion(tableName, subScan, function))
+                        .subscribeOn(scheduler), parallelism);
+    }
+
+    private <A> A scanRegion(TableName tableName, Scan subScan, AggregateFunction<A, ?> function) {
+        return template.execute(tableName, table -> {
+            A accumulator = function.create();
+            try (ResultScanner results = table.getScanner(subScan)) {
+                for (Result row : results) {
+                    function.accumulate(accumulator, row);
+                }
+            }
+            return accumulator;
+        });
+    }
+
+    private List<Scan> subScans(TableName tableName, Scan scan, AggregateFunction<?, ?> function) {
+        if (scan.getLimit() > 0) {
+            throw new IllegalArgumentException("Aggregation does not support scan limit");
+        }
+        Scan prepared;
+        try {
+            prepared = new Scan(scan);
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+        if (function.keysOnly()) {
+            prepared.setFilter(scan.getFilter() == null
+                    ? new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter())
+                    : new FilterList(scan.getFilter(), new KeyOnlyFilter()));
+        } else if (scan.getFilter() == null || scan.hasFamilies()) {
+            function.addColumns(prepared);
+        }
+        return scanner.split(tableName, prepared);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.hbase.aggregate;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 数值列的编码方式,直接从cell的底层数组解码
+ */
+public enum NumberEncoding {
+
+    /**
+     * Bytes.toBytes(short)
+     */
+    SHORT(true) {
+        @Override
+        public long toLong(byte[] bytes, int offset, int length) {
+            return Bytes.toShort(bytes, offset, length);
+        }
+    },
+
+    /**
+     * Bytes.toBytes(int)
+     */
+    INT(true) {
+        @Override
+        public long toLong(byte[] bytes, int offset, int length) {
+            return Bytes.toInt(bytes, offset, length);
+        }
+    },
+
+    /**
+     * Bytes.toBytes(long)
+     */
+    LONG(true) {
+        @Override
+        public long toLong(byte[] bytes, int offset, int length) {
+            return Bytes.toLong(bytes, offset, length);
+        }
+    },
+
+    /**
+     * Bytes.toBytes(float)
+     */
+    FLOAT(false) {
+        @Override
+        public double toDouble(byte[] bytes, int offset, int length) {
+            return Bytes.toFloat(bytes, offset);
+        }
+    },
+
+    /**
+     * Bytes.toBytes(double)
+     */
+    DOUBLE(false) {
+        @Override
+        public double toDouble(byte[] bytes, int offset, int length) {
+            return Bytes.toDouble(bytes, offset);
+        }
+    },
+
+    /**
+     * OrderedCodecs.INT32:1字节类型头加符号位取反的大端int
+     */
+    ORDERED_INT32(true) {
+        @Override
+        public long toLong(byte[] bytes, int offset, int length) {
+            return Bytes.toInt(bytes, offset + 1) ^ Integer.MIN_VALUE;
+        }
+    },
+
+    /**
+     * OrderedCodecs.INT64:1字节类型头加符号位取反的大端long
+     */
+    ORDERED_INT64(true) {
+        @Override
+        public long toLong(byte[] bytes, int offset, int length) {
+            return Bytes.toLong(bytes, offset + 1) ^ Long.MIN_VALUE;
+        }
+    },
+
+    /**
+     * OrderedCodecs.FLOAT64:1字节类型头,正数翻转符号位、负数翻转全部位
+     */
+    ORDERED_FLOAT64(false) {
+        @Override
+        public double toDouble(byte[] bytes, int offset, int length) {
+            long bits = Bytes.toLong(bytes, offset + 1);
+            bits ^= (~bits >> 63) | Long.MIN_VALUE;
+            return Double.longBitsToDouble(bits);
+        }
+    },
+
+    /**
+     * 十进制整数文本
+     */
+    TEXT(true) {
+        @Override
+        public long toLong(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                throw new NumberFormatException("Empty number");
+            }
+            boolean negative = bytes[offset] == '-';
+            long value = 0;
+            for (int i = negative ? 1 : 0; i < length; i++) {
+                int digit = bytes[offset + i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("Not a number: " + Bytes.toStringBinary(bytes, offset, length));
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+    };
+
+    private final boolean integral;
+
+    NumberEncoding(boolean integral) {
+        this.integral = integral;
+    }
+
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public long toLong(byte[] bytes, int offset, int length) {
+        throw new UnsupportedOperationException(name() + " is not an integral encoding");
+    }
+
+    public double toDouble(byte[] bytes, int offset, int length) {
+        return toLong(bytes, offset, length);
+    }
+}
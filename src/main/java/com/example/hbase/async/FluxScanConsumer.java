@@ -0,0 +1,88 @@
+package com.example.hbase.async;
+
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.Result;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * 把AdvancedScanResultConsumer的推模式适配成带背压的FluxSink
+ * <p>
+ * 每批结果全部写入sink后,如果下游已无剩余需求就suspend,由request回调resume;cancel只能在onNext/onHeartbeat内terminate
+ */
+class FluxScanConsumer implements AdvancedScanResultConsumer {
+
+    private final FluxSink<Result> sink;
+
+    private ScanResumer resumer;
+
+    private long demand;
+
+    private volatile boolean cancelled;
+
+    FluxScanConsumer(FluxSink<Result> sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void onNext(Result[] results, ScanController controller) {
+        synchronized (this) {
+            if (cancelled) {
+                controller.terminate();
+                return;
+            }
+            for (Result result : results) {
+                sink.next(result);
+            }
+            if (demand != Long.MAX_VALUE) {
+                demand -= results.length;
+            }
+            if (cancelled) {
+                //下游可能在sink.next的回调中直接取消
+                controller.terminate();
+            } else if (demand <= 0) {
+                resumer = controller.suspend();
+            }
+        }
+    }
+
+    @Override
+    public void onHeartbeat(ScanController controller) {
+        if (cancelled) {
+            controller.terminate();
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        sink.error(error);
+    }
+
+    @Override
+    public void onComplete() {
+        sink.complete();
+    }
+
+    void request(long n) {
+        synchronized (this) {
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+        resume();
+    }
+
+    void cancel() {
+        cancelled = true;
+        //恢复挂起的scanner,让它在下一次onNext中terminate并释放region server上的租约
+        resume();
+    }
+
+    private void resume() {
+        ScanResumer toResume;
+        synchronized (this) {
+            toResume = resumer;
+            resumer = null;
+        }
+        if (toResume != null) {
+            toResume.resume();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.hbase.async;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.ScanResultConsumer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 基于AsyncConnection的非阻塞访问模板,所有方法立即返回CompletableFuture
+ * <p>
+ * 回调在共享的小线程池上执行,不会占用RPC的netty线程,因此调用方可以放心地在回调里做轻量计算
+ */
+public class HbaseAsyncTemplate {
+
+    private final AsyncConnection connection;
+
+    private final ExecutorService callbackPool;
+
+    public HbaseAsyncTemplate(AsyncConnection connection, ExecutorService callbackPool) {
+        this.connection = connection;
+        this.callbackPool = callbackPool;
+    }
+
+    public AsyncConnection getConnection() {
+        return connection;
+    }
+
+    public AsyncTable<ScanResultConsumer> getTable(String tableName) {
+        return connection.getTable(TableName.valueOf(tableName), callbackPool);
+    }
+
+    public CompletableFuture<Result> get(String tableName, Get get) {
+        return getTable(tableName).get(get);
+    }
+
+    public CompletableFuture<List<Result>> get(String tableName, List<Get> gets) {
+        return getTable(tableName).getAll(gets);
+    }
+
+    public CompletableFuture<Void> put(String tableName, Put put) {
+        return getTable(tableName).put(put);
+    }
+
+    public CompletableFuture<Void> put(String tableName, List<Put> puts) {
+        return getTable(tableName).putAll(puts);
+    }
+
+    public CompletableFuture<Void> delete(String tableName, Delete delete) {
+        return getTable(tableName).delete(delete);
+    }
+
+    public <T> CompletableFuture<List<T>> batch(String tableName, List<? extends Row> actions) {
+        return getTable(tableName).batchAll(actions);
+    }
+
+    /**
+     * 一次性取回全部结果,只适合结果集较小的scan,大结果集请使用ReactiveHbaseTemplate#scan
+     *
+     * @param tableName
+     * @param scan
+     * @return
+     */
+    public CompletableFuture<List<Result>> scanAll(String tableName, Scan scan) {
+        return getTable(tableName).scanAll(scan);
+    }
+
+    /**
+     * 以回调方式流式消费scan结果,consumer.onNext返回false时终止scan
+     *
+     * @param tableName
+     * @param scan
+     * @param consumer
+     */
+    public void scan(String tableName, Scan scan, ScanResultConsumer consumer) {
+        getTable(tableName).scan(scan, consumer);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.hbase.async;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.Scan;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactor风格的访问模板
+ * <p>
+ * 单次操作包装HbaseAsyncTemplate返回的CompletableFuture;scan基于AdvancedScanResultConsumer实现,
+ * 下游没有需求时会挂起region server上的scanner,需求到来时再恢复,内存占用最多为一批(caching)结果
+ */
+public class ReactiveHbaseTemplate {
+
+    private final HbaseAsyncTemplate asyncTemplate;
+
+    public ReactiveHbaseTemplate(HbaseAsyncTemplate asyncTemplate) {
+        this.asyncTemplate = asyncTemplate;
+    }
+
+    public Mono<Result> get(String tableName, Get get) {
+        return Mono.fromFuture(() -> asyncTemplate.get(tableName, get))
+                .filter(result -> !result.isEmpty());
+    }
+
+    public Flux<Result> get(String tableName, List<Get> gets) {
+        return Mono.fromFuture(() -> asyncTemplate.get(tableName, gets))
+                .flatMapIterable(results -> results)
+                .filter(result -> !result.isEmpty());
+    }
+
+    public Mono<Void> put(String tableName, Put put) {
+        return Mono.fromFuture(() -> asyncTemplate.put(tableName, put));
+    }
+
+    public Mono<Void> put(String tableName, List<Put> puts) {
+        return Mono.fromFuture(() -> asyncTemplate.put(tableName, puts));
+    }
+
+    public Mono<Void> delete(String tableName, Delete delete) {
+        return Mono.fromFuture(() -> asyncTemplate.delete(tableName, delete));
+    }
+
+    public <T> Flux<T> batch(String tableName, List<? extends Row> actions) {
+        return Mono.fromFuture(() -> asyncTemplate.<T>batch(tableName, actions))
+                .flatMapIterable(results -> results);
+    }
+
+    /**
+     * 流式scan,元素在RPC线程上发出,下游有阻塞或较重的计算时请自行publishOn到其他Scheduler
+     *
+     * @param tableName
+     * @param scan
+     * @return
+     */
+    public Flux<Result> scan(String tableName, Scan scan) {
+        return Flux.create(sink -> {
+            FluxScanConsumer consumer = new FluxScanConsumer(sink);
+            sink.onRequest(consumer::request);
+            sink.onCancel(consumer::cancel);
+            asyncTemplate.getConnection().getTable(TableName.valueOf(tableName)).scan(scan, consumer);
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.hbase.bulk;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于BufferedMutator的高吞吐批量写入器,线程安全
+ * <p>
+ * 1.生产者写入前按mutation的heapSize申请内存额度,额度用完时阻塞,直到后台flush把数据真正写到region server<br>
+ * 2.后台线程按时间间隔flush,未flush字节数超过阈值时提前flush<br>
+ * 3.BufferedMutator内部的AsyncProcess会按region server/region对每次flush的数据分组成multi请求<br>
+ * 4.失败的mutation通过ExceptionListener进入重试队列,重试次数耗尽或不可重试的异常进入死信队列
+ */
+public class BulkWriter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkWriter.class);
+
+    static final String ATTEMPT_ATTRIBUTE = "_bulk.attempt";
+
+    private final TableName tableName;
+
+    private final BufferedMutator mutator;
+
+    private final int maxPendingBytes;
+
+    private final long flushThresholdBytes;
+
+    private final long flushIntervalMs;
+
+    private final int maxRetries;
+
+    private final DeadLetterQueue deadLetterQueue;
+
+    private final Semaphore budget;
+
+    private final AtomicLong unflushedBytes = new AtomicLong();
+
+    private final Queue<Mutation> retryQueue = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder deadLettered = new LongAdder();
+
+    private final Object flushSignal = new Object();
+
+    private final Thread flusher;
+
+    private boolean flushRequested;
+
+    private volatile boolean closed;
+
+    /**
+     * @param template          共享连接
+     * @param params            BufferedMutator参数,writeBufferSize决定单次自动提交的大小
+     * @param maxPendingBytes   尚未确认写入的最大字节数,超过后生产者阻塞
+     * @param flushIntervalMs   定时flush间隔
+     * @param maxRetries        单条mutation的最大重试次数
+     * @param deadLetterQueue   死信队列
+     */
+    public BulkWriter(HbaseTemplate template, BufferedMutatorParams params, int maxPendingBytes, long flushIntervalMs,
+                      int maxRetries, DeadLetterQueue deadLetterQueue) {
+        this.tableName = params.getTableName();
+        this.maxPendingBytes = maxPendingBytes;
+        this.flushThresholdBytes = maxPendingBytes / 2;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxRetries = maxRetries;
+        this.deadLetterQueue = deadLetterQueue;
+        this.budget = new Semaphore(maxPendingBytes);
+        this.mutator = template.getBufferedMutator(params.listener(this::onException));
+        this.flusher = new Thread(this::flushLoop, "bulk-writer-" + tableName.getNameAsString());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 写入一条mutation,内存额度不足时阻塞
+     *
+     * @param mutation
+     * @throws InterruptedIOException
+     */
+    public void write(Mutation mutation) throws InterruptedIOException {
+        if (closed) {
+            throw new IllegalStateException("BulkWriter for " + tableName + " is closed");
+        }
+        int size = permitsFor(mutation);
+        try {
+            budget.acquire(size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for write buffer space");
+        }
+        submit(mutation, size);
+        written.increment();
+    }
+
+    /**
+     * 同步flush所有已写入的数据,并把这期间失败的mutation重新提交
+     */
+    public synchronized void flush() {
+        long flushing = unflushedBytes.getAndSet(0);
+        try {
+            mutator.flush();
+        } catch (IOException e) {
+            //设置了ExceptionListener之后写失败不会抛到这里,这里只会是连接级别的错误
+            log.error("Flush of {} failed", tableName, e);
+        } finally {
+            budget.release((int) flushing);
+        }
+        resubmitRetries();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        requestFlush();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        Mutation mutation;
+        while ((mutation = retryQueue.poll()) != null) {
+            deadLetter(mutation, new IOException("BulkWriter closed before retry"), attempts(mutation));
+        }
+        try {
+            mutator.close();
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to close BufferedMutator of " + tableName, e);
+        }
+    }
+
+    /**
+     * 调用方写入的mutation数,重试重新提交的不重复计入
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+
+    public long getPendingBytes() {
+        return maxPendingBytes - budget.availablePermits();
+    }
+
+    public int getRetryQueueSize() {
+        return retryQueue.size();
+    }
+
+    private int permitsFor(Mutation mutation) {
+        return (int) Math.max(1, Math.min(mutation.heapSize(), maxPendingBytes));
+    }
+
+    private void submit(Mutation mutation, int size) {
+        try {
+            mutator.mutate(mutation);
+        } catch (IOException e) {
+            budget.release(size);
+            throw new HbaseSystemException("Failed to buffer mutation for " + tableName, e);
+        }
+        if (unflushedBytes.addAndGet(size) >= flushThresholdBytes) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * 重试不能阻塞在额度上,否则flush线程自己会把自己卡死,额度不足时留到下一轮
+     */
+    private void resubmitRetries() {
+        Mutation mutation;
+        while ((mutation = retryQueue.peek()) != null) {
+            int size = permitsFor(mutation);
+            if (!budget.tryAcquire(size)) {
+                return;
+            }
+            retryQueue.poll();
+            retried.increment();
+            submit(mutation, size);
+        }
+    }
+
+    private void onException(RetriesExhaustedWithDetailsException exception, BufferedMutator bufferedMutator) {
+        for (int i = 0; i < exception.getNumExceptions(); i++) {
+            Row row = exception.getRow(i);
+            if (!(row instanceof Mutation)) {
+                continue;
+            }
+            Mutation mutation = (Mutation) row;
+            Throwable cause = exception.getCause(i);
+            int attempts = attempts(mutation) + 1;
+            if (attempts > maxRetries || cause instanceof DoNotRetryIOException) {
+                deadLetter(mutation, cause, attempts);
+            } else {
+                mutation.setAttribute(ATTEMPT_ATTRIBUTE, Bytes.toBytes(attempts));
+                retryQueue.add(mutation);
+            }
+        }
+    }
+
+    private void deadLetter(Mutation mutation, Throwable cause, int attempts) {
+        deadLettered.increment();
+        deadLetterQueue.accept(new FailedMutation(tableName, mutation, cause, attempts));
+    }
+
+    private static int attempts(Mutation mutation) {
+        byte[] attempts = mutation.getAttribute(ATTEMPT_ATTRIBUTE);
+        return attempts == null ? 0 : Bytes.toInt(attempts);
+    }
+
+    private void requestFlush() {
+        synchronized (flushSignal) {
+            flushRequested = true;
+            flushSignal.notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            synchronized (flushSignal) {
+                if (!flushRequested) {
+                    try {
+                        flushSignal.wait(flushIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+            if (!closed) {
+                flush();
+            }
+        }
+    }
+}
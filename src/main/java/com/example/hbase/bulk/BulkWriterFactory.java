@@ -0,0 +1,62 @@
+package com.example.hbase.bulk;
+
+import com.example.hbase.core.HbaseTemplate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+
+/**
+ * 按统一配置为每张表创建BulkWriter,并注册写入量、重试、死信、待确认字节数等指标
+ */
+public class BulkWriterFactory {
+
+    private final HbaseTemplate template;
+
+    private final long writeBufferSize;
+
+    private final int maxPendingBytes;
+
+    private final long flushIntervalMs;
+
+    private final int maxRetries;
+
+    private final DeadLetterQueue deadLetterQueue;
+
+    private final MeterRegistry meterRegistry;
+
+    public BulkWriterFactory(HbaseTemplate template, long writeBufferSize, int maxPendingBytes, long flushIntervalMs,
+                             int maxRetries, DeadLetterQueue deadLetterQueue, MeterRegistry meterRegistry) {
+        this.template = template;
+        this.writeBufferSize = writeBufferSize;
+        this.maxPendingBytes = maxPendingBytes;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxRetries = maxRetries;
+        this.deadLetterQueue = deadLetterQueue;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建一个BulkWriter,使用完毕后需要close
+     *
+     * @param tableName
+     * @return
+     */
+    public BulkWriter create(String tableName) {
+        BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(tableName))
+                .writeBufferSize(writeBufferSize);
+        BulkWriter writer = new BulkWriter(template, params, maxPendingBytes, flushIntervalMs, maxRetries, deadLetterQueue);
+        if (meterRegistry != null) {
+            FunctionCounter.builder("hbase.bulk.mutations", writer, BulkWriter::getWritten)
+                    .tag("table", tableName).tag("result", "written").register(meterRegistry);
+            FunctionCounter.builder("hbase.bulk.mutations", writer, BulkWriter::getRetried)
+                    .tag("table", tableName).tag("result", "retried").register(meterRegistry);
+            FunctionCounter.builder("hbase.bulk.mutations", writer, BulkWriter::getDeadLettered)
+                    .tag("table", tableName).tag("result", "dead_lettered").register(meterRegistry);
+            Gauge.builder("hbase.bulk.pending.bytes", writer, BulkWriter::getPendingBytes)
+                    .tag("table", tableName).register(meterRegistry);
+        }
+        return writer;
+    }
+}
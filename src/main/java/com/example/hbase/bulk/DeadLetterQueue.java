@@ -0,0 +1,10 @@
+package com.example.hbase.bulk;
+
+/**
+ * 接收最终写入失败的mutation,实现类可以落盘、发到消息队列或者告警
+ */
+@FunctionalInterface
+public interface DeadLetterQueue {
+
+    void accept(FailedMutation failedMutation);
+}
@@ -0,0 +1,41 @@
+package com.example.hbase.bulk;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Mutation;
+
+/**
+ * 重试耗尽后进入死信队列的写操作
+ */
+public class FailedMutation {
+
+    private final TableName tableName;
+
+    private final Mutation mutation;
+
+    private final Throwable cause;
+
+    private final int attempts;
+
+    public FailedMutation(TableName tableName, Mutation mutation, Throwable cause, int attempts) {
+        this.tableName = tableName;
+        this.mutation = mutation;
+        this.cause = cause;
+        this.attempts = attempts;
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public Mutation getMutation() {
+        return mutation;
+    }
+
+    public Throwable getCause() {
+        return cause;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.hbase.bulk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 默认的有界死信队列,队列满时丢弃并计数,避免写入故障时占满堆内存
+ */
+public class InMemoryDeadLetterQueue implements DeadLetterQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryDeadLetterQueue.class);
+
+    private final BlockingQueue<FailedMutation> queue;
+
+    private final LongAdder dropped = new LongAdder();
+
+    public InMemoryDeadLetterQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void accept(FailedMutation failedMutation) {
+        log.warn("Mutation on {} failed after {} attempts", failedMutation.getTableName(),
+                failedMutation.getAttempts(), failedMutation.getCause());
+        if (!queue.offer(failedMutation)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 取出当前所有死信,用于人工补偿或重放
+     *
+     * @return
+     */
+    public List<FailedMutation> drain() {
+        List<FailedMutation> failed = new ArrayList<>(queue.size());
+        queue.drainTo(failed);
+        return failed;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.hbase.cache;
+
+import java.util.Arrays;
+
+/**
+ * 一行在缓存中的条目,按列投影保存序列化后的cell,不可变,更新时复制
+ * <p>
+ * 同一行的投影数有上限,超过时丢弃最早的一个
+ */
+final class CachedRow {
+
+    static final int MAX_PROJECTIONS = 8;
+
+    private final byte[][] projections;
+
+    private final byte[][] cells;
+
+    private CachedRow(byte[][] projections, byte[][] cells) {
+        this.projections = projections;
+        this.cells = cells;
+    }
+
+    static CachedRow of(byte[] projection, byte[] cells) {
+        return new CachedRow(new byte[][]{projection}, new byte[][]{cells});
+    }
+
+    byte[] find(byte[] projection) {
+        for (int i = 0; i < projections.length; i++) {
+            if (Arrays.equals(projections[i], projection)) {
+                return cells[i];
+            }
+        }
+        return null;
+    }
+
+    CachedRow with(byte[] projection, byte[] value) {
+        for (int i = 0; i < projections.length; i++) {
+            if (Arrays.equals(projections[i], projection)) {
+                byte[][] newCells = cells.clone();
+                newCells[i] = value;
+                return new CachedRow(projections, newCells);
+            }
+        }
+        int from = projections.length < MAX_PROJECTIONS ? 0 : 1;
+        int size = projections.length - from;
+        byte[][] newProjections = new byte[size + 1][];
+        byte[][] newCells = new byte[size + 1][];
+        System.arraycopy(projections, from, newProjections, 0, size);
+        System.arraycopy(cells, from, newCells, 0, size);
+        newProjections[size] = projection;
+        newCells[size] = value;
+        return new CachedRow(newProjections, newCells);
+    }
+
+    int size() {
+        return projections.length;
+    }
+
+    int weight() {
+        int weight = 32;
+        for (int i = 0; i < projections.length; i++) {
+            weight += projections[i].length + cells[i].length + 32;
+        }
+        return weight;
+    }
+}
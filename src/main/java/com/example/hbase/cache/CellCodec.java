@@ -0,0 +1,64 @@
+package com.example.hbase.cache;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Result与紧凑字节之间的转换:所有cell按KeyValue格式(不含tags)首尾相接放在一个数组里
+ * <p>
+ * 解码时每个Cell只是数组上的一个视图,不复制数据
+ */
+final class CellCodec {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private CellCodec() {
+    }
+
+    static byte[] encode(Result result) {
+        Cell[] cells = result.rawCells();
+        if (cells == null || cells.length == 0) {
+            return EMPTY;
+        }
+        int length = 0;
+        for (Cell cell : cells) {
+            length += length(cell);
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (Cell cell : cells) {
+            offset = KeyValueUtil.appendToByteArray(cell, bytes, offset, false);
+        }
+        return bytes;
+    }
+
+    static Result decode(byte[] bytes) {
+        if (bytes.length == 0) {
+            return Result.EMPTY_RESULT;
+        }
+        int count = 0;
+        for (int offset = 0; offset < bytes.length; offset += kvLength(bytes, offset)) {
+            count++;
+        }
+        Cell[] cells = new Cell[count];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            int length = kvLength(bytes, offset);
+            cells[i] = new KeyValue(bytes, offset, length);
+            offset += length;
+        }
+        return Result.create(cells);
+    }
+
+    private static int length(Cell cell) {
+        return KeyValueUtil.length(cell.getRowLength(), cell.getFamilyLength(), cell.getQualifierLength(),
+                cell.getValueLength(), 0, false);
+    }
+
+    private static int kvLength(byte[] bytes, int offset) {
+        return KeyValue.KEYVALUE_INFRASTRUCTURE_SIZE + Bytes.toInt(bytes, offset) + Bytes.toInt(bytes, offset + Bytes.SIZEOF_INT);
+    }
+}
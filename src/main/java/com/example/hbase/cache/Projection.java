@@ -0,0 +1,46 @@
+package com.example.hbase.cache;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * 把Get的列投影编码成字节,作为同一行内区分不同查询的键;空数组表示整行
+ * <p>
+ * Get内部的familyMap和qualifier集合都是按字节序排序的,相同投影的编码结果一致
+ */
+final class Projection {
+
+    private static final byte[] ALL = new byte[0];
+
+    private Projection() {
+    }
+
+    static byte[] of(Get get) {
+        if (!get.hasFamilies()) {
+            return ALL;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry : get.getFamilyMap().entrySet()) {
+            write(out, entry.getKey());
+            NavigableSet<byte[]> qualifiers = entry.getValue();
+            if (qualifiers == null || qualifiers.isEmpty()) {
+                out.write(Bytes.toBytes(-1), 0, Bytes.SIZEOF_INT);
+                continue;
+            }
+            out.write(Bytes.toBytes(qualifiers.size()), 0, Bytes.SIZEOF_INT);
+            for (byte[] qualifier : qualifiers) {
+                write(out, qualifier);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] bytes) {
+        out.write(Bytes.toBytes(bytes.length), 0, Bytes.SIZEOF_INT);
+        out.write(bytes, 0, bytes.length);
+    }
+}
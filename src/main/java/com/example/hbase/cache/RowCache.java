@@ -0,0 +1,153 @@
+package com.example.hbase.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 客户端行缓存,挂在HbaseTemplate的get前面,只缓存配置过的表
+ * <p>
+ * 淘汰策略使用Caffeine的W-TinyLFU,按序列化后的字节数限制总大小,写入后TTL过期;
+ * 同一行的不同列投影放在同一个条目里,通过HbaseTemplate的put/delete按行失效。
+ * 值以KeyValue格式拼接成一个byte[]保存,命中时直接在这段字节上构造Cell,不保留Result对象
+ * <p>
+ * 失效时递增行所在分段的版本号,回源前后版本号不一致的结果不写入缓存,避免读写并发时把旧值放回去。
+ * 不经过HbaseTemplate的写入(BulkWriter、其他进程)只能依靠TTL收敛
+ */
+public class RowCache {
+
+    private static final int STRIPES = 1024;
+
+    private final Set<TableName> tables;
+
+    private final Cache<RowCacheKey, CachedRow> cache;
+
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+
+    private final AtomicLongArray epochs = new AtomicLongArray(STRIPES);
+
+    /**
+     * @param tables       需要缓存的表
+     * @param maximumBytes 缓存总字节数上限
+     * @param ttl          写入后的存活时间
+     */
+    public RowCache(Collection<TableName> tables, long maximumBytes, Duration ttl) {
+        this.tables = new HashSet<>(tables);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((RowCacheKey key, CachedRow row) -> key.weight() + row.weight())
+                .expireAfterWrite(ttl)
+                .recordStats(() -> stats)
+                .build();
+    }
+
+    /**
+     * 注册命中、未命中、淘汰等指标(cache.gets/cache.evictions等,cache=hbase.row)和已用字节数
+     *
+     * @param registry
+     */
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "hbase.row");
+        Gauge.builder("hbase.cache.bytes", cache,
+                c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .register(registry);
+    }
+
+    public boolean isCached(TableName tableName) {
+        return tables.contains(tableName);
+    }
+
+    /**
+     * 先查缓存,未命中时从table读取并写入缓存;带过滤器、多版本、时间范围等的Get不走缓存
+     *
+     * @param table
+     * @param get
+     * @return
+     * @throws IOException
+     */
+    public Result get(Table table, Get get) throws IOException {
+        TableName tableName = table.getName();
+        if (!isCached(tableName) || !isCacheable(get)) {
+            return table.get(get);
+        }
+        RowCacheKey key = new RowCacheKey(tableName, get.getRow());
+        byte[] projection = Projection.of(get);
+        //asMap().get不计入统计,命中与否以列投影为准,手工记录
+        CachedRow row = cache.asMap().get(key);
+        byte[] cells = row == null ? null : row.find(projection);
+        if (cells != null) {
+            stats.recordHits(1);
+            return CellCodec.decode(cells);
+        }
+        stats.recordMisses(1);
+        int stripe = key.hashCode() & (STRIPES - 1);
+        long epoch = epochs.get(stripe);
+        Result result = table.get(get);
+        byte[] encoded = CellCodec.encode(result);
+        cache.asMap().compute(key, (k, existing) -> {
+            if (epochs.get(stripe) != epoch) {
+                return existing;
+            }
+            return existing == null ? CachedRow.of(projection, encoded) : existing.with(projection, encoded);
+        });
+        return result;
+    }
+
+    /**
+     * 失效一行的所有列投影,应在写入完成(无论成功与否)之后调用
+     *
+     * @param tableName
+     * @param row
+     */
+    public void invalidate(TableName tableName, byte[] row) {
+        if (!isCached(tableName)) {
+            return;
+        }
+        RowCacheKey key = new RowCacheKey(tableName, row);
+        epochs.incrementAndGet(key.hashCode() & (STRIPES - 1));
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            epochs.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 立即执行Caffeine的异步维护(淘汰、权重统计)
+     */
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    static boolean isCacheable(Get get) {
+        return get.getFilter() == null
+                && get.getMaxVersions() == 1
+                && get.getTimeRange().isAllTime()
+                && get.getColumnFamilyTimeRange().isEmpty()
+                && !get.isCheckExistenceOnly()
+                && get.getMaxResultsPerColumnFamily() < 0
+                && get.getRowOffsetPerColumnFamily() == 0;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.hbase.cache;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * 缓存键:表名 + 行键
+ */
+final class RowCacheKey {
+
+    private final TableName tableName;
+
+    private final byte[] row;
+
+    private final int hash;
+
+    RowCacheKey(TableName tableName, byte[] row) {
+        this.tableName = tableName;
+        this.row = row;
+        this.hash = 31 * tableName.hashCode() + Bytes.hashCode(row);
+    }
+
+    /**
+     * 行键字节数加上对象头等固定开销的估算值,表名对象是共享的不计入
+     */
+    int weight() {
+        return row.length + 48;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowCacheKey)) {
+            return false;
+        }
+        RowCacheKey other = (RowCacheKey) o;
+        return hash == other.hash && tableName.equals(other.tableName) && Arrays.equals(row, other.row);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return tableName + "/" + Bytes.toStringBinary(row);
+    }
+}
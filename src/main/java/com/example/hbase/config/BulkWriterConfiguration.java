@@ -0,0 +1,58 @@
+package com.example.hbase.config;
+
+import com.example.hbase.bulk.BulkWriterFactory;
+import com.example.hbase.bulk.DeadLetterQueue;
+import com.example.hbase.bulk.InMemoryDeadLetterQueue;
+import com.example.hbase.core.HbaseTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 批量写入配置
+ */
+@Configuration
+public class BulkWriterConfiguration {
+
+    /**
+     * BufferedMutator缓冲区大小,达到后自动提交一批
+     */
+    @Value("${hbase.bulk.write-buffer-size:8MB}")
+    private DataSize writeBufferSize;
+
+    /**
+     * 已提交但还未确认写入的最大数据量,超过后生产者阻塞
+     */
+    @Value("${hbase.bulk.max-pending-size:64MB}")
+    private DataSize maxPendingSize;
+
+    /**
+     * 定时flush间隔
+     */
+    @Value("${hbase.bulk.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${hbase.bulk.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${hbase.bulk.dead-letter-capacity:10000}")
+    private int deadLetterCapacity;
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DeadLetterQueue deadLetterQueue() {
+        return new InMemoryDeadLetterQueue(deadLetterCapacity);
+    }
+
+    @Bean
+    public BulkWriterFactory bulkWriterFactory(HbaseTemplate hbaseTemplate, DeadLetterQueue deadLetterQueue,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        int maxPendingBytes = (int) Math.min(Integer.MAX_VALUE, maxPendingSize.toBytes());
+        return new BulkWriterFactory(hbaseTemplate, writeBufferSize.toBytes(), maxPendingBytes, flushIntervalMs,
+                maxRetries, deadLetterQueue, meterRegistry.getIfAvailable());
+    }
+}
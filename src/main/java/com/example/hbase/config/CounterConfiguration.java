@@ -0,0 +1,36 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.counter.CountersFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 计数器配置
+ */
+@Configuration
+public class CounterConfiguration {
+
+    /**
+     * 本地增量定时提交的间隔,也是计数最多滞后的时间
+     */
+    @Value("${hbase.counter.flush-interval:1s}")
+    private Duration flushInterval;
+
+    /**
+     * 本地计数器个数超过后提前提交
+     */
+    @Value("${hbase.counter.max-pending-keys:100000}")
+    private int maxPendingKeys;
+
+    @Bean
+    public CountersFactory countersFactory(HbaseTemplate hbaseTemplate, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CountersFactory(hbaseTemplate, flushInterval.toMillis(), maxPendingKeys,
+                meterRegistry.getIfAvailable());
+    }
+}
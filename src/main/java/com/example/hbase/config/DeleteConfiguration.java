@@ -0,0 +1,43 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.delete.BulkDeleter;
+import com.example.hbase.scan.ParallelScanner;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 批量删除配置,与并行scan共用线程池
+ */
+@Configuration
+public class DeleteConfiguration {
+
+    /**
+     * 同时删除的region数
+     */
+    @Value("${hbase.delete.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 每批Delete的行数
+     */
+    @Value("${hbase.delete.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 每秒最多删除的行数,0表示不限速
+     */
+    @Value("${hbase.delete.max-rows-per-second:0}")
+    private long maxRowsPerSecond;
+
+    @Bean
+    public BulkDeleter bulkDeleter(HbaseTemplate hbaseTemplate, ParallelScanner parallelScanner,
+                                   @Qualifier("hbaseScanExecutor") ExecutorService hbaseScanExecutor) {
+        return new BulkDeleter(hbaseTemplate, parallelScanner, hbaseScanExecutor, parallelism, batchSize,
+                maxRowsPerSecond);
+    }
+}
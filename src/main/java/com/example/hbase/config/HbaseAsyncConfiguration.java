@@ -0,0 +1,63 @@
+package com.example.hbase.config;
+
+import com.example.hbase.async.HbaseAsyncTemplate;
+import com.example.hbase.async.ReactiveHbaseTemplate;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于AsyncConnection的非阻塞访问,hbase.async.enabled=true时生效
+ * <p>
+ * 少量线程即可维持成千上万个在途请求,与阻塞的HbaseTemplate可以同时存在
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hbase.async", name = "enabled", havingValue = "true")
+public class HbaseAsyncConfiguration {
+
+    /**
+     * 执行CompletableFuture回调的线程数
+     */
+    @Value("${hbase.async.callback-pool-size:4}")
+    private int callbackPoolSize;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService hbaseAsyncCallbackExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(callbackPoolSize, r -> {
+            Thread thread = new Thread(r, "hbase-async-callback-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean(destroyMethod = "close")
+    public AsyncConnection hbaseAsyncConnection(org.apache.hadoop.conf.Configuration hbaseConfig) {
+        try {
+            return ConnectionFactory.createAsyncConnection(hbaseConfig).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Bean
+    public HbaseAsyncTemplate hbaseAsyncTemplate(AsyncConnection hbaseAsyncConnection) {
+        return new HbaseAsyncTemplate(hbaseAsyncConnection, hbaseAsyncCallbackExecutor());
+    }
+
+    @Bean
+    public ReactiveHbaseTemplate reactiveHbaseTemplate(HbaseAsyncTemplate hbaseAsyncTemplate) {
+        return new ReactiveHbaseTemplate(hbaseAsyncTemplate);
+    }
+}
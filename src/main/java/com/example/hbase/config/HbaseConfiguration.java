@@ -1,15 +1,30 @@
 package com.example.hbase.config;
 
+import com.example.hbase.cache.RowCache;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.InMemoryConnection;
+import com.example.hbase.metrics.HbaseClientMetrics;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.metrics.InstrumentedConnection;
+import com.example.hbase.metrics.ScanTuner;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.MetricsConnection;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Scope;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 
@@ -22,6 +37,51 @@ public class HbaseConfiguration {
     @Value("${hbase.zookeeper.quorum}")
     private String quorum;
 
+    /**
+     * 共享线程池大小,Table/BufferedMutator的批量请求都在这个线程池上执行
+     */
+    @Value("${hbase.client.pool-size:32}")
+    private int poolSize;
+
+    /**
+     * 是否开启hbase-client自带的连接指标(meta缓存命中等)
+     */
+    @Value("${hbase.client.metrics-enabled:true}")
+    private boolean metricsEnabled;
+
+    /**
+     * 是否给Table/ResultScanner/BufferedMutator套上按表、按操作的耗时/行数/字节数指标
+     */
+    @Value("${hbase.client.instrumentation-enabled:true}")
+    private boolean instrumentationEnabled;
+
+    /**
+     * 使用进程内的InMemoryConnection代替真实集群,in-memory profile下为true
+     */
+    @Value("${hbase.client.in-memory:false}")
+    private boolean inMemory;
+
+    /**
+     * 是否按观察到的行宽自动设置scan的caching/maxResultSize/batch等参数
+     */
+    @Value("${hbase.scan.adaptive.enabled:false}")
+    private boolean adaptiveScanEnabled;
+
+    /**
+     * 自适应scan一次RPC期望取回的字节数
+     */
+    @Value("${hbase.scan.adaptive.target-result-size:2MB}")
+    private DataSize targetResultSize;
+
+    @Value("${hbase.scan.adaptive.max-caching:10000}")
+    private int maxCaching;
+
+    /**
+     * 平均cell数超过这个值的行分批返回
+     */
+    @Value("${hbase.scan.adaptive.wide-row-cells:1000}")
+    private int wideRowCells;
+
     /**
      * 配置HBase连接参数
      *
@@ -31,27 +91,73 @@ public class HbaseConfiguration {
     public org.apache.hadoop.conf.Configuration hbaseConfig() {
         org.apache.hadoop.conf.Configuration config = HBaseConfiguration.create();
         config.set(HConstants.ZOOKEEPER_QUORUM, quorum);
+        config.setBoolean(MetricsConnection.CLIENT_SIDE_METRICS_ENABLED_KEY, metricsEnabled);
         return config;
     }
 
+    /**
+     * 所有Table/BufferedMutator共享的线程池,由Spring在连接关闭之后再关闭
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService hbaseExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "hbase-client-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
-    //每次调用get方法就会创建一个Connection
+    //Connection是重量级且线程安全的对象(zookeeper会话、meta缓存、RPC线程池),整个应用共享一个
     @Bean
     public Supplier<Connection> hbaseConnSupplier() {
-        return () -> {
-            try {
-                return hbaseConnection();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        return this::hbaseConnection;
+    }
+
+    /**
+     * 单例连接,容器关闭时自动close
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    public Connection hbaseConnection() {
+        try {
+            Connection connection = inMemory ? new InMemoryConnection(hbaseConfig())
+                    : ConnectionFactory.createConnection(hbaseConfig(), hbaseExecutor());
+            hbaseConnectionMetrics().register(connection);
+            if (!instrumentationEnabled && !adaptiveScanEnabled) {
+                return connection;
             }
-        };
+            return new InstrumentedConnection(connection, instrumentationEnabled ? hbaseClientMetrics() : null,
+                    adaptiveScanEnabled ? scanTuner() : null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Bean
+    public HbaseConnectionMetrics hbaseConnectionMetrics() {
+        return new HbaseConnectionMetrics();
+    }
+
+    @Bean
+    public HbaseClientMetrics hbaseClientMetrics() {
+        return new HbaseClientMetrics();
+    }
+
+    @Bean
+    public ScanTuner scanTuner() {
+        return new ScanTuner(targetResultSize.toBytes(), maxCaching, wideRowCells);
     }
 
     @Bean
-    //@Scope标明模式,默认单例模式.  prototype多例模式
-    //若是在其他类中直接@Autowired引入的,多例就无效了,因为那个类在初始化的时候,已经创建了创建了这个bean了,之后调用的时候,不会重新创建,若是想要实现多例,就要每次调用的时候,手动获取bean
-    @Scope(value = "prototype")
-    public Connection hbaseConnection() throws IOException {
-        return ConnectionFactory.createConnection(hbaseConfig());
+    public HbaseTemplate hbaseTemplate(ObjectProvider<RowCache> rowCache) {
+        return new HbaseTemplate(hbaseConnection(), hbaseExecutor(), hbaseConnectionMetrics(), rowCache.getIfAvailable());
     }
 }
@@ -0,0 +1,54 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.index.IndexRegistry;
+import com.example.hbase.index.IndexedTable;
+import com.example.hbase.schema.IndexSchema;
+import com.example.hbase.schema.SchemaManager;
+import com.example.hbase.schema.TableSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 二级索引配置,hbase.index.enabled=true时生效,索引声明在表定义文件中各表的indexes下
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hbase.index", name = "enabled", havingValue = "true")
+public class IndexConfiguration {
+
+    @Value("${hbase.schema.location:classpath:hbase-schema.yml}")
+    private String location;
+
+    /**
+     * 查询和一致性检查时每批multi-get的行数
+     */
+    @Value("${hbase.index.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 一致性检查时,比这更新的多余索引行视为写入中途,不算过期
+     */
+    @Value("${hbase.index.grace:1m}")
+    private Duration grace;
+
+    @Bean
+    public IndexRegistry indexRegistry(HbaseTemplate hbaseTemplate, ResourceLoader resourceLoader) {
+        List<IndexedTable> tables = new ArrayList<>();
+        for (TableSchema table : SchemaManager.load(resourceLoader.getResource(location))) {
+            if (!table.getIndexes().isEmpty()) {
+                tables.add(new IndexedTable(hbaseTemplate, table.getTableName(),
+                        table.getIndexes().stream().map(IndexSchema::toDefinition).collect(Collectors.toList()),
+                        batchSize));
+            }
+        }
+        return new IndexRegistry(tables, grace, batchSize);
+    }
+}
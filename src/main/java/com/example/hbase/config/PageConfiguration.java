@@ -0,0 +1,25 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.page.Paginator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 翻页配置
+ */
+@Configuration
+public class PageConfiguration {
+
+    /**
+     * 单页最大行数,一页在一次RPC中取完,过大会增加region server的内存压力
+     */
+    @Value("${hbase.page.max-size:1000}")
+    private int maxSize;
+
+    @Bean
+    public Paginator paginator(HbaseTemplate hbaseTemplate) {
+        return new Paginator(hbaseTemplate, maxSize);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.read.HedgedReader;
+import com.example.hbase.read.ReadMode;
+import org.apache.hadoop.hbase.TableName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 点查一致性模式配置,hedged-tables和timeline-tables中列出的表使用对应模式,其余表使用mode。
+ * 对冲请求会阻塞线程,使用单独的线程池:与scan共用的有界线程池排队时,主region请求会因为排队触发对冲,
+ * 对冲请求又排在同一个队列里
+ */
+@Configuration
+public class ReadConfiguration {
+
+    @Value("${hbase.read.mode:strong}")
+    private String mode;
+
+    @Value("${hbase.read.hedged-tables:}")
+    private List<String> hedgedTables;
+
+    @Value("${hbase.read.timeline-tables:}")
+    private List<String> timelineTables;
+
+    /**
+     * 对冲等待时间取主region延迟的百分位
+     */
+    @Value("${hbase.read.hedge-percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${hbase.read.hedge-min-delay:1ms}")
+    private Duration hedgeMinDelay;
+
+    /**
+     * 对冲等待时间的上限,也是还没有足够样本时的等待时间
+     */
+    @Value("${hbase.read.hedge-max-delay:50ms}")
+    private Duration hedgeMaxDelay;
+
+    /**
+     * 每个延迟窗口的样本数
+     */
+    @Value("${hbase.read.window-size:1000}")
+    private int windowSize;
+
+    /**
+     * 不排队,每个请求立即在空闲线程或新线程上执行;线程数受调用线程数限制,每次读取最多占用两个线程
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService hbaseReadExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "hbase-read-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public HedgedReader hedgedReader(HbaseTemplate hbaseTemplate) {
+        Map<TableName, ReadMode> modes = new HashMap<>();
+        put(modes, timelineTables, ReadMode.TIMELINE);
+        put(modes, hedgedTables, ReadMode.HEDGED);
+        return new HedgedReader(hbaseTemplate, hbaseReadExecutor(),
+                ReadMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), modes, hedgePercentile, hedgeMinDelay,
+                hedgeMaxDelay, windowSize);
+    }
+
+    private static void put(Map<TableName, ReadMode> modes, List<String> tables, ReadMode mode) {
+        for (String name : tables) {
+            if (!name.trim().isEmpty()) {
+                modes.put(TableName.valueOf(name.trim()), mode);
+            }
+        }
+    }
+}
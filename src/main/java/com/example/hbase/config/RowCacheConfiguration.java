@@ -0,0 +1,49 @@
+package com.example.hbase.config;
+
+import com.example.hbase.cache.RowCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hadoop.hbase.TableName;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 行缓存配置,hbase.cache.enabled=true时生效,只缓存hbase.cache.tables中列出的表
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hbase.cache", name = "enabled", havingValue = "true")
+public class RowCacheConfiguration {
+
+    @Value("${hbase.cache.tables:}")
+    private List<String> tables;
+
+    /**
+     * 缓存总大小,按序列化后的cell字节数计算
+     */
+    @Value("${hbase.cache.maximum-size:64MB}")
+    private DataSize maximumSize;
+
+    /**
+     * 写入缓存后的存活时间,也是不经过HbaseTemplate的写入最长的不一致时间
+     */
+    @Value("${hbase.cache.ttl:30s}")
+    private Duration ttl;
+
+    @Bean
+    public RowCache rowCache(ObjectProvider<MeterRegistry> meterRegistry) {
+        List<TableName> tableNames = tables.stream()
+                .filter(name -> !name.trim().isEmpty())
+                .map(name -> TableName.valueOf(name.trim()))
+                .collect(Collectors.toList());
+        RowCache rowCache = new RowCache(tableNames, maximumSize.toBytes(), ttl);
+        meterRegistry.ifAvailable(rowCache::bindTo);
+        return rowCache;
+    }
+}
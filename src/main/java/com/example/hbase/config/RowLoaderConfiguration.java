@@ -0,0 +1,35 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.loader.RowLoaderFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 单行查询合并配置
+ */
+@Configuration
+public class RowLoaderConfiguration {
+
+    /**
+     * 单批最多合并的行数
+     */
+    @Value("${hbase.loader.max-batch-size:100}")
+    private int maxBatchSize;
+
+    /**
+     * 收到第一个请求后最多等待的时间,越长合并得越多,但每次查询的延迟也增加同样的时间
+     */
+    @Value("${hbase.loader.window:1ms}")
+    private Duration window;
+
+    @Bean
+    public RowLoaderFactory rowLoaderFactory(HbaseTemplate hbaseTemplate, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RowLoaderFactory(hbaseTemplate, maxBatchSize, window.toNanos(), meterRegistry.getIfAvailable());
+    }
+}
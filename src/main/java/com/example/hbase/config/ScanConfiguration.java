@@ -0,0 +1,81 @@
+package com.example.hbase.config;
+
+import com.example.hbase.aggregate.Aggregator;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.scan.ParallelScanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行scan配置
+ */
+@Configuration
+public class ScanConfiguration {
+
+    /**
+     * 单次scan的最大并行度,默认为CPU核数
+     */
+    @Value("${hbase.scan.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int parallelism;
+
+    /**
+     * scan线程池的线程数,所有并行scan、聚合、导出和批量删除共用
+     */
+    @Value("${hbase.scan.pool-size:64}")
+    private int poolSize;
+
+    @Value("${hbase.scan.caching:500}")
+    private int caching;
+
+    /**
+     * 开启自适应scan时子scan不设默认的caching/maxResultSize,交给ScanTuner按行宽设置
+     */
+    @Value("${hbase.scan.adaptive.enabled:false}")
+    private boolean adaptive;
+
+    @Value("${hbase.scan.max-result-size:4MB}")
+    private DataSize maxResultSize;
+
+    /**
+     * 每个子scan预取缓冲的最大行数
+     */
+    @Value("${hbase.scan.buffer-size:1000}")
+    private int bufferSize;
+
+    /**
+     * 每次scan自己限制并行度,线程池按pool-size限制总线程数,超出的任务排队
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService hbaseScanExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "hbase-scan-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean
+    public ParallelScanner parallelScanner(HbaseTemplate hbaseTemplate) {
+        return new ParallelScanner(hbaseTemplate, hbaseScanExecutor(), parallelism, adaptive ? 0 : caching,
+                adaptive ? 0 : maxResultSize.toBytes(), bufferSize);
+    }
+
+    @Bean
+    public Aggregator aggregator(HbaseTemplate hbaseTemplate, ParallelScanner parallelScanner) {
+        return new Aggregator(hbaseTemplate, parallelScanner, hbaseScanExecutor(), parallelism);
+    }
+}
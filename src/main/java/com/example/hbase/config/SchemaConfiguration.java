@@ -0,0 +1,32 @@
+package com.example.hbase.config;
+
+import com.example.hbase.schema.SchemaManager;
+import org.apache.hadoop.hbase.client.Connection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * 表结构管理配置,hbase.schema.enabled=true时在启动阶段按hbase-schema.yml建表并检查差异
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hbase.schema", name = "enabled", havingValue = "true")
+public class SchemaConfiguration {
+
+    @Value("${hbase.schema.location:classpath:hbase-schema.yml}")
+    private String location;
+
+    /**
+     * 是否把差异应用到已有表(补列族、改列族属性),默认只报告
+     */
+    @Value("${hbase.schema.apply-changes:false}")
+    private boolean applyChanges;
+
+    @Bean(initMethod = "reconcile")
+    public SchemaManager schemaManager(Connection hbaseConnection, ResourceLoader resourceLoader) {
+        return new SchemaManager(hbaseConnection, SchemaManager.load(resourceLoader.getResource(location)),
+                resourceLoader, applyChanges);
+    }
+}
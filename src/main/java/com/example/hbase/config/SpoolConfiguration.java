@@ -0,0 +1,70 @@
+package com.example.hbase.config;
+
+import com.example.hbase.bulk.DeadLetterQueue;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.spool.WriteSpool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * 本地写缓冲配置,hbase.spool.enabled=true时启用,与批量写入共用死信队列
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hbase.spool", name = "enabled", havingValue = "true")
+public class SpoolConfiguration {
+
+    /**
+     * 段文件目录,需要在重启后保留,不要放在会被清理的临时目录
+     */
+    @Value("${hbase.spool.directory:hbase-spool}")
+    private String directory;
+
+    /**
+     * 单个段文件的大小,整体映射到内存
+     */
+    @Value("${hbase.spool.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    /**
+     * 段文件总大小上限,达到后append失败
+     */
+    @Value("${hbase.spool.max-size:1GB}")
+    private DataSize maxSize;
+
+    /**
+     * 每次append后是否写到磁盘,false时只保证进程崩溃不丢
+     */
+    @Value("${hbase.spool.fsync:false}")
+    private boolean fsync;
+
+    /**
+     * 每批重放的最大mutation数
+     */
+    @Value("${hbase.spool.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 不满一批时的重放间隔
+     */
+    @Value("${hbase.spool.drain-interval:100ms}")
+    private Duration drainInterval;
+
+    /**
+     * 重放失败后的等待时间
+     */
+    @Value("${hbase.spool.retry-backoff:1s}")
+    private Duration retryBackoff;
+
+    @Bean
+    public WriteSpool writeSpool(HbaseTemplate hbaseTemplate, DeadLetterQueue deadLetterQueue) {
+        int segmentBytes = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+        return new WriteSpool(hbaseTemplate, Paths.get(directory), segmentBytes, maxSize.toBytes(), fsync, batchSize,
+                drainInterval.toMillis(), retryBackoff.toMillis(), deadLetterQueue);
+    }
+}
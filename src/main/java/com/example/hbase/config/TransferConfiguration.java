@@ -0,0 +1,38 @@
+package com.example.hbase.config;
+
+import com.example.hbase.bulk.BulkWriterFactory;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.scan.ParallelScanner;
+import com.example.hbase.transfer.TableExporter;
+import com.example.hbase.transfer.TableImporter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 导出导入配置,与并行scan共用线程池
+ */
+@Configuration
+public class TransferConfiguration {
+
+    /**
+     * 同时导出的region数或同时导入的文件数
+     */
+    @Value("${hbase.transfer.parallelism:4}")
+    private int parallelism;
+
+    @Bean
+    public TableExporter tableExporter(HbaseTemplate hbaseTemplate, ParallelScanner parallelScanner,
+                                       @Qualifier("hbaseScanExecutor") ExecutorService hbaseScanExecutor) {
+        return new TableExporter(hbaseTemplate, parallelScanner, hbaseScanExecutor, parallelism);
+    }
+
+    @Bean
+    public TableImporter tableImporter(BulkWriterFactory bulkWriterFactory,
+                                       @Qualifier("hbaseScanExecutor") ExecutorService hbaseScanExecutor) {
+        return new TableImporter(bulkWriterFactory, hbaseScanExecutor, parallelism);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.hbase.config;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseClientMetrics;
+import com.example.hbase.warmup.ConnectionWarmup;
+import com.example.hbase.warmup.WarmupHealthIndicator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 启动预热配置,hbase.warmup.enabled=true时在启动阶段预取region位置,健康检查名为hbaseWarmup
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hbase.warmup", name = "enabled", havingValue = "true")
+public class WarmupConfiguration {
+
+    /**
+     * 预热的表,为空时预热所有用户表
+     */
+    @Value("${hbase.warmup.tables:}")
+    private List<String> tables;
+
+    /**
+     * 是否对每个region发一次只取一个行键的读
+     */
+    @Value("${hbase.warmup.priming-reads:false}")
+    private boolean primingReads;
+
+    /**
+     * 是否在后台执行,不阻塞启动,完成前hbaseWarmup健康检查为OUT_OF_SERVICE
+     */
+    @Value("${hbase.warmup.async:false}")
+    private boolean async;
+
+    @Value("${hbase.client.instrumentation-enabled:true}")
+    private boolean instrumentationEnabled;
+
+    @Bean
+    public ConnectionWarmup connectionWarmup(HbaseTemplate hbaseTemplate, HbaseClientMetrics hbaseClientMetrics) {
+        return new ConnectionWarmup(hbaseTemplate, tables, primingReads, async,
+                instrumentationEnabled ? hbaseClientMetrics : null);
+    }
+
+    @Bean
+    public WarmupHealthIndicator hbaseWarmupHealthIndicator(ConnectionWarmup connectionWarmup) {
+        return new WarmupHealthIndicator(connectionWarmup);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.hbase.core;
+
+/**
+ * 统一包装hbase-client抛出的受检异常
+ */
+public class HbaseSystemException extends RuntimeException {
+
+    public HbaseSystemException(String message) {
+        super(message);
+    }
+
+    public HbaseSystemException(Throwable cause) {
+        super(cause);
+    }
+
+    public HbaseSystemException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
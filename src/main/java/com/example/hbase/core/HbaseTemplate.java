@@ -0,0 +1,221 @@
+package com.example.hbase.core;
+
+import com.example.hbase.cache.RowCache;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.query.Query;
+import com.example.hbase.query.QueryPlan;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 线程安全的HBase访问模板
+ * <p>
+ * 整个应用共享同一个Connection和线程池,Table/BufferedMutator都是轻量级对象,每次调用时从共享连接上创建,用完即关闭
+ * <p>
+ * 配置了RowCache时,get先查缓存,put/delete完成后失效对应的行
+ */
+public class HbaseTemplate {
+
+    private final Connection connection;
+
+    private final ExecutorService pool;
+
+    private final HbaseConnectionMetrics metrics;
+
+    private final RowCache rowCache;
+
+    public HbaseTemplate(Connection connection, ExecutorService pool, HbaseConnectionMetrics metrics) {
+        this(connection, pool, metrics, null);
+    }
+
+    /**
+     * @param rowCache 可以为null,表示不使用缓存
+     */
+    public HbaseTemplate(Connection connection, ExecutorService pool, HbaseConnectionMetrics metrics, RowCache rowCache) {
+        this.connection = connection;
+        this.pool = pool;
+        this.metrics = metrics;
+        this.rowCache = rowCache;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public ExecutorService getPool() {
+        return pool;
+    }
+
+    /**
+     * 获取一个轻量级的Table,调用方负责close
+     *
+     * @param tableName
+     * @return
+     */
+    public Table getTable(TableName tableName) {
+        return connection.getTableBuilder(tableName, pool).build();
+    }
+
+    /**
+     * 获取一个共享线程池的BufferedMutator,调用方负责close
+     *
+     * @param params
+     * @return
+     */
+    public BufferedMutator getBufferedMutator(BufferedMutatorParams params) {
+        if (params.getPool() == null) {
+            params.pool(pool);
+        }
+        try {
+            return connection.getBufferedMutator(params);
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to open buffered mutator for " + params.getTableName(), e);
+        }
+    }
+
+    public <T> T execute(String tableName, TableCallback<T> action) {
+        return execute(TableName.valueOf(tableName), action);
+    }
+
+    public <T> T execute(TableName tableName, TableCallback<T> action) {
+        try (Table table = getTable(tableName)) {
+            return action.doInTable(table);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new HbaseSystemException(e);
+        }
+    }
+
+    public void executeMutator(String tableName, MutatorCallback action) {
+        executeMutator(new BufferedMutatorParams(TableName.valueOf(tableName)), action);
+    }
+
+    public void executeMutator(BufferedMutatorParams params, MutatorCallback action) {
+        try (BufferedMutator mutator = getBufferedMutator(params)) {
+            action.doInMutator(mutator);
+            mutator.flush();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new HbaseSystemException(e);
+        }
+    }
+
+    public <T> T get(String tableName, String rowKey, RowMapper<T> mapper) {
+        return get(tableName, new Get(Bytes.toBytes(rowKey)), mapper);
+    }
+
+    public <T> T get(String tableName, Get get, RowMapper<T> mapper) {
+        return execute(tableName, table -> {
+            Result result = rowCache != null ? rowCache.get(table, get) : table.get(get);
+            return result.isEmpty() ? null : mapper.mapRow(result, 0);
+        });
+    }
+
+    public <T> List<T> find(String tableName, Scan scan, RowMapper<T> mapper) {
+        return execute(tableName, table -> {
+            List<T> rows = new ArrayList<>();
+            try (ResultScanner scanner = table.getScanner(scan)) {
+                int rowNum = 0;
+                for (Result result : scanner) {
+                    rows.add(mapper.mapRow(result, rowNum++));
+                }
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * 按查询计划扫描,条件不可能满足时不访问HBase;只为过滤读取的列在映射前去掉
+     *
+     * @param query
+     * @param mapper
+     * @param <T>
+     * @return
+     */
+    public <T> List<T> find(Query query, RowMapper<T> mapper) {
+        QueryPlan plan = query.plan();
+        if (plan.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return find(plan.getTableName().getNameAsString(), plan.getScan(),
+                (result, rowNum) -> mapper.mapRow(plan.strip(result), rowNum));
+    }
+
+    public void put(String tableName, Put put) {
+        execute(tableName, table -> {
+            try {
+                table.put(put);
+            } finally {
+                invalidate(table.getName(), put.getRow());
+            }
+            return null;
+        });
+    }
+
+    public void put(String tableName, List<Put> puts) {
+        execute(tableName, table -> {
+            try {
+                table.put(puts);
+            } finally {
+                for (Put put : puts) {
+                    invalidate(table.getName(), put.getRow());
+                }
+            }
+            return null;
+        });
+    }
+
+    public void delete(String tableName, Delete delete) {
+        execute(tableName, table -> {
+            try {
+                table.delete(delete);
+            } finally {
+                invalidate(table.getName(), delete.getRow());
+            }
+            return null;
+        });
+    }
+
+    private void invalidate(TableName tableName, byte[] row) {
+        if (rowCache != null) {
+            rowCache.invalidate(tableName, row);
+        }
+    }
+
+    /**
+     * 定位某一行所在的region,并记录定位耗时
+     *
+     * @param tableName
+     * @param row
+     * @return
+     */
+    public HRegionLocation locateRegion(TableName tableName, byte[] row) {
+        long start = System.nanoTime();
+        try (RegionLocator locator = connection.getRegionLocator(tableName)) {
+            return locator.getRegionLocation(row);
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to locate region of " + tableName, e);
+        } finally {
+            metrics.recordRegionLookup(System.nanoTime() - start);
+        }
+    }
+}
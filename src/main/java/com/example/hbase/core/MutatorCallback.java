@@ -0,0 +1,12 @@
+package com.example.hbase.core;
+
+import org.apache.hadoop.hbase.client.BufferedMutator;
+
+/**
+ * 在一个BufferedMutator上执行的写操作,回调结束后HbaseTemplate会flush并关闭mutator
+ */
+@FunctionalInterface
+public interface MutatorCallback {
+
+    void doInMutator(BufferedMutator mutator) throws Throwable;
+}
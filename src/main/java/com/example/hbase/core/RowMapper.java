@@ -0,0 +1,14 @@
+package com.example.hbase.core;
+
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * 把一行Result转换成业务对象
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T mapRow(Result result, int rowNum) throws Exception;
+}
@@ -0,0 +1,14 @@
+package com.example.hbase.core;
+
+import org.apache.hadoop.hbase.client.Table;
+
+/**
+ * 在一个Table上执行的操作,Table的获取和关闭由HbaseTemplate负责
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+public interface TableCallback<T> {
+
+    T doInTable(Table table) throws Throwable;
+}
@@ -0,0 +1,457 @@
+package com.example.hbase.counter;
+
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 本地累加、定时批量提交的计数器,线程安全
+ * <p>
+ * 1.increment只累加到本地按行/列区分的LongAdder上,不发RPC<br>
+ * 2.后台线程每flushIntervalMs(或本地计数器个数超过maxPendingKeys时提前)取走各计数器的增量,
+ * 同一行的列合并成一个Increment,按region分组,每个region一次Table.batch并行提交<br>
+ * 3.取增量时只减去读到的值,并发的累加留在计数器里进入下一轮,不会丢也不会重复<br>
+ * 4.提交失败的增量放回本地,下一轮再提交;close时做最后一次flush。increment持有读锁,close先拿写锁再标记关闭,
+ * 已经通过关闭检查的increment都在最后一次flush之前完成
+ * <p>
+ * 数据最多滞后一个flush间隔;Increment不是幂等的,RPC超时但服务端已执行时重提交会重复计数。
+ * get读出已存储的值再加上本地还没确认写入的增量,只反映本节点的增量
+ */
+public class Counters implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Counters.class);
+
+    private final HbaseTemplate template;
+
+    private final TableName tableName;
+
+    private final long flushIntervalMs;
+
+    private final int maxPendingKeys;
+
+    private final ConcurrentMap<Key, Counter> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder increments = new LongAdder();
+
+    private final LongAdder flushes = new LongAdder();
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder flushed = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private final Object flushSignal = new Object();
+
+    private final Thread flusher;
+
+    private boolean flushRequested;
+
+    private volatile boolean closed;
+
+    /**
+     * @param template        共享连接
+     * @param tableName       表名
+     * @param flushIntervalMs 定时flush间隔,即计数最多滞后的时间
+     * @param maxPendingKeys  本地计数器个数超过后提前flush
+     */
+    public Counters(HbaseTemplate template, TableName tableName, long flushIntervalMs, int maxPendingKeys) {
+        this.template = template;
+        this.tableName = tableName;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxPendingKeys = maxPendingKeys;
+        this.flusher = new Thread(this::flushLoop, "counters-" + tableName.getNameAsString());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public void increment(byte[] row, byte[] family, byte[] qualifier) {
+        increment(row, family, qualifier, 1L);
+    }
+
+    /**
+     * 累加到本地计数器,只在close标记关闭的瞬间等待
+     *
+     * @param row
+     * @param family
+     * @param qualifier
+     * @param delta
+     */
+    public void increment(byte[] row, byte[] family, byte[] qualifier, long delta) {
+        Lock lock = closeLock.readLock();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Counters for " + tableName + " is closed");
+            }
+            increments.increment();
+            add(new Key(row, family, qualifier), delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已存储的值加上本地还没确认写入的增量
+     *
+     * @param row
+     * @param family
+     * @param qualifier
+     * @return
+     */
+    public long get(byte[] row, byte[] family, byte[] qualifier) {
+        long pending = getPending(row, family, qualifier);
+        Result result = template.execute(tableName, table -> table.get(new Get(row).addColumn(family, qualifier)));
+        byte[] value = result.getValue(family, qualifier);
+        return (value == null ? 0L : Bytes.toLong(value)) + pending;
+    }
+
+    /**
+     * 本地还没确认写入的增量
+     */
+    public long getPending(byte[] row, byte[] family, byte[] qualifier) {
+        Counter counter = counters.get(new Key(row, family, qualifier));
+        return counter == null ? 0L : counter.pending();
+    }
+
+    /**
+     * 同步提交所有本地增量
+     */
+    public synchronized void flush() {
+        flushes.increment();
+        Map<byte[], Pending> rows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        Iterator<Map.Entry<Key, Counter>> it = counters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Counter> entry = it.next();
+            Key key = entry.getKey();
+            Counter counter = entry.getValue();
+            long delta = counter.take();
+            if (delta != 0) {
+                rows.computeIfAbsent(key.row, Pending::new).add(key, counter, delta);
+            } else if (counter.inFlight.get() == 0) {
+                //一整轮没有新增量的计数器移除,移除后才到的增量由写入方转移到新的计数器上
+                it.remove();
+                retire(key, counter);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Pending> group : groupByRegion(rows.values())) {
+            calls.increment();
+            try {
+                futures.add(template.getPool().submit(() -> submit(group)));
+            } catch (RejectedExecutionException e) {
+                submit(group);
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error("Flush of counters for {} failed", tableName, e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Lock lock = closeLock.writeLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        requestFlush();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public long getIncrements() {
+        return increments.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getFlushed() {
+        return flushed.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int getPendingKeys() {
+        return counters.size();
+    }
+
+    private void add(Key key, long delta) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            //调用方的数组可能被复用,放进map的key使用副本
+            key = new Key(key.row.clone(), key.family.clone(), key.qualifier.clone());
+            Counter created = new Counter();
+            counter = counters.putIfAbsent(key, created);
+            if (counter == null) {
+                counter = created;
+                if (counters.size() > maxPendingKeys) {
+                    requestFlush();
+                }
+            }
+        }
+        counter.adder.add(delta);
+        //计数器已被flush线程移除时,把累加的值转移到新的计数器上
+        if (counter.retired) {
+            retire(key, counter);
+        }
+    }
+
+    /**
+     * 把已移除计数器上残留的增量转移到map中的计数器上。retired是volatile,
+     * 写入方先累加再读retired,flush线程先写retired再读残留值,两边至少有一方能看到这次累加
+     */
+    private void retire(Key key, Counter counter) {
+        counter.retired = true;
+        long rest;
+        synchronized (counter) {
+            rest = counter.adder.sum();
+            counter.adder.add(-rest);
+        }
+        if (rest != 0) {
+            add(key, rest);
+        }
+    }
+
+    /**
+     * 从客户端的meta缓存中定位region,定位失败的行放在同一组里交给Table.batch自己处理
+     */
+    private Collection<List<Pending>> groupByRegion(Collection<Pending> rows) {
+        Map<String, List<Pending>> byRegion = new LinkedHashMap<>();
+        try (RegionLocator locator = template.getConnection().getRegionLocator(tableName)) {
+            for (Pending pending : rows) {
+                String region = null;
+                try {
+                    HRegionLocation location = locator.getRegionLocation(pending.row);
+                    region = location == null ? null : location.getRegion().getEncodedName();
+                } catch (IOException e) {
+                    log.debug("Failed to locate {} in {}", Bytes.toStringBinary(pending.row), tableName, e);
+                }
+                byRegion.computeIfAbsent(region, r -> new ArrayList<>()).add(pending);
+            }
+        } catch (IOException e) {
+            byRegion.clear();
+            byRegion.put(null, new ArrayList<>(rows));
+        }
+        return byRegion.values();
+    }
+
+    /**
+     * 提交一个region的Increment,失败的行把增量放回本地计数器
+     */
+    private void submit(List<Pending> group) {
+        List<Increment> increments = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            increments.add(pending.increment);
+        }
+        Object[] results = new Object[increments.size()];
+        try {
+            template.execute(tableName, table -> {
+                table.batch(increments, results);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Increment of {} rows in {} failed, will retry in next flush", group.size(), tableName, e);
+        }
+        for (int i = 0; i < group.size(); i++) {
+            //没有执行的行结果为null
+            boolean succeeded = results[i] != null && !(results[i] instanceof Throwable);
+            group.get(i).complete(succeeded);
+            if (succeeded) {
+                flushed.increment();
+            } else {
+                failures.increment();
+            }
+        }
+    }
+
+    private void requestFlush() {
+        synchronized (flushSignal) {
+            flushRequested = true;
+            flushSignal.notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            synchronized (flushSignal) {
+                if (!flushRequested) {
+                    try {
+                        flushSignal.wait(flushIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+            if (!closed) {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    log.error("Flush of counters for {} failed", tableName, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一行待提交的增量,同一行的列合并成一个Increment,不需要返回结果
+     */
+    private static final class Pending {
+
+        private final byte[] row;
+
+        private final Increment increment;
+
+        private final List<Counter> counters = new ArrayList<>();
+
+        private final List<Long> deltas = new ArrayList<>();
+
+        Pending(byte[] row) {
+            this.row = row;
+            this.increment = new Increment(row);
+            this.increment.setReturnResults(false);
+        }
+
+        void add(Key key, Counter counter, long delta) {
+            increment.addColumn(key.family, key.qualifier, delta);
+            counters.add(counter);
+            deltas.add(delta);
+        }
+
+        /**
+         * 失败时先放回adder再从inFlight中减去
+         */
+        void complete(boolean succeeded) {
+            for (int i = 0; i < counters.size(); i++) {
+                Counter counter = counters.get(i);
+                long delta = deltas.get(i);
+                if (!succeeded) {
+                    counter.adder.add(delta);
+                }
+                counter.inFlight.addAndGet(-delta);
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final byte[] row;
+
+        private final byte[] family;
+
+        private final byte[] qualifier;
+
+        private final int hash;
+
+        Key(byte[] row, byte[] family, byte[] qualifier) {
+            this.row = row;
+            this.family = family;
+            this.qualifier = qualifier;
+            this.hash = (Bytes.hashCode(row) * 31 + Bytes.hashCode(family)) * 31 + Bytes.hashCode(qualifier);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(row, other.row) && Arrays.equals(family, other.family)
+                    && Arrays.equals(qualifier, other.qualifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 一个计数器:还没取走的增量和已取走但还没确认写入的增量
+     */
+    private static final class Counter {
+
+        private final LongAdder adder = new LongAdder();
+
+        private final AtomicLong inFlight = new AtomicLong();
+
+        private volatile boolean retired;
+
+        /**
+         * 先记入inFlight再从adder中减去,读到的值在切换过程中可能短暂重复但不会丢
+         */
+        long take() {
+            long delta = adder.sum();
+            if (delta != 0) {
+                inFlight.addAndGet(delta);
+                adder.add(-delta);
+            }
+            return delta;
+        }
+
+        long pending() {
+            return adder.sum() + inFlight.get();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.hbase.counter;
+
+import com.example.hbase.core.HbaseTemplate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hadoop.hbase.TableName;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 按统一配置为每张表创建Counters,并注册累加次数、flush次数、实际调用数、本地计数器个数等指标。
+ * 关闭时(容器停止时)把所有创建过的Counters中的本地增量提交
+ */
+public class CountersFactory implements Closeable {
+
+    private final HbaseTemplate template;
+
+    private final long flushIntervalMs;
+
+    private final int maxPendingKeys;
+
+    private final MeterRegistry meterRegistry;
+
+    private final List<Counters> created = new CopyOnWriteArrayList<>();
+
+    public CountersFactory(HbaseTemplate template, long flushIntervalMs, int maxPendingKeys,
+                           MeterRegistry meterRegistry) {
+        this.template = template;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxPendingKeys = maxPendingKeys;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建一个Counters,不再使用时需要close
+     *
+     * @param tableName
+     * @return
+     */
+    public Counters create(String tableName) {
+        Counters counters = new Counters(template, TableName.valueOf(tableName), flushIntervalMs, maxPendingKeys);
+        created.add(counters);
+        if (meterRegistry != null) {
+            FunctionCounter.builder("hbase.counter.increments", counters, Counters::getIncrements)
+                    .tag("table", tableName).register(meterRegistry);
+            FunctionCounter.builder("hbase.counter.flushes", counters, Counters::getFlushes)
+                    .tag("table", tableName).register(meterRegistry);
+            FunctionCounter.builder("hbase.counter.calls", counters, Counters::getCalls)
+                    .tag("table", tableName).register(meterRegistry);
+            FunctionCounter.builder("hbase.counter.rows", counters, Counters::getFlushed)
+                    .tag("table", tableName).tag("result", "flushed").register(meterRegistry);
+            FunctionCounter.builder("hbase.counter.rows", counters, Counters::getFailures)
+                    .tag("table", tableName).tag("result", "failed").register(meterRegistry);
+            Gauge.builder("hbase.counter.pending.keys", counters, Counters::getPendingKeys)
+                    .tag("table", tableName).register(meterRegistry);
+        }
+        return counters;
+    }
+
+    @Override
+    public void close() {
+        for (Counters counters : created) {
+            counters.close();
+        }
+        created.clear();
+    }
+}
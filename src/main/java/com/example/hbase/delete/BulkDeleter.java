@@ -0,0 +1,246 @@
+package com.example.hbase.delete;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.query.Query;
+import com.example.hbase.query.QueryPlan;
+import com.example.hbase.rowkey.KeyRanges;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 按前缀、行键区间或过滤条件批量删除,以及保留分区的truncate
+ * <p>
+ * 1.按region切分scan,最多parallelism个region同时进行<br>
+ * 2.每个region用只返回行键的scan(没有过滤条件时FirstKeyOnlyFilter+KeyOnlyFilter,有过滤条件时在其后加KeyOnlyFilter)
+ * 读出要删除的行,攒够batchSize行发一次Table.batch<br>
+ * 3.所有region共享一个按行数的限速,每批发出前申请额度
+ * <p>
+ * scan没有选择列时删除整行,选择了列族时只删除这些列族,选择了列时只删除这些列的所有版本;
+ * 按查询删除时只删除select的列,为过滤条件额外读取的列不删除
+ */
+public class BulkDeleter {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkDeleter.class);
+
+    private final HbaseTemplate template;
+
+    private final ParallelScanner scanner;
+
+    private final Scheduler scheduler;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    private final long maxRowsPerSecond;
+
+    /**
+     * @param template
+     * @param scanner          读取region边界
+     * @param pool             执行删除的线程池
+     * @param parallelism      同时删除的最大region数
+     * @param batchSize        每批Delete的行数,也是scan的caching
+     * @param maxRowsPerSecond 所有region合计每秒最多删除的行数,0表示不限速
+     */
+    public BulkDeleter(HbaseTemplate template, ParallelScanner scanner, ExecutorService pool, int parallelism,
+                       int batchSize, long maxRowsPerSecond) {
+        this.template = template;
+        this.scanner = scanner;
+        this.scheduler = Schedulers.fromExecutorService(pool);
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    public DeleteProgress deletePrefix(String tableName, byte[] prefix) {
+        byte[][] range = KeyRanges.prefix(prefix);
+        return deleteRange(tableName, range[0], range[1]);
+    }
+
+    /**
+     * 删除[start, stop)中的行,空数组表示不设界
+     */
+    public DeleteProgress deleteRange(String tableName, byte[] start, byte[] stop) {
+        return delete(tableName, new Scan().withStartRow(start).withStopRow(stop));
+    }
+
+    /**
+     * 按查询计划删除,条件不可能满足时不访问HBase
+     */
+    public DeleteProgress delete(Query query) {
+        QueryPlan plan = query.plan();
+        if (plan.isEmpty()) {
+            return new DeleteProgress(0, 0, 0, 0, 0);
+        }
+        return delete(plan.getTableName(), plan.getScan(), plan.getSelectedColumns());
+    }
+
+    /**
+     * 删除scan范围内满足过滤条件的行,阻塞到全部完成
+     */
+    public DeleteProgress delete(String tableName, Scan scan) {
+        return delete(TableName.valueOf(tableName), scan, scan.getFamilyMap());
+    }
+
+    private DeleteProgress delete(TableName tableName, Scan scan, Map<byte[], NavigableSet<byte[]>> scope) {
+        DeleteProgress progress = stream(tableName, scan, scope).blockLast();
+        log.info("Deleted from {}: {}", tableName, progress);
+        return progress;
+    }
+
+    /**
+     * 每删除一批或完成一个region发出一次累计进度,最后一个元素即最终结果;取消订阅后各region在当前批次之后停止
+     *
+     * @param tableName
+     * @param scan      删除的范围、过滤条件和列,不能是反向scan,不能设置limit
+     * @return
+     */
+    public Flux<DeleteProgress> stream(String tableName, Scan scan) {
+        return stream(TableName.valueOf(tableName), scan, scan.getFamilyMap());
+    }
+
+    /**
+     * @param scope 删除的列,格式同Scan.getFamilyMap
+     */
+    private Flux<DeleteProgress> stream(TableName table, Scan scan, Map<byte[], NavigableSet<byte[]>> scope) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            List<Scan> subScans = scanner.split(table, keysOnly(scan));
+            if (subScans.isEmpty()) {
+                return Flux.just(new DeleteProgress(0, 0, 0, 0, System.nanoTime() - start));
+            }
+            Throttle throttle = new Throttle(maxRowsPerSecond);
+            long[] totals = new long[3];
+            return Flux.fromIterable(subScans)
+                    .flatMap(subScan -> Flux.<Integer>create(sink -> deleteRegion(table, subScan, scope, throttle, sink))
+                            .subscribeOn(scheduler), parallelism)
+                    .map(rows -> {
+                        //flatMap的输出是串行的
+                        if (rows < 0) {
+                            totals[0]++;
+                        } else {
+                            totals[1] += rows;
+                            totals[2]++;
+                        }
+                        return new DeleteProgress((int) totals[0], subScans.size(), totals[1], totals[2],
+                                System.nanoTime() - start);
+                    });
+        });
+    }
+
+    /**
+     * 清空表并保留(或合并)分区,表需要先禁用,这里在表启用时自动禁用
+     *
+     * @param tableName
+     * @param preserveSplits false时清空后只有一个region
+     */
+    public void truncate(String tableName, boolean preserveSplits) {
+        TableName table = TableName.valueOf(tableName);
+        try (Admin admin = template.getConnection().getAdmin()) {
+            if (admin.isTableEnabled(table)) {
+                admin.disableTable(table);
+            }
+            admin.truncateTable(table, preserveSplits);
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to truncate " + tableName, e);
+        }
+        log.info("Truncated {}, preserveSplits={}", tableName, preserveSplits);
+    }
+
+    private Scan keysOnly(Scan scan) {
+        if (scan.isReversed()) {
+            throw new IllegalArgumentException("Bulk delete does not support reversed scans");
+        }
+        if (scan.getLimit() > 0) {
+            throw new IllegalArgumentException("Bulk delete does not support scan limit");
+        }
+        Scan prepared;
+        try {
+            prepared = new Scan(scan);
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+        prepared.setFilter(scan.getFilter() == null
+                ? new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter())
+                : new FilterList(scan.getFilter(), new KeyOnlyFilter()));
+        prepared.setCaching(batchSize);
+        prepared.setCacheBlocks(false);
+        return prepared;
+    }
+
+    /**
+     * 每发出一批向sink发出这一批的行数,region完成时发出-1
+     */
+    private void deleteRegion(TableName tableName, Scan subScan, Map<byte[], NavigableSet<byte[]>> scope,
+                              Throttle throttle, FluxSink<Integer> sink) {
+        try {
+            template.execute(tableName, table -> {
+                List<Delete> batch = new ArrayList<>(batchSize);
+                try (ResultScanner results = table.getScanner(subScan)) {
+                    for (Result result : results) {
+                        if (sink.isCancelled()) {
+                            return null;
+                        }
+                        batch.add(delete(result.getRow(), scope));
+                        if (batch.size() >= batchSize) {
+                            flush(table, batch, throttle, sink);
+                        }
+                    }
+                }
+                if (!batch.isEmpty() && !sink.isCancelled()) {
+                    flush(table, batch, throttle, sink);
+                }
+                return null;
+            });
+            sink.next(-1);
+            sink.complete();
+        } catch (RuntimeException e) {
+            sink.error(e);
+        }
+    }
+
+    private void flush(Table table, List<Delete> batch, Throttle throttle, FluxSink<Integer> sink)
+            throws IOException, InterruptedException {
+        throttle.acquire(batch.size());
+        table.batch(batch, new Object[batch.size()]);
+        sink.next(batch.size());
+        batch.clear();
+    }
+
+    private static Delete delete(byte[] row, Map<byte[], NavigableSet<byte[]>> scope) {
+        Delete delete = new Delete(row);
+        for (Map.Entry<byte[], NavigableSet<byte[]>> family : scope.entrySet()) {
+            if (family.getValue() == null || family.getValue().isEmpty()) {
+                delete.addFamily(family.getKey());
+            } else {
+                for (byte[] qualifier : family.getValue()) {
+                    delete.addColumns(family.getKey(), qualifier);
+                }
+            }
+        }
+        return delete;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.hbase.delete;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量删除进度:已完成的region数、已删除的行数和批次数
+ */
+public class DeleteProgress {
+
+    private final int completedRegions;
+
+    private final int totalRegions;
+
+    private final long rows;
+
+    private final long batches;
+
+    private final long elapsedNanos;
+
+    DeleteProgress(int completedRegions, int totalRegions, long rows, long batches, long elapsedNanos) {
+        this.completedRegions = completedRegions;
+        this.totalRegions = totalRegions;
+        this.rows = rows;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getCompletedRegions() {
+        return completedRegions;
+    }
+
+    public int getTotalRegions() {
+        return totalRegions;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public boolean isComplete() {
+        return completedRegions == totalRegions;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteProgress{" + completedRegions + "/" + totalRegions + ", rows=" + rows + ", batches=" + batches
+                + ", elapsedMillis=" + getElapsedMillis() + "}";
+    }
+}
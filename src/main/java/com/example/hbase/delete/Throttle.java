@@ -0,0 +1,37 @@
+package com.example.hbase.delete;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有region共享的行数限速,按固定间隔发放额度,一批行数超过剩余额度时先借用,由之后的调用等待偿还
+ */
+final class Throttle {
+
+    private final long nanosPerRow;
+
+    private long next = System.nanoTime();
+
+    /**
+     * @param rowsPerSecond 0表示不限速
+     */
+    Throttle(long rowsPerSecond) {
+        this.nanosPerRow = rowsPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / rowsPerSecond;
+    }
+
+    void acquire(int rows) throws InterruptedException {
+        if (nanosPerRow == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            //空闲期间积累的额度不超过一秒
+            next = Math.max(next, now - TimeUnit.SECONDS.toNanos(1));
+            wait = next - now;
+            next += rows * nanosPerRow;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.hbase.index;
+
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引一致性检查与重建
+ * <p>
+ * 检查分两遍:扫描索引行,批量读取数据行,找出指向不存在或值已改变的数据行的多余索引行;
+ * 再扫描数据表的索引列,批量判断索引行是否存在,找出缺失的索引行。
+ * 正在进行的写入会先写索引再写数据,所以只把早于grace的多余索引行算作过期,避免删掉写入中途的索引行
+ */
+public class IndexChecker {
+
+    private final IndexedTable table;
+
+    private final long graceMillis;
+
+    private final int batchSize;
+
+    /**
+     * @param table
+     * @param grace     比这更新的多余索引行视为写入中途,不算过期
+     * @param batchSize 每批读取或判断的行数
+     */
+    public IndexChecker(IndexedTable table, Duration grace, int batchSize) {
+        this.table = table;
+        this.graceMillis = grace.toMillis();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 检查一个索引
+     *
+     * @param index  索引名
+     * @param repair 是否删除过期索引行、补上缺失索引行
+     * @return
+     */
+    public IndexReport check(String index, boolean repair) {
+        IndexDefinition definition = table.index(index);
+        long[] stale = checkEntries(definition, repair);
+        long[] missing = checkRows(definition, repair);
+        return new IndexReport(index, stale[0], missing[0], stale[1], missing[1], repair);
+    }
+
+    /**
+     * 按数据表重建索引:补上所有缺失的索引行并删除过期的索引行,可以在线执行
+     *
+     * @param index
+     * @return
+     */
+    public IndexReport rebuild(String index) {
+        return check(index, true);
+    }
+
+    /**
+     * @return {索引行数, 过期索引行数}
+     */
+    private long[] checkEntries(IndexDefinition index, boolean repair) {
+        HbaseTemplate template = table.getTemplate();
+        Scan scan = new Scan()
+                .withStartRow(IndexKeys.indexPrefix(index.getName()))
+                .withStopRow(IndexKeys.indexEnd(index.getName()))
+                .addFamily(IndexedTable.INDEX_FAMILY)
+                .setCaching(batchSize);
+        long[] counts = new long[2];
+        template.execute(table.getIndexTableName(), indexTable -> {
+            List<Result> batch = new ArrayList<>(batchSize);
+            try (ResultScanner scanner = indexTable.getScanner(scan)) {
+                for (Result entry : scanner) {
+                    batch.add(entry);
+                    if (batch.size() == batchSize) {
+                        counts[1] += staleEntries(index, batch, repair);
+                        counts[0] += batch.size();
+                        batch.clear();
+                    }
+                }
+            }
+            counts[1] += staleEntries(index, batch, repair);
+            counts[0] += batch.size();
+            return null;
+        });
+        return counts;
+    }
+
+    private int staleEntries(IndexDefinition index, List<Result> entries, boolean repair) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Get> gets = new ArrayList<>(entries.size());
+        for (Result entry : entries) {
+            gets.add(new Get(IndexKeys.dataRow(entry.getRow())).addColumn(index.getFamily(), index.getQualifier()));
+        }
+        Result[] rows = table.getTemplate().execute(table.getTableName(), dataTable -> dataTable.get(gets));
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        List<Delete> stale = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            Result entry = entries.get(i);
+            byte[] value = rows[i].getValue(index.getFamily(), index.getQualifier());
+            boolean matches = value != null && Bytes.equals(value, IndexKeys.value(entry.getRow()));
+            if (!matches && entry.rawCells()[0].getTimestamp() < cutoff) {
+                stale.add(new Delete(entry.getRow()));
+            }
+        }
+        int count = stale.size();
+        if (repair) {
+            table.deleteEntries(stale);
+        }
+        return count;
+    }
+
+    /**
+     * @return {有索引列的数据行数, 缺少索引行的数据行数}
+     */
+    private long[] checkRows(IndexDefinition index, boolean repair) {
+        HbaseTemplate template = table.getTemplate();
+        Scan scan = new Scan().addColumn(index.getFamily(), index.getQualifier()).setCaching(batchSize);
+        long[] counts = new long[2];
+        template.execute(table.getTableName(), dataTable -> {
+            List<Put> batch = new ArrayList<>(batchSize);
+            try (ResultScanner scanner = dataTable.getScanner(scan)) {
+                for (Result row : scanner) {
+                    batch.add(IndexedTable.entry(index, row.getValue(index.getFamily(), index.getQualifier()),
+                            row.getRow()));
+                    if (batch.size() == batchSize) {
+                        counts[1] += missingEntries(batch, repair);
+                        counts[0] += batch.size();
+                        batch.clear();
+                    }
+                }
+            }
+            counts[1] += missingEntries(batch, repair);
+            counts[0] += batch.size();
+            return null;
+        });
+        return counts;
+    }
+
+    private int missingEntries(List<Put> expected, boolean repair) {
+        if (expected.isEmpty()) {
+            return 0;
+        }
+        List<Get> gets = new ArrayList<>(expected.size());
+        for (Put entry : expected) {
+            gets.add(new Get(entry.getRow()));
+        }
+        TableName indexTableName = table.getIndexTableName();
+        boolean[] exists = table.getTemplate().execute(indexTableName, indexTable -> indexTable.exists(gets));
+        List<Put> missing = new ArrayList<>();
+        for (int i = 0; i < exists.length; i++) {
+            if (!exists[i]) {
+                missing.add(expected.get(i));
+            }
+        }
+        if (repair && !missing.isEmpty()) {
+            table.getTemplate().put(indexTableName.getNameAsString(), missing);
+        }
+        return missing.size();
+    }
+}
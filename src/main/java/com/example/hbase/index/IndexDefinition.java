@@ -0,0 +1,55 @@
+package com.example.hbase.index;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 一个二级索引:按family:qualifier列的值查找行
+ */
+public class IndexDefinition {
+
+    private final String name;
+
+    private final byte[] family;
+
+    private final byte[] qualifier;
+
+    public IndexDefinition(String name, byte[] family, byte[] qualifier) {
+        if (name.isEmpty() || name.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Invalid index name: " + name);
+        }
+        this.name = name;
+        this.family = family;
+        this.qualifier = qualifier;
+    }
+
+    /**
+     * @param name   索引名,同一张表内唯一
+     * @param column family:qualifier
+     * @return
+     */
+    public static IndexDefinition of(String name, String column) {
+        int colon = column.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Index column must be family:qualifier: " + column);
+        }
+        return new IndexDefinition(name, Bytes.toBytes(column.substring(0, colon)),
+                Bytes.toBytes(column.substring(colon + 1)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getFamily() {
+        return family;
+    }
+
+    public byte[] getQualifier() {
+        return qualifier;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + Bytes.toString(family) + ":" + Bytes.toString(qualifier) + ")";
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.hbase.index;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * 索引表行键:索引名 0x00 转义后的列值 0x00 0x01 数据行键
+ * <p>
+ * 列值中的0x00转义成0x00 0xFF,再以0x00 0x01结尾,转义后的字节序与原值一致,
+ * 因此同一个索引下的行按(列值, 数据行键)排序,等值和范围查询都是一段连续的索引行
+ */
+final class IndexKeys {
+
+    private static final byte ESCAPE = 0x00;
+
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+
+    private static final byte TERMINATOR = 0x01;
+
+    private IndexKeys() {
+    }
+
+    static byte[] indexRow(String index, byte[] value, byte[] row) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(index.length() + value.length + row.length + 4);
+        writeValue(out, index, value);
+        out.write(ESCAPE);
+        out.write(TERMINATOR);
+        out.write(row, 0, row.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * 等值查询的索引行前缀
+     */
+    static byte[] equalPrefix(String index, byte[] value) {
+        return indexRow(index, value, new byte[0]);
+    }
+
+    /**
+     * 列值不小于value的第一个索引行
+     */
+    static byte[] lowerBound(String index, byte[] value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeValue(out, index, value);
+        return out.toByteArray();
+    }
+
+    /**
+     * 整个索引的前缀
+     */
+    static byte[] indexPrefix(String index) {
+        return Bytes.add(Bytes.toBytes(index), new byte[]{0});
+    }
+
+    /**
+     * 整个索引之后的第一个行键
+     */
+    static byte[] indexEnd(String index) {
+        return Bytes.add(Bytes.toBytes(index), new byte[]{1});
+    }
+
+    /**
+     * 从索引行键中取出数据行键
+     */
+    static byte[] dataRow(byte[] indexRow) {
+        return Arrays.copyOfRange(indexRow, terminatorEnd(indexRow), indexRow.length);
+    }
+
+    /**
+     * 从索引行键中取出列值
+     */
+    static byte[] value(byte[] indexRow) {
+        int start = indexOfZero(indexRow, 0) + 1;
+        int end = terminatorEnd(indexRow) - 2;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(end - start);
+        for (int i = start; i < end; i++) {
+            out.write(indexRow[i]);
+            if (indexRow[i] == ESCAPE) {
+                i++;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, String index, byte[] value) {
+        byte[] prefix = indexPrefix(index);
+        out.write(prefix, 0, prefix.length);
+        for (byte b : value) {
+            out.write(b);
+            if (b == ESCAPE) {
+                out.write(ESCAPED_ZERO);
+            }
+        }
+    }
+
+    private static int terminatorEnd(byte[] indexRow) {
+        int i = indexOfZero(indexRow, 0) + 1;
+        while (i < indexRow.length - 1) {
+            if (indexRow[i] == ESCAPE) {
+                if (indexRow[i + 1] == TERMINATOR) {
+                    return i + 2;
+                }
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Malformed index row " + Bytes.toStringBinary(indexRow));
+    }
+
+    private static int indexOfZero(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Malformed index row " + Bytes.toStringBinary(bytes));
+    }
+}
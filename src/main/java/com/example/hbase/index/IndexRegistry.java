@@ -0,0 +1,49 @@
+package com.example.hbase.index;
+
+import org.apache.hadoop.hbase.TableName;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按数据表查找带索引的表
+ */
+public class IndexRegistry {
+
+    private final Map<TableName, IndexedTable> tables = new HashMap<>();
+
+    private final Duration grace;
+
+    private final int batchSize;
+
+    /**
+     * @param tables
+     * @param grace     一致性检查时写入中途的宽限时间
+     * @param batchSize 一致性检查每批的行数
+     */
+    public IndexRegistry(Collection<IndexedTable> tables, Duration grace, int batchSize) {
+        for (IndexedTable table : tables) {
+            this.tables.put(table.getTableName(), table);
+        }
+        this.grace = grace;
+        this.batchSize = batchSize;
+    }
+
+    public IndexedTable get(String tableName) {
+        IndexedTable table = tables.get(TableName.valueOf(tableName));
+        if (table == null) {
+            throw new IllegalArgumentException("Table " + tableName + " has no index");
+        }
+        return table;
+    }
+
+    public Collection<IndexedTable> getTables() {
+        return tables.values();
+    }
+
+    public IndexChecker checker(String tableName) {
+        return new IndexChecker(get(tableName), grace, batchSize);
+    }
+}
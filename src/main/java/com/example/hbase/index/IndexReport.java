@@ -0,0 +1,77 @@
+package com.example.hbase.index;
+
+/**
+ * 一次索引一致性检查的结果
+ */
+public class IndexReport {
+
+    private final String index;
+
+    private final long entries;
+
+    private final long rows;
+
+    private final long stale;
+
+    private final long missing;
+
+    private final boolean repaired;
+
+    IndexReport(String index, long entries, long rows, long stale, long missing, boolean repaired) {
+        this.index = index;
+        this.entries = entries;
+        this.rows = rows;
+        this.stale = stale;
+        this.missing = missing;
+        this.repaired = repaired;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    /**
+     * 检查过的索引行数
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * 检查过的有索引列的数据行数
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * 指向不存在或值已改变的数据行的索引行数
+     */
+    public long getStale() {
+        return stale;
+    }
+
+    /**
+     * 缺少索引行的数据行数
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * stale和missing是否已经修复
+     */
+    public boolean isRepaired() {
+        return repaired;
+    }
+
+    public boolean isConsistent() {
+        return stale == 0 && missing == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexReport{index=" + index + ", entries=" + entries + ", rows=" + rows + ", stale=" + stale
+                + ", missing=" + missing + ", repaired=" + repaired + "}";
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.hbase.index;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.core.RowMapper;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带二级索引的表,索引保存在同名加_idx后缀的索引表中
+ * <p>
+ * HBase没有跨表事务,写入顺序为:先写新值的索引行,再写数据,最后删除旧值的索引行。
+ * 任何一步失败只会留下多余的索引行;查询时用数据行的当前值校验每条索引命中,多余的索引行被跳过,由{@link IndexChecker}清理。
+ * 并发写同一行时旧值可能已被另一个写入重新写回(A: X→Y与B: Y→X交错),所以删除旧索引行前重新读取数据行,
+ * 当前值仍等于旧值的不删。重新读取和删除之间仍有很小的窗口可能删掉有效的索引行,
+ * 这种缺失和不经过本类的写入造成的缺失一样,由IndexChecker补上
+ */
+public class IndexedTable {
+
+    public static final byte[] INDEX_FAMILY = Bytes.toBytes("i");
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final HbaseTemplate template;
+
+    private final TableName tableName;
+
+    private final TableName indexTableName;
+
+    private final Map<String, IndexDefinition> indexes = new LinkedHashMap<>();
+
+    private final int batchSize;
+
+    private final LongAdder staleHits = new LongAdder();
+
+    /**
+     * @param template
+     * @param tableName 数据表
+     * @param indexes   索引定义
+     * @param batchSize 查询时每批multi-get的行数
+     */
+    public IndexedTable(HbaseTemplate template, TableName tableName, Collection<IndexDefinition> indexes,
+                        int batchSize) {
+        this.template = template;
+        this.tableName = tableName;
+        this.indexTableName = indexTableOf(tableName);
+        for (IndexDefinition index : indexes) {
+            if (this.indexes.put(index.getName(), index) != null) {
+                throw new IllegalArgumentException("Duplicate index " + index.getName() + " on " + tableName);
+            }
+        }
+        this.batchSize = batchSize;
+    }
+
+    public static TableName indexTableOf(TableName tableName) {
+        return TableName.valueOf(tableName.getNamespaceAsString(), tableName.getQualifierAsString() + "_idx");
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public TableName getIndexTableName() {
+        return indexTableName;
+    }
+
+    public Collection<IndexDefinition> getIndexes() {
+        return Collections.unmodifiableCollection(indexes.values());
+    }
+
+    /**
+     * 查询中被跳过的过期索引行数
+     *
+     * @return
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    public void put(Put put) {
+        put(Collections.singletonList(put));
+    }
+
+    public void put(List<Put> puts) {
+        if (!touchesIndex(puts)) {
+            template.put(tableName.getNameAsString(), puts);
+            return;
+        }
+        Result[] before = current(puts);
+        List<Put> entries = new ArrayList<>();
+        List<Delete> stale = new ArrayList<>();
+        List<IndexDefinition> staleIndexes = new ArrayList<>();
+        for (int i = 0; i < puts.size(); i++) {
+            Put put = puts.get(i);
+            for (IndexDefinition index : indexes.values()) {
+                List<Cell> cells = put.get(index.getFamily(), index.getQualifier());
+                if (cells.isEmpty()) {
+                    continue;
+                }
+                byte[] value = CellUtil.cloneValue(latest(cells));
+                entries.add(entry(index, value, put.getRow()));
+                byte[] old = before[i].getValue(index.getFamily(), index.getQualifier());
+                if (old != null && !Bytes.equals(old, value)) {
+                    stale.add(new Delete(IndexKeys.indexRow(index.getName(), old, put.getRow())));
+                    staleIndexes.add(index);
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            template.put(indexTableName.getNameAsString(), entries);
+        }
+        template.put(tableName.getNameAsString(), puts);
+        deleteStale(stale, staleIndexes);
+    }
+
+    /**
+     * 删除数据后重新读取索引列:删除可能只删掉了最新版本,露出旧版本的值,这时需要为露出的值补上索引行
+     *
+     * @param delete
+     */
+    public void delete(Delete delete) {
+        List<Delete> deletes = Collections.singletonList(delete);
+        Result before = current(deletes)[0];
+        template.delete(tableName.getNameAsString(), delete);
+        Result after = current(deletes)[0];
+        List<Put> entries = new ArrayList<>();
+        List<Delete> stale = new ArrayList<>();
+        List<IndexDefinition> staleIndexes = new ArrayList<>();
+        for (IndexDefinition index : indexes.values()) {
+            byte[] old = before.getValue(index.getFamily(), index.getQualifier());
+            byte[] now = after.getValue(index.getFamily(), index.getQualifier());
+            if (Bytes.equals(old, now)) {
+                continue;
+            }
+            if (now != null) {
+                entries.add(entry(index, now, delete.getRow()));
+            }
+            if (old != null) {
+                stale.add(new Delete(IndexKeys.indexRow(index.getName(), old, delete.getRow())));
+                staleIndexes.add(index);
+            }
+        }
+        if (!entries.isEmpty()) {
+            template.put(indexTableName.getNameAsString(), entries);
+        }
+        deleteStale(stale, staleIndexes);
+    }
+
+    /**
+     * 按列值等值查询,结果按数据行键排序
+     *
+     * @param index
+     * @param value
+     * @return
+     */
+    public List<Result> findEqual(String index, byte[] value) {
+        return lookup(index(index), new Scan().setRowPrefixFilter(IndexKeys.equalPrefix(index, value)));
+    }
+
+    /**
+     * 按列值范围查询,比较的是列值的字节序,结果按(列值, 数据行键)排序
+     *
+     * @param index
+     * @param from  起始值(包含),为null表示不设下界
+     * @param to    结束值(不包含),为null表示不设上界
+     * @return
+     */
+    public List<Result> findRange(String index, byte[] from, byte[] to) {
+        byte[] start = from == null ? IndexKeys.indexPrefix(index) : IndexKeys.lowerBound(index, from);
+        byte[] stop = to == null ? IndexKeys.indexEnd(index) : IndexKeys.lowerBound(index, to);
+        return lookup(index(index), new Scan().withStartRow(start).withStopRow(stop));
+    }
+
+    public <T> List<T> findEqual(String index, byte[] value, RowMapper<T> mapper) {
+        return map(findEqual(index, value), mapper);
+    }
+
+    public <T> List<T> findRange(String index, byte[] from, byte[] to, RowMapper<T> mapper) {
+        return map(findRange(index, from, to), mapper);
+    }
+
+    IndexDefinition index(String name) {
+        IndexDefinition index = indexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("No index " + name + " on " + tableName);
+        }
+        return index;
+    }
+
+    HbaseTemplate getTemplate() {
+        return template;
+    }
+
+    static Put entry(IndexDefinition index, byte[] value, byte[] row) {
+        return new Put(IndexKeys.indexRow(index.getName(), value, row)).addColumn(INDEX_FAMILY, EMPTY, EMPTY);
+    }
+
+    void deleteEntries(List<Delete> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        template.execute(indexTableName, table -> {
+            table.delete(entries);
+            return null;
+        });
+    }
+
+    /**
+     * 删除旧值的索引行前重新读取数据行,跳过旧值已被并发写入写回的索引行
+     *
+     * @param stale  旧值的索引行
+     * @param owners 每个索引行所属的索引
+     */
+    private void deleteStale(List<Delete> stale, List<IndexDefinition> owners) {
+        if (stale.isEmpty()) {
+            return;
+        }
+        List<Get> gets = new ArrayList<>(stale.size());
+        for (int i = 0; i < stale.size(); i++) {
+            IndexDefinition index = owners.get(i);
+            gets.add(new Get(IndexKeys.dataRow(stale.get(i).getRow())).addColumn(index.getFamily(),
+                    index.getQualifier()));
+        }
+        Result[] results = template.execute(tableName, table -> table.get(gets));
+        List<Delete> deletes = new ArrayList<>(stale.size());
+        for (int i = 0; i < results.length; i++) {
+            IndexDefinition index = owners.get(i);
+            byte[] value = results[i].getValue(index.getFamily(), index.getQualifier());
+            if (value == null || !Bytes.equals(value, IndexKeys.value(stale.get(i).getRow()))) {
+                deletes.add(stale.get(i));
+            }
+        }
+        deleteEntries(deletes);
+    }
+
+    /**
+     * 扫描索引行,每batchSize行批量读取一次数据行,只保留当前值与索引行一致的数据行
+     */
+    private List<Result> lookup(IndexDefinition index, Scan indexScan) {
+        indexScan.addFamily(INDEX_FAMILY).setCaching(batchSize);
+        return template.execute(indexTableName, indexTable -> {
+            List<Result> matched = new ArrayList<>();
+            List<byte[]> batch = new ArrayList<>(batchSize);
+            try (ResultScanner scanner = indexTable.getScanner(indexScan)) {
+                for (Result entry : scanner) {
+                    batch.add(entry.getRow());
+                    if (batch.size() == batchSize) {
+                        fetch(index, batch, matched);
+                        batch.clear();
+                    }
+                }
+            }
+            fetch(index, batch, matched);
+            return matched;
+        });
+    }
+
+    private void fetch(IndexDefinition index, List<byte[]> indexRows, List<Result> matched) {
+        if (indexRows.isEmpty()) {
+            return;
+        }
+        List<Get> gets = new ArrayList<>(indexRows.size());
+        for (byte[] indexRow : indexRows) {
+            gets.add(new Get(IndexKeys.dataRow(indexRow)));
+        }
+        Result[] results = template.execute(tableName, table -> table.get(gets));
+        for (int i = 0; i < results.length; i++) {
+            byte[] value = results[i].getValue(index.getFamily(), index.getQualifier());
+            if (value != null && Bytes.equals(value, IndexKeys.value(indexRows.get(i)))) {
+                matched.add(results[i]);
+            } else {
+                staleHits.increment();
+            }
+        }
+    }
+
+    /**
+     * 读取一组行当前的索引列值
+     */
+    private Result[] current(List<? extends Row> rows) {
+        List<Get> gets = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Get get = new Get(row.getRow());
+            for (IndexDefinition index : indexes.values()) {
+                get.addColumn(index.getFamily(), index.getQualifier());
+            }
+            gets.add(get);
+        }
+        return template.execute(tableName, table -> table.get(gets));
+    }
+
+    private boolean touchesIndex(List<Put> puts) {
+        for (Put put : puts) {
+            for (IndexDefinition index : indexes.values()) {
+                if (put.has(index.getFamily(), index.getQualifier())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Cell latest(List<Cell> cells) {
+        Cell latest = cells.get(0);
+        for (Cell cell : cells) {
+            if (cell.getTimestamp() > latest.getTimestamp()) {
+                latest = cell;
+            }
+        }
+        return latest;
+    }
+
+    private static <T> List<T> map(List<Result> results, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>(results.size());
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                rows.add(mapper.mapRow(results.get(i), i));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new HbaseSystemException(e);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.hbase.loader;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 合并并发单行查询的加载器,线程安全
+ * <p>
+ * 1.同一行已经有在途请求时直接复用它的future(single-flight),请求完成后才移除<br>
+ * 2.后台线程收到第一个请求后最多等待window,或攒够maxBatchSize个,把这一批按region server分组<br>
+ * 3.每个region server一组,在共享线程池上各自发一次Table.get(List),慢的server不拖累其他组的调用方
+ * <p>
+ * 一个RowLoader对应一张表和一种列投影,Get由getFactory按行键生成
+ */
+public class RowLoader implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RowLoader.class);
+
+    private final HbaseTemplate template;
+
+    private final TableName tableName;
+
+    private final Function<byte[], Get> getFactory;
+
+    private final int maxBatchSize;
+
+    private final long windowNanos;
+
+    private final ConcurrentMap<Key, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private final LongAdder requested = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder calls = new LongAdder();
+
+    private final Thread dispatcher;
+
+    private volatile boolean closed;
+
+    /**
+     * @param template     共享连接
+     * @param tableName    表名
+     * @param getFactory   按行键生成Get,决定读取哪些列
+     * @param maxBatchSize 单批最多合并的行数
+     * @param windowNanos  收到第一个请求后最多等待多久再发出,0表示只合并已经排队的请求
+     */
+    public RowLoader(HbaseTemplate template, TableName tableName, Function<byte[], Get> getFactory, int maxBatchSize,
+                     long windowNanos) {
+        this.template = template;
+        this.tableName = tableName;
+        this.getFactory = getFactory;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = windowNanos;
+        this.dispatcher = new Thread(this::dispatchLoop, "row-loader-" + tableName.getNameAsString());
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 异步读取一行,行不存在时结果为空Result
+     *
+     * @param row
+     * @return
+     */
+    public CompletableFuture<Result> load(byte[] row) {
+        if (closed) {
+            throw new IllegalStateException("RowLoader for " + tableName + " is closed");
+        }
+        requested.increment();
+        Key key = new Key(row);
+        CompletableFuture<Result> future = inFlight.get(key);
+        if (future != null) {
+            coalesced.increment();
+            return future;
+        }
+        CompletableFuture<Result> created = new CompletableFuture<>();
+        future = inFlight.putIfAbsent(key, created);
+        if (future != null) {
+            coalesced.increment();
+            return future;
+        }
+        Pending pending = new Pending(key, created);
+        queue.add(pending);
+        //与close竞争时后台线程可能已经退出,还留在队列里的请求不会再发出
+        if (closed && queue.remove(pending)) {
+            fail(Collections.singletonList(pending),
+                    new IllegalStateException("RowLoader for " + tableName + " is closed"));
+        }
+        return created;
+    }
+
+    /**
+     * 同步读取一行,行不存在时返回null
+     *
+     * @param row
+     * @return
+     */
+    public Result get(byte[] row) {
+        try {
+            Result result = load(row).join();
+            return result.isEmpty() ? null : result;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new HbaseSystemException(cause);
+        }
+    }
+
+    public long getRequested() {
+        return requested.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收新请求,已排队的请求仍会发出
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Dispatch of {} rows from {} failed", batch.size(), tableName, e);
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<Pending> batch) {
+        batches.increment();
+        Map<ServerName, List<Pending>> byServer = groupByServer(batch);
+        for (List<Pending> group : byServer.values()) {
+            calls.increment();
+            try {
+                template.getPool().execute(() -> fetch(group));
+            } catch (RejectedExecutionException e) {
+                fail(group, e);
+            }
+        }
+    }
+
+    /**
+     * 从客户端的meta缓存中定位region server,定位失败的行放在同一组里交给Table.get自己处理
+     */
+    private Map<ServerName, List<Pending>> groupByServer(List<Pending> batch) {
+        Map<ServerName, List<Pending>> byServer = new HashMap<>();
+        try (RegionLocator locator = template.getConnection().getRegionLocator(tableName)) {
+            for (Pending pending : batch) {
+                ServerName server = null;
+                try {
+                    HRegionLocation location = locator.getRegionLocation(pending.key.row);
+                    server = location == null ? null : location.getServerName();
+                } catch (IOException e) {
+                    log.debug("Failed to locate {} in {}", Bytes.toStringBinary(pending.key.row), tableName, e);
+                }
+                byServer.computeIfAbsent(server, s -> new ArrayList<>()).add(pending);
+            }
+        } catch (IOException e) {
+            byServer.clear();
+            byServer.put(null, new ArrayList<>(batch));
+        }
+        return byServer;
+    }
+
+    private void fetch(List<Pending> group) {
+        List<Get> gets = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            gets.add(getFactory.apply(pending.key.row));
+        }
+        try {
+            Result[] results = template.execute(tableName, table -> table.get(gets));
+            for (int i = 0; i < group.size(); i++) {
+                complete(group.get(i), results[i]);
+            }
+        } catch (RuntimeException e) {
+            fail(group, e);
+        }
+    }
+
+    private void complete(Pending pending, Result result) {
+        inFlight.remove(pending.key, pending.future);
+        pending.future.complete(result == null ? Result.EMPTY_RESULT : result);
+    }
+
+    private void fail(List<Pending> group, Throwable error) {
+        for (Pending pending : group) {
+            inFlight.remove(pending.key, pending.future);
+            pending.future.completeExceptionally(error);
+        }
+    }
+
+    private static final class Pending {
+
+        private final Key key;
+
+        private final CompletableFuture<Result> future;
+
+        Pending(Key key, CompletableFuture<Result> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    private static final class Key {
+
+        private final byte[] row;
+
+        private final int hash;
+
+        Key(byte[] row) {
+            this.row = row;
+            this.hash = Bytes.hashCode(row);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.equals(row, ((Key) o).row);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.hbase.loader;
+
+import com.example.hbase.core.HbaseTemplate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+
+import java.util.function.Function;
+
+/**
+ * 按统一配置为每张表创建RowLoader,并注册请求数、合并数、批次数、实际调用数等指标
+ */
+public class RowLoaderFactory {
+
+    private final HbaseTemplate template;
+
+    private final int maxBatchSize;
+
+    private final long windowNanos;
+
+    private final MeterRegistry meterRegistry;
+
+    public RowLoaderFactory(HbaseTemplate template, int maxBatchSize, long windowNanos, MeterRegistry meterRegistry) {
+        this.template = template;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = windowNanos;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建一个读取整行的RowLoader,使用完毕后需要close
+     *
+     * @param tableName
+     * @return
+     */
+    public RowLoader create(String tableName) {
+        return create(tableName, Get::new);
+    }
+
+    /**
+     * 创建一个RowLoader,getFactory决定读取哪些列,使用完毕后需要close
+     *
+     * @param tableName
+     * @param getFactory
+     * @return
+     */
+    public RowLoader create(String tableName, Function<byte[], Get> getFactory) {
+        RowLoader loader = new RowLoader(template, TableName.valueOf(tableName), getFactory, maxBatchSize, windowNanos);
+        if (meterRegistry != null) {
+            FunctionCounter.builder("hbase.loader.requests", loader, RowLoader::getRequested)
+                    .tag("table", tableName).tag("result", "requested").register(meterRegistry);
+            FunctionCounter.builder("hbase.loader.requests", loader, RowLoader::getCoalesced)
+                    .tag("table", tableName).tag("result", "coalesced").register(meterRegistry);
+            FunctionCounter.builder("hbase.loader.batches", loader, RowLoader::getBatches)
+                    .tag("table", tableName).register(meterRegistry);
+            FunctionCounter.builder("hbase.loader.calls", loader, RowLoader::getCalls)
+                    .tag("table", tableName).register(meterRegistry);
+            Gauge.builder("hbase.loader.queue.size", loader, RowLoader::getQueueSize)
+                    .tag("table", tableName).register(meterRegistry);
+        }
+        return loader;
+    }
+}
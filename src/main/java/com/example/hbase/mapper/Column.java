@@ -0,0 +1,29 @@
+package com.example.hbase.mapper;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标明字段对应的列
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    String family();
+
+    /**
+     * 列名,默认使用字段名
+     */
+    String qualifier() default "";
+
+    /**
+     * 自定义编解码,默认按字段类型使用Bytes的编码
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends ValueCodec> codec() default ValueCodec.class;
+}
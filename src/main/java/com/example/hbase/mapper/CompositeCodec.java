@@ -0,0 +1,69 @@
+package com.example.hbase.mapper;
+
+import org.apache.hadoop.hbase.types.DataType;
+import org.apache.hadoop.hbase.types.Struct;
+import org.apache.hadoop.hbase.util.SimplePositionedByteRange;
+import org.apache.hadoop.hbase.util.SimplePositionedMutableByteRange;
+
+/**
+ * 多个保序字段按顺序拼接的编码,值为与字段一一对应的Object[],常用于复合行键
+ * <p>
+ * 每个字段的编码自带长度或结束符,拼接后的字节序等于逐字段比较的顺序,
+ * 只编码前几个字段得到的{@link #prefix(Object...)}就是这些字段相同的所有值的公共前缀,可以直接作为rowPrefix
+ */
+public class CompositeCodec implements OrderedValueCodec<Object[]> {
+
+    private final OrderedValueCodec<?>[] fields;
+
+    private final Struct struct;
+
+    public CompositeCodec(OrderedValueCodec<?>... fields) {
+        this.fields = fields.clone();
+        DataType<?>[] types = new DataType<?>[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            types[i] = fields[i].dataType();
+        }
+        this.struct = new Struct(types);
+    }
+
+    @Override
+    public DataType<Object[]> dataType() {
+        return struct;
+    }
+
+    @Override
+    public Object[] decode(byte[] bytes, int offset, int length) {
+        return struct.decode(new SimplePositionedByteRange(bytes, offset, length));
+    }
+
+    @Override
+    public byte[] encode(Object[] value) {
+        if (value.length != fields.length) {
+            throw new IllegalArgumentException("Expected " + fields.length + " values but got " + value.length);
+        }
+        return prefix(value);
+    }
+
+    /**
+     * 只编码前几个字段
+     *
+     * @param leading 前几个字段的值,不能为null
+     * @return
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public byte[] prefix(Object... leading) {
+        if (leading.length > fields.length) {
+            throw new IllegalArgumentException("At most " + fields.length + " values, got " + leading.length);
+        }
+        int length = 0;
+        for (int i = 0; i < leading.length; i++) {
+            length += ((DataType) fields[i].dataType()).encodedLength(leading[i]);
+        }
+        byte[] bytes = new byte[length];
+        SimplePositionedMutableByteRange range = new SimplePositionedMutableByteRange(bytes);
+        for (int i = 0; i < leading.length; i++) {
+            ((DataType) fields[i].dataType()).encode(range, leading[i]);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.hbase.mapper;
+
+import com.example.hbase.core.RowMapper;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 注解驱动的实体映射器,每个实体类只解析一次注解并缓存
+ * <p>
+ * 解码时列按(family, qualifier)预先排序,与Result中cell的顺序一致,一次归并即可完成匹配,
+ * 直接比较cell底层数组,不生成中间String和NavigableMap;同一列有多个版本时只取最新的一个
+ *
+ * @param <T>
+ */
+public final class EntityMapper<T> implements RowMapper<T> {
+
+    private static final Map<Class<?>, EntityMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+
+    private final TableName tableName;
+
+    private final MethodHandle constructor;
+
+    private final FieldAccessor rowKey;
+
+    private final ColumnMapping[] columns;
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> of(Class<T> type) {
+        return (EntityMapper<T>) MAPPERS.computeIfAbsent(type, EntityMapper::new);
+    }
+
+    private EntityMapper(Class<T> type) {
+        this.type = type;
+        HbaseTable table = type.getAnnotation(HbaseTable.class);
+        if (table == null) {
+            throw new IllegalArgumentException(type.getName() + " is not annotated with @HbaseTable");
+        }
+        this.tableName = TableName.valueOf(table.value());
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Constructor<T> ctor = type.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a no-arg constructor", e);
+        }
+        FieldAccessor key = null;
+        List<ColumnMapping> mappings = new ArrayList<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                RowKey rowKeyAnnotation = field.getAnnotation(RowKey.class);
+                if (rowKeyAnnotation != null) {
+                    if (key != null) {
+                        throw new IllegalArgumentException(type.getName() + " declares more than one @RowKey");
+                    }
+                    key = new FieldAccessor(field, rowKeyAnnotation.codec());
+                }
+                Column column = field.getAnnotation(Column.class);
+                if (column != null) {
+                    String qualifier = column.qualifier().isEmpty() ? field.getName() : column.qualifier();
+                    mappings.add(new ColumnMapping(Bytes.toBytes(column.family()), Bytes.toBytes(qualifier),
+                            new FieldAccessor(field, column.codec())));
+                }
+            }
+        }
+        if (key == null) {
+            throw new IllegalArgumentException(type.getName() + " has no @RowKey field");
+        }
+        this.rowKey = key;
+        this.columns = mappings.toArray(new ColumnMapping[0]);
+        Arrays.sort(this.columns);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public T mapRow(Result result, int rowNum) {
+        Cell[] cells = result.rawCells();
+        if (cells == null || cells.length == 0) {
+            return null;
+        }
+        T entity = newInstance();
+        Cell first = cells[0];
+        rowKey.set(entity, first.getRowArray(), first.getRowOffset(), first.getRowLength());
+        int c = 0;
+        for (Cell cell : cells) {
+            int cmp = -1;
+            while (c < columns.length && (cmp = columns[c].compareTo(cell)) < 0) {
+                c++;
+            }
+            if (c == columns.length) {
+                break;
+            }
+            if (cmp == 0) {
+                columns[c].accessor.set(entity, cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                c++;
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * 把实体编码成Put,值为null的对象字段不写入
+     *
+     * @param entity
+     * @return
+     */
+    public Put toPut(T entity) {
+        byte[] row = rowKey.get(entity);
+        if (row == null) {
+            throw new IllegalArgumentException("Row key of " + entity + " is null");
+        }
+        Put put = new Put(row, true);
+        for (ColumnMapping column : columns) {
+            byte[] value = column.accessor.get(entity);
+            if (value != null) {
+                put.addColumn(column.family, column.qualifier, value);
+            }
+        }
+        return put;
+    }
+
+    /**
+     * 只读取实体映射到的列
+     *
+     * @param rowKeyValue 行键字节
+     * @return
+     */
+    public Get toGet(byte[] rowKeyValue) {
+        Get get = new Get(rowKeyValue);
+        for (ColumnMapping column : columns) {
+            get.addColumn(column.family, column.qualifier);
+        }
+        return get;
+    }
+
+    /**
+     * 只扫描实体映射到的列
+     *
+     * @return
+     */
+    public Scan toScan() {
+        Scan scan = new Scan();
+        for (ColumnMapping column : columns) {
+            scan.addColumn(column.family, column.qualifier);
+        }
+        return scan;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to instantiate " + type.getName(), e);
+        }
+    }
+
+    private static final class ColumnMapping implements Comparable<ColumnMapping> {
+
+        private final byte[] family;
+
+        private final byte[] qualifier;
+
+        private final FieldAccessor accessor;
+
+        ColumnMapping(byte[] family, byte[] qualifier, FieldAccessor accessor) {
+            this.family = family;
+            this.qualifier = qualifier;
+            this.accessor = accessor;
+        }
+
+        int compareTo(Cell cell) {
+            int cmp = Bytes.compareTo(family, 0, family.length,
+                    cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Bytes.compareTo(qualifier, 0, qualifier.length,
+                    cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+        }
+
+        @Override
+        public int compareTo(ColumnMapping other) {
+            int cmp = Bytes.compareTo(family, other.family);
+            return cmp != 0 ? cmp : Bytes.compareTo(qualifier, other.qualifier);
+        }
+    }
+}
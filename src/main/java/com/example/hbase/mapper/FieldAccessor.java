@@ -0,0 +1,152 @@
+package com.example.hbase.mapper;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * 单个字段的读写器,构造时一次性生成类型精确的MethodHandle
+ * <p>
+ * 基本类型字段直接从字节数组解码后通过invokeExact写入,不产生装箱对象;其他类型通过ValueCodec转换
+ */
+final class FieldAccessor {
+
+    private enum Kind {
+        INT, LONG, DOUBLE, FLOAT, SHORT, BOOLEAN, OBJECT
+    }
+
+    private final Field field;
+
+    private final Kind kind;
+
+    private final MethodHandle setter;
+
+    private final MethodHandle getter;
+
+    private final ValueCodec<Object> codec;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    FieldAccessor(Field field, Class<? extends ValueCodec> codecType) {
+        this.field = field;
+        Class<?> type = field.getType();
+        field.setAccessible(true);
+        if (codecType != ValueCodec.class) {
+            this.kind = Kind.OBJECT;
+            this.codec = (ValueCodec<Object>) instantiate(codecType);
+        } else {
+            this.kind = kindOf(type);
+            this.codec = kind == Kind.OBJECT ? (ValueCodec<Object>) ValueCodecs.forType(type) : null;
+            if (kind == Kind.OBJECT && codec == null) {
+                throw new IllegalArgumentException("No codec for field " + field + ", declare one with codec()");
+            }
+        }
+        Class<?> handleType = kind == Kind.OBJECT ? Object.class : type;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            this.setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, handleType));
+            this.getter = lookup.unreflectGetter(field).asType(MethodType.methodType(handleType, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access field " + field, e);
+        }
+    }
+
+    String getName() {
+        return field.getName();
+    }
+
+    /**
+     * 从cell的底层数组解码并写入实体字段
+     */
+    void set(Object entity, byte[] bytes, int offset, int length) {
+        try {
+            switch (kind) {
+                case INT:
+                    setter.invokeExact(entity, Bytes.toInt(bytes, offset, length));
+                    break;
+                case LONG:
+                    setter.invokeExact(entity, Bytes.toLong(bytes, offset, length));
+                    break;
+                case DOUBLE:
+                    setter.invokeExact(entity, ValueCodecs.toDouble(bytes, offset, length));
+                    break;
+                case FLOAT:
+                    setter.invokeExact(entity, ValueCodecs.toFloat(bytes, offset, length));
+                    break;
+                case SHORT:
+                    setter.invokeExact(entity, Bytes.toShort(bytes, offset, length));
+                    break;
+                case BOOLEAN:
+                    setter.invokeExact(entity, ValueCodecs.toBoolean(bytes, offset, length));
+                    break;
+                default:
+                    setter.invokeExact(entity, codec.decode(bytes, offset, length));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to set field " + field, e);
+        }
+    }
+
+    /**
+     * 读取字段并编码,对象字段为null时返回null
+     */
+    byte[] get(Object entity) {
+        try {
+            switch (kind) {
+                case INT:
+                    return Bytes.toBytes((int) getter.invokeExact(entity));
+                case LONG:
+                    return Bytes.toBytes((long) getter.invokeExact(entity));
+                case DOUBLE:
+                    return Bytes.toBytes((double) getter.invokeExact(entity));
+                case FLOAT:
+                    return Bytes.toBytes((float) getter.invokeExact(entity));
+                case SHORT:
+                    return Bytes.toBytes((short) getter.invokeExact(entity));
+                case BOOLEAN:
+                    return Bytes.toBytes((boolean) getter.invokeExact(entity));
+                default:
+                    Object value = (Object) getter.invokeExact(entity);
+                    return value == null ? null : codec.encode(value);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read field " + field, e);
+        }
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == int.class) {
+            return Kind.INT;
+        }
+        if (type == long.class) {
+            return Kind.LONG;
+        }
+        if (type == double.class) {
+            return Kind.DOUBLE;
+        }
+        if (type == float.class) {
+            return Kind.FLOAT;
+        }
+        if (type == short.class) {
+            return Kind.SHORT;
+        }
+        if (type == boolean.class) {
+            return Kind.BOOLEAN;
+        }
+        return Kind.OBJECT;
+    }
+
+    private static Object instantiate(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Codec " + type.getName() + " needs a public no-arg constructor", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.hbase.mapper;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标明实体对应的HBase表
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HbaseTable {
+
+    /**
+     * 表名,可带namespace
+     */
+    String value();
+}
@@ -0,0 +1,224 @@
+package com.example.hbase.mapper;
+
+import org.apache.hadoop.hbase.types.DataType;
+import org.apache.hadoop.hbase.types.OrderedFloat64;
+import org.apache.hadoop.hbase.types.OrderedInt32;
+import org.apache.hadoop.hbase.types.OrderedInt64;
+import org.apache.hadoop.hbase.types.OrderedNumeric;
+import org.apache.hadoop.hbase.types.OrderedString;
+import org.apache.hadoop.hbase.util.Order;
+import org.apache.hadoop.hbase.util.PositionedByteRange;
+import org.apache.hadoop.hbase.util.SimplePositionedByteRange;
+import org.apache.hadoop.hbase.util.SimplePositionedMutableByteRange;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 基于hbase-common OrderedBytes的保序编解码,可以直接写在{@link Column#codec()}和{@link RowKey#codec()}上
+ * <p>
+ * 与{@link ValueCodecs}的Bytes编码不兼容:Bytes.toBytes的int负数按字节序排在正数后面,字符串数字"9"大于"10",
+ * 列值上的GREATER/LESS比较只能取回后在客户端重新过滤;保序编码后服务端的BinaryComparator比较即为数值比较。
+ * 已有数据换编码需要重写
+ */
+public final class OrderedCodecs {
+
+    public static final Int32 INT32 = new Int32();
+
+    public static final Int64 INT64 = new Int64();
+
+    public static final Float64 FLOAT64 = new Float64();
+
+    public static final Decimal DECIMAL = new Decimal();
+
+    public static final Timestamp TIMESTAMP = new Timestamp();
+
+    public static final Text TEXT = new Text();
+
+    private OrderedCodecs() {
+    }
+
+    /**
+     * 按字段类型返回保序编解码,不支持的类型返回null
+     *
+     * @param type
+     * @return
+     */
+    public static OrderedValueCodec<?> forType(Class<?> type) {
+        if (type == Integer.class || type == int.class) {
+            return INT32;
+        }
+        if (type == Long.class || type == long.class) {
+            return INT64;
+        }
+        if (type == Double.class || type == double.class) {
+            return FLOAT64;
+        }
+        if (type == BigDecimal.class) {
+            return DECIMAL;
+        }
+        if (type == Instant.class) {
+            return TIMESTAMP;
+        }
+        if (type == String.class) {
+            return TEXT;
+        }
+        return null;
+    }
+
+    /**
+     * 按字段顺序拼接的复合编码,先按第一个字段排序,相同时再按下一个字段
+     *
+     * @param fields
+     * @return
+     */
+    public static CompositeCodec composite(OrderedValueCodec<?>... fields) {
+        return new CompositeCodec(fields);
+    }
+
+    /**
+     * 包装一个hbase-common保序类型
+     *
+     * @param <T>
+     */
+    public abstract static class TypedCodec<T> implements OrderedValueCodec<T> {
+
+        private final DataType<T> type;
+
+        protected TypedCodec(DataType<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public DataType<T> dataType() {
+            return type;
+        }
+
+        @Override
+        public T decode(byte[] bytes, int offset, int length) {
+            return type.decode(new SimplePositionedByteRange(bytes, offset, length));
+        }
+
+        @Override
+        public byte[] encode(T value) {
+            byte[] bytes = new byte[type.encodedLength(value)];
+            type.encode(new SimplePositionedMutableByteRange(bytes), value);
+            return bytes;
+        }
+    }
+
+    /**
+     * 定长5字节
+     */
+    public static class Int32 extends TypedCodec<Integer> {
+
+        public Int32() {
+            super(OrderedInt32.ASCENDING);
+        }
+    }
+
+    /**
+     * 定长9字节
+     */
+    public static class Int64 extends TypedCodec<Long> {
+
+        public Int64() {
+            super(OrderedInt64.ASCENDING);
+        }
+    }
+
+    /**
+     * 定长9字节,负数、正数、无穷大和NaN都有确定的顺序
+     */
+    public static class Float64 extends TypedCodec<Double> {
+
+        public Float64() {
+            super(OrderedFloat64.ASCENDING);
+        }
+    }
+
+    /**
+     * 变长,解码结果去掉了末尾的0(1.50解码为1.5),compareTo相等的值编码相同
+     */
+    public static class Decimal extends TypedCodec<BigDecimal> {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Decimal() {
+            super((DataType) OrderedNumeric.ASCENDING);
+        }
+    }
+
+    /**
+     * 变长,以0结尾,字符串中不能含有0x00字符
+     */
+    public static class Text extends TypedCodec<String> {
+
+        public Text() {
+            super(OrderedString.ASCENDING);
+        }
+    }
+
+    /**
+     * 秒和纳秒分别保序编码,定长14字节,保留Instant的全部精度
+     */
+    public static class Timestamp extends TypedCodec<Instant> {
+
+        public Timestamp() {
+            super(new InstantType());
+        }
+    }
+
+    private static final class InstantType implements DataType<Instant> {
+
+        private static final int LENGTH = 9 + 5;
+
+        @Override
+        public boolean isOrderPreserving() {
+            return true;
+        }
+
+        @Override
+        public Order getOrder() {
+            return Order.ASCENDING;
+        }
+
+        @Override
+        public boolean isNullable() {
+            return false;
+        }
+
+        @Override
+        public boolean isSkippable() {
+            return true;
+        }
+
+        @Override
+        public int encodedLength(Instant value) {
+            return LENGTH;
+        }
+
+        @Override
+        public Class<Instant> encodedClass() {
+            return Instant.class;
+        }
+
+        @Override
+        public int skip(PositionedByteRange src) {
+            src.setPosition(src.getPosition() + LENGTH);
+            return LENGTH;
+        }
+
+        @Override
+        public Instant decode(PositionedByteRange src) {
+            long seconds = OrderedInt64.ASCENDING.decodeLong(src);
+            int nanos = OrderedInt32.ASCENDING.decodeInt(src);
+            return Instant.ofEpochSecond(seconds, nanos);
+        }
+
+        @Override
+        public int encode(PositionedByteRange dst, Instant value) {
+            return OrderedInt64.ASCENDING.encodeLong(dst, value.getEpochSecond())
+                    + OrderedInt32.ASCENDING.encodeInt(dst, value.getNano());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.hbase.mapper;
+
+import org.apache.hadoop.hbase.types.DataType;
+
+/**
+ * 保序的编解码:编码后的字节按无符号字典序比较的结果与原值的大小顺序一致,
+ * 所以列值上的BinaryComparator大小比较、行键上的起止行都能在服务端得到正确结果。
+ * 编码自带长度或结束符,可以拼接成复合行键
+ *
+ * @param <T>
+ */
+public interface OrderedValueCodec<T> extends ValueCodec<T> {
+
+    /**
+     * 底层的hbase-common保序类型,复合编码按字段拼接时使用
+     */
+    DataType<T> dataType();
+}
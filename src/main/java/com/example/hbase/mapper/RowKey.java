@@ -0,0 +1,22 @@
+package com.example.hbase.mapper;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标明作为行键的字段,每个实体有且只有一个
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface RowKey {
+
+    /**
+     * 自定义编解码,默认按字段类型使用Bytes的编码
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends ValueCodec> codec() default ValueCodec.class;
+}
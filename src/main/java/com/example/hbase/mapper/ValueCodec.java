@@ -0,0 +1,16 @@
+package com.example.hbase.mapper;
+
+/**
+ * 字段值与字节数组之间的转换,实现类需要有无参构造方法并且线程安全
+ *
+ * @param <T>
+ */
+public interface ValueCodec<T> {
+
+    /**
+     * 直接从cell的底层数组解码,不要复制
+     */
+    T decode(byte[] bytes, int offset, int length);
+
+    byte[] encode(T value);
+}
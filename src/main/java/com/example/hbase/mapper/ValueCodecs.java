@@ -0,0 +1,182 @@
+package com.example.hbase.mapper;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 非基本类型字段的默认编解码,与Bytes.toBytes的编码保持一致
+ */
+public final class ValueCodecs {
+
+    private ValueCodecs() {
+    }
+
+    /**
+     * 按字段类型返回默认的编解码,不支持的类型返回null
+     *
+     * @param type
+     * @return
+     */
+    public static ValueCodec<?> forType(Class<?> type) {
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == byte[].class) {
+            return BYTES;
+        }
+        if (type == BigDecimal.class) {
+            return BIG_DECIMAL;
+        }
+        if (type == Integer.class) {
+            return INTEGER;
+        }
+        if (type == Long.class) {
+            return LONG;
+        }
+        if (type == Double.class) {
+            return DOUBLE;
+        }
+        if (type == Float.class) {
+            return FLOAT;
+        }
+        if (type == Short.class) {
+            return SHORT;
+        }
+        if (type == Boolean.class) {
+            return BOOLEAN;
+        }
+        return null;
+    }
+
+    public static final ValueCodec<String> STRING = new ValueCodec<String>() {
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return Bytes.toString(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(String value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<byte[]> BYTES = new ValueCodec<byte[]>() {
+        @Override
+        public byte[] decode(byte[] bytes, int offset, int length) {
+            return Arrays.copyOfRange(bytes, offset, offset + length);
+        }
+
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+    };
+
+    public static final ValueCodec<BigDecimal> BIG_DECIMAL = new ValueCodec<BigDecimal>() {
+        @Override
+        public BigDecimal decode(byte[] bytes, int offset, int length) {
+            return Bytes.toBigDecimal(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(BigDecimal value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<Integer> INTEGER = new ValueCodec<Integer>() {
+        @Override
+        public Integer decode(byte[] bytes, int offset, int length) {
+            return Bytes.toInt(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(Integer value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<Long> LONG = new ValueCodec<Long>() {
+        @Override
+        public Long decode(byte[] bytes, int offset, int length) {
+            return Bytes.toLong(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(Long value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<Double> DOUBLE = new ValueCodec<Double>() {
+        @Override
+        public Double decode(byte[] bytes, int offset, int length) {
+            return toDouble(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(Double value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<Float> FLOAT = new ValueCodec<Float>() {
+        @Override
+        public Float decode(byte[] bytes, int offset, int length) {
+            return toFloat(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(Float value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<Short> SHORT = new ValueCodec<Short>() {
+        @Override
+        public Short decode(byte[] bytes, int offset, int length) {
+            return Bytes.toShort(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(Short value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    public static final ValueCodec<Boolean> BOOLEAN = new ValueCodec<Boolean>() {
+        @Override
+        public Boolean decode(byte[] bytes, int offset, int length) {
+            return toBoolean(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] encode(Boolean value) {
+            return Bytes.toBytes(value);
+        }
+    };
+
+    /**
+     * 与Bytes.toLong(byte[], int, int)一样检查长度,长度不是8时抛出IllegalArgumentException
+     */
+    static double toDouble(byte[] bytes, int offset, int length) {
+        return Double.longBitsToDouble(Bytes.toLong(bytes, offset, length));
+    }
+
+    static float toFloat(byte[] bytes, int offset, int length) {
+        return Float.intBitsToFloat(Bytes.toInt(bytes, offset, length));
+    }
+
+    /**
+     * Bytes.toBytes(boolean)写入的一个字节,长度不是1时抛出IllegalArgumentException
+     */
+    static boolean toBoolean(byte[] bytes, int offset, int length) {
+        if (length != Bytes.SIZEOF_BOOLEAN || offset + length > bytes.length) {
+            throw new IllegalArgumentException("Wrong length or offset for boolean: offset=" + offset
+                    + ", length=" + length + ", array length=" + bytes.length);
+        }
+        return bytes[offset] != (byte) 0;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.InvalidFamilyOperationException;
+import org.apache.hadoop.hbase.TableExistsException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotDisabledException;
+import org.apache.hadoop.hbase.TableNotEnabledException;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Admin接口有两百多个方法,这里用动态代理只实现建表、删表、启停、改列族、查询表结构和region这些,
+ * 调用按方法名和参数类型分派到本类的同名public方法,没有实现的方法抛出UnsupportedOperationException
+ */
+final class InMemoryAdmin implements InvocationHandler {
+
+    private final InMemoryConnection connection;
+
+    private volatile boolean aborted;
+
+    private InMemoryAdmin(InMemoryConnection connection) {
+        this.connection = connection;
+    }
+
+    static Admin create(InMemoryConnection connection) {
+        return (Admin) Proxy.newProxyInstance(Admin.class.getClassLoader(), new Class<?>[]{Admin.class},
+                new InMemoryAdmin(connection));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Method target;
+        try {
+            target = InMemoryAdmin.class.getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Admin." + method.getName() + " is not supported in memory");
+        }
+        if (target.getDeclaringClass() == Object.class && !"toString".equals(method.getName())) {
+            //equals/hashCode按代理对象本身比较
+            return "equals".equals(method.getName()) ? proxy == args[0] : System.identityHashCode(proxy);
+        }
+        try {
+            return target.invoke(this, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public Configuration getConfiguration() {
+        return connection.getConfiguration();
+    }
+
+    public void close() {
+    }
+
+    public void abort(String why, Throwable e) {
+        aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public boolean tableExists(TableName tableName) {
+        try {
+            connection.store(tableName);
+            return true;
+        } catch (TableNotFoundException e) {
+            return false;
+        }
+    }
+
+    public TableName[] listTableNames() {
+        List<TableName> names = new ArrayList<>();
+        for (MemoryStore store : connection.stores()) {
+            names.add(store.getTableName());
+        }
+        return names.toArray(new TableName[0]);
+    }
+
+    public List<TableDescriptor> listTableDescriptors() {
+        List<TableDescriptor> descriptors = new ArrayList<>();
+        for (MemoryStore store : connection.stores()) {
+            descriptors.add(store.getDescriptor());
+        }
+        return descriptors;
+    }
+
+    public TableDescriptor getDescriptor(TableName tableName) throws IOException {
+        return connection.store(tableName).getDescriptor();
+    }
+
+    @Deprecated
+    public HTableDescriptor getTableDescriptor(TableName tableName) throws IOException {
+        return new HTableDescriptor(getDescriptor(tableName));
+    }
+
+    public List<RegionInfo> getRegions(TableName tableName) throws IOException {
+        return connection.store(tableName).getRegions();
+    }
+
+    public void createTable(TableDescriptor desc) throws IOException {
+        createTable(desc, new byte[0][]);
+    }
+
+    /**
+     * 与Admin相同,按起止行键均匀切分出numRegions个region
+     */
+    public void createTable(TableDescriptor desc, byte[] startKey, byte[] endKey, int numRegions)
+            throws IOException {
+        if (numRegions < 3) {
+            throw new IllegalArgumentException("Must create at least three regions");
+        }
+        if (Bytes.compareTo(startKey, endKey) >= 0) {
+            throw new IllegalArgumentException("Start key must be smaller than end key");
+        }
+        byte[][] splitKeys = numRegions == 3 ? new byte[][]{startKey, endKey}
+                : Bytes.split(startKey, endKey, numRegions - 3);
+        if (splitKeys == null || splitKeys.length != numRegions - 1) {
+            throw new IllegalArgumentException("Unable to split key range into enough regions");
+        }
+        createTable(desc, splitKeys);
+    }
+
+    public void createTable(TableDescriptor desc, byte[][] splitKeys) throws IOException {
+        if (desc.getColumnFamilyCount() == 0) {
+            throw new DoNotRetryIOException("Table " + desc.getTableName() + " should have at least one column family");
+        }
+        byte[][] keys = splitKeys.clone();
+        Arrays.sort(keys, Bytes.BYTES_COMPARATOR);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].length == 0) {
+                throw new IllegalArgumentException("Empty split key must not be passed in the split keys.");
+            }
+            if (i > 0 && Bytes.equals(keys[i - 1], keys[i])) {
+                throw new IllegalArgumentException("All split keys must be unique, found duplicate: "
+                        + Bytes.toStringBinary(keys[i]));
+            }
+        }
+        if (!connection.create(desc, keys)) {
+            throw new TableExistsException(desc.getTableName());
+        }
+    }
+
+    public void deleteTable(TableName tableName) throws IOException {
+        if (connection.store(tableName).isEnabled()) {
+            throw new TableNotDisabledException(tableName);
+        }
+        connection.drop(tableName);
+    }
+
+    public void truncateTable(TableName tableName, boolean preserveSplits) throws IOException {
+        MemoryStore store = connection.store(tableName);
+        if (store.isEnabled()) {
+            throw new TableNotDisabledException(tableName);
+        }
+        store.truncate(preserveSplits);
+        store.setEnabled(true);
+    }
+
+    public void enableTable(TableName tableName) throws IOException {
+        MemoryStore store = connection.store(tableName);
+        if (store.isEnabled()) {
+            throw new TableNotDisabledException(tableName);
+        }
+        store.setEnabled(true);
+    }
+
+    public void disableTable(TableName tableName) throws IOException {
+        MemoryStore store = connection.store(tableName);
+        if (!store.isEnabled()) {
+            throw new TableNotEnabledException(tableName);
+        }
+        store.setEnabled(false);
+    }
+
+    public boolean isTableEnabled(TableName tableName) throws IOException {
+        return connection.store(tableName).isEnabled();
+    }
+
+    public boolean isTableDisabled(TableName tableName) throws IOException {
+        return !connection.store(tableName).isEnabled();
+    }
+
+    public boolean isTableAvailable(TableName tableName) {
+        return tableExists(tableName);
+    }
+
+    public void modifyTable(TableDescriptor desc) throws IOException {
+        connection.store(desc.getTableName()).setDescriptor(desc);
+    }
+
+    public void addColumnFamily(TableName tableName, ColumnFamilyDescriptor columnFamily) throws IOException {
+        MemoryStore store = connection.store(tableName);
+        if (store.getDescriptor().hasColumnFamily(columnFamily.getName())) {
+            throw new InvalidFamilyOperationException("Column family '" + columnFamily.getNameAsString()
+                    + "' in table '" + tableName + "' already exists so cannot be added");
+        }
+        store.setDescriptor(TableDescriptorBuilder.newBuilder(store.getDescriptor()).setColumnFamily(columnFamily)
+                .build());
+    }
+
+    public void modifyColumnFamily(TableName tableName, ColumnFamilyDescriptor columnFamily) throws IOException {
+        MemoryStore store = connection.store(tableName);
+        if (!store.getDescriptor().hasColumnFamily(columnFamily.getName())) {
+            throw new InvalidFamilyOperationException("Family '" + columnFamily.getNameAsString()
+                    + "' does not exist, so it cannot be modified");
+        }
+        store.setDescriptor(TableDescriptorBuilder.newBuilder(store.getDescriptor())
+                .modifyColumnFamily(columnFamily).build());
+    }
+
+    public void deleteColumnFamily(TableName tableName, byte[] columnFamily) throws IOException {
+        MemoryStore store = connection.store(tableName);
+        if (!store.getDescriptor().hasColumnFamily(columnFamily)) {
+            throw new InvalidFamilyOperationException("Family '" + Bytes.toString(columnFamily)
+                    + "' does not exist, so it cannot be deleted");
+        }
+        store.setDescriptor(TableDescriptorBuilder.newBuilder(store.getDescriptor())
+                .removeColumnFamily(columnFamily).build());
+    }
+
+    public void flush(TableName tableName) throws IOException {
+        connection.store(tableName);
+    }
+
+    /**
+     * 清理过期的cell
+     */
+    public void majorCompact(TableName tableName) throws IOException {
+        connection.store(tableName).compact();
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryAdmin";
+    }
+}
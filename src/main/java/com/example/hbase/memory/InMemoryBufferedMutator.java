@@ -0,0 +1,110 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.ConnectionConfiguration;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓冲到writeBufferSize或flush/close时一次写入,写失败时交给params中的ExceptionListener,没有设置时抛出
+ */
+final class InMemoryBufferedMutator implements BufferedMutator {
+
+    private final InMemoryTable table;
+
+    private final long writeBufferSize;
+
+    private final ExceptionListener listener;
+
+    private final List<Mutation> buffer = new ArrayList<>();
+
+    private long bufferedSize;
+
+    private boolean closed;
+
+    InMemoryBufferedMutator(InMemoryConnection connection, BufferedMutatorParams params) {
+        this.table = new InMemoryTable(connection, params.getTableName());
+        this.writeBufferSize = params.getWriteBufferSize() > 0
+                ? params.getWriteBufferSize()
+                : connection.getConfiguration().getLong(ConnectionConfiguration.WRITE_BUFFER_SIZE_KEY,
+                ConnectionConfiguration.WRITE_BUFFER_SIZE_DEFAULT);
+        this.listener = params.getListener();
+    }
+
+    @Override
+    public TableName getName() {
+        return table.getName();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return table.getConfiguration();
+    }
+
+    @Override
+    public void mutate(Mutation mutation) throws IOException {
+        List<Mutation> mutations = new ArrayList<>(1);
+        mutations.add(mutation);
+        mutate(mutations);
+    }
+
+    @Override
+    public synchronized void mutate(List<? extends Mutation> mutations) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Cannot put when the BufferedMutator is closed.");
+        }
+        for (Mutation mutation : mutations) {
+            buffer.add(mutation);
+            bufferedSize += mutation.heapSize();
+        }
+        if (bufferedSize >= writeBufferSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        List<Mutation> mutations = new ArrayList<>(buffer);
+        buffer.clear();
+        bufferedSize = 0;
+        try {
+            table.batch(mutations, new Object[mutations.size()]);
+        } catch (RetriesExhaustedWithDetailsException e) {
+            if (listener == null) {
+                throw e;
+            }
+            listener.onException(e, this);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            flush();
+            closed = true;
+        }
+    }
+
+    @Override
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    @Override
+    public void setRpcTimeout(int timeout) {
+    }
+
+    @Override
+    public void setOperationTimeout(int timeout) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内的HBase:Connection/Table/Admin/ResultScanner/BufferedMutator都直接读写内存中的跳表,不需要zookeeper和RegionServer
+ * <p>
+ * 支持多版本、TTL、时间范围、checkAndMutate/increment/append、RowMutations和按RegionServer语义执行的过滤器,
+ * 表按建表时的分区点划分region供RegionLocator使用。用于in-memory profile下的测试和客户端各层的基准测试,
+ * 不支持协处理器、快照、复制等集群功能,调用不支持的Admin方法抛出UnsupportedOperationException
+ * <pre>
+ * Connection connection = new InMemoryConnection();
+ * connection.getAdmin().createTable(descriptor);
+ * </pre>
+ */
+public class InMemoryConnection implements Connection {
+
+    private final Configuration conf;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<TableName, MemoryStore> stores = new ConcurrentSkipListMap<>();
+
+    private volatile boolean closed;
+
+    private volatile boolean aborted;
+
+    public InMemoryConnection() {
+        this(HBaseConfiguration.create());
+    }
+
+    public InMemoryConnection(Configuration conf) {
+        this(conf, System::currentTimeMillis);
+    }
+
+    /**
+     * @param conf
+     * @param clock 写入时间戳和TTL使用的毫秒时钟,测试中可以替换
+     */
+    public InMemoryConnection(Configuration conf, LongSupplier clock) {
+        this.conf = conf;
+        this.clock = clock;
+    }
+
+    MemoryStore store(TableName tableName) throws TableNotFoundException {
+        MemoryStore store = stores.get(tableName);
+        if (store == null) {
+            throw new TableNotFoundException(tableName);
+        }
+        return store;
+    }
+
+    /**
+     * @return 已存在时返回false
+     */
+    boolean create(TableDescriptor descriptor, byte[][] splitKeys) {
+        return stores.putIfAbsent(descriptor.getTableName(), new MemoryStore(descriptor, splitKeys, clock)) == null;
+    }
+
+    boolean drop(TableName tableName) {
+        return stores.remove(tableName) != null;
+    }
+
+    Iterable<MemoryStore> stores() {
+        return stores.values();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return conf;
+    }
+
+    @Override
+    public Table getTable(TableName tableName) {
+        return new InMemoryTable(this, tableName);
+    }
+
+    @Override
+    public TableBuilder getTableBuilder(TableName tableName, ExecutorService pool) {
+        return new TableBuilder() {
+
+            @Override
+            public TableBuilder setOperationTimeout(int timeout) {
+                return this;
+            }
+
+            @Override
+            public TableBuilder setRpcTimeout(int timeout) {
+                return this;
+            }
+
+            @Override
+            public TableBuilder setReadRpcTimeout(int timeout) {
+                return this;
+            }
+
+            @Override
+            public TableBuilder setWriteRpcTimeout(int timeout) {
+                return this;
+            }
+
+            @Override
+            public Table build() {
+                return getTable(tableName);
+            }
+        };
+    }
+
+    @Override
+    public BufferedMutator getBufferedMutator(TableName tableName) {
+        return getBufferedMutator(new BufferedMutatorParams(tableName));
+    }
+
+    @Override
+    public BufferedMutator getBufferedMutator(BufferedMutatorParams params) {
+        return new InMemoryBufferedMutator(this, params);
+    }
+
+    @Override
+    public RegionLocator getRegionLocator(TableName tableName) throws IOException {
+        return new InMemoryRegionLocator(store(tableName));
+    }
+
+    @Override
+    public Admin getAdmin() {
+        return InMemoryAdmin.create(this);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void abort(String why, Throwable e) {
+        aborted = true;
+        closed = true;
+    }
+
+    @Override
+    public boolean isAborted() {
+        return aborted;
+    }
+}
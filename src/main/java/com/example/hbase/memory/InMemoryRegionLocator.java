@@ -0,0 +1,83 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 所有region都在同一个虚拟的RegionServer上
+ */
+final class InMemoryRegionLocator implements RegionLocator {
+
+    static final ServerName SERVER = ServerName.valueOf("localhost", 16020, 1L);
+
+    private final TableName tableName;
+
+    private final List<RegionInfo> regions;
+
+    InMemoryRegionLocator(MemoryStore store) {
+        this.tableName = store.getTableName();
+        this.regions = store.getRegions();
+    }
+
+    @Override
+    public HRegionLocation getRegionLocation(byte[] row) {
+        for (int i = regions.size() - 1; i > 0; i--) {
+            if (Bytes.compareTo(row, regions.get(i).getStartKey()) >= 0) {
+                return new HRegionLocation(regions.get(i), SERVER);
+            }
+        }
+        return new HRegionLocation(regions.get(0), SERVER);
+    }
+
+    @Override
+    public HRegionLocation getRegionLocation(byte[] row, boolean reload) {
+        return getRegionLocation(row);
+    }
+
+    @Override
+    public List<HRegionLocation> getAllRegionLocations() {
+        List<HRegionLocation> locations = new ArrayList<>(regions.size());
+        for (RegionInfo region : regions) {
+            locations.add(new HRegionLocation(region, SERVER));
+        }
+        return locations;
+    }
+
+    @Override
+    public byte[][] getStartKeys() {
+        return getStartEndKeys().getFirst();
+    }
+
+    @Override
+    public byte[][] getEndKeys() {
+        return getStartEndKeys().getSecond();
+    }
+
+    @Override
+    public Pair<byte[][], byte[][]> getStartEndKeys() {
+        byte[][] startKeys = new byte[regions.size()][];
+        byte[][] endKeys = new byte[regions.size()][];
+        for (int i = 0; i < regions.size(); i++) {
+            startKeys[i] = regions.get(i).getStartKey();
+            endKeys[i] = regions.get(i).getEndKey();
+        }
+        return new Pair<>(startKeys, endKeys);
+    }
+
+    @Override
+    public TableName getName() {
+        return tableName;
+    }
+
+    @Override
+    public void close() {
+    }
+}
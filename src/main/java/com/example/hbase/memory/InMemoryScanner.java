@@ -0,0 +1,330 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * 按RegionServer的顺序逐行读取并执行过滤器
+ * <p>
+ * 每行先reset过滤器,filterAllRemaining为真时结束,filterRowKey为真时跳过整行;
+ * 列投影、时间范围和TTL在过滤器之前判断,版本数在过滤器之后计数;filterCell的返回值按ScanQueryMatcher处理,
+ * SEEK_NEXT_USING_HINT跳到提示的cell或行;最后执行filterRowCells和filterRow。
+ * 过滤器先经过一次protobuf序列化再反序列化,与发送到RegionServer时一样,每个scanner持有独立的实例。
+ * 打开ScanMetrics时按caching和maxResultSize模拟RPC次数
+ */
+final class InMemoryScanner implements ResultScanner {
+
+    private static final CellComparator COMPARATOR = CellComparator.getInstance();
+
+    private final MemoryStore store;
+
+    private final Scan scan;
+
+    private final TableDescriptor descriptor;
+
+    private final Filter filter;
+
+    private final long now;
+
+    private final int maxVersions;
+
+    private final int caching;
+
+    private final long maxResultSize;
+
+    private final ScanMetrics metrics;
+
+    private final Deque<Result> pending = new ArrayDeque<>();
+
+    private byte[] position;
+
+    private boolean inclusive;
+
+    private int rows;
+
+    private boolean done;
+
+    private int rpcRows;
+
+    private long rpcBytes;
+
+    InMemoryScanner(MemoryStore store, Scan scan, int defaultCaching, long defaultMaxResultSize)
+            throws IOException {
+        store.checkEnabled();
+        this.store = store;
+        this.scan = scan;
+        this.descriptor = store.getDescriptor();
+        for (byte[] family : scan.getFamilyMap().keySet()) {
+            store.checkFamily(family);
+        }
+        this.filter = scan.getFilter() == null ? null : ProtobufUtil.toFilter(ProtobufUtil.toFilter(scan.getFilter()));
+        this.now = store.now();
+        this.maxVersions = scan.getMaxVersions();
+        this.caching = scan.getCaching() > 0 ? scan.getCaching() : defaultCaching;
+        this.maxResultSize = scan.getMaxResultSize() > 0 ? scan.getMaxResultSize() : defaultMaxResultSize;
+        this.metrics = scan.isScanMetricsEnabled() ? new ScanMetrics() : null;
+        if (metrics != null) {
+            metrics.countOfRegions.incrementAndGet();
+            metrics.countOfRPCcalls.incrementAndGet();
+        }
+        byte[] start = scan.getStartRow();
+        this.position = start.length == 0 ? null : start;
+        this.inclusive = scan.includeStartRow();
+    }
+
+    @Override
+    public Result next() throws IOException {
+        if (!pending.isEmpty()) {
+            return pending.poll();
+        }
+        while (!done) {
+            if (scan.getLimit() > 0 && rows >= scan.getLimit()) {
+                done = true;
+                break;
+            }
+            Map.Entry<byte[], MemoryStore.Row> entry = store.seek(position, inclusive, scan.isReversed());
+            if (entry == null || pastStop(entry.getKey())) {
+                done = true;
+                break;
+            }
+            position = entry.getKey();
+            inclusive = false;
+            List<Cell> cells = read(entry.getKey(), entry.getValue().snapshot());
+            if (cells != null && !cells.isEmpty()) {
+                rows++;
+                return emit(cells);
+            }
+        }
+        return null;
+    }
+
+    private boolean pastStop(byte[] row) {
+        byte[] stop = scan.getStopRow();
+        if (stop.length == 0) {
+            return false;
+        }
+        int cmp = Bytes.compareTo(row, stop);
+        if (scan.isReversed()) {
+            cmp = -cmp;
+        }
+        return cmp > 0 || (cmp == 0 && !scan.includeStopRow());
+    }
+
+    /**
+     * @return 这一行返回的cell,整行被过滤时返回null
+     */
+    private List<Cell> read(byte[] row, List<Cell> stored) throws IOException {
+        List<Cell> visible = visible(stored);
+        if (visible.isEmpty()) {
+            return null;
+        }
+        if (metrics != null) {
+            metrics.countOfRowsScanned.incrementAndGet();
+        }
+        if (filter == null) {
+            return versions(visible);
+        }
+        filter.reset();
+        if (filter.filterAllRemaining()) {
+            done = true;
+            return null;
+        }
+        if (filter.filterRowKey(visible.get(0))) {
+            return filtered();
+        }
+        List<Cell> results = new ArrayList<>();
+        Cell column = null;
+        int versions = 0;
+        Cell skipColumn = null;
+        Cell seekTo = null;
+        for (Cell cell : visible) {
+            if (skipColumn != null && CellUtil.matchingColumn(cell, skipColumn)) {
+                continue;
+            }
+            if (seekTo != null && COMPARATOR.compare(cell, seekTo) < 0) {
+                continue;
+            }
+            Filter.ReturnCode code = filter.filterCell(cell);
+            switch (code) {
+                case INCLUDE:
+                case INCLUDE_AND_NEXT_COL:
+                case INCLUDE_AND_SEEK_NEXT_ROW:
+                    if (column == null || !CellUtil.matchingColumn(cell, column)) {
+                        column = cell;
+                        versions = 0;
+                    }
+                    if (++versions <= maxVersions) {
+                        results.add(filter.transformCell(cell));
+                    } else {
+                        skipColumn = cell;
+                    }
+                    if (code == Filter.ReturnCode.INCLUDE_AND_NEXT_COL) {
+                        skipColumn = cell;
+                    }
+                    break;
+                case NEXT_COL:
+                    skipColumn = cell;
+                    break;
+                case SEEK_NEXT_USING_HINT:
+                    Cell hint = filter.getNextCellHint(cell);
+                    if (hint != null && !CellUtil.matchingRows(hint, cell)) {
+                        seekRow(row, CellUtil.cloneRow(hint));
+                        return finish(results);
+                    }
+                    seekTo = hint;
+                    break;
+                default:
+                    break;
+            }
+            if (code == Filter.ReturnCode.NEXT_ROW || code == Filter.ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW) {
+                break;
+            }
+        }
+        return finish(results);
+    }
+
+    private List<Cell> finish(List<Cell> results) throws IOException {
+        if (filter.hasFilterRow()) {
+            filter.filterRowCells(results);
+            if (filter.filterRow()) {
+                return filtered();
+            }
+        }
+        return results;
+    }
+
+    private List<Cell> filtered() {
+        if (metrics != null) {
+            metrics.countOfRowsFiltered.incrementAndGet();
+        }
+        return null;
+    }
+
+    /**
+     * 过滤器提示的下一行在扫描方向上靠后时才跳过去
+     */
+    private void seekRow(byte[] row, byte[] hint) {
+        int cmp = Bytes.compareTo(hint, row);
+        if (scan.isReversed() ? cmp < 0 : cmp > 0) {
+            position = hint;
+            inclusive = true;
+        }
+    }
+
+    /**
+     * 列投影、时间范围和TTL
+     */
+    private List<Cell> visible(List<Cell> stored) {
+        List<Cell> visible = new ArrayList<>(stored.size());
+        Map<byte[], NavigableSet<byte[]>> familyMap = scan.getFamilyMap();
+        Map<byte[], TimeRange> familyTimeRanges = scan.getColumnFamilyTimeRange();
+        TimeRange timeRange = scan.getTimeRange();
+        byte[] family = null;
+        ColumnFamilyDescriptor familyDescriptor = null;
+        NavigableSet<byte[]> qualifiers = null;
+        boolean selected = false;
+        TimeRange range = timeRange;
+        for (Cell cell : stored) {
+            if (family == null || !CellUtil.matchingFamily(cell, family)) {
+                family = CellUtil.cloneFamily(cell);
+                familyDescriptor = descriptor.getColumnFamily(family);
+                selected = familyDescriptor != null && (familyMap.isEmpty() || familyMap.containsKey(family));
+                qualifiers = selected && !familyMap.isEmpty() ? familyMap.get(family) : null;
+                range = familyTimeRanges.getOrDefault(family, timeRange);
+            }
+            if (!selected || !range.withinTimeRange(cell.getTimestamp())
+                    || MemoryStore.expired(familyDescriptor, cell, now)) {
+                continue;
+            }
+            if (qualifiers != null && !qualifiers.contains(CellUtil.cloneQualifier(cell))) {
+                continue;
+            }
+            visible.add(cell);
+        }
+        return visible;
+    }
+
+    private List<Cell> versions(List<Cell> cells) {
+        if (maxVersions == Integer.MAX_VALUE) {
+            return cells;
+        }
+        List<Cell> results = new ArrayList<>(cells.size());
+        Cell column = null;
+        int versions = 0;
+        for (Cell cell : cells) {
+            if (column == null || !CellUtil.matchingColumn(cell, column)) {
+                column = cell;
+                versions = 0;
+            }
+            if (++versions <= maxVersions) {
+                results.add(cell);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 按batch拆分一行,并按caching/maxResultSize累计模拟的RPC次数
+     */
+    private Result emit(List<Cell> cells) {
+        if (metrics != null) {
+            long bytes = 0;
+            for (Cell cell : cells) {
+                bytes += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+            }
+            if (rpcRows >= caching || rpcBytes >= maxResultSize) {
+                metrics.countOfRPCcalls.incrementAndGet();
+                rpcRows = 0;
+                rpcBytes = 0;
+            }
+            rpcRows++;
+            rpcBytes += bytes;
+            metrics.countOfBytesInResults.addAndGet(bytes);
+        }
+        int batch = scan.getBatch();
+        if (batch <= 0 || cells.size() <= batch) {
+            return Result.create(cells);
+        }
+        for (int from = 0; from < cells.size(); from += batch) {
+            int to = Math.min(from + batch, cells.size());
+            pending.add(Result.create(cells.subList(from, to), null, false, to < cells.size()));
+        }
+        return pending.poll();
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        pending.clear();
+    }
+
+    @Override
+    public boolean renewLease() {
+        return !done;
+    }
+
+    @Override
+    public ScanMetrics getScanMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.coprocessor.Batch;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 直接读写MemoryStore的Table,每次操作时按表名取存储,表被删除或禁用后的操作与真实集群一样抛出异常
+ */
+final class InMemoryTable implements Table {
+
+    private static final String LOCATION = "localhost:16020";
+
+    private final InMemoryConnection connection;
+
+    private final TableName tableName;
+
+    private final int defaultCaching;
+
+    private final long defaultMaxResultSize;
+
+    InMemoryTable(InMemoryConnection connection, TableName tableName) {
+        this.connection = connection;
+        this.tableName = tableName;
+        Configuration conf = connection.getConfiguration();
+        this.defaultCaching = conf.getInt(HConstants.HBASE_CLIENT_SCANNER_CACHING,
+                HConstants.DEFAULT_HBASE_CLIENT_SCANNER_CACHING);
+        this.defaultMaxResultSize = conf.getLong(HConstants.HBASE_CLIENT_SCANNER_MAX_RESULT_SIZE_KEY,
+                HConstants.DEFAULT_HBASE_CLIENT_SCANNER_MAX_RESULT_SIZE);
+    }
+
+    private MemoryStore store() throws IOException {
+        return connection.store(tableName);
+    }
+
+    @Override
+    public TableName getName() {
+        return tableName;
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return connection.getConfiguration();
+    }
+
+    @Override
+    public TableDescriptor getDescriptor() throws IOException {
+        return store().getDescriptor();
+    }
+
+    @Override
+    @Deprecated
+    public HTableDescriptor getTableDescriptor() throws IOException {
+        return new HTableDescriptor(getDescriptor());
+    }
+
+    @Override
+    public boolean exists(Get get) throws IOException {
+        return !get(get).isEmpty();
+    }
+
+    @Override
+    public boolean[] exists(List<Get> gets) throws IOException {
+        boolean[] exists = new boolean[gets.size()];
+        for (int i = 0; i < exists.length; i++) {
+            exists[i] = exists(gets.get(i));
+        }
+        return exists;
+    }
+
+    @Override
+    public Result get(Get get) throws IOException {
+        try (ResultScanner scanner = getScanner(new Scan(get))) {
+            Result result = scanner.next();
+            if (get.isCheckExistenceOnly()) {
+                return Result.create(null, result != null);
+            }
+            return result == null ? Result.create(Collections.emptyList()) : result;
+        }
+    }
+
+    @Override
+    public Result[] get(List<Get> gets) throws IOException {
+        Result[] results = new Result[gets.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = get(gets.get(i));
+        }
+        return results;
+    }
+
+    @Override
+    public ResultScanner getScanner(Scan scan) throws IOException {
+        return new InMemoryScanner(store(), scan, defaultCaching, defaultMaxResultSize);
+    }
+
+    @Override
+    public ResultScanner getScanner(byte[] family) throws IOException {
+        return getScanner(new Scan().addFamily(family));
+    }
+
+    @Override
+    public ResultScanner getScanner(byte[] family, byte[] qualifier) throws IOException {
+        return getScanner(new Scan().addColumn(family, qualifier));
+    }
+
+    @Override
+    public void put(Put put) throws IOException {
+        store().put(put);
+    }
+
+    @Override
+    public void put(List<Put> puts) throws IOException {
+        batch(puts, new Object[puts.size()]);
+    }
+
+    @Override
+    public void delete(Delete delete) throws IOException {
+        store().delete(delete);
+    }
+
+    @Override
+    public void delete(List<Delete> deletes) throws IOException {
+        batch(deletes, new Object[deletes.size()]);
+    }
+
+    @Override
+    public void mutateRow(RowMutations rm) throws IOException {
+        store().mutateRow(rm);
+    }
+
+    @Override
+    public Result append(Append append) throws IOException {
+        return store().append(append);
+    }
+
+    @Override
+    public Result increment(Increment increment) throws IOException {
+        return store().increment(increment);
+    }
+
+    @Override
+    public long incrementColumnValue(byte[] row, byte[] family, byte[] qualifier, long amount) throws IOException {
+        Result result = increment(new Increment(row).addColumn(family, qualifier, amount));
+        return Bytes.toLong(result.getValue(family, qualifier));
+    }
+
+    @Override
+    public long incrementColumnValue(byte[] row, byte[] family, byte[] qualifier, long amount, Durability durability)
+            throws IOException {
+        return incrementColumnValue(row, family, qualifier, amount);
+    }
+
+    @Override
+    public void batch(List<? extends Row> actions, Object[] results) throws IOException {
+        batchCallback(actions, results, null);
+    }
+
+    /**
+     * 逐个执行,失败的操作在results中对应位置放入异常,全部执行完后抛出RetriesExhaustedWithDetailsException
+     */
+    @Override
+    public <R> void batchCallback(List<? extends Row> actions, Object[] results, Batch.Callback<R> callback)
+            throws IOException {
+        List<Throwable> causes = new ArrayList<>();
+        List<Row> failed = new ArrayList<>();
+        List<String> locations = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            Row action = actions.get(i);
+            Object result;
+            try {
+                result = execute(action);
+            } catch (IOException e) {
+                results[i] = e;
+                causes.add(e);
+                failed.add(action);
+                locations.add(LOCATION);
+                continue;
+            }
+            results[i] = result;
+            if (callback != null) {
+                @SuppressWarnings("unchecked")
+                R r = (R) result;
+                callback.update(HConstants.EMPTY_BYTE_ARRAY, action.getRow(), r);
+            }
+        }
+        if (!causes.isEmpty()) {
+            throw new RetriesExhaustedWithDetailsException(causes, failed, locations);
+        }
+    }
+
+    private Object execute(Row action) throws IOException {
+        if (action instanceof Get) {
+            return get((Get) action);
+        }
+        if (action instanceof Put) {
+            put((Put) action);
+        } else if (action instanceof Delete) {
+            delete((Delete) action);
+        } else if (action instanceof Increment) {
+            return increment((Increment) action);
+        } else if (action instanceof Append) {
+            return append((Append) action);
+        } else if (action instanceof RowMutations) {
+            mutateRow((RowMutations) action);
+        } else {
+            throw new UnsupportedOperationException("Unsupported action " + action.getClass().getName());
+        }
+        return Result.create(Collections.emptyList());
+    }
+
+    @Override
+    public CheckAndMutateBuilder checkAndMutate(byte[] row, byte[] family) {
+        return new InMemoryCheckAndMutateBuilder(row, family);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndPut(byte[] row, byte[] family, byte[] qualifier, byte[] value, Put put) throws IOException {
+        return checkAndPut(row, family, qualifier, CompareOperator.EQUAL, value, put);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndPut(byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp,
+                               byte[] value, Put put) throws IOException {
+        return checkAndPut(row, family, qualifier, CompareOperator.valueOf(compareOp.name()), value, put);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndPut(byte[] row, byte[] family, byte[] qualifier, CompareOperator op, byte[] value, Put put)
+            throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifMatches(op, value).thenPut(put);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndDelete(byte[] row, byte[] family, byte[] qualifier, byte[] value, Delete delete)
+            throws IOException {
+        return checkAndDelete(row, family, qualifier, CompareOperator.EQUAL, value, delete);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndDelete(byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp,
+                                  byte[] value, Delete delete) throws IOException {
+        return checkAndDelete(row, family, qualifier, CompareOperator.valueOf(compareOp.name()), value, delete);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndDelete(byte[] row, byte[] family, byte[] qualifier, CompareOperator op, byte[] value,
+                                  Delete delete) throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifMatches(op, value).thenDelete(delete);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndMutate(byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp,
+                                  byte[] value, RowMutations mutation) throws IOException {
+        return checkAndMutate(row, family, qualifier, CompareOperator.valueOf(compareOp.name()), value, mutation);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndMutate(byte[] row, byte[] family, byte[] qualifier, CompareOperator op, byte[] value,
+                                  RowMutations mutation) throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifMatches(op, value).thenMutate(mutation);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private final class InMemoryCheckAndMutateBuilder implements CheckAndMutateBuilder {
+
+        private final byte[] row;
+
+        private final byte[] family;
+
+        private byte[] qualifier = HConstants.EMPTY_BYTE_ARRAY;
+
+        private TimeRange timeRange;
+
+        private CompareOperator op;
+
+        private byte[] value;
+
+        InMemoryCheckAndMutateBuilder(byte[] row, byte[] family) {
+            this.row = row;
+            this.family = family;
+        }
+
+        @Override
+        public CheckAndMutateBuilder qualifier(byte[] qualifier) {
+            this.qualifier = qualifier;
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder timeRange(TimeRange timeRange) {
+            this.timeRange = timeRange;
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder ifNotExists() {
+            this.op = CompareOperator.EQUAL;
+            this.value = null;
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder ifMatches(CompareOperator op, byte[] value) {
+            this.op = op;
+            this.value = value;
+            return this;
+        }
+
+        @Override
+        public boolean thenPut(Put put) throws IOException {
+            return thenMutate(RowMutations.of(Collections.singletonList(put)));
+        }
+
+        @Override
+        public boolean thenDelete(Delete delete) throws IOException {
+            return thenMutate(RowMutations.of(Collections.singletonList(delete)));
+        }
+
+        @Override
+        public boolean thenMutate(RowMutations mutation) throws IOException {
+            if (op == null) {
+                throw new IllegalStateException("condition is null. You need to specify the condition by"
+                        + " calling ifNotExists/ifEquals/ifMatches before executing the request");
+            }
+            return store().checkAndMutate(row, family, qualifier, op, value, timeRange, mutation);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotEnabledException;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.regionserver.NoSuchColumnFamilyException;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 一张表的数据:行键到行的跳表,每行内的cell按CellComparator排序(family、qualifier、时间戳倒序)
+ * <p>
+ * 写入和checkAndMutate/increment/append在行锁内完成,与RegionServer一样保证单行原子性。
+ * 版本数超过列族maxVersions的旧版本在写入时丢弃,TTL在读取时判断,majorCompact时清理。
+ * 删除直接移除cell,不保留墓碑,之后写入的更旧时间戳的数据可见(与major compaction之后的行为相同)
+ */
+final class MemoryStore {
+
+    private static final CellComparator COMPARATOR = CellComparator.getInstance();
+
+    private final TableName tableName;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentSkipListMap<byte[], Row> rows = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+
+    private volatile TableDescriptor descriptor;
+
+    private volatile List<RegionInfo> regions;
+
+    private volatile boolean enabled = true;
+
+    MemoryStore(TableDescriptor descriptor, byte[][] splitKeys, LongSupplier clock) {
+        this.tableName = descriptor.getTableName();
+        this.descriptor = descriptor;
+        this.clock = clock;
+        this.regions = regions(tableName, splitKeys);
+    }
+
+    private static List<RegionInfo> regions(TableName tableName, byte[][] splitKeys) {
+        List<RegionInfo> regions = new ArrayList<>(splitKeys.length + 1);
+        byte[] start = HConstants.EMPTY_START_ROW;
+        for (int i = 0; i <= splitKeys.length; i++) {
+            byte[] end = i < splitKeys.length ? splitKeys[i] : HConstants.EMPTY_END_ROW;
+            regions.add(RegionInfoBuilder.newBuilder(tableName).setStartKey(start).setEndKey(end).setRegionId(1L)
+                    .build());
+            start = end;
+        }
+        return Collections.unmodifiableList(regions);
+    }
+
+    TableName getTableName() {
+        return tableName;
+    }
+
+    TableDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * 删除的列族的数据一并移除
+     */
+    void setDescriptor(TableDescriptor descriptor) {
+        this.descriptor = descriptor;
+        for (Row row : rows.values()) {
+            synchronized (row) {
+                row.cells.keySet().removeIf(cell -> family(cell) == null);
+            }
+            removeIfEmpty(row);
+        }
+    }
+
+    List<RegionInfo> getRegions() {
+        return regions;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    void checkEnabled() throws TableNotEnabledException {
+        if (!enabled) {
+            throw new TableNotEnabledException(tableName);
+        }
+    }
+
+    /**
+     * @param preserveSplits false时合并为一个region
+     */
+    void truncate(boolean preserveSplits) {
+        rows.clear();
+        if (!preserveSplits) {
+            regions = regions(tableName, new byte[0][]);
+        }
+    }
+
+    /**
+     * 清理过期的cell
+     */
+    void compact() {
+        long now = now();
+        for (Row row : rows.values()) {
+            synchronized (row) {
+                row.cells.keySet().removeIf(cell -> expired(family(cell), cell, now));
+            }
+            removeIfEmpty(row);
+        }
+    }
+
+    ColumnFamilyDescriptor family(Cell cell) {
+        return descriptor.getColumnFamily(CellUtil.cloneFamily(cell));
+    }
+
+    static boolean expired(ColumnFamilyDescriptor family, Cell cell, long now) {
+        int ttl = family.getTimeToLive();
+        return ttl != HConstants.FOREVER && cell.getTimestamp() < now - ttl * 1000L;
+    }
+
+    /**
+     * 起点之后(含或不含)的第一行,reversed时为之前的一行
+     *
+     * @param from 为null时从头(或从尾)开始
+     */
+    Map.Entry<byte[], Row> seek(byte[] from, boolean inclusive, boolean reversed) {
+        if (from == null) {
+            return reversed ? rows.lastEntry() : rows.firstEntry();
+        }
+        if (reversed) {
+            return inclusive ? rows.floorEntry(from) : rows.lowerEntry(from);
+        }
+        return inclusive ? rows.ceilingEntry(from) : rows.higherEntry(from);
+    }
+
+    void checkFamilies(Mutation mutation) throws NoSuchColumnFamilyException {
+        for (byte[] family : mutation.getFamilyCellMap().keySet()) {
+            checkFamily(family);
+        }
+    }
+
+    void checkFamily(byte[] family) throws NoSuchColumnFamilyException {
+        if (!descriptor.hasColumnFamily(family)) {
+            throw new NoSuchColumnFamilyException("Column family " + Bytes.toString(family)
+                    + " does not exist in table " + tableName);
+        }
+    }
+
+    void put(Put put) throws IOException {
+        mutateRow(put.getRow(), row -> {
+            put(row, put, now());
+            return null;
+        });
+    }
+
+    void delete(Delete delete) throws IOException {
+        mutateRow(delete.getRow(), row -> {
+            delete(row, delete, now());
+            return null;
+        });
+    }
+
+    void mutateRow(RowMutations mutations) throws IOException {
+        mutateRow(mutations.getRow(), row -> {
+            apply(row, mutations);
+            return null;
+        });
+    }
+
+    /**
+     * 按checkAndMutate的语义比较最新版本:比较符左边是给定的值,右边是cell的值;value为null表示列不存在
+     */
+    boolean checkAndMutate(byte[] rowKey, byte[] family, byte[] qualifier, CompareOperator op, byte[] value,
+                           TimeRange timeRange, RowMutations mutations) throws IOException {
+        checkFamily(family);
+        for (Mutation mutation : mutations.getMutations()) {
+            checkFamilies(mutation);
+        }
+        return mutateRow(rowKey, row -> {
+            Cell current = latest(row, family, qualifier, timeRange, now());
+            boolean matches;
+            if (value == null) {
+                matches = current == null;
+            } else if (current == null) {
+                matches = false;
+            } else {
+                matches = matches(op, PrivateCellUtil.compareValue(current, new BinaryComparator(value)));
+            }
+            if (matches) {
+                apply(row, mutations);
+            }
+            return matches;
+        });
+    }
+
+    private static boolean matches(CompareOperator op, int compare) {
+        switch (op) {
+            case LESS:
+                return compare < 0;
+            case LESS_OR_EQUAL:
+                return compare <= 0;
+            case EQUAL:
+                return compare == 0;
+            case NOT_EQUAL:
+                return compare != 0;
+            case GREATER_OR_EQUAL:
+                return compare >= 0;
+            case GREATER:
+                return compare > 0;
+            default:
+                return false;
+        }
+    }
+
+    Result increment(Increment increment) throws IOException {
+        checkFamilies(increment);
+        return mutateRow(increment.getRow(), row -> {
+            long now = now();
+            List<Cell> results = new ArrayList<>();
+            for (List<Cell> cells : increment.getFamilyCellMap().values()) {
+                for (Cell delta : cells) {
+                    Cell current = latest(row, CellUtil.cloneFamily(delta), CellUtil.cloneQualifier(delta),
+                            null, now);
+                    long amount = toLong(delta);
+                    if (current != null) {
+                        amount += toLong(current);
+                    }
+                    results.add(write(row, delta, timestamp(current, now), Bytes.toBytes(amount)));
+                }
+            }
+            return increment.isReturnResults() ? sorted(results) : Result.create(Collections.emptyList());
+        });
+    }
+
+    Result append(Append append) throws IOException {
+        checkFamilies(append);
+        return mutateRow(append.getRow(), row -> {
+            long now = now();
+            List<Cell> results = new ArrayList<>();
+            for (List<Cell> cells : append.getFamilyCellMap().values()) {
+                for (Cell suffix : cells) {
+                    Cell current = latest(row, CellUtil.cloneFamily(suffix), CellUtil.cloneQualifier(suffix),
+                            null, now);
+                    byte[] value = current == null ? CellUtil.cloneValue(suffix)
+                            : Bytes.add(CellUtil.cloneValue(current), CellUtil.cloneValue(suffix));
+                    results.add(write(row, suffix, timestamp(current, now), value));
+                }
+            }
+            return append.isReturnResults() ? sorted(results) : Result.create(Collections.emptyList());
+        });
+    }
+
+    private static Result sorted(List<Cell> cells) {
+        cells.sort(COMPARATOR);
+        return Result.create(cells);
+    }
+
+    /**
+     * 与RegionServer相同,新版本的时间戳至少比旧版本大1
+     */
+    private static long timestamp(Cell current, long now) {
+        return current == null ? now : Math.max(now, current.getTimestamp() + 1);
+    }
+
+    private static long toLong(Cell cell) throws DoNotRetryIOException {
+        if (cell.getValueLength() != Bytes.SIZEOF_LONG) {
+            throw new DoNotRetryIOException("Field is not a long, it's " + cell.getValueLength() + " bytes wide");
+        }
+        return Bytes.toLong(cell.getValueArray(), cell.getValueOffset());
+    }
+
+    private void apply(Row row, RowMutations mutations) throws IOException {
+        long now = now();
+        for (Mutation mutation : mutations.getMutations()) {
+            if (!Bytes.equals(mutation.getRow(), row.key)) {
+                throw new DoNotRetryIOException("Mutation row " + Bytes.toStringBinary(mutation.getRow())
+                        + " does not match " + Bytes.toStringBinary(row.key));
+            }
+            if (mutation instanceof Put) {
+                put(row, (Put) mutation, now);
+            } else if (mutation instanceof Delete) {
+                delete(row, (Delete) mutation, now);
+            } else {
+                throw new DoNotRetryIOException("RowMutations only supports Put and Delete");
+            }
+        }
+    }
+
+    private void put(Row row, Put put, long now) throws IOException {
+        checkFamilies(put);
+        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                long ts = cell.getTimestamp() == HConstants.LATEST_TIMESTAMP ? now : cell.getTimestamp();
+                write(row, cell, ts, CellUtil.cloneValue(cell));
+            }
+        }
+    }
+
+    private Cell write(Row row, Cell source, long ts, byte[] value) {
+        KeyValue cell = new KeyValue(row.key, CellUtil.cloneFamily(source), CellUtil.cloneQualifier(source), ts,
+                KeyValue.Type.Put, value);
+        row.cells.put(cell, cell);
+        //丢弃超出maxVersions的旧版本
+        int maxVersions = family(cell).getMaxVersions();
+        NavigableMap<Cell, Cell> column = column(row, cell);
+        while (column.size() > maxVersions) {
+            column.pollLastEntry();
+        }
+        return cell;
+    }
+
+    private void delete(Row row, Delete delete, long now) throws IOException {
+        checkFamilies(delete);
+        long deleteTs = delete.getTimestamp() == HConstants.LATEST_TIMESTAMP ? now : delete.getTimestamp();
+        if (delete.getFamilyCellMap().isEmpty()) {
+            row.cells.keySet().removeIf(cell -> cell.getTimestamp() <= deleteTs);
+            return;
+        }
+        for (List<Cell> cells : delete.getFamilyCellMap().values()) {
+            for (Cell marker : cells) {
+                long ts = marker.getTimestamp() == HConstants.LATEST_TIMESTAMP ? now : marker.getTimestamp();
+                Iterator<Cell> it;
+                switch (marker.getType()) {
+                    case DeleteFamily:
+                        row.cells.keySet().removeIf(cell -> CellUtil.matchingFamily(cell, marker)
+                                && cell.getTimestamp() <= ts);
+                        break;
+                    case DeleteFamilyVersion:
+                        row.cells.keySet().removeIf(cell -> CellUtil.matchingFamily(cell, marker)
+                                && cell.getTimestamp() == ts);
+                        break;
+                    case DeleteColumn:
+                        column(row, marker).keySet().removeIf(cell -> cell.getTimestamp() <= ts);
+                        break;
+                    default:
+                        //没有指定时间戳时删除最新的一个版本
+                        it = column(row, marker).keySet().iterator();
+                        while (it.hasNext()) {
+                            Cell cell = it.next();
+                            if (marker.getTimestamp() == HConstants.LATEST_TIMESTAMP || cell.getTimestamp() == ts) {
+                                it.remove();
+                                break;
+                            }
+                        }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一列的所有版本。PrivateCellUtil.createFirstOnRowCol生成的cell与前一个列族比较时顺序不对,这里用KeyValue作边界
+     */
+    private static NavigableMap<Cell, Cell> column(Row row, Cell cell) {
+        byte[] family = CellUtil.cloneFamily(cell);
+        byte[] qualifier = CellUtil.cloneQualifier(cell);
+        return row.cells.subMap(
+                new KeyValue(row.key, family, qualifier, HConstants.LATEST_TIMESTAMP, KeyValue.Type.Maximum), true,
+                new KeyValue(row.key, family, qualifier, HConstants.OLDEST_TIMESTAMP, KeyValue.Type.Minimum), true);
+    }
+
+    /**
+     * 一列在时间范围内未过期的最新版本
+     */
+    private Cell latest(Row row, byte[] family, byte[] qualifier, TimeRange timeRange, long now) {
+        ColumnFamilyDescriptor descriptor = this.descriptor.getColumnFamily(family);
+        KeyValue probe = new KeyValue(row.key, family, qualifier);
+        for (Cell cell : column(row, probe).keySet()) {
+            if ((timeRange == null || timeRange.withinTimeRange(cell.getTimestamp()))
+                    && !expired(descriptor, cell, now)) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在行锁内执行,行不存在时创建;执行后行为空则移除
+     */
+    private <T> T mutateRow(byte[] key, RowAction<T> action) throws IOException {
+        checkEnabled();
+        while (true) {
+            Row row = rows.get(key);
+            if (row == null) {
+                Row created = new Row(key.clone());
+                row = rows.putIfAbsent(created.key, created);
+                if (row == null) {
+                    row = created;
+                }
+            }
+            T result;
+            synchronized (row) {
+                if (row.removed) {
+                    continue;
+                }
+                result = action.apply(row);
+            }
+            removeIfEmpty(row);
+            return result;
+        }
+    }
+
+    private void removeIfEmpty(Row row) {
+        synchronized (row) {
+            if (row.cells.isEmpty() && !row.removed) {
+                row.removed = true;
+                rows.remove(row.key, row);
+            }
+        }
+    }
+
+    private interface RowAction<T> {
+
+        T apply(Row row) throws IOException;
+    }
+
+    static final class Row {
+
+        final byte[] key;
+
+        private final TreeMap<Cell, Cell> cells = new TreeMap<>(COMPARATOR);
+
+        private boolean removed;
+
+        Row(byte[] key) {
+            this.key = key;
+        }
+
+        /**
+         * 排好序的cell快照
+         */
+        synchronized List<Cell> snapshot() {
+            return new ArrayList<>(cells.keySet());
+        }
+    }
+}
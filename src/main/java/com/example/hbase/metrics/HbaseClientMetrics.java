@@ -0,0 +1,64 @@
+package com.example.hbase.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.TableName;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按表、按操作的客户端指标,由InstrumentedConnection包装出来的Table/ResultScanner/BufferedMutator记录
+ * <p>
+ * 每张表的全部Timer/Counter在第一次使用时一次性注册并缓存,之后的调用只做一次map查找和无锁累加,不分配对象
+ * <ul>
+ * <li>hbase.client.operation: 耗时直方图,标签table/operation</li>
+ * <li>hbase.client.operation.errors: 抛出异常的调用数</li>
+ * <li>hbase.client.rows: 读到或写入的行数</li>
+ * <li>hbase.client.bytes: 按cell序列化大小估算的收发字节数,标签direction=in/out</li>
+ * <li>hbase.client.scan.rows: 服务端扫描/过滤掉的行数(result=scanned/filtered),与operation=scan的hbase.client.rows对比即为过滤选择率</li>
+ * <li>hbase.client.scan.rpc: scan的RPC次数,标签type=call/retry/remote/nsre</li>
+ * <li>hbase.client.first.request: 每张表第一次调用(或预热完成后的第一次调用)的耗时,用于观察冷启动的延迟</li>
+ * </ul>
+ * region定位缓存的命中/未命中见HbaseConnectionMetrics
+ */
+public class HbaseClientMetrics implements MeterBinder {
+
+    public enum Operation {
+        GET, EXISTS, PUT, DELETE, BATCH, SCAN, MUTATE_ROW, APPEND, INCREMENT, CHECK_AND_MUTATE, MUTATOR_MUTATE, MUTATOR_FLUSH;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final ConcurrentMap<TableName, TableMetrics> tables = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 还没有绑定到MeterRegistry时返回null,调用方不记录
+     */
+    TableMetrics forTable(TableName tableName) {
+        MeterRegistry r = registry;
+        if (r == null) {
+            return null;
+        }
+        TableMetrics metrics = tables.get(tableName);
+        return metrics != null ? metrics : tables.computeIfAbsent(tableName, t -> new TableMetrics(r, t));
+    }
+
+    /**
+     * 预热完成后调用,此后每张表的下一次调用再记入一次hbase.client.first.request;
+     * 预热本身的第一次读同样会记一次,即没有预热时业务请求要付出的冷启动延迟
+     */
+    public void resetFirstRequests() {
+        for (TableMetrics metrics : tables.values()) {
+            metrics.resetFirstRequest();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.hbase.metrics;
+
+import com.codahale.metrics.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.client.ClusterConnection;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.MetricsConnection;
+
+import java.lang.reflect.Field;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接级别的指标:当前打开的连接数、meta缓存命中率、region定位耗时
+ * <p>
+ * meta缓存被清除说明请求遇到了region迁移、RegionServer宕机等可重试错误,hbase.client.meta.cache.clears可以近似看作重试次数
+ * <p>
+ * 连接改为单例之后hbase.client.connections应该恒为1,meta缓存命中率应该在预热后接近100%
+ */
+public class HbaseConnectionMetrics implements MeterBinder {
+
+    private static final Field META_CACHE_HITS = metricsField("metaCacheHits");
+
+    private static final Field META_CACHE_MISSES = metricsField("metaCacheMisses");
+
+    private static final Field META_CACHE_CLEAR_SERVER = metricsField("metaCacheNumClearServer");
+
+    private static final Field META_CACHE_CLEAR_REGION = metricsField("metaCacheNumClearRegion");
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile Timer regionLookupTimer;
+
+    /**
+     * 登记一个由应用创建的连接,关闭后自动不再计数
+     *
+     * @param connection
+     */
+    public void register(Connection connection) {
+        connections.add(connection);
+    }
+
+    public int openConnections() {
+        connections.removeIf(Connection::isClosed);
+        return connections.size();
+    }
+
+    /**
+     * 记录一次region定位的耗时
+     *
+     * @param nanos
+     */
+    public void recordRegionLookup(long nanos) {
+        Timer timer = regionLookupTimer;
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("hbase.client.connections", this, HbaseConnectionMetrics::openConnections)
+                .description("Open HBase connections created by the application")
+                .register(registry);
+        FunctionCounter.builder("hbase.client.meta.cache", this, m -> m.metaCacheCount(META_CACHE_HITS))
+                .tag("result", "hit")
+                .description("hbase:meta location cache lookups")
+                .register(registry);
+        FunctionCounter.builder("hbase.client.meta.cache", this, m -> m.metaCacheCount(META_CACHE_MISSES))
+                .tag("result", "miss")
+                .description("hbase:meta location cache lookups")
+                .register(registry);
+        FunctionCounter.builder("hbase.client.meta.cache.clears", this, m -> m.metaCacheCount(META_CACHE_CLEAR_SERVER))
+                .tag("scope", "server")
+                .description("Cached region locations dropped after errors, usually followed by a retry")
+                .register(registry);
+        FunctionCounter.builder("hbase.client.meta.cache.clears", this, m -> m.metaCacheCount(META_CACHE_CLEAR_REGION))
+                .tag("scope", "region")
+                .description("Cached region locations dropped after errors, usually followed by a retry")
+                .register(registry);
+        Gauge.builder("hbase.client.meta.cache.hit.ratio", this, HbaseConnectionMetrics::metaCacheHitRatio)
+                .description("Fraction of region lookups served from the client meta cache")
+                .register(registry);
+        regionLookupTimer = Timer.builder("hbase.client.region.lookup")
+                .description("Latency of region location lookups")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    double metaCacheHitRatio() {
+        double hits = metaCacheCount(META_CACHE_HITS);
+        double total = hits + metaCacheCount(META_CACHE_MISSES);
+        return total == 0 ? Double.NaN : hits / total;
+    }
+
+    /**
+     * hbase-client只在MetricsConnection内部维护meta缓存计数器且字段为protected,这里通过反射读取
+     */
+    double metaCacheCount(Field field) {
+        if (field == null) {
+            return Double.NaN;
+        }
+        long count = 0;
+        for (Connection connection : connections) {
+            if (!(connection instanceof ClusterConnection) || connection.isClosed()) {
+                continue;
+            }
+            MetricsConnection metrics = ((ClusterConnection) connection).getConnectionMetrics();
+            if (metrics == null) {
+                continue;
+            }
+            try {
+                count += ((Counter) field.get(metrics)).getCount();
+            } catch (IllegalAccessException e) {
+                return Double.NaN;
+            }
+        }
+        return count;
+    }
+
+    private static Field metricsField(String name) {
+        try {
+            Field field = MetricsConnection.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
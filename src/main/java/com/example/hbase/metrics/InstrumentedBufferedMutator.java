@@ -0,0 +1,123 @@
+package com.example.hbase.metrics;
+
+import com.example.hbase.metrics.HbaseClientMetrics.Operation;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Mutation;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * mutate只是写入客户端缓冲区,耗时反映缓冲区满时的阻塞;flush的耗时才是真正的批量写入延迟
+ */
+class InstrumentedBufferedMutator implements BufferedMutator {
+
+    private final BufferedMutator delegate;
+
+    private final TableMetrics metrics;
+
+    InstrumentedBufferedMutator(BufferedMutator delegate, TableMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public TableName getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public void mutate(Mutation mutation) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.mutate(mutation);
+            if (metrics != null) {
+                metrics.success(Operation.MUTATOR_MUTATE, start, 1, 0, Sizes.of(mutation));
+            }
+        } catch (IOException | RuntimeException e) {
+            if (metrics != null) {
+                metrics.failure(Operation.MUTATOR_MUTATE, start);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void mutate(List<? extends Mutation> mutations) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.mutate(mutations);
+            if (metrics != null) {
+                metrics.success(Operation.MUTATOR_MUTATE, start, mutations.size(), 0, Sizes.ofRows(mutations));
+            }
+        } catch (IOException | RuntimeException e) {
+            if (metrics != null) {
+                metrics.failure(Operation.MUTATOR_MUTATE, start);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.flush();
+            if (metrics != null) {
+                metrics.success(Operation.MUTATOR_FLUSH, start, 0, 0, 0);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (metrics != null) {
+                metrics.failure(Operation.MUTATOR_FLUSH, start);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public void setWriteBufferPeriodicFlush(long timeoutMs, long timerTickMs) {
+        delegate.setWriteBufferPeriodicFlush(timeoutMs, timerTickMs);
+    }
+
+    @Override
+    public void disableWriteBufferPeriodicFlush() {
+        delegate.disableWriteBufferPeriodicFlush();
+    }
+
+    @Override
+    public long getWriteBufferPeriodicFlushTimeoutMs() {
+        return delegate.getWriteBufferPeriodicFlushTimeoutMs();
+    }
+
+    @Override
+    public long getWriteBufferPeriodicFlushTimerTickMs() {
+        return delegate.getWriteBufferPeriodicFlushTimerTickMs();
+    }
+
+    @Override
+    public long getWriteBufferSize() {
+        return delegate.getWriteBufferSize();
+    }
+
+    @Override
+    public void setRpcTimeout(int timeout) {
+        delegate.setRpcTimeout(timeout);
+    }
+
+    @Override
+    public void setOperationTimeout(int timeout) {
+        delegate.setOperationTimeout(timeout);
+    }
+}
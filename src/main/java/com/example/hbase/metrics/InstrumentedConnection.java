@@ -0,0 +1,147 @@
+package com.example.hbase.metrics;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 给Connection创建出来的Table/ResultScanner/BufferedMutator套上指标记录,Admin和RegionLocator不做包装
+ * <p>
+ * HbaseConnectionMetrics需要读取底层ClusterConnection,登记时要用被包装的原始连接。
+ * metrics为null时只做scan参数调整,tuner为null时只记录指标
+ */
+public class InstrumentedConnection implements Connection {
+
+    private final Connection delegate;
+
+    private final HbaseClientMetrics metrics;
+
+    private final ScanTuner tuner;
+
+    public InstrumentedConnection(Connection delegate, HbaseClientMetrics metrics) {
+        this(delegate, metrics, null);
+    }
+
+    public InstrumentedConnection(Connection delegate, HbaseClientMetrics metrics, ScanTuner tuner) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.tuner = tuner;
+    }
+
+    public Connection getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public Table getTable(TableName tableName) throws IOException {
+        return wrap(delegate.getTable(tableName), tableName);
+    }
+
+    @Override
+    public Table getTable(TableName tableName, ExecutorService pool) throws IOException {
+        return wrap(delegate.getTable(tableName, pool), tableName);
+    }
+
+    @Override
+    public BufferedMutator getBufferedMutator(TableName tableName) throws IOException {
+        return new InstrumentedBufferedMutator(delegate.getBufferedMutator(tableName), forTable(tableName));
+    }
+
+    @Override
+    public BufferedMutator getBufferedMutator(BufferedMutatorParams params) throws IOException {
+        return new InstrumentedBufferedMutator(delegate.getBufferedMutator(params), forTable(params.getTableName()));
+    }
+
+    @Override
+    public RegionLocator getRegionLocator(TableName tableName) throws IOException {
+        return delegate.getRegionLocator(tableName);
+    }
+
+    @Override
+    public Admin getAdmin() throws IOException {
+        return delegate.getAdmin();
+    }
+
+    @Override
+    public TableBuilder getTableBuilder(TableName tableName, ExecutorService pool) {
+        TableBuilder builder = delegate.getTableBuilder(tableName, pool);
+        return new TableBuilder() {
+
+            @Override
+            public TableBuilder setOperationTimeout(int timeout) {
+                builder.setOperationTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public TableBuilder setRpcTimeout(int timeout) {
+                builder.setRpcTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public TableBuilder setReadRpcTimeout(int timeout) {
+                builder.setReadRpcTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public TableBuilder setWriteRpcTimeout(int timeout) {
+                builder.setWriteRpcTimeout(timeout);
+                return this;
+            }
+
+            @Override
+            public Table build() {
+                return wrap(builder.build(), tableName);
+            }
+        };
+    }
+
+    private Table wrap(Table table, TableName tableName) {
+        return new InstrumentedTable(table, forTable(tableName), tableName, tuner);
+    }
+
+    private TableMetrics forTable(TableName tableName) {
+        return metrics == null ? null : metrics.forTable(tableName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void abort(String why, Throwable e) {
+        delegate.abort(why, e);
+    }
+
+    @Override
+    public boolean isAborted() {
+        return delegate.isAborted();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.hbase.metrics;
+
+import com.example.hbase.metrics.HbaseClientMetrics.Operation;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import java.io.IOException;
+
+/**
+ * 统计返回的行数,关闭时按scanner从打开到关闭的时间记录一次operation=scan,并汇总ScanMetrics
+ * <p>
+ * 与ResultScanner一样只在单线程内使用,行数用普通字段累加;半行的Result在这一行的最后一个Result才计为一行。
+ * 有ScanTuner时还累加cell数和字节数,关闭时交给ScanTuner更新表的行宽统计
+ */
+class InstrumentedResultScanner implements ResultScanner {
+
+    private final ResultScanner delegate;
+
+    private final TableMetrics metrics;
+
+    private final long start;
+
+    private final ScanTuner tuner;
+
+    private final TableName tableName;
+
+    private final boolean tuned;
+
+    private final boolean wholeRows;
+
+    private long rows;
+
+    private long cells;
+
+    private long bytes;
+
+    private long rowBytes;
+
+    private long maxRowBytes;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    /**
+     * @param tuner     为null时不统计行宽
+     * @param tableName
+     * @param tuned     scan的参数是否由tuner设置
+     * @param wholeRows scan是否读整行,只有读整行的scan并入行宽统计
+     */
+    InstrumentedResultScanner(ResultScanner delegate, TableMetrics metrics, long start, ScanTuner tuner,
+                              TableName tableName, boolean tuned, boolean wholeRows) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.start = start;
+        this.tuner = tuner;
+        this.tableName = tableName;
+        this.tuned = tuned;
+        this.wholeRows = wholeRows;
+    }
+
+    @Override
+    public Result next() throws IOException {
+        try {
+            Result result = delegate.next();
+            if (result != null) {
+                if (tuner != null) {
+                    measure(result);
+                }
+                if (!result.mayHaveMoreCellsInRow()) {
+                    rows++;
+                }
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private void measure(Result result) {
+        Cell[] raw = result.rawCells();
+        if (raw != null) {
+            cells += raw.length;
+            for (Cell cell : raw) {
+                rowBytes += Sizes.of(cell);
+            }
+        }
+        if (!result.mayHaveMoreCellsInRow()) {
+            bytes += rowBytes;
+            maxRowBytes = Math.max(maxRowBytes, rowBytes);
+            rowBytes = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ScanMetrics scanMetrics = delegate.getScanMetrics();
+        if (tuner != null && !failed) {
+            tuner.observe(tableName, rows, cells, bytes, maxRowBytes,
+                    scanMetrics == null ? -1 : scanMetrics.countOfRPCcalls.get(), tuned,
+                    wholeRows);
+        }
+        if (metrics == null) {
+            return;
+        }
+        if (failed) {
+            metrics.failure(Operation.SCAN, start);
+        } else {
+            metrics.success(Operation.SCAN, start, rows, 0, 0);
+        }
+        if (scanMetrics != null) {
+            metrics.scanned(scanMetrics);
+        }
+    }
+
+    @Override
+    public boolean renewLease() {
+        return delegate.renewLease();
+    }
+
+    @Override
+    public ScanMetrics getScanMetrics() {
+        return delegate.getScanMetrics();
+    }
+}
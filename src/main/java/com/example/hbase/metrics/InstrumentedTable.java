@@ -0,0 +1,556 @@
+package com.example.hbase.metrics;
+
+import com.example.hbase.metrics.HbaseClientMetrics.Operation;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import com.google.protobuf.Service;
+import com.google.protobuf.ServiceException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.coprocessor.Batch;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.ipc.CoprocessorRpcChannel;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录每次调用耗时、行数和收发字节数的Table装饰器,其余方法直接委托
+ * <p>
+ * getScanner会打开Scan自带的ScanMetrics,scanner关闭时汇总服务端扫描/过滤行数和RPC次数;
+ * 有ScanTuner时先按表的行宽统计补上scan参数,关闭时把这次扫描的行宽交回ScanTuner
+ */
+class InstrumentedTable implements Table {
+
+    private final Table delegate;
+
+    private final TableMetrics metrics;
+
+    private final TableName tableName;
+
+    private final ScanTuner tuner;
+
+    /**
+     * @param tableName
+     * @param tuner     为null时不调整scan参数
+     */
+    InstrumentedTable(Table delegate, TableMetrics metrics, TableName tableName, ScanTuner tuner) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.tableName = tableName;
+        this.tuner = tuner;
+    }
+
+    private void success(Operation operation, long start, long rows, long in, long out) {
+        if (metrics != null) {
+            metrics.success(operation, start, rows, in, out);
+        }
+    }
+
+    private void failure(Operation operation, long start) {
+        if (metrics != null) {
+            metrics.failure(operation, start);
+        }
+    }
+
+    @Override
+    public TableName getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    @Deprecated
+    public HTableDescriptor getTableDescriptor() throws IOException {
+        return delegate.getTableDescriptor();
+    }
+
+    @Override
+    public TableDescriptor getDescriptor() throws IOException {
+        return delegate.getDescriptor();
+    }
+
+    @Override
+    public boolean exists(Get get) throws IOException {
+        long start = System.nanoTime();
+        try {
+            boolean exists = delegate.exists(get);
+            success(Operation.EXISTS, start, 1, 0, 0);
+            return exists;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.EXISTS, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean[] exists(List<Get> gets) throws IOException {
+        long start = System.nanoTime();
+        try {
+            boolean[] exists = delegate.exists(gets);
+            success(Operation.EXISTS, start, gets.size(), 0, 0);
+            return exists;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.EXISTS, start);
+            throw e;
+        }
+    }
+
+    @Override
+    @Deprecated
+    public boolean[] existsAll(List<Get> gets) throws IOException {
+        return exists(gets);
+    }
+
+    @Override
+    public void batch(List<? extends Row> actions, Object[] results) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            delegate.batch(actions, results);
+            success(Operation.BATCH, start, actions.size(), Sizes.ofResults(results), Sizes.ofRows(actions));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failure(Operation.BATCH, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public <R> void batchCallback(List<? extends Row> actions, Object[] results, Batch.Callback<R> callback)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            delegate.batchCallback(actions, results, callback);
+            success(Operation.BATCH, start, actions.size(), Sizes.ofResults(results), Sizes.ofRows(actions));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failure(Operation.BATCH, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Result get(Get get) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Result result = delegate.get(get);
+            success(Operation.GET, start, result.isEmpty() ? 0 : 1, Sizes.of(result), 0);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.GET, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Result[] get(List<Get> gets) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Result[] results = delegate.get(gets);
+            success(Operation.GET, start, results.length, Sizes.of(results), 0);
+            return results;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.GET, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ResultScanner getScanner(Scan scan) throws IOException {
+        long start = System.nanoTime();
+        //调整的是副本,调用方的Scan可能被复用或并发使用
+        Scan tunedScan = new Scan(scan);
+        boolean tuned = tuner != null && tuner.tune(tableName, tunedScan);
+        if (metrics != null || tuner != null) {
+            tunedScan.setScanMetricsEnabled(true);
+        }
+        try {
+            return new InstrumentedResultScanner(delegate.getScanner(tunedScan), metrics, start, tuner, tableName,
+                    tuned, ScanTuner.readsWholeRows(scan));
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.SCAN, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ResultScanner getScanner(byte[] family) throws IOException {
+        return getScanner(new Scan().addFamily(family));
+    }
+
+    @Override
+    public ResultScanner getScanner(byte[] family, byte[] qualifier) throws IOException {
+        return getScanner(new Scan().addColumn(family, qualifier));
+    }
+
+    @Override
+    public void put(Put put) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.put(put);
+            success(Operation.PUT, start, 1, 0, Sizes.of(put));
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.PUT, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(List<Put> puts) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.put(puts);
+            success(Operation.PUT, start, puts.size(), 0, Sizes.ofRows(puts));
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.PUT, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(Delete delete) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.delete(delete);
+            success(Operation.DELETE, start, 1, 0, Sizes.of(delete));
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.DELETE, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(List<Delete> deletes) throws IOException {
+        long start = System.nanoTime();
+        int rows = deletes.size();
+        long out = Sizes.ofRows(deletes);
+        try {
+            //HTable.delete(List)会把成功的Delete从列表中移除,需要提前统计
+            delegate.delete(deletes);
+            success(Operation.DELETE, start, rows, 0, out);
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.DELETE, start);
+            throw e;
+        }
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndPut(byte[] row, byte[] family, byte[] qualifier, byte[] value, Put put) throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifEquals(value).thenPut(put);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndPut(byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp,
+                               byte[] value, Put put) throws IOException {
+        return checkAndPut(row, family, qualifier, CompareOperator.valueOf(compareOp.name()), value, put);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndPut(byte[] row, byte[] family, byte[] qualifier, CompareOperator op, byte[] value, Put put)
+            throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifMatches(op, value).thenPut(put);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndDelete(byte[] row, byte[] family, byte[] qualifier, byte[] value, Delete delete)
+            throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifEquals(value).thenDelete(delete);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndDelete(byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp,
+                                  byte[] value, Delete delete) throws IOException {
+        return checkAndDelete(row, family, qualifier, CompareOperator.valueOf(compareOp.name()), value, delete);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndDelete(byte[] row, byte[] family, byte[] qualifier, CompareOperator op, byte[] value,
+                                  Delete delete) throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifMatches(op, value).thenDelete(delete);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndMutate(byte[] row, byte[] family, byte[] qualifier, CompareFilter.CompareOp compareOp,
+                                  byte[] value, RowMutations mutation) throws IOException {
+        return checkAndMutate(row, family, qualifier, CompareOperator.valueOf(compareOp.name()), value, mutation);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkAndMutate(byte[] row, byte[] family, byte[] qualifier, CompareOperator op, byte[] value,
+                                  RowMutations mutation) throws IOException {
+        return checkAndMutate(row, family).qualifier(qualifier).ifMatches(op, value).thenMutate(mutation);
+    }
+
+    @Override
+    public CheckAndMutateBuilder checkAndMutate(byte[] row, byte[] family) {
+        return new InstrumentedCheckAndMutateBuilder(delegate.checkAndMutate(row, family));
+    }
+
+    @Override
+    public void mutateRow(RowMutations rm) throws IOException {
+        long start = System.nanoTime();
+        try {
+            delegate.mutateRow(rm);
+            success(Operation.MUTATE_ROW, start, 1, 0, Sizes.ofRows(rm.getMutations()));
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.MUTATE_ROW, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Result append(Append append) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Result result = delegate.append(append);
+            success(Operation.APPEND, start, 1, Sizes.of(result), Sizes.of(append));
+            return result;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.APPEND, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Result increment(Increment increment) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Result result = delegate.increment(increment);
+            success(Operation.INCREMENT, start, 1, Sizes.of(result), Sizes.of(increment));
+            return result;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.INCREMENT, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long incrementColumnValue(byte[] row, byte[] family, byte[] qualifier, long amount) throws IOException {
+        return incrementColumnValue(row, family, qualifier, amount, Durability.SYNC_WAL);
+    }
+
+    @Override
+    public long incrementColumnValue(byte[] row, byte[] family, byte[] qualifier, long amount, Durability durability)
+            throws IOException {
+        long start = System.nanoTime();
+        try {
+            long value = delegate.incrementColumnValue(row, family, qualifier, amount, durability);
+            success(Operation.INCREMENT, start, 1, 0, 0);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            failure(Operation.INCREMENT, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public CoprocessorRpcChannel coprocessorService(byte[] row) {
+        return delegate.coprocessorService(row);
+    }
+
+    @Override
+    public <T extends Service, R> Map<byte[], R> coprocessorService(Class<T> service, byte[] startKey, byte[] endKey,
+                                                                    Batch.Call<T, R> callable) throws Throwable {
+        return delegate.coprocessorService(service, startKey, endKey, callable);
+    }
+
+    @Override
+    public <T extends Service, R> void coprocessorService(Class<T> service, byte[] startKey, byte[] endKey,
+                                                          Batch.Call<T, R> callable, Batch.Callback<R> callback)
+            throws Throwable {
+        delegate.coprocessorService(service, startKey, endKey, callable, callback);
+    }
+
+    @Override
+    public <R extends Message> Map<byte[], R> batchCoprocessorService(Descriptors.MethodDescriptor methodDescriptor,
+                                                                      Message request, byte[] startKey, byte[] endKey,
+                                                                      R responsePrototype) throws Throwable {
+        return delegate.batchCoprocessorService(methodDescriptor, request, startKey, endKey, responsePrototype);
+    }
+
+    @Override
+    public <R extends Message> void batchCoprocessorService(Descriptors.MethodDescriptor methodDescriptor,
+                                                            Message request, byte[] startKey, byte[] endKey,
+                                                            R responsePrototype, Batch.Callback<R> callback)
+            throws ServiceException, Throwable {
+        delegate.batchCoprocessorService(methodDescriptor, request, startKey, endKey, responsePrototype, callback);
+    }
+
+    @Override
+    public long getRpcTimeout(TimeUnit unit) {
+        return delegate.getRpcTimeout(unit);
+    }
+
+    @Override
+    @Deprecated
+    public int getRpcTimeout() {
+        return delegate.getRpcTimeout();
+    }
+
+    @Override
+    @Deprecated
+    public void setRpcTimeout(int rpcTimeout) {
+        delegate.setRpcTimeout(rpcTimeout);
+    }
+
+    @Override
+    public long getReadRpcTimeout(TimeUnit unit) {
+        return delegate.getReadRpcTimeout(unit);
+    }
+
+    @Override
+    @Deprecated
+    public int getReadRpcTimeout() {
+        return delegate.getReadRpcTimeout();
+    }
+
+    @Override
+    @Deprecated
+    public void setReadRpcTimeout(int readRpcTimeout) {
+        delegate.setReadRpcTimeout(readRpcTimeout);
+    }
+
+    @Override
+    public long getWriteRpcTimeout(TimeUnit unit) {
+        return delegate.getWriteRpcTimeout(unit);
+    }
+
+    @Override
+    @Deprecated
+    public int getWriteRpcTimeout() {
+        return delegate.getWriteRpcTimeout();
+    }
+
+    @Override
+    @Deprecated
+    public void setWriteRpcTimeout(int writeRpcTimeout) {
+        delegate.setWriteRpcTimeout(writeRpcTimeout);
+    }
+
+    @Override
+    public long getOperationTimeout(TimeUnit unit) {
+        return delegate.getOperationTimeout(unit);
+    }
+
+    @Override
+    @Deprecated
+    public int getOperationTimeout() {
+        return delegate.getOperationTimeout();
+    }
+
+    @Override
+    @Deprecated
+    public void setOperationTimeout(int operationTimeout) {
+        delegate.setOperationTimeout(operationTimeout);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    private class InstrumentedCheckAndMutateBuilder implements CheckAndMutateBuilder {
+
+        private final CheckAndMutateBuilder builder;
+
+        InstrumentedCheckAndMutateBuilder(CheckAndMutateBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public CheckAndMutateBuilder qualifier(byte[] qualifier) {
+            builder.qualifier(qualifier);
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder timeRange(TimeRange timeRange) {
+            builder.timeRange(timeRange);
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder ifNotExists() {
+            builder.ifNotExists();
+            return this;
+        }
+
+        @Override
+        public CheckAndMutateBuilder ifMatches(CompareOperator compareOp, byte[] value) {
+            builder.ifMatches(compareOp, value);
+            return this;
+        }
+
+        @Override
+        public boolean thenPut(Put put) throws IOException {
+            long start = System.nanoTime();
+            try {
+                boolean applied = builder.thenPut(put);
+                success(Operation.CHECK_AND_MUTATE, start, applied ? 1 : 0, 0, Sizes.of(put));
+                return applied;
+            } catch (IOException | RuntimeException e) {
+                failure(Operation.CHECK_AND_MUTATE, start);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean thenDelete(Delete delete) throws IOException {
+            long start = System.nanoTime();
+            try {
+                boolean applied = builder.thenDelete(delete);
+                success(Operation.CHECK_AND_MUTATE, start, applied ? 1 : 0, 0, Sizes.of(delete));
+                return applied;
+            } catch (IOException | RuntimeException e) {
+                failure(Operation.CHECK_AND_MUTATE, start);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean thenMutate(RowMutations mutation) throws IOException {
+            long start = System.nanoTime();
+            try {
+                boolean applied = builder.thenMutate(mutation);
+                success(Operation.CHECK_AND_MUTATE, start, applied ? 1 : 0, 0, Sizes.ofRows(mutation.getMutations()));
+                return applied;
+            } catch (IOException | RuntimeException e) {
+                failure(Operation.CHECK_AND_MUTATE, start);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.hbase.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 按每张表观察到的行宽自动设置scan的caching/maxResultSize/batch/allowPartialResults/cacheBlocks
+ * <p>
+ * scanner关闭时把这次扫描的平均行字节数、平均cell数和最大行字节数按指数滑动平均并入表的统计;
+ * 只统计读整行的scan,带limit、只读部分列或只返回行键的scan取回的行比整行窄,不并入统计。
+ * 之后的scan按统计计算参数:caching让一次RPC大约取回targetResultSize字节,maxResultSize即targetResultSize;
+ * 平均cell数超过wideRowCells且没有过滤器时按wideRowCells设置batch,最大行超过targetResultSize时允许返回半行。
+ * batch和半行会把一行拆成多个Result,只对用{@link #allowPartialRows(Scan)}声明过能处理半行的scan生效。
+ * 调用方已经设置过的参数不覆盖;还没有统计的表不设置,使用调用方或hbase-client的默认值。
+ * 没有起止行的全表扫描默认关闭block cache,避免把热数据挤出去;Scan无法区分cacheBlocks是默认值还是调用方设置的,
+ * 需要全表扫描也使用block cache时用{@link #cacheBlocks(Scan)}声明
+ * <ul>
+ * <li>hbase.client.scan.tuning: 当前选择的参数和行宽统计,标签table/param=caching/batch/max_result_size/row_bytes/row_cells</li>
+ * <li>hbase.client.scan.round.trips: 每次scan的RPC次数,标签table/tuned</li>
+ * <li>hbase.client.scan.rows.per.rpc: 每次scan平均一次RPC取回的行数,标签table/tuned</li>
+ * </ul>
+ */
+public class ScanTuner implements MeterBinder {
+
+    /**
+     * 标记scan可以接受半行Result的属性名
+     */
+    public static final String PARTIAL_ROWS = "_scan.tuner.partial";
+
+    /**
+     * 标记全表扫描也使用block cache的属性名
+     */
+    public static final String CACHE_BLOCKS = "_scan.tuner.cache.blocks";
+
+    private static final byte[] TRUE = {1};
+
+    /**
+     * 新一次观察的权重
+     */
+    private static final double ALPHA = 0.3;
+
+    private final long targetResultSize;
+
+    private final int maxCaching;
+
+    private final int wideRowCells;
+
+    private final ConcurrentMap<TableName, TableStats> tables = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param targetResultSize 一次RPC期望取回的字节数
+     * @param maxCaching       caching的上限
+     * @param wideRowCells     平均cell数超过这个值的行按这个值分批返回
+     */
+    public ScanTuner(long targetResultSize, int maxCaching, int wideRowCells) {
+        this.targetResultSize = targetResultSize;
+        this.maxCaching = maxCaching;
+        this.wideRowCells = wideRowCells;
+    }
+
+    /**
+     * 声明调用方能处理同一行拆成的多个Result(按Result.mayHaveMoreCellsInRow拼接或逐cell处理)
+     *
+     * @param scan
+     * @return
+     */
+    public static Scan allowPartialRows(Scan scan) {
+        scan.setAttribute(PARTIAL_ROWS, TRUE);
+        return scan;
+    }
+
+    /**
+     * 声明全表扫描也使用block cache,tune不再关闭
+     *
+     * @param scan
+     * @return
+     */
+    public static Scan cacheBlocks(Scan scan) {
+        scan.setCacheBlocks(true);
+        scan.setAttribute(CACHE_BLOCKS, TRUE);
+        return scan;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * scan取回的行能否代表表的行宽:没有limit,没有按qualifier投影,过滤器里没有只返回行键的KeyOnlyFilter/FirstKeyOnlyFilter
+     *
+     * @param scan
+     * @return
+     */
+    public static boolean readsWholeRows(Scan scan) {
+        if (scan.getLimit() > 0) {
+            return false;
+        }
+        for (NavigableSet<byte[]> qualifiers : scan.getFamilyMap().values()) {
+            if (qualifiers != null && !qualifiers.isEmpty()) {
+                return false;
+            }
+        }
+        return !keyOnly(scan.getFilter());
+    }
+
+    private static boolean keyOnly(Filter filter) {
+        if (filter instanceof KeyOnlyFilter || filter instanceof FirstKeyOnlyFilter) {
+            return true;
+        }
+        if (filter instanceof FilterList) {
+            for (Filter child : ((FilterList) filter).getFilters()) {
+                if (keyOnly(child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按表的统计补上scan没有设置的参数
+     *
+     * @param tableName
+     * @param scan
+     * @return 是否按统计设置过参数
+     */
+    public boolean tune(TableName tableName, Scan scan) {
+        if (!scan.isGetScan() && scan.getStartRow().length == 0 && scan.getStopRow().length == 0
+                && scan.getAttribute(CACHE_BLOCKS) == null) {
+            scan.setCacheBlocks(false);
+        }
+        TableStats stats = tables.get(tableName);
+        Settings settings = stats == null ? null : stats.settings;
+        if (settings == null) {
+            return false;
+        }
+        if (scan.getCaching() <= 0) {
+            scan.setCaching(settings.caching);
+        }
+        if (scan.getMaxResultSize() <= 0) {
+            scan.setMaxResultSize(targetResultSize);
+        }
+        if (scan.getAttribute(PARTIAL_ROWS) != null) {
+            if (settings.batch > 0 && scan.getBatch() <= 0 && !scan.hasFilter()) {
+                scan.setBatch(settings.batch);
+            }
+            if (settings.partial) {
+                scan.setAllowPartialResults(true);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * scanner关闭时并入一次扫描的结果
+     *
+     * @param tableName
+     * @param rows        完整的行数
+     * @param cells
+     * @param bytes
+     * @param maxRowBytes 最大一行的字节数
+     * @param rpcCalls    RPC次数,不知道时为-1
+     * @param tuned       这次scan是否按统计设置过参数
+     * @param wholeRows   这次scan是否读整行,见{@link #readsWholeRows(Scan)},否则只记录RPC次数
+     */
+    public void observe(TableName tableName, long rows, long cells, long bytes, long maxRowBytes, long rpcCalls,
+                        boolean tuned, boolean wholeRows) {
+        TableStats stats = tables.get(tableName);
+        if (stats == null) {
+            stats = tables.computeIfAbsent(tableName, TableStats::new);
+        }
+        if (wholeRows && rows > 0) {
+            stats.update((double) bytes / rows, (double) cells / rows, maxRowBytes);
+        }
+        if (rpcCalls >= 0) {
+            stats.roundTrips(registry, tuned, rpcCalls, rows);
+        }
+    }
+
+    /**
+     * 表当前的参数,还没有统计时返回null
+     *
+     * @param tableName
+     * @return
+     */
+    public Settings settings(TableName tableName) {
+        TableStats stats = tables.get(tableName);
+        return stats == null ? null : stats.settings;
+    }
+
+    /**
+     * 按统计计算出的一组参数
+     */
+    public static final class Settings {
+
+        private final int caching;
+
+        private final int batch;
+
+        private final boolean partial;
+
+        private final double rowBytes;
+
+        private final double rowCells;
+
+        Settings(int caching, int batch, boolean partial, double rowBytes, double rowCells) {
+            this.caching = caching;
+            this.batch = batch;
+            this.partial = partial;
+            this.rowBytes = rowBytes;
+            this.rowCells = rowCells;
+        }
+
+        public int getCaching() {
+            return caching;
+        }
+
+        /**
+         * 0表示不分批
+         */
+        public int getBatch() {
+            return batch;
+        }
+
+        /**
+         * 是否允许返回半行
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+
+        public double getRowBytes() {
+            return rowBytes;
+        }
+
+        public double getRowCells() {
+            return rowCells;
+        }
+
+        @Override
+        public String toString() {
+            return "Settings{caching=" + caching + ", batch=" + batch + ", partial=" + partial
+                    + ", rowBytes=" + Math.round(rowBytes) + ", rowCells=" + Math.round(rowCells) + "}";
+        }
+    }
+
+    private final class TableStats {
+
+        private final String table;
+
+        private double rowBytes;
+
+        private double rowCells;
+
+        private double maxRowBytes;
+
+        private volatile Settings settings;
+
+        private volatile boolean registered;
+
+        private DistributionSummary[] roundTrips;
+
+        private DistributionSummary[] rowsPerRpc;
+
+        TableStats(TableName tableName) {
+            this.table = tableName.getNameAsString();
+        }
+
+        synchronized void update(double bytes, double cells, long max) {
+            if (settings == null) {
+                rowBytes = bytes;
+                rowCells = cells;
+                maxRowBytes = max;
+            } else {
+                rowBytes += ALPHA * (bytes - rowBytes);
+                rowCells += ALPHA * (cells - rowCells);
+                maxRowBytes += ALPHA * (max - maxRowBytes);
+            }
+            long caching = (long) Math.ceil(targetResultSize / Math.max(rowBytes, 1));
+            settings = new Settings((int) Math.max(1, Math.min(caching, maxCaching)),
+                    rowCells > wideRowCells ? wideRowCells : 0, maxRowBytes > targetResultSize,
+                    rowBytes, rowCells);
+        }
+
+        void roundTrips(MeterRegistry r, boolean tuned, long rpcCalls, long rows) {
+            if (r == null) {
+                return;
+            }
+            if (!registered) {
+                register(r);
+            }
+            int i = tuned ? 1 : 0;
+            roundTrips[i].record(rpcCalls);
+            if (rpcCalls > 0) {
+                rowsPerRpc[i].record((double) rows / rpcCalls);
+            }
+        }
+
+        private synchronized void register(MeterRegistry r) {
+            if (registered) {
+                return;
+            }
+            roundTrips = new DistributionSummary[2];
+            rowsPerRpc = new DistributionSummary[2];
+            for (int i = 0; i < 2; i++) {
+                String tuned = Boolean.toString(i == 1);
+                roundTrips[i] = DistributionSummary.builder("hbase.client.scan.round.trips")
+                        .tag("table", table).tag("tuned", tuned).register(r);
+                rowsPerRpc[i] = DistributionSummary.builder("hbase.client.scan.rows.per.rpc")
+                        .tag("table", table).tag("tuned", tuned).register(r);
+            }
+            gauge(r, "caching", s -> s.caching);
+            gauge(r, "batch", s -> s.batch);
+            gauge(r, "max_result_size", s -> targetResultSize);
+            gauge(r, "row_bytes", s -> s.rowBytes);
+            gauge(r, "row_cells", s -> s.rowCells);
+            registered = true;
+        }
+
+        private void gauge(MeterRegistry r, String param, ToDoubleFunction<Settings> value) {
+            Gauge.builder("hbase.client.scan.tuning", this,
+                    t -> t.settings == null ? Double.NaN : value.applyAsDouble(t.settings))
+                    .tag("table", table).tag("param", param)
+                    .register(r);
+        }
+    }
+}
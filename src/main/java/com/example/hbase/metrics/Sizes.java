@@ -0,0 +1,81 @@
+package com.example.hbase.metrics;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.ExtendedCell;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Row;
+
+import java.util.List;
+
+/**
+ * 按KeyValue序列化格式估算收发的字节数,只遍历已有的cell,不复制
+ */
+final class Sizes {
+
+    private Sizes() {
+    }
+
+    /**
+     * 客户端的cell都是ExtendedCell,按带tag的KeyValue格式计算;其他实现读不到tag,按不带tag计算
+     */
+    static long of(Cell cell) {
+        if (cell instanceof ExtendedCell) {
+            return ((ExtendedCell) cell).getSerializedSize(true);
+        }
+        return KeyValueUtil.length(cell.getRowLength(), cell.getFamilyLength(), cell.getQualifierLength(),
+                cell.getValueLength(), 0, false);
+    }
+
+    static long of(Result result) {
+        Cell[] cells = result == null ? null : result.rawCells();
+        if (cells == null) {
+            return 0;
+        }
+        long size = 0;
+        for (Cell cell : cells) {
+            size += of(cell);
+        }
+        return size;
+    }
+
+    static long of(Result[] results) {
+        long size = 0;
+        for (Result result : results) {
+            size += of(result);
+        }
+        return size;
+    }
+
+    static long of(Mutation mutation) {
+        long size = 0;
+        for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+            for (int i = 0; i < cells.size(); i++) {
+                size += of(cells.get(i));
+            }
+        }
+        return size;
+    }
+
+    static long ofRows(List<? extends Row> rows) {
+        long size = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            if (row instanceof Mutation) {
+                size += of((Mutation) row);
+            }
+        }
+        return size;
+    }
+
+    static long ofResults(Object[] results) {
+        long size = 0;
+        for (Object result : results) {
+            if (result instanceof Result) {
+                size += of((Result) result);
+            }
+        }
+        return size;
+    }
+}
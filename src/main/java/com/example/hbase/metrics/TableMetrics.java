@@ -0,0 +1,125 @@
+package com.example.hbase.metrics;
+
+import com.example.hbase.metrics.HbaseClientMetrics.Operation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一张表预先注册好的全部指标,按Operation的序号索引
+ */
+final class TableMetrics {
+
+    private final Timer[] latency;
+
+    private final Counter[] errors;
+
+    private final Counter[] rows;
+
+    private final Counter bytesIn;
+
+    private final Counter bytesOut;
+
+    private final Counter rowsScanned;
+
+    private final Counter rowsFiltered;
+
+    private final Counter rpcCalls;
+
+    private final Counter rpcRetries;
+
+    private final Counter remoteRpcCalls;
+
+    private final Counter notServingRegion;
+
+    private final Timer firstRequest;
+
+    private final AtomicBoolean firstPending = new AtomicBoolean(true);
+
+    TableMetrics(MeterRegistry registry, TableName tableName) {
+        String table = tableName.getNameAsString();
+        Operation[] operations = Operation.values();
+        latency = new Timer[operations.length];
+        errors = new Counter[operations.length];
+        rows = new Counter[operations.length];
+        for (Operation operation : operations) {
+            latency[operation.ordinal()] = Timer.builder("hbase.client.operation")
+                    .tag("table", table).tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            errors[operation.ordinal()] = Counter.builder("hbase.client.operation.errors")
+                    .tag("table", table).tag("operation", operation.tag)
+                    .register(registry);
+            rows[operation.ordinal()] = Counter.builder("hbase.client.rows")
+                    .tag("table", table).tag("operation", operation.tag)
+                    .register(registry);
+        }
+        bytesIn = Counter.builder("hbase.client.bytes").tag("table", table).tag("direction", "in")
+                .baseUnit("bytes").register(registry);
+        bytesOut = Counter.builder("hbase.client.bytes").tag("table", table).tag("direction", "out")
+                .baseUnit("bytes").register(registry);
+        rowsScanned = Counter.builder("hbase.client.scan.rows").tag("table", table).tag("result", "scanned")
+                .register(registry);
+        rowsFiltered = Counter.builder("hbase.client.scan.rows").tag("table", table).tag("result", "filtered")
+                .register(registry);
+        rpcCalls = Counter.builder("hbase.client.scan.rpc").tag("table", table).tag("type", "call")
+                .register(registry);
+        rpcRetries = Counter.builder("hbase.client.scan.rpc").tag("table", table).tag("type", "retry")
+                .register(registry);
+        remoteRpcCalls = Counter.builder("hbase.client.scan.rpc").tag("table", table).tag("type", "remote")
+                .register(registry);
+        notServingRegion = Counter.builder("hbase.client.scan.rpc").tag("table", table).tag("type", "nsre")
+                .register(registry);
+        firstRequest = Timer.builder("hbase.client.first.request").tag("table", table).register(registry);
+    }
+
+    /**
+     * 下一次调用重新记为第一次请求,预热完成后调用
+     */
+    void resetFirstRequest() {
+        firstPending.set(true);
+    }
+
+    void success(Operation operation, long startNanos, long rowCount, long in, long out) {
+        record(operation, System.nanoTime() - startNanos);
+        if (rowCount > 0) {
+            rows[operation.ordinal()].increment(rowCount);
+        }
+        if (in > 0) {
+            bytesIn.increment(in);
+        }
+        if (out > 0) {
+            bytesOut.increment(out);
+        }
+    }
+
+    void failure(Operation operation, long startNanos) {
+        record(operation, System.nanoTime() - startNanos);
+        errors[operation.ordinal()].increment();
+    }
+
+    private void record(Operation operation, long nanos) {
+        latency[operation.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        if (firstPending.get() && firstPending.compareAndSet(true, false)) {
+            firstRequest.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * scanner关闭时汇总一次hbase-client自带的ScanMetrics
+     */
+    void scanned(ScanMetrics metrics) {
+        rowsScanned.increment(metrics.countOfRowsScanned.get());
+        rowsFiltered.increment(metrics.countOfRowsFiltered.get());
+        rpcCalls.increment(metrics.countOfRPCcalls.get());
+        rpcRetries.increment(metrics.countOfRPCRetries.get());
+        remoteRpcCalls.increment(metrics.countOfRemoteRPCcalls.get());
+        notServingRegion.increment(metrics.countOfNSRE.get());
+        bytesIn.increment(metrics.countOfBytesInResults.get());
+    }
+}
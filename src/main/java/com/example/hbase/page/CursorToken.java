@@ -0,0 +1,48 @@
+package com.example.hbase.page;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 游标:版本号(1字节) 查询指纹(4字节) 上一页最后一行的行键,整体用URL安全的Base64编码,不带填充
+ * <p>
+ * 指纹用来拒绝拿一个查询的游标去翻另一个查询
+ */
+final class CursorToken {
+
+    private static final byte VERSION = 1;
+
+    private static final int HEADER = 1 + Bytes.SIZEOF_INT;
+
+    private CursorToken() {
+    }
+
+    static String encode(int fingerprint, byte[] lastRow) {
+        byte[] token = new byte[HEADER + lastRow.length];
+        token[0] = VERSION;
+        Bytes.putInt(token, 1, fingerprint);
+        System.arraycopy(lastRow, 0, token, HEADER, lastRow.length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * @return 上一页最后一行的行键
+     */
+    static byte[] decode(String cursor, int fingerprint) {
+        byte[] token;
+        try {
+            token = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        if (token.length <= HEADER || token[0] != VERSION) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (Bytes.toInt(token, 1) != fingerprint) {
+            throw new IllegalArgumentException("Cursor was issued for a different query");
+        }
+        return Arrays.copyOfRange(token, HEADER, token.length);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.hbase.page;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一页查询结果
+ *
+ * @param <T>
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final String cursor;
+
+    Page(List<T> items, String cursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.cursor = cursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * 取下一页时传入的游标
+     *
+     * @return 已经是最后一页时为null
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean hasNext() {
+        return cursor != null;
+    }
+}
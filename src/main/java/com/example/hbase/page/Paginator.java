@@ -0,0 +1,145 @@
+package com.example.hbase.page;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.core.RowMapper;
+import com.example.hbase.query.Query;
+import com.example.hbase.query.QueryPlan;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.ByteArrayHashKey;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Hash;
+import org.apache.hadoop.hbase.util.MurmurHash3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * 按行键翻页,页与页之间不保留服务端scanner
+ * <p>
+ * 每页是一次独立的scan:从上一页最后一行之后开始(withStartRow不包含),setLimit限制行数,
+ * caching等于行数使一次RPC取完,达到limit后region server自行关闭scanner。
+ * 多取一行用来判断是否还有下一页,所以第N页的代价和第1页相同。
+ * 没有用PageFilter:它在每个region上分别计数,还要由客户端截断,setLimit已经覆盖了它的作用
+ */
+public class Paginator {
+
+    private static final Hash HASH = MurmurHash3.getInstance();
+
+    private final HbaseTemplate template;
+
+    private final int maxPageSize;
+
+    /**
+     * @param template
+     * @param maxPageSize 允许的最大页大小
+     */
+    public Paginator(HbaseTemplate template, int maxPageSize) {
+        this.template = template;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * 与{@link HbaseTemplate#find(Query, RowMapper)}一样,只为过滤条件读取的列不会出现在映射的结果中
+     *
+     * @param query
+     * @param pageSize
+     * @param cursor   上一页返回的游标,取第一页时为null
+     * @param mapper
+     * @return
+     */
+    public <T> Page<T> page(Query query, int pageSize, String cursor, RowMapper<T> mapper) {
+        if (query.getLimit() >= 0) {
+            throw new IllegalArgumentException("Paged query must not set a limit");
+        }
+        QueryPlan plan = query.plan();
+        if (plan.isEmpty()) {
+            checkPageSize(pageSize);
+            return new Page<>(new ArrayList<>(), null);
+        }
+        return page(plan.getTableName(), plan.getScan(), pageSize, cursor,
+                (result, rowNum) -> mapper.mapRow(plan.strip(result), rowNum));
+    }
+
+    public <T> Page<T> page(TableName tableName, Scan scan, int pageSize, String cursor, RowMapper<T> mapper) {
+        checkPageSize(pageSize);
+        if (scan.getLimit() > 0) {
+            throw new IllegalArgumentException("Paged scan must not set a limit");
+        }
+        int fingerprint = fingerprint(tableName, scan);
+        Scan pageScan;
+        try {
+            pageScan = new Scan(scan);
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+        if (cursor != null) {
+            pageScan.withStartRow(CursorToken.decode(cursor, fingerprint), false);
+        }
+        pageScan.setLimit(pageSize + 1).setCaching(pageSize + 1);
+        return template.execute(tableName, table -> {
+            List<T> items = new ArrayList<>(pageSize);
+            byte[] lastRow = null;
+            boolean more = false;
+            try (ResultScanner scanner = table.getScanner(pageScan)) {
+                for (Result result : scanner) {
+                    if (items.size() == pageSize) {
+                        more = true;
+                        break;
+                    }
+                    items.add(mapper.mapRow(result, items.size()));
+                    lastRow = result.getRow();
+                }
+            }
+            return new Page<>(items, more ? CursorToken.encode(fingerprint, lastRow) : null);
+        });
+    }
+
+    private void checkPageSize(int pageSize) {
+        if (pageSize <= 0 || pageSize > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize + ": " + pageSize);
+        }
+    }
+
+    /**
+     * 表名、起止行、方向、列投影和过滤器的哈希,不包括caching等不影响结果的参数。
+     * 游标和导出目录的manifest用它确认续传时使用的是同一个查询
+     */
+    public static int fingerprint(TableName tableName, Scan scan) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, tableName.getName());
+        write(out, scan.getStartRow());
+        write(out, scan.getStopRow());
+        out.write((scan.includeStartRow() ? 1 : 0) | (scan.includeStopRow() ? 2 : 0) | (scan.isReversed() ? 4 : 0));
+        for (Map.Entry<byte[], NavigableSet<byte[]>> family : scan.getFamilyMap().entrySet()) {
+            write(out, family.getKey());
+            if (family.getValue() != null) {
+                for (byte[] qualifier : family.getValue()) {
+                    write(out, qualifier);
+                }
+            }
+        }
+        if (scan.getFilter() != null) {
+            try {
+                write(out, Bytes.toBytes(scan.getFilter().getClass().getName()));
+                write(out, scan.getFilter().toByteArray());
+            } catch (IOException e) {
+                throw new HbaseSystemException(e);
+            }
+        }
+        byte[] bytes = out.toByteArray();
+        return HASH.hash(new ByteArrayHashKey(bytes, 0, bytes.length), 0);
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] bytes) {
+        out.write(Bytes.toBytes(bytes.length), 0, Bytes.SIZEOF_INT);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * family或family:qualifier,qualifier为null表示整个列族
+ */
+final class Column {
+
+    final byte[] family;
+
+    final byte[] qualifier;
+
+    private Column(byte[] family, byte[] qualifier) {
+        this.family = family;
+        this.qualifier = qualifier;
+    }
+
+    static Column of(String column) {
+        int colon = column.indexOf(':');
+        if (colon == 0) {
+            throw new IllegalArgumentException("Column must be family or family:qualifier: " + column);
+        }
+        if (colon < 0) {
+            return new Column(Bytes.toBytes(column), null);
+        }
+        return new Column(Bytes.toBytes(column.substring(0, colon)), Bytes.toBytes(column.substring(colon + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return qualifier == null ? Bytes.toString(family) : Bytes.toString(family) + ":" + Bytes.toString(qualifier);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.filter.SubstringComparator;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * 列值条件
+ */
+final class ColumnPredicate extends Predicate {
+
+    final Column column;
+
+    final CompareOperator op;
+
+    final ByteArrayComparable comparator;
+
+    ColumnPredicate(Column column, CompareOperator op, ByteArrayComparable comparator) {
+        if (column.qualifier == null) {
+            throw new IllegalArgumentException("Value condition needs family:qualifier: " + column);
+        }
+        this.column = column;
+        this.op = op;
+        this.comparator = comparator;
+    }
+
+    @Override
+    Filter toFilter() {
+        SingleColumnValueFilter filter = new SingleColumnValueFilter(column.family, column.qualifier, op, comparator);
+        filter.setFilterIfMissing(true);
+        filter.setLatestVersionOnly(true);
+        return filter;
+    }
+
+    @Override
+    public String toString() {
+        String value = "'" + Bytes.toStringBinary(comparator.getValue()) + "'";
+        if (comparator instanceof SubstringComparator) {
+            return column + (op == CompareOperator.EQUAL ? " contains " : " not contains ") + value;
+        }
+        return column + " " + symbol(op) + " " + value;
+    }
+
+    private static String symbol(CompareOperator op) {
+        switch (op) {
+            case LESS:
+                return "<";
+            case LESS_OR_EQUAL:
+                return "<=";
+            case EQUAL:
+                return "=";
+            case NOT_EQUAL:
+                return "!=";
+            case GREATER_OR_EQUAL:
+                return ">=";
+            case GREATER:
+                return ">";
+            default:
+                return op.name();
+        }
+    }
+}
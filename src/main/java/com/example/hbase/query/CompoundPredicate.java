@@ -0,0 +1,55 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * and/or组合,构造时展开同类的嵌套组合
+ */
+final class CompoundPredicate extends Predicate {
+
+    final boolean and;
+
+    final List<Predicate> children = new ArrayList<>();
+
+    CompoundPredicate(boolean and, List<Predicate> children) {
+        if (children.isEmpty()) {
+            throw new IllegalArgumentException((and ? "and" : "or") + " needs at least one predicate");
+        }
+        this.and = and;
+        for (Predicate child : children) {
+            if (child instanceof CompoundPredicate && ((CompoundPredicate) child).and == and) {
+                this.children.addAll(((CompoundPredicate) child).children);
+            } else {
+                this.children.add(child);
+            }
+        }
+    }
+
+    /**
+     * 只有一个条件时直接返回该条件
+     */
+    static Predicate of(boolean and, List<Predicate> children) {
+        return children.size() == 1 ? children.get(0) : new CompoundPredicate(and, children);
+    }
+
+    @Override
+    Filter toFilter() {
+        FilterList filters = new FilterList(and ? FilterList.Operator.MUST_PASS_ALL : FilterList.Operator.MUST_PASS_ONE);
+        for (Predicate child : children) {
+            filters.addFilter(child.toFilter());
+        }
+        return filters;
+    }
+
+    @Override
+    public String toString() {
+        return children.stream()
+                .map(child -> child instanceof CompoundPredicate ? "(" + child + ")" : child.toString())
+                .collect(Collectors.joining(and ? " AND " : " OR "));
+    }
+}
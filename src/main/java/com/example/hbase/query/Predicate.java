@@ -0,0 +1,177 @@
+package com.example.hbase.query;
+
+import com.example.hbase.mapper.CompositeCodec;
+import com.example.hbase.mapper.OrderedValueCodec;
+import com.example.hbase.rowkey.KeyRanges;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.SubstringComparator;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * 查询条件,由行键条件、列值条件和and/or组合而成,交给{@link QueryPlanner}转换成Scan
+ * <p>
+ * 行键条件会下推成Scan的起止行,列值条件保留为服务端过滤器。列值条件只看最新版本,列不存在的行不满足条件。
+ * 列值按字节序比较,数值和时间的大小比较要用{@link OrderedValueCodec}写入并用带codec的方法构造条件
+ */
+public abstract class Predicate {
+
+    Predicate() {
+    }
+
+    public static Predicate all() {
+        return new RowPredicate(RowRanges.ALL);
+    }
+
+    public static Predicate rowEq(byte[] row) {
+        return rowRange(row, true, row, true);
+    }
+
+    public static Predicate rowPrefix(byte[] prefix) {
+        return new RowPredicate(RowRanges.of(KeyRanges.prefix(prefix)));
+    }
+
+    /**
+     * @param start          起始行键,空数组表示不设下界
+     * @param startInclusive
+     * @param stop           结束行键,空数组表示不设上界
+     * @param stopInclusive
+     * @return
+     */
+    public static Predicate rowRange(byte[] start, boolean startInclusive, byte[] stop, boolean stopInclusive) {
+        return new RowPredicate(RowRanges.of(KeyRanges.of(start, startInclusive, stop, stopInclusive)));
+    }
+
+    public static Predicate rowLt(byte[] row) {
+        return rowRange(HConstants.EMPTY_START_ROW, true, row, false);
+    }
+
+    public static Predicate rowLe(byte[] row) {
+        return rowRange(HConstants.EMPTY_START_ROW, true, row, true);
+    }
+
+    public static Predicate rowGt(byte[] row) {
+        return rowRange(row, false, HConstants.EMPTY_END_ROW, false);
+    }
+
+    public static Predicate rowGe(byte[] row) {
+        return rowRange(row, true, HConstants.EMPTY_END_ROW, false);
+    }
+
+    /**
+     * @param column     family:qualifier
+     * @param op
+     * @param comparator
+     * @return
+     */
+    public static Predicate column(String column, CompareOperator op, ByteArrayComparable comparator) {
+        return new ColumnPredicate(Column.of(column), op, comparator);
+    }
+
+    public static Predicate eq(String column, byte[] value) {
+        return column(column, CompareOperator.EQUAL, new BinaryComparator(value));
+    }
+
+    public static Predicate eq(String column, String value) {
+        return eq(column, Bytes.toBytes(value));
+    }
+
+    public static Predicate ne(String column, byte[] value) {
+        return column(column, CompareOperator.NOT_EQUAL, new BinaryComparator(value));
+    }
+
+    public static Predicate lt(String column, byte[] value) {
+        return column(column, CompareOperator.LESS, new BinaryComparator(value));
+    }
+
+    public static Predicate le(String column, byte[] value) {
+        return column(column, CompareOperator.LESS_OR_EQUAL, new BinaryComparator(value));
+    }
+
+    public static Predicate gt(String column, byte[] value) {
+        return column(column, CompareOperator.GREATER, new BinaryComparator(value));
+    }
+
+    public static Predicate ge(String column, byte[] value) {
+        return column(column, CompareOperator.GREATER_OR_EQUAL, new BinaryComparator(value));
+    }
+
+    /**
+     * 按保序编码比较列值,列值需要用同一个编码写入,数值和时间的大小比较完全在服务端完成
+     *
+     * @param column family:qualifier
+     * @param codec
+     * @param op
+     * @param value
+     * @return
+     */
+    public static <T> Predicate column(String column, OrderedValueCodec<T> codec, CompareOperator op, T value) {
+        return column(column, op, new BinaryComparator(codec.encode(value)));
+    }
+
+    public static <T> Predicate eq(String column, OrderedValueCodec<T> codec, T value) {
+        return column(column, codec, CompareOperator.EQUAL, value);
+    }
+
+    public static <T> Predicate lt(String column, OrderedValueCodec<T> codec, T value) {
+        return column(column, codec, CompareOperator.LESS, value);
+    }
+
+    public static <T> Predicate le(String column, OrderedValueCodec<T> codec, T value) {
+        return column(column, codec, CompareOperator.LESS_OR_EQUAL, value);
+    }
+
+    public static <T> Predicate gt(String column, OrderedValueCodec<T> codec, T value) {
+        return column(column, codec, CompareOperator.GREATER, value);
+    }
+
+    public static <T> Predicate ge(String column, OrderedValueCodec<T> codec, T value) {
+        return column(column, codec, CompareOperator.GREATER_OR_EQUAL, value);
+    }
+
+    /**
+     * 列值在[low, high)之间
+     */
+    public static <T> Predicate between(String column, OrderedValueCodec<T> codec, T low, T high) {
+        return and(ge(column, codec, low), lt(column, codec, high));
+    }
+
+    /**
+     * 行键在[low, high)之间,行键需要用同一个保序编码写入,下推成Scan的起止行
+     */
+    public static <T> Predicate rowBetween(OrderedValueCodec<T> codec, T low, T high) {
+        return rowRange(codec.encode(low), true, codec.encode(high), false);
+    }
+
+    /**
+     * 复合行键前几个字段相同的行
+     */
+    public static Predicate rowPrefix(CompositeCodec codec, Object... leading) {
+        return rowPrefix(codec.prefix(leading));
+    }
+
+    /**
+     * 列值包含子串,不区分大小写
+     */
+    public static Predicate contains(String column, String substring) {
+        return column(column, CompareOperator.EQUAL, new SubstringComparator(substring));
+    }
+
+    public static Predicate and(Predicate... predicates) {
+        return new CompoundPredicate(true, Arrays.asList(predicates));
+    }
+
+    public static Predicate or(Predicate... predicates) {
+        return new CompoundPredicate(false, Arrays.asList(predicates));
+    }
+
+    /**
+     * 转换成等价的服务端过滤器
+     */
+    abstract Filter toFilter();
+}
@@ -0,0 +1,469 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ComparatorProtos;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 把整个and/or条件编译成一个过滤器,每行一遍求值,代替嵌套的FilterList+SingleColumnValueFilter
+ * <p>
+ * 条件树展开成数组,引用到的列按family/qualifier排序去重,cell按列顺序到达时二分查找对应的条件,
+ * 只取每列第一个(最新)版本与预先构造好的比较器比较;位于当前cell之前且没有出现的列按缺失处理(条件不成立)。
+ * 每确定一个条件就按三值逻辑重新求值整棵树,结果已经为假时返回NEXT_ROW跳过这一行剩余的cell,已经为真时后续cell直接INCLUDE。
+ * 语义与filterIfMissing、latestVersionOnly的SingleColumnValueFilter组合相同
+ * <p>
+ * 序列化格式:版本号,节点数,按前序排列的节点(类型;and/or为子节点下标;列条件为family、qualifier、比较符和
+ * hbase-client的Comparator protobuf;行键条件为区间列表)。RegionServer需要把本类所在的jar放进classpath才能反序列化
+ */
+public class PredicateFilter extends FilterBase {
+
+    private static final byte VERSION = 1;
+
+    private static final byte AND = 1;
+
+    private static final byte OR = 2;
+
+    private static final byte COLUMN = 3;
+
+    private static final byte ROWS = 4;
+
+    private static final CellComparator ROW_COMPARATOR = CellComparator.getInstance();
+
+    private static final Comparator<byte[][]> COLUMN_ORDER = (a, b) -> {
+        int cmp = Bytes.compareTo(a[0], b[0]);
+        return cmp != 0 ? cmp : Bytes.compareTo(a[1], b[1]);
+    };
+
+    private static final byte UNKNOWN = 0;
+
+    private static final byte TRUE = 1;
+
+    private static final byte FALSE = 2;
+
+    private final byte[] types;
+
+    private final int[][] children;
+
+    private final CompareOperator[] ops;
+
+    private final ByteArrayComparable[] comparators;
+
+    /**
+     * 行键条件的区间,{start, stop},start包含、stop不包含,空数组表示不设界
+     */
+    private final byte[][][][] ranges;
+
+    private final int[] columnOf;
+
+    private final byte[][] families;
+
+    private final byte[][] qualifiers;
+
+    /**
+     * 每列上的条件节点
+     */
+    private final int[][] columnLeaves;
+
+    private final int[] rowLeaves;
+
+    private final byte[] state;
+
+    private final boolean[] seen;
+
+    private int cursor;
+
+    private boolean accepted;
+
+    private boolean excluded;
+
+    private PredicateFilter(List<Node> nodes) {
+        int n = nodes.size();
+        types = new byte[n];
+        children = new int[n][];
+        ops = new CompareOperator[n];
+        comparators = new ByteArrayComparable[n];
+        ranges = new byte[n][][][];
+        columnOf = new int[n];
+        Map<byte[][], List<Integer>> columns = new TreeMap<>(COLUMN_ORDER);
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Node node = nodes.get(i);
+            types[i] = node.type;
+            children[i] = node.children;
+            ops[i] = node.op;
+            comparators[i] = node.comparator;
+            ranges[i] = node.ranges;
+            if (node.type == COLUMN) {
+                columns.computeIfAbsent(new byte[][]{node.family, node.qualifier}, k -> new ArrayList<>()).add(i);
+            } else if (node.type == ROWS) {
+                rows.add(i);
+            }
+        }
+        families = new byte[columns.size()][];
+        qualifiers = new byte[columns.size()][];
+        columnLeaves = new int[columns.size()][];
+        int c = 0;
+        for (Map.Entry<byte[][], List<Integer>> entry : columns.entrySet()) {
+            families[c] = entry.getKey()[0];
+            qualifiers[c] = entry.getKey()[1];
+            columnLeaves[c] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            for (int leaf : columnLeaves[c]) {
+                columnOf[leaf] = c;
+            }
+            c++;
+        }
+        rowLeaves = rows.stream().mapToInt(Integer::intValue).toArray();
+        state = new byte[n];
+        seen = new boolean[columns.size()];
+    }
+
+    /**
+     * 编译查询计划的剩余条件
+     *
+     * @param predicate
+     * @return
+     */
+    static PredicateFilter of(Predicate predicate) {
+        List<Node> nodes = new ArrayList<>();
+        add(nodes, predicate);
+        return new PredicateFilter(nodes);
+    }
+
+    private static int add(List<Node> nodes, Predicate predicate) {
+        int index = nodes.size();
+        Node node = new Node();
+        nodes.add(node);
+        if (predicate instanceof CompoundPredicate) {
+            CompoundPredicate compound = (CompoundPredicate) predicate;
+            node.type = compound.and ? AND : OR;
+            node.children = new int[compound.children.size()];
+            for (int i = 0; i < node.children.length; i++) {
+                node.children[i] = add(nodes, compound.children.get(i));
+            }
+        } else if (predicate instanceof ColumnPredicate) {
+            ColumnPredicate column = (ColumnPredicate) predicate;
+            node.type = COLUMN;
+            node.family = column.column.family;
+            node.qualifier = column.column.qualifier;
+            node.op = column.op;
+            node.comparator = column.comparator;
+        } else {
+            node.type = ROWS;
+            node.ranges = ((RowPredicate) predicate).ranges.getRanges().toArray(new byte[0][][]);
+        }
+        return index;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(state, UNKNOWN);
+        Arrays.fill(seen, false);
+        cursor = 0;
+        accepted = false;
+        excluded = false;
+    }
+
+    @Override
+    public boolean filterRowKey(Cell firstRowCell) {
+        if (rowLeaves.length == 0) {
+            return false;
+        }
+        for (int leaf : rowLeaves) {
+            state[leaf] = inRanges(ranges[leaf], firstRowCell) ? TRUE : FALSE;
+        }
+        decide();
+        return excluded;
+    }
+
+    @Override
+    public ReturnCode filterCell(Cell cell) {
+        if (accepted) {
+            return ReturnCode.INCLUDE;
+        }
+        if (excluded) {
+            return ReturnCode.NEXT_ROW;
+        }
+        int found = search(cell);
+        int position = found >= 0 ? found : -found - 1;
+        boolean changed = false;
+        //排在当前cell之前还没有出现的列已经不会再出现
+        for (; cursor < position; cursor++) {
+            if (!seen[cursor]) {
+                seen[cursor] = true;
+                for (int leaf : columnLeaves[cursor]) {
+                    state[leaf] = FALSE;
+                }
+                changed = true;
+            }
+        }
+        if (found >= 0 && !seen[found]) {
+            seen[found] = true;
+            for (int leaf : columnLeaves[found]) {
+                state[leaf] = matches(ops[leaf], PrivateCellUtil.compareValue(cell, comparators[leaf])) ? TRUE : FALSE;
+            }
+            changed = true;
+        }
+        if (changed) {
+            decide();
+        }
+        return excluded ? ReturnCode.NEXT_ROW : ReturnCode.INCLUDE;
+    }
+
+    @Override
+    public boolean hasFilterRow() {
+        return true;
+    }
+
+    @Override
+    public boolean filterRow() {
+        if (!accepted && !excluded) {
+            for (int leaf = 0; leaf < state.length; leaf++) {
+                if (state[leaf] == UNKNOWN && (types[leaf] == COLUMN || types[leaf] == ROWS)) {
+                    state[leaf] = FALSE;
+                }
+            }
+            excluded = evaluate(0) != TRUE;
+        }
+        return excluded;
+    }
+
+    @Override
+    public boolean isFamilyEssential(byte[] name) {
+        for (byte[] family : families) {
+            if (Bytes.equals(family, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void decide() {
+        byte result = evaluate(0);
+        accepted = result == TRUE;
+        excluded = result == FALSE;
+    }
+
+    /**
+     * 三值逻辑:and中有假为假、全真为真;or中有真为真、全假为假;其余未知
+     */
+    private byte evaluate(int node) {
+        byte type = types[node];
+        if (type == COLUMN || type == ROWS) {
+            return state[node];
+        }
+        boolean and = type == AND;
+        byte result = and ? TRUE : FALSE;
+        for (int child : children[node]) {
+            byte value = evaluate(child);
+            if (value == (and ? FALSE : TRUE)) {
+                return value;
+            }
+            if (value == UNKNOWN) {
+                result = UNKNOWN;
+            }
+        }
+        return result;
+    }
+
+    private int search(Cell cell) {
+        int low = 0;
+        int high = families.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = CellUtil.compareFamilies(cell, families[mid], 0, families[mid].length);
+            if (cmp == 0) {
+                cmp = CellUtil.compareQualifiers(cell, qualifiers[mid], 0, qualifiers[mid].length);
+            }
+            if (cmp > 0) {
+                low = mid + 1;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @param compare 比较器的值与cell值比较的结果,与SingleColumnValueFilter相同
+     */
+    private static boolean matches(CompareOperator op, int compare) {
+        switch (op) {
+            case LESS:
+                return compare > 0;
+            case LESS_OR_EQUAL:
+                return compare >= 0;
+            case EQUAL:
+                return compare == 0;
+            case NOT_EQUAL:
+                return compare != 0;
+            case GREATER_OR_EQUAL:
+                return compare <= 0;
+            case GREATER:
+                return compare < 0;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean inRanges(byte[][][] ranges, Cell cell) {
+        for (byte[][] range : ranges) {
+            if (ROW_COMPARATOR.compareRows(cell, range[0], 0, range[0].length) < 0) {
+                return false;
+            }
+            if (range[1].length == 0 || ROW_COMPARATOR.compareRows(cell, range[1], 0, range[1].length) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeInt(types.length);
+        for (int i = 0; i < types.length; i++) {
+            out.writeByte(types[i]);
+            switch (types[i]) {
+                case AND:
+                case OR:
+                    out.writeInt(children[i].length);
+                    for (int child : children[i]) {
+                        out.writeInt(child);
+                    }
+                    break;
+                case COLUMN:
+                    Bytes.writeByteArray(out, families[columnOf[i]]);
+                    Bytes.writeByteArray(out, qualifiers[columnOf[i]]);
+                    out.writeByte(ops[i].ordinal());
+                    Bytes.writeByteArray(out, ProtobufUtil.toComparator(comparators[i]).toByteArray());
+                    break;
+                default:
+                    out.writeInt(ranges[i].length);
+                    for (byte[][] range : ranges[i]) {
+                        Bytes.writeByteArray(out, range[0]);
+                        Bytes.writeByteArray(out, range[1]);
+                    }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * RegionServer通过反射调用
+     *
+     * @param bytes toByteArray的结果
+     * @return
+     * @throws DeserializationException
+     */
+    public static PredicateFilter parseFrom(byte[] bytes) throws DeserializationException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new DeserializationException("Unsupported PredicateFilter version " + version);
+            }
+            int n = in.readInt();
+            List<Node> nodes = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Node node = new Node();
+                node.type = in.readByte();
+                switch (node.type) {
+                    case AND:
+                    case OR:
+                        node.children = new int[in.readInt()];
+                        for (int c = 0; c < node.children.length; c++) {
+                            node.children[c] = in.readInt();
+                        }
+                        break;
+                    case COLUMN:
+                        node.family = Bytes.readByteArray(in);
+                        node.qualifier = Bytes.readByteArray(in);
+                        node.op = CompareOperator.values()[in.readByte()];
+                        node.comparator = ProtobufUtil.toComparator(
+                                ComparatorProtos.Comparator.parseFrom(Bytes.readByteArray(in)));
+                        break;
+                    case ROWS:
+                        node.ranges = new byte[in.readInt()][][];
+                        for (int r = 0; r < node.ranges.length; r++) {
+                            node.ranges[r] = new byte[][]{Bytes.readByteArray(in), Bytes.readByteArray(in)};
+                        }
+                        break;
+                    default:
+                        throw new DeserializationException("Unknown PredicateFilter node type " + node.type);
+                }
+                nodes.add(node);
+            }
+            return new PredicateFilter(nodes);
+        } catch (IOException | RuntimeException e) {
+            throw new DeserializationException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " " + describe(0);
+    }
+
+    private String describe(int node) {
+        switch (types[node]) {
+            case AND:
+            case OR:
+                StringBuilder sb = new StringBuilder("(");
+                for (int i = 0; i < children[node].length; i++) {
+                    if (i > 0) {
+                        sb.append(types[node] == AND ? " AND " : " OR ");
+                    }
+                    sb.append(describe(children[node][i]));
+                }
+                return sb.append(')').toString();
+            case COLUMN:
+                return Bytes.toStringBinary(families[columnOf[node]]) + ":"
+                        + Bytes.toStringBinary(qualifiers[columnOf[node]]) + " " + ops[node] + " '"
+                        + Bytes.toStringBinary(comparators[node].getValue()) + "'";
+            default:
+                return "row in " + ranges[node].length + " ranges";
+        }
+    }
+
+    private static final class Node {
+
+        byte type;
+
+        int[] children;
+
+        byte[] family;
+
+        byte[] qualifier;
+
+        CompareOperator op;
+
+        ByteArrayComparable comparator;
+
+        byte[][][] ranges;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.TableName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次逻辑查询:表、要返回的列、查询条件和行数上限
+ * <pre>
+ * Query.from("myage")
+ *         .select("mycf:name")
+ *         .where(and(or(eq("mycf:address", "beijing"), eq("mycf:address", "shanghai")), eq("mycf:name", "zhangsan")))
+ *         .explain();
+ * </pre>
+ */
+public class Query {
+
+    private final TableName tableName;
+
+    private final List<String> columns = new ArrayList<>();
+
+    private Predicate where = Predicate.all();
+
+    private int limit = -1;
+
+    private boolean compiled;
+
+    private Query(TableName tableName) {
+        this.tableName = tableName;
+    }
+
+    public static Query from(String tableName) {
+        return new Query(TableName.valueOf(tableName));
+    }
+
+    public static Query from(TableName tableName) {
+        return new Query(tableName);
+    }
+
+    /**
+     * @param columns family或family:qualifier,不调用时返回整行
+     * @return
+     */
+    public Query select(String... columns) {
+        this.columns.addAll(Arrays.asList(columns));
+        return this;
+    }
+
+    public Query where(Predicate where) {
+        this.where = where;
+        return this;
+    }
+
+    public Query limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * 剩余条件编译成一个{@link PredicateFilter},代替嵌套的FilterList,条件多、嵌套深时服务端每行的求值更快。
+     * RegionServer的classpath中需要有本项目的jar
+     *
+     * @return
+     */
+    public Query compiled() {
+        this.compiled = true;
+        return this;
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public Predicate getWhere() {
+        return where;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    public QueryPlan plan() {
+        return QueryPlanner.plan(this);
+    }
+
+    /**
+     * 查询计划的文字描述
+     *
+     * @return
+     */
+    public String explain() {
+        return plan().explain();
+    }
+}
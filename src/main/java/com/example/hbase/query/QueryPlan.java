@@ -0,0 +1,189 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 查询计划:优化后的Scan及其说明
+ */
+public class QueryPlan {
+
+    private final TableName tableName;
+
+    private final Scan scan;
+
+    private final RowRanges ranges;
+
+    private final List<Column> columns;
+
+    private final List<Column> filterColumns;
+
+    private final Predicate filter;
+
+    private final boolean compiled;
+
+    private final int limit;
+
+    QueryPlan(TableName tableName, Scan scan, RowRanges ranges, List<Column> columns, List<Column> filterColumns,
+              Predicate filter, boolean compiled, int limit) {
+        this.tableName = tableName;
+        this.scan = scan;
+        this.ranges = ranges;
+        this.columns = columns;
+        this.filterColumns = filterColumns;
+        this.filter = filter;
+        this.compiled = compiled;
+        this.limit = limit;
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 条件不可能满足时不需要扫描
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return scan == null;
+    }
+
+    /**
+     * 每次返回一个新的Scan
+     *
+     * @return isEmpty()时返回null
+     */
+    public Scan getScan() {
+        if (scan == null) {
+            return null;
+        }
+        try {
+            return new Scan(scan);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 去掉只为过滤而读取的列,只保留select的列
+     *
+     * @param result
+     * @return 没有额外读取的列时返回原Result
+     */
+    public Result strip(Result result) {
+        if (filterColumns.isEmpty() || result.isEmpty()) {
+            return result;
+        }
+        List<Cell> cells = new ArrayList<>(result.size());
+        for (Cell cell : result.rawCells()) {
+            if (!readForFilter(cell)) {
+                cells.add(cell);
+            }
+        }
+        return cells.size() == result.size() ? result : Result.create(cells, result.getExists(), result.isStale(),
+                result.mayHaveMoreCellsInRow());
+    }
+
+    /**
+     * select的列,不含只为过滤而读取的列,格式同Scan.getFamilyMap:值为null表示整个列族
+     *
+     * @return 没有select时为空,表示所有列
+     */
+    public NavigableMap<byte[], NavigableSet<byte[]>> getSelectedColumns() {
+        NavigableMap<byte[], NavigableSet<byte[]>> selected = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        if (scan == null) {
+            return selected;
+        }
+        for (Map.Entry<byte[], NavigableSet<byte[]>> family : scan.getFamilyMap().entrySet()) {
+            if (family.getValue() == null || family.getValue().isEmpty()) {
+                selected.put(family.getKey(), null);
+                continue;
+            }
+            NavigableSet<byte[]> qualifiers = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+            for (byte[] qualifier : family.getValue()) {
+                if (!readForFilter(family.getKey(), qualifier)) {
+                    qualifiers.add(qualifier);
+                }
+            }
+            //只为过滤读取的列族不算选择了这个列族
+            if (!qualifiers.isEmpty()) {
+                selected.put(family.getKey(), qualifiers);
+            }
+        }
+        return selected;
+    }
+
+    private boolean readForFilter(byte[] family, byte[] qualifier) {
+        for (Column column : filterColumns) {
+            if (Bytes.equals(column.family, family) && Bytes.equals(column.qualifier, qualifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean readForFilter(Cell cell) {
+        for (Column column : filterColumns) {
+            if (CellUtil.matchingColumn(cell, column.family, column.qualifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String explain() {
+        StringBuilder sb = new StringBuilder("table:   ").append(tableName.getNameAsString());
+        if (isEmpty()) {
+            return sb.append("\nrows:    none, predicate is unsatisfiable, no scan issued").toString();
+        }
+        sb.append("\nrows:    ");
+        byte[] prefix = ranges.prefix();
+        if (ranges.isAll()) {
+            sb.append("full table scan");
+        } else if (prefix != null) {
+            sb.append(ranges).append(" -> setRowPrefixFilter");
+        } else if (ranges.getRanges().size() == 1) {
+            sb.append(ranges).append(" -> start/stop row");
+        } else {
+            sb.append(ranges).append(" -> start/stop row + MultiRowRangeFilter");
+        }
+        sb.append("\ncolumns: ");
+        if (columns.isEmpty()) {
+            sb.append("all");
+        } else {
+            sb.append(columns.stream().map(Column::toString).collect(Collectors.joining(", ")));
+            if (!filterColumns.isEmpty()) {
+                sb.append(" + ").append(filterColumns.stream().map(Column::toString).collect(Collectors.joining(", ")))
+                        .append(" (read for filter)");
+            }
+        }
+        sb.append("\nfilter:  ").append(filter == null ? "none" : filter.toString());
+        if (compiled) {
+            sb.append(" -> PredicateFilter");
+        }
+        if (limit >= 0) {
+            sb.append("\nlimit:   ").append(limit);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * 把查询条件转换成代价最低的Scan
+ * <p>
+ * 条件被拆成两部分:行键区间和剩余条件,满足条件的行一定在区间内,且区间内的行满足条件当且仅当满足剩余条件。
+ * and取各子条件区间的交集,or取并集;纯行键条件完全由区间表达,不产生过滤器。
+ * 只有一个区间时用起止行或setRowPrefixFilter,多个区间再加MultiRowRangeFilter在区间之间跳跃。
+ * 指定了返回列时只读取这些列,剩余条件用到的列也会加入,否则SingleColumnValueFilter看不到列值。
+ * 查询指定了compiled时剩余条件编译成一个PredicateFilter,MultiRowRangeFilter仍然单独保留用于在区间之间跳跃
+ */
+final class QueryPlanner {
+
+    private QueryPlanner() {
+    }
+
+    static QueryPlan plan(Query query) {
+        Split split = split(query.getWhere());
+        RowRanges ranges = split.ranges;
+        List<Column> columns = new ArrayList<>();
+        for (String column : query.getColumns()) {
+            columns.add(Column.of(column));
+        }
+        if (ranges.isEmpty()) {
+            return new QueryPlan(query.getTableName(), null, ranges, columns, new ArrayList<>(), null, false,
+                    query.getLimit());
+        }
+        Scan scan = new Scan();
+        Predicate filter = split.residual;
+        if (ranges.prefix() != null) {
+            scan.setRowPrefixFilter(ranges.prefix());
+        } else if (!ranges.isAll()) {
+            scan.withStartRow(ranges.start()).withStopRow(ranges.stop());
+            if (ranges.getRanges().size() > 1) {
+                filter = and(new RowPredicate(ranges), filter);
+            }
+        }
+        List<Column> filterColumns = project(scan, columns, split.residual);
+        boolean compiled = query.isCompiled() && split.residual != null;
+        if (compiled) {
+            Filter residual = PredicateFilter.of(split.residual);
+            scan.setFilter(filter == split.residual ? residual
+                    : new FilterList(FilterList.Operator.MUST_PASS_ALL, ranges.toFilter(), residual));
+        } else if (filter != null) {
+            scan.setFilter(filter.toFilter());
+        }
+        if (query.getLimit() >= 0) {
+            scan.setLimit(query.getLimit());
+        }
+        return new QueryPlan(query.getTableName(), scan, ranges, columns, filterColumns, filter, compiled,
+                query.getLimit());
+    }
+
+    /**
+     * 设置Scan的列投影
+     *
+     * @return 为了过滤额外读取的列
+     */
+    private static List<Column> project(Scan scan, List<Column> columns, Predicate residual) {
+        List<Column> filterColumns = new ArrayList<>();
+        if (columns.isEmpty()) {
+            return filterColumns;
+        }
+        //先加整个列族,addColumn会覆盖同一列族上的addFamily
+        for (Column column : columns) {
+            if (column.qualifier == null) {
+                scan.addFamily(column.family);
+            }
+        }
+        for (Column column : columns) {
+            if (column.qualifier != null && !selected(scan, column)) {
+                scan.addColumn(column.family, column.qualifier);
+            }
+        }
+        List<Column> referenced = new ArrayList<>();
+        collectColumns(residual, referenced);
+        for (Column column : referenced) {
+            if (!selected(scan, column)) {
+                scan.addColumn(column.family, column.qualifier);
+                filterColumns.add(column);
+            }
+        }
+        return filterColumns;
+    }
+
+    private static boolean selected(Scan scan, Column column) {
+        if (!scan.getFamilyMap().containsKey(column.family)) {
+            return false;
+        }
+        NavigableSet<byte[]> qualifiers = scan.getFamilyMap().get(column.family);
+        return qualifiers == null || qualifiers.contains(column.qualifier);
+    }
+
+    private static void collectColumns(Predicate predicate, List<Column> columns) {
+        if (predicate instanceof ColumnPredicate) {
+            columns.add(((ColumnPredicate) predicate).column);
+        } else if (predicate instanceof CompoundPredicate) {
+            for (Predicate child : ((CompoundPredicate) predicate).children) {
+                collectColumns(child, columns);
+            }
+        }
+    }
+
+    static Split split(Predicate predicate) {
+        if (predicate instanceof RowPredicate) {
+            return new Split(((RowPredicate) predicate).ranges, null);
+        }
+        if (predicate instanceof ColumnPredicate) {
+            return new Split(RowRanges.ALL, predicate);
+        }
+        CompoundPredicate compound = (CompoundPredicate) predicate;
+        return compound.and ? splitAnd(compound.children) : splitOr(compound.children);
+    }
+
+    private static Split splitAnd(List<Predicate> children) {
+        RowRanges ranges = RowRanges.ALL;
+        List<Predicate> residuals = new ArrayList<>();
+        for (Predicate child : children) {
+            Split split = split(child);
+            ranges = ranges.intersect(split.ranges);
+            if (ranges.isEmpty()) {
+                return new Split(RowRanges.NONE, null);
+            }
+            if (split.residual != null) {
+                residuals.add(split.residual);
+            }
+        }
+        return new Split(ranges, residuals.isEmpty() ? null : CompoundPredicate.of(true, residuals));
+    }
+
+    /**
+     * 区间取并集;只要有一个分支带剩余条件,剩余条件就是各分支"区间 and 剩余条件"的or
+     */
+    private static Split splitOr(List<Predicate> children) {
+        RowRanges ranges = RowRanges.NONE;
+        List<Split> branches = new ArrayList<>();
+        boolean exact = true;
+        for (Predicate child : children) {
+            Split split = split(child);
+            if (split.ranges.isEmpty()) {
+                continue;
+            }
+            if (split.ranges.isAll() && split.residual == null) {
+                return new Split(RowRanges.ALL, null);
+            }
+            ranges = ranges.union(split.ranges);
+            branches.add(split);
+            exact &= split.residual == null;
+        }
+        if (exact) {
+            return new Split(ranges, null);
+        }
+        List<Predicate> residuals = new ArrayList<>();
+        for (Split branch : branches) {
+            Predicate rows = branch.ranges.isAll() ? null : new RowPredicate(branch.ranges);
+            residuals.add(and(rows, branch.residual));
+        }
+        return new Split(ranges, CompoundPredicate.of(false, residuals));
+    }
+
+    private static Predicate and(Predicate a, Predicate b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        List<Predicate> both = new ArrayList<>();
+        both.add(a);
+        both.add(b);
+        return new CompoundPredicate(true, both);
+    }
+
+    static final class Split {
+
+        final RowRanges ranges;
+
+        /**
+         * 为null表示区间内所有行都满足条件
+         */
+        final Predicate residual;
+
+        Split(RowRanges ranges, Predicate residual) {
+            this.ranges = ranges;
+            this.residual = residual;
+        }
+    }
+}
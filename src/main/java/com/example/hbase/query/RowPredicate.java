@@ -0,0 +1,25 @@
+package com.example.hbase.query;
+
+import org.apache.hadoop.hbase.filter.Filter;
+
+/**
+ * 行键落在一组区间内
+ */
+final class RowPredicate extends Predicate {
+
+    final RowRanges ranges;
+
+    RowPredicate(RowRanges ranges) {
+        this.ranges = ranges;
+    }
+
+    @Override
+    Filter toFilter() {
+        return ranges.toFilter();
+    }
+
+    @Override
+    public String toString() {
+        return ranges.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.hbase.query;
+
+import com.example.hbase.rowkey.KeyRanges;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 按start排序、互不相交的一组行键区间,每个区间为{start, stop},start包含、stop不包含,空数组表示不设界
+ */
+final class RowRanges {
+
+    static final RowRanges ALL = new RowRanges(Collections.singletonList(
+            new byte[][]{HConstants.EMPTY_START_ROW, HConstants.EMPTY_END_ROW}));
+
+    static final RowRanges NONE = new RowRanges(Collections.emptyList());
+
+    private final List<byte[][]> ranges;
+
+    private RowRanges(List<byte[][]> ranges) {
+        this.ranges = ranges;
+    }
+
+    static RowRanges of(byte[][] range) {
+        if (range[1].length > 0 && Bytes.compareTo(range[0], range[1]) >= 0) {
+            return NONE;
+        }
+        return new RowRanges(Collections.singletonList(range));
+    }
+
+    List<byte[][]> getRanges() {
+        return ranges;
+    }
+
+    boolean isAll() {
+        return ranges.size() == 1 && ranges.get(0)[0].length == 0 && ranges.get(0)[1].length == 0;
+    }
+
+    boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    byte[] start() {
+        return ranges.get(0)[0];
+    }
+
+    byte[] stop() {
+        return ranges.get(ranges.size() - 1)[1];
+    }
+
+    /**
+     * 只有一个区间且恰好是某个前缀的全部行键时返回该前缀,否则返回null
+     */
+    byte[] prefix() {
+        if (ranges.size() != 1 || start().length == 0) {
+            return null;
+        }
+        byte[] successor = KeyRanges.successor(start());
+        return Bytes.equals(stop(), successor == null ? HConstants.EMPTY_END_ROW : successor) ? start() : null;
+    }
+
+    RowRanges union(RowRanges other) {
+        List<byte[][]> all = new ArrayList<>(ranges);
+        all.addAll(other.ranges);
+        return normalize(all);
+    }
+
+    RowRanges intersect(RowRanges other) {
+        List<byte[][]> result = new ArrayList<>();
+        for (byte[][] a : ranges) {
+            for (byte[][] b : other.ranges) {
+                byte[][] range = KeyRanges.intersect(a, b);
+                if (range != null) {
+                    result.add(range);
+                }
+            }
+        }
+        return normalize(result);
+    }
+
+    MultiRowRangeFilter toFilter() {
+        List<RowRange> rowRanges = new ArrayList<>(ranges.size());
+        for (byte[][] range : ranges) {
+            rowRanges.add(new RowRange(range[0], true, range[1], false));
+        }
+        return new MultiRowRangeFilter(rowRanges);
+    }
+
+    /**
+     * 排序并合并重叠或相邻的区间
+     */
+    private static RowRanges normalize(List<byte[][]> ranges) {
+        if (ranges.isEmpty()) {
+            return NONE;
+        }
+        ranges.sort((a, b) -> Bytes.compareTo(a[0], b[0]));
+        List<byte[][]> merged = new ArrayList<>();
+        byte[][] current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            byte[][] next = ranges.get(i);
+            if (current[1].length == 0) {
+                break;
+            }
+            if (Bytes.compareTo(next[0], current[1]) <= 0) {
+                if (next[1].length == 0 || Bytes.compareTo(next[1], current[1]) > 0) {
+                    current = new byte[][]{current[0], next[1]};
+                }
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return new RowRanges(merged);
+    }
+
+    @Override
+    public String toString() {
+        if (isAll()) {
+            return "all rows";
+        }
+        byte[] prefix = prefix();
+        if (prefix != null) {
+            return "row prefix '" + Bytes.toStringBinary(prefix) + "'";
+        }
+        return "row in " + ranges.stream()
+                .map(range -> "['" + Bytes.toStringBinary(range[0]) + "', "
+                        + (range[1].length == 0 ? "end" : "'" + Bytes.toStringBinary(range[1]) + "'") + ")")
+                .collect(Collectors.joining(", "));
+    }
+}
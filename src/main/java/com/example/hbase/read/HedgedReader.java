@@ -0,0 +1,323 @@
+package com.example.hbase.read;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.core.RowMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Consistency;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 按表或按调用选择一致性模式的点查,用region副本压低长尾延迟
+ * <p>
+ * HEDGED模式在线程池上读主region,等待时间为最近主region延迟的百分位(限制在minDelay和maxDelay之间),
+ * 超时后以TIMELINE向一个副本发出同样的Get,返回先成功的结果,副本返回的结果isStale()为true。
+ * 主region的延迟不论对冲胜负都计入窗口,避免只统计快请求把等待时间越压越短。
+ * 副本数在第一次读取时从表描述读取,只有一个副本的表退化为STRONG
+ * <ul>
+ * <li>hbase.client.read: 读取耗时直方图,标签table/mode/hedged,hedged=true为实际发出过对冲请求</li>
+ * <li>hbase.client.read.stale: 返回副本结果的次数</li>
+ * <li>hbase.client.read.hedges: 对冲请求数,标签winner=primary/replica</li>
+ * </ul>
+ */
+public class HedgedReader implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedReader.class);
+
+    private final HbaseTemplate template;
+
+    private final ExecutorService pool;
+
+    private final ReadMode defaultMode;
+
+    private final Map<TableName, ReadMode> modes;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final int windowSize;
+
+    private final ConcurrentMap<TableName, TableReads> tables = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param template
+     * @param pool        执行主region和副本请求的线程池,请求会阻塞线程;应当专用且不排队,
+     *                    任务在队列里等待的时间会被当作主region的延迟触发对冲
+     * @param defaultMode 没有单独配置的表使用的模式
+     * @param modes       单独配置的表
+     * @param percentile  对冲等待时间取主region延迟的百分位,0到1之间
+     * @param minDelay
+     * @param maxDelay    还没有足够样本时使用
+     * @param windowSize  每个延迟窗口的样本数
+     */
+    public HedgedReader(HbaseTemplate template, ExecutorService pool, ReadMode defaultMode,
+                        Map<TableName, ReadMode> modes, double percentile, Duration minDelay, Duration maxDelay,
+                        int windowSize) {
+        this.template = template;
+        this.pool = pool;
+        this.defaultMode = defaultMode;
+        this.modes = new HashMap<>(modes);
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public ReadMode modeOf(TableName tableName) {
+        return modes.getOrDefault(tableName, defaultMode);
+    }
+
+    /**
+     * 当前的对冲等待时间
+     *
+     * @param tableName
+     * @return
+     */
+    public Duration hedgeDelay(TableName tableName) {
+        return Duration.ofNanos(reads(tableName).delayNanos());
+    }
+
+    public <T> T get(String tableName, String rowKey, RowMapper<T> mapper) {
+        Result result = get(TableName.valueOf(tableName), new Get(Bytes.toBytes(rowKey)));
+        if (result.isEmpty()) {
+            return null;
+        }
+        try {
+            return mapper.mapRow(result, 0);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new HbaseSystemException(e);
+        }
+    }
+
+    /**
+     * 按表配置的模式读取
+     *
+     * @param tableName
+     * @param get
+     * @return
+     */
+    public Result get(TableName tableName, Get get) {
+        return get(tableName, get, modeOf(tableName));
+    }
+
+    /**
+     * 按指定的模式读取
+     *
+     * @param tableName
+     * @param get
+     * @param mode
+     * @return
+     */
+    public Result get(TableName tableName, Get get, ReadMode mode) {
+        TableReads reads = reads(tableName);
+        long start = System.nanoTime();
+        boolean hedged = false;
+        Result result;
+        switch (mode) {
+            case TIMELINE:
+                Get timelineGet = new Get(get).setConsistency(Consistency.TIMELINE);
+                result = template.execute(tableName, table -> table.get(timelineGet));
+                break;
+            case HEDGED:
+                if (reads.replicas() > 1) {
+                    CompletableFuture<Result> primary = CompletableFuture.supplyAsync(() -> primary(reads, get), pool);
+                    result = await(primary, reads.delayNanos());
+                    if (result == null) {
+                        hedged = true;
+                        Get replicaGet = new Get(get).setConsistency(Consistency.TIMELINE);
+                        replicaGet.setReplicaId(reads.nextReplica());
+                        CompletableFuture<Result> replica = CompletableFuture.supplyAsync(
+                                () -> template.execute(tableName, table -> table.get(replicaGet)), pool);
+                        result = await(firstSuccess(primary, replica), -1);
+                    }
+                    break;
+                }
+                //没有副本时与STRONG相同
+            default:
+                result = primary(reads, get);
+        }
+        reads.record(registry, mode, hedged, System.nanoTime() - start, result);
+        return result;
+    }
+
+    private Result primary(TableReads reads, Get get) {
+        long start = System.nanoTime();
+        Result result = template.execute(reads.tableName, table -> table.get(get));
+        reads.window.record(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * @param timeoutNanos 小于0时一直等待
+     * @return 超时返回null
+     */
+    private static Result await(CompletableFuture<Result> future, long timeoutNanos) {
+        try {
+            return timeoutNanos < 0 ? future.get() : future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HbaseSystemException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new HbaseSystemException(cause);
+        }
+    }
+
+    /**
+     * 先成功的结果;两个都失败时以后失败的异常结束
+     */
+    private static CompletableFuture<Result> firstSuccess(CompletableFuture<Result> a, CompletableFuture<Result> b) {
+        CompletableFuture<Result> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<Result, Throwable> action = (result, e) -> {
+            if (e == null) {
+                first.complete(result);
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(e);
+            }
+        };
+        a.whenComplete(action);
+        b.whenComplete(action);
+        return first;
+    }
+
+    private TableReads reads(TableName tableName) {
+        TableReads reads = tables.get(tableName);
+        return reads != null ? reads : tables.computeIfAbsent(tableName, TableReads::new);
+    }
+
+    private int regionReplication(TableName tableName) {
+        try (Admin admin = template.getConnection().getAdmin()) {
+            return admin.getDescriptor(tableName).getRegionReplication();
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to read region replication of " + tableName, e);
+        }
+    }
+
+    private final class TableReads {
+
+        private final TableName tableName;
+
+        private final LatencyWindow window = new LatencyWindow(windowSize, percentile);
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private volatile int replicas;
+
+        private volatile Timer[] timers;
+
+        private Counter stale;
+
+        private Counter primaryWins;
+
+        private Counter replicaWins;
+
+        TableReads(TableName tableName) {
+            this.tableName = tableName;
+        }
+
+        int replicas() {
+            int r = replicas;
+            if (r == 0) {
+                r = regionReplication(tableName);
+                if (r <= 1) {
+                    log.warn("Table {} has no region replicas, hedged reads fall back to the primary", tableName);
+                }
+                replicas = r;
+            }
+            return r;
+        }
+
+        /**
+         * 副本编号从1开始,轮流使用
+         */
+        int nextReplica() {
+            return 1 + Math.floorMod(next.getAndIncrement(), replicas - 1);
+        }
+
+        long delayNanos() {
+            long p = window.percentileNanos();
+            return p < 0 ? maxDelayNanos : Math.max(minDelayNanos, Math.min(p, maxDelayNanos));
+        }
+
+        void record(MeterRegistry r, ReadMode mode, boolean hedged, long nanos, Result result) {
+            if (r == null) {
+                return;
+            }
+            if (timers == null) {
+                register(r);
+            }
+            timers[mode.ordinal() * 2 + (hedged ? 1 : 0)].record(nanos, TimeUnit.NANOSECONDS);
+            if (result.isStale()) {
+                stale.increment();
+            }
+            if (hedged) {
+                (result.isStale() ? replicaWins : primaryWins).increment();
+            }
+        }
+
+        private synchronized void register(MeterRegistry r) {
+            if (timers != null) {
+                return;
+            }
+            String table = tableName.getNameAsString();
+            Timer[] registered = new Timer[ReadMode.values().length * 2];
+            for (ReadMode mode : ReadMode.values()) {
+                for (int hedged = 0; hedged < 2; hedged++) {
+                    registered[mode.ordinal() * 2 + hedged] = Timer.builder("hbase.client.read")
+                            .tag("table", table).tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                            .tag("hedged", Boolean.toString(hedged == 1))
+                            .publishPercentileHistogram()
+                            .register(r);
+                }
+            }
+            stale = Counter.builder("hbase.client.read.stale").tag("table", table).register(r);
+            primaryWins = Counter.builder("hbase.client.read.hedges").tag("table", table).tag("winner", "primary")
+                    .register(r);
+            replicaWins = Counter.builder("hbase.client.read.hedges").tag("table", table).tag("winner", "replica")
+                    .register(r);
+            timers = registered;
+        }
+    }
+}
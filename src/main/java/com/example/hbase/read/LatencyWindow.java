@@ -0,0 +1,90 @@
+package com.example.hbase.read;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近一段时间的延迟分布,用来估算对冲请求的等待时间
+ * <p>
+ * 按微秒的对数分桶,每个2的幂再分4个子桶,相对误差在20%以内;record只做一次原子累加。
+ * 每记录windowSize次轮换一次窗口,百分位按上一个完整窗口计算并缓存,读取不遍历分桶。
+ * 轮换与并发的record之间不加锁,轮换瞬间少量样本可能落进旧窗口,对估算没有影响
+ */
+final class LatencyWindow {
+
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final int windowSize;
+
+    private final double percentile;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+
+    private volatile long percentileNanos = -1;
+
+    /**
+     * @param windowSize 每个窗口的样本数
+     * @param percentile 0到1之间
+     */
+    LatencyWindow(int windowSize, double percentile) {
+        this.windowSize = windowSize;
+        this.percentile = percentile;
+    }
+
+    void record(long nanos) {
+        current.incrementAndGet(bucket(nanos / 1000));
+        if (count.incrementAndGet() % windowSize == 0) {
+            rotate();
+        }
+    }
+
+    /**
+     * 上一个完整窗口的百分位,还没有完整窗口时返回-1
+     */
+    long percentileNanos() {
+        return percentileNanos;
+    }
+
+    private synchronized void rotate() {
+        AtomicLongArray full = current;
+        current = new AtomicLongArray(BUCKETS);
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += full.get(i);
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += full.get(i);
+            if (seen >= rank) {
+                percentileNanos = upperBoundMicros(i) * 1000;
+                return;
+            }
+        }
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    /**
+     * 桶内最大的微秒数
+     */
+    static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.hbase.read;
+
+/**
+ * 点查的一致性模式
+ */
+public enum ReadMode {
+
+    /**
+     * 只读主region
+     */
+    STRONG,
+
+    /**
+     * Consistency.TIMELINE,主region在hbase.client.primaryCallTimeout.get内没有返回时由hbase-client并发读取副本
+     */
+    TIMELINE,
+
+    /**
+     * 先读主region,超过最近主region延迟的百分位还没有返回时向一个副本发出对冲请求,取先成功的结果
+     */
+    HEDGED
+}
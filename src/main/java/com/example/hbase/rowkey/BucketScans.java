@@ -0,0 +1,139 @@
+package com.example.hbase.rowkey;
+
+import com.example.hbase.core.HbaseSystemException;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FuzzyRowFilter;
+import org.apache.hadoop.hbase.filter.InclusiveStopFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.filter.RowFilter;
+import org.apache.hadoop.hbase.filter.SkipFilter;
+import org.apache.hadoop.hbase.filter.WhileMatchFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 把按逻辑行键写的Scan改写成每个桶一个子scan
+ * <p>
+ * 逻辑区间来自startRow/stopRow、顶层的PrefixFilter或顶层的MultiRowRangeFilter,这两种过滤器会被改写成区间后去掉;
+ * 同一个桶里有多个区间时用MultiRowRangeFilter在服务端跳过区间之间的行。
+ * 其他位置的行键过滤器看到的是带前缀的存储行键,结果不可预期,直接拒绝
+ */
+final class BucketScans {
+
+    private BucketScans() {
+    }
+
+    static List<Scan> expand(Scan scan, RowKeyCodec codec) {
+        if (scan.isReversed()) {
+            throw new IllegalArgumentException("Reversed scans cannot be merged across buckets");
+        }
+        byte[][] bounds = KeyRanges.of(scan.getStartRow(), scan.includeStartRow(), scan.getStopRow(),
+                scan.includeStopRow());
+        Filter filter = scan.getFilter();
+        List<byte[][]> ranges = new ArrayList<>();
+        if (filter instanceof PrefixFilter) {
+            addIntersection(ranges, KeyRanges.prefix(((PrefixFilter) filter).getPrefix()), bounds);
+            filter = null;
+        } else if (filter instanceof MultiRowRangeFilter) {
+            for (RowRange range : ((MultiRowRangeFilter) filter).getRowRanges()) {
+                addIntersection(ranges, KeyRanges.of(range.getStartRow(), range.isStartRowInclusive(),
+                        range.getStopRow(), range.isStopRowInclusive()), bounds);
+            }
+            filter = null;
+        } else {
+            checkRowKeyFilters(filter);
+            ranges.add(bounds);
+        }
+
+        Map<byte[], List<byte[][]>> buckets = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        for (byte[][] range : ranges) {
+            for (byte[] prefix : codec.prefixes(range[0], range[1])) {
+                buckets.computeIfAbsent(prefix, p -> new ArrayList<>()).add(physical(prefix, range));
+            }
+        }
+        List<Scan> subScans = new ArrayList<>(buckets.size());
+        for (List<byte[][]> physicalRanges : buckets.values()) {
+            subScans.add(subScan(scan, filter, physicalRanges));
+        }
+        return subScans;
+    }
+
+    private static void addIntersection(List<byte[][]> ranges, byte[][] range, byte[][] bounds) {
+        byte[][] clipped = KeyRanges.intersect(range, bounds);
+        if (clipped != null) {
+            ranges.add(clipped);
+        }
+    }
+
+    private static byte[][] physical(byte[] prefix, byte[][] range) {
+        byte[] start = Bytes.add(prefix, range[0]);
+        byte[] stop;
+        if (range[1].length > 0) {
+            stop = Bytes.add(prefix, range[1]);
+        } else {
+            byte[] next = KeyRanges.successor(prefix);
+            stop = next == null ? HConstants.EMPTY_END_ROW : next;
+        }
+        return new byte[][]{start, stop};
+    }
+
+    private static Scan subScan(Scan scan, Filter filter, List<byte[][]> ranges) {
+        Scan subScan;
+        try {
+            subScan = new Scan(scan);
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+        byte[] start;
+        byte[] stop;
+        if (ranges.size() == 1) {
+            start = ranges.get(0)[0];
+            stop = ranges.get(0)[1];
+        } else {
+            List<RowRange> rowRanges = new ArrayList<>(ranges.size());
+            for (byte[][] range : ranges) {
+                rowRanges.add(new RowRange(range[0], true, range[1], false));
+            }
+            //sortAndMerge会合并重叠区间,合并后首尾即子scan的边界
+            List<RowRange> merged = MultiRowRangeFilter.sortAndMerge(rowRanges);
+            start = merged.get(0).getStartRow();
+            stop = merged.get(merged.size() - 1).getStopRow();
+            Filter ranged = new MultiRowRangeFilter(merged);
+            filter = filter == null ? ranged : new FilterList(FilterList.Operator.MUST_PASS_ALL, ranged, filter);
+        }
+        subScan.setFilter(filter);
+        subScan.withStartRow(start, true);
+        subScan.withStopRow(stop, false);
+        return subScan;
+    }
+
+    private static void checkRowKeyFilters(Filter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (filter instanceof PrefixFilter || filter instanceof MultiRowRangeFilter || filter instanceof RowFilter
+                || filter instanceof FuzzyRowFilter || filter instanceof InclusiveStopFilter) {
+            throw new IllegalArgumentException(filter.getClass().getSimpleName()
+                    + " would see salted row keys, only a top-level PrefixFilter or MultiRowRangeFilter is supported");
+        }
+        if (filter instanceof FilterList) {
+            for (Filter nested : ((FilterList) filter).getFilters()) {
+                checkRowKeyFilters(nested);
+            }
+        } else if (filter instanceof WhileMatchFilter) {
+            checkRowKeyFilters(((WhileMatchFilter) filter).getFilter());
+        } else if (filter instanceof SkipFilter) {
+            checkRowKeyFilters(((SkipFilter) filter).getFilter());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.hbase.rowkey;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按逻辑行键的前hashedLength个字节(如用户id)分桶,同一个前缀的行落在同一个桶内并保持连续
+ * <p>
+ * 查询范围不超出一个前缀时只扫描一个桶,例如按用户id前缀查某个用户的所有记录;跨前缀的范围仍要扫描全部桶。
+ * 与{@link ReverseTimestamp}组合使用可以得到"按实体打散、实体内最新的在前"的行键
+ */
+public class HashPrefixRowKeyCodec extends SaltedRowKeyCodec {
+
+    private final int hashedLength;
+
+    /**
+     * @param hashedLength 参与计算桶号的逻辑行键前缀长度
+     * @param buckets      桶数
+     */
+    public HashPrefixRowKeyCodec(int hashedLength, int buckets) {
+        super(buckets);
+        if (hashedLength < 1) {
+            throw new IllegalArgumentException("Hashed length must be positive: " + hashedLength);
+        }
+        this.hashedLength = hashedLength;
+    }
+
+    public int getHashedLength() {
+        return hashedLength;
+    }
+
+    @Override
+    protected int bucket(byte[] key) {
+        return bucket(key, Math.min(hashedLength, key.length));
+    }
+
+    @Override
+    public List<byte[]> prefixes(byte[] start, byte[] stop) {
+        if (start.length >= hashedLength) {
+            //前缀的后继为null说明前缀全是0xFF,之后的行键都以它开头
+            byte[] groupEnd = KeyRanges.successor(Arrays.copyOf(start, hashedLength));
+            if (groupEnd == null || (stop.length > 0 && Bytes.compareTo(stop, groupEnd) <= 0)) {
+                return Collections.singletonList(new byte[]{(byte) bucket(start)});
+            }
+        }
+        return super.prefixes(start, stop);
+    }
+}
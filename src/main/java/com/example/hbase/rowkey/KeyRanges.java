@@ -0,0 +1,63 @@
+package com.example.hbase.rowkey;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * 行键区间工具,区间统一表示为{start, stop},start包含、stop不包含,空数组表示不设界
+ */
+public final class KeyRanges {
+
+    private KeyRanges() {
+    }
+
+    /**
+     * 以prefix开头的所有行键之后的第一个行键,prefix全是0xFF时返回null
+     */
+    public static byte[] successor(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] next = Arrays.copyOf(prefix, i + 1);
+                next[i]++;
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把带包含标志的区间转换成[start, stop)
+     */
+    public static byte[][] of(byte[] start, boolean startInclusive, byte[] stop, boolean stopInclusive) {
+        //紧跟在key之后的行键是key + 0x00
+        byte[] from = startInclusive || start.length == 0 ? start : Arrays.copyOf(start, start.length + 1);
+        byte[] to = stopInclusive && stop.length > 0 ? Arrays.copyOf(stop, stop.length + 1) : stop;
+        return new byte[][]{from, to};
+    }
+
+    public static byte[][] prefix(byte[] prefix) {
+        byte[] stop = successor(prefix);
+        return new byte[][]{prefix, stop == null ? HConstants.EMPTY_END_ROW : stop};
+    }
+
+    /**
+     * 两个区间的交集,为空时返回null
+     */
+    public static byte[][] intersect(byte[][] a, byte[][] b) {
+        byte[] start = Bytes.compareTo(a[0], b[0]) >= 0 ? a[0] : b[0];
+        byte[] stop;
+        if (a[1].length == 0) {
+            stop = b[1];
+        } else if (b[1].length == 0) {
+            stop = a[1];
+        } else {
+            stop = Bytes.compareTo(a[1], b[1]) <= 0 ? a[1] : b[1];
+        }
+        if (stop.length > 0 && Bytes.compareTo(start, stop) >= 0) {
+            return null;
+        }
+        return new byte[][]{start, stop};
+    }
+}
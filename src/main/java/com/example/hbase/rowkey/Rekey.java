@@ -0,0 +1,116 @@
+package com.example.hbase.rowkey;
+
+import com.example.hbase.core.HbaseSystemException;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.OperationWithAttributes;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.TimeRange;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * 把Get/Put/Delete/Result换成另一个行键,其余内容保持不变
+ * <p>
+ * 这些对象的行键不可修改,cell里也带着行键,只能逐个cell重建
+ */
+final class Rekey {
+
+    private Rekey() {
+    }
+
+    static Put put(Put put, byte[] row) throws IOException {
+        Put target = new Put(row, put.getTimestamp());
+        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                target.add(cell(cell, row));
+            }
+        }
+        copyMutation(put, target);
+        return target;
+    }
+
+    static Delete delete(Delete delete, byte[] row) throws IOException {
+        Delete target = new Delete(row, delete.getTimestamp());
+        for (List<Cell> cells : delete.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                target.add(cell(cell, row));
+            }
+        }
+        copyMutation(delete, target);
+        return target;
+    }
+
+    static Get get(Get get, byte[] row) {
+        Get target = new Get(row);
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry : get.getFamilyMap().entrySet()) {
+            if (entry.getValue() == null) {
+                target.addFamily(entry.getKey());
+            } else {
+                for (byte[] qualifier : entry.getValue()) {
+                    target.addColumn(entry.getKey(), qualifier);
+                }
+            }
+        }
+        try {
+            TimeRange timeRange = get.getTimeRange();
+            target.setTimeRange(timeRange.getMin(), timeRange.getMax());
+            target.readVersions(get.getMaxVersions());
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+        for (Map.Entry<byte[], TimeRange> entry : get.getColumnFamilyTimeRange().entrySet()) {
+            target.setColumnFamilyTimeRange(entry.getKey(), entry.getValue().getMin(), entry.getValue().getMax());
+        }
+        target.setFilter(get.getFilter())
+                .setCacheBlocks(get.getCacheBlocks())
+                .setCheckExistenceOnly(get.isCheckExistenceOnly())
+                .setMaxResultsPerColumnFamily(get.getMaxResultsPerColumnFamily())
+                .setRowOffsetPerColumnFamily(get.getRowOffsetPerColumnFamily())
+                .setConsistency(get.getConsistency())
+                .setReplicaId(get.getReplicaId())
+                .setIsolationLevel(get.getIsolationLevel())
+                .setPriority(get.getPriority());
+        copyAttributes(get, target);
+        return target;
+    }
+
+    static Result result(Result result, byte[] row) {
+        Cell[] cells = result.rawCells();
+        if (cells == null || cells.length == 0) {
+            return result;
+        }
+        Cell[] rekeyed = new Cell[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            rekeyed[i] = cell(cells[i], row);
+        }
+        return Result.create(rekeyed, result.getExists(), result.isStale(), result.mayHaveMoreCellsInRow());
+    }
+
+    private static Cell cell(Cell cell, byte[] row) {
+        return new KeyValue(row, 0, row.length,
+                cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+                cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+                cell.getTimestamp(), KeyValue.Type.codeToType(cell.getType().getCode()),
+                cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    private static void copyMutation(Mutation source, Mutation target) {
+        target.setDurability(source.getDurability());
+        //TTL、ACL、可见性标签都保存在属性里
+        copyAttributes(source, target);
+    }
+
+    private static void copyAttributes(OperationWithAttributes source, OperationWithAttributes target) {
+        for (Map.Entry<String, byte[]> entry : source.getAttributesMap().entrySet()) {
+            target.setAttribute(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.hbase.rowkey;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * 反转时间戳行键:实体前缀 + (Long.MAX_VALUE - 时间戳),同一实体下最新的记录排在最前面
+ * <p>
+ * 只改变逻辑行键本身,可以再交给{@link RowKeyCodec}加分桶前缀;
+ * 按实体前缀扫描即可按时间倒序读到该实体的记录,配合limit可以直接取最新的N条
+ */
+public final class ReverseTimestamp {
+
+    private ReverseTimestamp() {
+    }
+
+    /**
+     * 生成逻辑行键
+     *
+     * @param prefix    实体前缀
+     * @param timestamp 毫秒时间戳,不能为负
+     * @return
+     */
+    public static byte[] key(byte[] prefix, long timestamp) {
+        if (timestamp < 0) {
+            throw new IllegalArgumentException("Timestamp must not be negative: " + timestamp);
+        }
+        byte[] key = Arrays.copyOf(prefix, prefix.length + Bytes.SIZEOF_LONG);
+        Bytes.putLong(key, prefix.length, Long.MAX_VALUE - timestamp);
+        return key;
+    }
+
+    /**
+     * 从逻辑行键末尾的8个字节还原时间戳
+     *
+     * @param key
+     * @return
+     */
+    public static long timestamp(byte[] key) {
+        return Long.MAX_VALUE - Bytes.toLong(key, key.length - Bytes.SIZEOF_LONG);
+    }
+
+    /**
+     * 某个实体在时间范围[from, to)内的记录对应的逻辑行键区间,返回{start, stop},start包含、stop不包含
+     *
+     * @param prefix 实体前缀
+     * @param from   起始时间(包含)
+     * @param to     结束时间(不包含)
+     * @return
+     */
+    public static byte[][] range(byte[] prefix, long from, long to) {
+        if (to <= from) {
+            throw new IllegalArgumentException("Empty time range [" + from + ", " + to + ")");
+        }
+        //时间倒序,to-1是区间内最新的时间,对应最小的行键
+        return new byte[][]{key(prefix, to - 1), KeyRanges.successor(key(prefix, from))};
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.hbase.rowkey;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 逻辑行键与实际存储行键之间的转换
+ * <p>
+ * 实现类在逻辑行键前面加一个定长的分桶前缀,把顺序写入打散到多个region;
+ * 同一个桶内行键仍按逻辑顺序排列,范围查询按桶拆成子scan后再按逻辑行键归并
+ */
+public interface RowKeyCodec {
+
+    /**
+     * 逻辑行键编码成存储行键
+     *
+     * @param key
+     * @return
+     */
+    byte[] encode(byte[] key);
+
+    /**
+     * 存储行键还原成逻辑行键
+     *
+     * @param row
+     * @return
+     */
+    byte[] decode(byte[] row);
+
+    /**
+     * 分桶前缀的字节数
+     *
+     * @return
+     */
+    int prefixLength();
+
+    /**
+     * 逻辑行键区间[start, stop)可能落入的桶前缀,按字节序返回;stop为空表示不设上界
+     *
+     * @param start
+     * @param stop
+     * @return
+     */
+    List<byte[]> prefixes(byte[] start, byte[] stop);
+
+    /**
+     * 按存储行键中的逻辑部分比较,不分配新数组
+     *
+     * @return
+     */
+    default Comparator<byte[]> logicalOrder() {
+        int prefixLength = prefixLength();
+        return (a, b) -> {
+            int offsetA = Math.min(prefixLength, a.length);
+            int offsetB = Math.min(prefixLength, b.length);
+            return Bytes.compareTo(a, offsetA, a.length - offsetA, b, offsetB, b.length - offsetB);
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.hbase.rowkey;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.core.RowMapper;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按逻辑行键读写一张使用{@link RowKeyCodec}的表,调用方看不到分桶前缀
+ * <p>
+ * 写入时Put/Delete的行键自动编码;读取时Get编码后点查,Scan按桶拆成子scan并行执行后按逻辑行键归并,
+ * 返回的Result行键已还原成逻辑行键,可以直接交给EntityMapper等RowMapper
+ */
+public class RowKeyTemplate {
+
+    private final HbaseTemplate template;
+
+    private final ParallelScanner scanner;
+
+    private final TableName tableName;
+
+    private final RowKeyCodec codec;
+
+    public RowKeyTemplate(HbaseTemplate template, ParallelScanner scanner, TableName tableName, RowKeyCodec codec) {
+        this.template = template;
+        this.scanner = scanner;
+        this.tableName = tableName;
+        this.codec = codec;
+    }
+
+    public RowKeyCodec getCodec() {
+        return codec;
+    }
+
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public <T> T get(byte[] key, RowMapper<T> mapper) {
+        return get(new Get(key), mapper);
+    }
+
+    /**
+     * @param get    按逻辑行键构造的Get
+     * @param mapper
+     * @return
+     */
+    public <T> T get(Get get, RowMapper<T> mapper) {
+        byte[] key = get.getRow();
+        return template.get(tableName.getNameAsString(), Rekey.get(get, codec.encode(key)),
+                (result, rowNum) -> mapper.mapRow(Rekey.result(result, key), rowNum));
+    }
+
+    public void put(Put put) {
+        template.put(tableName.getNameAsString(), encode(put));
+    }
+
+    public void put(List<Put> puts) {
+        List<Put> encoded = new ArrayList<>(puts.size());
+        for (Put put : puts) {
+            encoded.add(encode(put));
+        }
+        template.put(tableName.getNameAsString(), encoded);
+    }
+
+    public void delete(Delete delete) {
+        try {
+            template.delete(tableName.getNameAsString(), Rekey.delete(delete, codec.encode(delete.getRow())));
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+    }
+
+    /**
+     * 把按逻辑行键构造的Put转换成存储行键,供BulkWriter等直接写入的场景使用
+     *
+     * @param put
+     * @return
+     */
+    public Put encode(Put put) {
+        try {
+            return Rekey.put(put, codec.encode(put.getRow()));
+        } catch (IOException e) {
+            throw new HbaseSystemException(e);
+        }
+    }
+
+    /**
+     * 按逻辑行键扫描,startRow/stopRow、顶层的PrefixFilter和MultiRowRangeFilter都按逻辑行键解释;
+     * 不支持反向scan,limit对整个结果生效
+     *
+     * @param scan
+     * @return
+     */
+    public ResultScanner scan(Scan scan) {
+        List<Scan> subScans = BucketScans.expand(scan, codec);
+        return new LogicalResultScanner(scanner.merge(tableName, subScans, codec.logicalOrder(), true),
+                scan.getLimit());
+    }
+
+    public <T> List<T> find(Scan scan, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>();
+        try (ResultScanner results = scan(scan)) {
+            int rowNum = 0;
+            for (Result result : results) {
+                rows.add(mapper.mapRow(result, rowNum++));
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Exception e) {
+            throw new HbaseSystemException(e);
+        }
+        return rows;
+    }
+
+    /**
+     * 还原逻辑行键,并在合并后的结果上执行limit
+     */
+    private class LogicalResultScanner implements ResultScanner {
+
+        private final ResultScanner delegate;
+
+        private final int limit;
+
+        private int returned;
+
+        LogicalResultScanner(ResultScanner delegate, int limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        @Override
+        public Result next() throws IOException {
+            if (limit > 0 && returned >= limit) {
+                return null;
+            }
+            Result result = delegate.next();
+            if (result == null) {
+                return null;
+            }
+            returned++;
+            return Rekey.result(result, codec.decode(result.getRow()));
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        @Override
+        public boolean renewLease() {
+            return delegate.renewLease();
+        }
+
+        @Override
+        public ScanMetrics getScanMetrics() {
+            return delegate.getScanMetrics();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.hbase.rowkey;
+
+import org.apache.hadoop.hbase.util.ByteArrayHashKey;
+import org.apache.hadoop.hbase.util.Hash;
+import org.apache.hadoop.hbase.util.MurmurHash3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 加盐行键:前缀为一个字节的桶号,等于整个逻辑行键的MurmurHash3对桶数取模
+ * <p>
+ * 桶号由行键本身决定,点查不需要扫描所有桶;任何范围查询都要扫描全部桶
+ */
+public class SaltedRowKeyCodec implements RowKeyCodec {
+
+    public static final int MAX_BUCKETS = 256;
+
+    private static final Hash HASH = MurmurHash3.getInstance();
+
+    protected final int buckets;
+
+    private final List<byte[]> allPrefixes;
+
+    /**
+     * @param buckets 桶数,一般取预分区的region数,1到256之间
+     */
+    public SaltedRowKeyCodec(int buckets) {
+        if (buckets < 1 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Buckets must be between 1 and " + MAX_BUCKETS + ": " + buckets);
+        }
+        this.buckets = buckets;
+        List<byte[]> prefixes = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            prefixes.add(new byte[]{(byte) i});
+        }
+        this.allPrefixes = Collections.unmodifiableList(prefixes);
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public byte[] encode(byte[] key) {
+        byte[] row = new byte[key.length + 1];
+        row[0] = (byte) bucket(key);
+        System.arraycopy(key, 0, row, 1, key.length);
+        return row;
+    }
+
+    @Override
+    public byte[] decode(byte[] row) {
+        return Arrays.copyOfRange(row, 1, row.length);
+    }
+
+    @Override
+    public int prefixLength() {
+        return 1;
+    }
+
+    @Override
+    public List<byte[]> prefixes(byte[] start, byte[] stop) {
+        return allPrefixes;
+    }
+
+    /**
+     * 每个桶一个region的预分区点,建表时传给Admin.createTable
+     *
+     * @return
+     */
+    public byte[][] splitKeys() {
+        byte[][] splitKeys = new byte[buckets - 1][];
+        for (int i = 1; i < buckets; i++) {
+            splitKeys[i - 1] = new byte[]{(byte) i};
+        }
+        return splitKeys;
+    }
+
+    /**
+     * 计算行键所在的桶
+     *
+     * @param key
+     * @return
+     */
+    protected int bucket(byte[] key) {
+        return bucket(key, key.length);
+    }
+
+    protected final int bucket(byte[] key, int length) {
+        return (HASH.hash(new ByteArrayHashKey(key, 0, length), 0) & Integer.MAX_VALUE) % buckets;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.hbase.scan;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import java.io.IOException;
+
+/**
+ * 对合并后的结果按原Scan的limit截断,达到limit后关闭下层scanner,停止后台预取
+ */
+class LimitedResultScanner implements ResultScanner {
+
+    private final ResultScanner delegate;
+
+    private int remaining;
+
+    LimitedResultScanner(ResultScanner delegate, int limit) {
+        this.delegate = delegate;
+        this.remaining = limit;
+    }
+
+    @Override
+    public Result next() throws IOException {
+        if (remaining <= 0) {
+            return null;
+        }
+        Result result = delegate.next();
+        if (result == null || --remaining == 0) {
+            delegate.close();
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        remaining = 0;
+        delegate.close();
+    }
+
+    @Override
+    public boolean renewLease() {
+        return delegate.renewLease();
+    }
+
+    @Override
+    public ScanMetrics getScanMetrics() {
+        return delegate.getScanMetrics();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.hbase.scan;
+
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对多个子scan的结果做k路归并,按行键(或自定义的逻辑键)顺序输出
+ * <p>
+ * 最多parallelism个子scan在后台预取,其余子scan在需要时才打开。按行键归并时未打开的子scan用startRow作为下界参与排序,
+ * 因此按region切分的子scan会按region顺序依次打开;后台线程已满而堆顶子scan尚未打开时,直接在调用线程中读取,不会死锁。
+ * 线程池本身有界,提交的预取任务在池中排队超过QUEUED_TIMEOUT_MS时同样改为在调用线程中读取
+ */
+class MergingResultScanner implements ResultScanner {
+
+    private static final long QUEUED_TIMEOUT_MS = 100;
+
+    private final HbaseTemplate template;
+
+    private final TableName tableName;
+
+    private final ExecutorService pool;
+
+    private final int parallelism;
+
+    private final int bufferSize;
+
+    private final List<Source> pending;
+
+    private final PriorityQueue<Source> heap;
+
+    private final List<Source> opened = new ArrayList<>();
+
+    private Table directTable;
+
+    private int prefetching;
+
+    /**
+     * @param rowComparator 行键比较器
+     * @param startRowBound 子scan的startRow是否可以作为其结果的下界(行键本身有序时为true)
+     */
+    MergingResultScanner(HbaseTemplate template, TableName tableName, List<Scan> scans, Comparator<byte[]> rowComparator,
+                         boolean startRowBound, ExecutorService pool, int parallelism, int bufferSize) {
+        this.template = template;
+        this.tableName = tableName;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.bufferSize = bufferSize;
+        this.pending = new ArrayList<>(scans.size());
+        Comparator<Source> order = (a, b) -> {
+            byte[] ka = a.key(startRowBound);
+            byte[] kb = b.key(startRowBound);
+            if (ka == null || kb == null) {
+                return ka == kb ? 0 : ka == null ? -1 : 1;
+            }
+            return rowComparator.compare(ka, kb);
+        };
+        this.heap = new PriorityQueue<>(Math.max(1, scans.size()), order);
+        for (Scan scan : scans) {
+            Source source = new Source(scan);
+            pending.add(source);
+            heap.add(source);
+        }
+        startPrefetch();
+    }
+
+    @Override
+    public Result next() throws IOException {
+        Source source;
+        while ((source = heap.poll()) != null) {
+            if (!source.loaded) {
+                source.advance();
+                if (source.head != null) {
+                    heap.add(source);
+                }
+                continue;
+            }
+            Result result = source.head;
+            source.advance();
+            if (source.head != null) {
+                heap.add(source);
+            }
+            return result;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        heap.clear();
+        pending.clear();
+        for (Source source : opened) {
+            source.close();
+        }
+        opened.clear();
+        if (directTable != null) {
+            try {
+                directTable.close();
+            } catch (IOException e) {
+                //关闭轻量级Table不会真正失败,忽略
+            }
+        }
+    }
+
+    @Override
+    public boolean renewLease() {
+        return false;
+    }
+
+    @Override
+    public ScanMetrics getScanMetrics() {
+        return null;
+    }
+
+    /**
+     * 按子scan的原始顺序启动后台预取,直到达到并行度
+     */
+    private void startPrefetch() {
+        while (prefetching < parallelism && !pending.isEmpty()) {
+            Source source = pending.remove(0);
+            AtomicInteger next = new AtomicInteger();
+            source.buffer = new ScanBuffer(template, tableName, Collections.singletonList(source.scan),
+                    next::getAndIncrement, new ArrayBlockingQueue<>(bufferSize));
+            opened.add(source);
+            prefetching++;
+            pool.execute(source.buffer);
+        }
+    }
+
+    private class Source {
+
+        private final Scan scan;
+
+        private ScanBuffer buffer;
+
+        private ResultScanner direct;
+
+        private boolean loaded;
+
+        private boolean exhausted;
+
+        private Result head;
+
+        Source(Scan scan) {
+            this.scan = scan;
+        }
+
+        byte[] key(boolean startRowBound) {
+            if (loaded) {
+                return head.getRow();
+            }
+            return startRowBound ? scan.getStartRow() : null;
+        }
+
+        void advance() throws IOException {
+            loaded = true;
+            if (exhausted) {
+                head = null;
+                return;
+            }
+            if (buffer == null && direct == null) {
+                pending.remove(this);
+                if (prefetching < parallelism) {
+                    pending.add(0, this);
+                    startPrefetch();
+                } else {
+                    openDirect();
+                    opened.add(this);
+                }
+            }
+            if (buffer != null && buffer.claimIfQueued(QUEUED_TIMEOUT_MS)) {
+                buffer = null;
+                prefetching--;
+                openDirect();
+            }
+            head = buffer != null ? buffer.take() : direct.next();
+            if (head == null) {
+                exhausted = true;
+                close();
+                if (buffer != null) {
+                    prefetching--;
+                    startPrefetch();
+                }
+            }
+        }
+
+        private void openDirect() throws IOException {
+            if (directTable == null) {
+                directTable = template.getTable(tableName);
+            }
+            direct = directTable.getScanner(scan);
+        }
+
+        void close() {
+            if (buffer != null) {
+                buffer.cancel();
+            }
+            if (direct != null) {
+                direct.close();
+            }
+        }
+    }
+}
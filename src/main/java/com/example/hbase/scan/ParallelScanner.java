@@ -0,0 +1,173 @@
+package com.example.hbase.scan;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按region边界把一个Scan切分成多个子scan并行执行
+ * <p>
+ * 每次scan最多占用parallelism个后台线程,线程来自共享线程池;caching和maxResultSize只在原Scan没有设置时生效,
+ * 配置为0时不设置。切分全表扫描时子scan关闭block cache,子scan带了region边界,下层无法再判断是否全表扫描
+ * <p>
+ * 原Scan的limit会复制到每个子scan,只限制单个region的行数;scan(String, Scan, ScanOrder)再对合并后的结果按limit截断,
+ * 直接使用split的结果时需要调用方自己截断。UNORDERED时截断得到的是任意limit行
+ */
+public class ParallelScanner {
+
+    private final HbaseTemplate template;
+
+    private final ExecutorService pool;
+
+    private final int parallelism;
+
+    private final int caching;
+
+    private final long maxResultSize;
+
+    private final int bufferSize;
+
+    /**
+     * @param template      共享连接
+     * @param pool          执行子scan的线程池,线程不足时UNORDERED的子scan排队等待,ROW_KEY的子scan改在调用线程中读取
+     * @param parallelism   单次scan的最大并行度
+     * @param caching       子scan默认的caching,0表示不设置
+     * @param maxResultSize 子scan默认的maxResultSize,0表示不设置
+     * @param bufferSize    每个子scan预取缓冲的最大行数
+     */
+    public ParallelScanner(HbaseTemplate template, ExecutorService pool, int parallelism, int caching,
+                           long maxResultSize, int bufferSize) {
+        this.template = template;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.caching = caching;
+        this.maxResultSize = maxResultSize;
+        this.bufferSize = bufferSize;
+    }
+
+    public ResultScanner scan(String tableName, Scan scan, ScanOrder order) {
+        TableName table = TableName.valueOf(tableName);
+        ResultScanner scanner = scan(table, split(table, scan), order);
+        return scan.getLimit() > 0 ? new LimitedResultScanner(scanner, scan.getLimit()) : scanner;
+    }
+
+    /**
+     * 并行执行一组子scan,子scan之间不能有重叠的行
+     *
+     * @param tableName
+     * @param subScans
+     * @param order
+     * @return
+     */
+    public ResultScanner scan(TableName tableName, List<Scan> subScans, ScanOrder order) {
+        if (order == ScanOrder.ROW_KEY) {
+            return merge(tableName, subScans, Bytes.BYTES_COMPARATOR, true);
+        }
+        BlockingQueue<Result> queue = new ArrayBlockingQueue<>(bufferSize);
+        AtomicInteger next = new AtomicInteger();
+        List<ScanBuffer> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, subScans.size()); i++) {
+            ScanBuffer worker = new ScanBuffer(template, tableName, subScans, next::getAndIncrement, queue);
+            workers.add(worker);
+            pool.execute(worker);
+        }
+        return new UnorderedResultScanner(queue, workers);
+    }
+
+    /**
+     * 按给定的行键比较器对子scan结果做k路归并,子scan的行键区间可以相互重叠
+     *
+     * @param tableName
+     * @param subScans
+     * @param rowComparator
+     * @param startRowBound 子scan的startRow在rowComparator下是否为其结果的下界
+     * @return
+     */
+    public ResultScanner merge(TableName tableName, List<Scan> subScans, Comparator<byte[]> rowComparator,
+                               boolean startRowBound) {
+        return new MergingResultScanner(template, tableName, subScans, rowComparator, startRowBound, pool,
+                parallelism, bufferSize);
+    }
+
+    /**
+     * 读取表的region边界,把scan切成与每个region相交的子scan,按行键顺序返回
+     *
+     * @param tableName
+     * @param scan
+     * @return
+     */
+    public List<Scan> split(TableName tableName, Scan scan) {
+        if (scan.isReversed()) {
+            throw new IllegalArgumentException("Reversed scans cannot be split by region");
+        }
+        Pair<byte[][], byte[][]> keys;
+        try (RegionLocator locator = template.getConnection().getRegionLocator(tableName)) {
+            keys = locator.getStartEndKeys();
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to read region boundaries of " + tableName, e);
+        }
+        return split(scan, keys.getFirst(), keys.getSecond());
+    }
+
+    List<Scan> split(Scan scan, byte[][] startKeys, byte[][] endKeys) {
+        byte[] start = scan.getStartRow();
+        byte[] stop = scan.getStopRow();
+        boolean fullScan = start.length == 0 && stop.length == 0;
+        List<Scan> subScans = new ArrayList<>(startKeys.length);
+        for (int i = 0; i < startKeys.length; i++) {
+            byte[] regionStart = startKeys[i];
+            byte[] regionEnd = endKeys[i];
+            if (stop.length > 0 && regionStart.length > 0) {
+                int cmp = Bytes.compareTo(regionStart, stop);
+                if (cmp > 0 || (cmp == 0 && !scan.includeStopRow())) {
+                    continue;
+                }
+            }
+            if (regionEnd.length > 0 && Bytes.compareTo(regionEnd, start) <= 0) {
+                continue;
+            }
+            Scan subScan;
+            try {
+                subScan = new Scan(scan);
+            } catch (IOException e) {
+                throw new HbaseSystemException(e);
+            }
+            if (Bytes.compareTo(regionStart, start) > 0) {
+                subScan.withStartRow(regionStart, true);
+            }
+            if (regionEnd.length > 0 && (stop.length == 0 || Bytes.compareTo(regionEnd, stop) < 0)) {
+                subScan.withStopRow(regionEnd, false);
+            }
+            if (fullScan) {
+                subScan.setCacheBlocks(false);
+            }
+            applyDefaults(subScan);
+            subScans.add(subScan);
+        }
+        return subScans;
+    }
+
+    private void applyDefaults(Scan scan) {
+        if (scan.getCaching() <= 0 && caching > 0) {
+            scan.setCaching(caching);
+        }
+        if (scan.getMaxResultSize() <= 0 && maxResultSize > 0) {
+            scan.setMaxResultSize(maxResultSize);
+        }
+    }
+}
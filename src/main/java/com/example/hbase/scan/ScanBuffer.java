@@ -0,0 +1,163 @@
+package com.example.hbase.scan;
+
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+/**
+ * 在后台线程上执行一个或多个子scan,把结果放进有界队列,队列满时后台线程等待,起到背压作用
+ * <p>
+ * 多个ScanBuffer可以共享同一个队列,每个ScanBuffer结束时各放入一个结束标记。
+ * 线程池满时任务可能还在排队,独占队列的使用方可以用claimIfQueued接管,改为自己直接读取
+ */
+class ScanBuffer implements Runnable {
+
+    private static final Result END = new Result();
+
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    private final HbaseTemplate template;
+
+    private final TableName tableName;
+
+    private final List<Scan> scans;
+
+    private final IntSupplier nextScan;
+
+    private final BlockingQueue<Result> queue;
+
+    private volatile Throwable error;
+
+    private volatile boolean cancelled;
+
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private boolean finished;
+
+    /**
+     * @param scans    子scan列表
+     * @param nextScan 每次返回下一个要执行的子scan下标,越界表示没有更多
+     */
+    ScanBuffer(HbaseTemplate template, TableName tableName, List<Scan> scans, IntSupplier nextScan,
+               BlockingQueue<Result> queue) {
+        this.template = template;
+        this.tableName = tableName;
+        this.scans = scans;
+        this.nextScan = nextScan;
+        this.queue = queue;
+    }
+
+    static boolean isEnd(Result result) {
+        return result == END;
+    }
+
+    Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public void run() {
+        if (!claimed.compareAndSet(false, true)) {
+            return;
+        }
+        started.countDown();
+        try (Table table = template.getTable(tableName)) {
+            int index;
+            while (!cancelled && (index = nextScan.getAsInt()) < scans.size()) {
+                try (ResultScanner scanner = table.getScanner(scans.get(index))) {
+                    Result result;
+                    while (!cancelled && (result = scanner.next()) != null) {
+                        if (!offer(result)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            offer(END);
+        }
+    }
+
+    private boolean offer(Result result) {
+        try {
+            while (!queue.offer(result, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 从独占的队列中取下一行,全部结束时返回null
+     *
+     * @return
+     * @throws IOException
+     */
+    Result take() throws IOException {
+        if (finished) {
+            return null;
+        }
+        Result result;
+        try {
+            result = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for scan results");
+        }
+        if (result == END) {
+            finished = true;
+            rethrow(error);
+            return null;
+        }
+        return result;
+    }
+
+    static void rethrow(Throwable error) throws IOException {
+        if (error != null) {
+            throw error instanceof IOException ? (IOException) error : new IOException(error);
+        }
+    }
+
+    /**
+     * 等待timeoutMs后任务仍未开始执行时接管,之后任务不会再执行,也不会放入结束标记
+     *
+     * @return 是否接管成功
+     */
+    boolean claimIfQueued(long timeoutMs) throws InterruptedIOException {
+        try {
+            if (started.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for scan to start");
+        }
+        return claimed.compareAndSet(false, true);
+    }
+
+    void cancel() {
+        cancelled = true;
+        queue.clear();
+    }
+}
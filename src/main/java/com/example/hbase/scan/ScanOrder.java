@@ -0,0 +1,17 @@
+package com.example.hbase.scan;
+
+/**
+ * 并行scan结果的返回顺序
+ */
+public enum ScanOrder {
+
+    /**
+     * 谁先返回就先输出,吞吐最高
+     */
+    UNORDERED,
+
+    /**
+     * 按行键顺序多路归并输出,与单个scanner的结果顺序一致
+     */
+    ROW_KEY
+}
@@ -0,0 +1,71 @@
+package com.example.hbase.scan;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 多个后台线程并发执行子scan,共享一个有界队列,按到达顺序输出
+ */
+class UnorderedResultScanner implements ResultScanner {
+
+    private final BlockingQueue<Result> queue;
+
+    private final List<ScanBuffer> workers;
+
+    private int running;
+
+    UnorderedResultScanner(BlockingQueue<Result> queue, List<ScanBuffer> workers) {
+        this.queue = queue;
+        this.workers = workers;
+        this.running = workers.size();
+    }
+
+    @Override
+    public Result next() throws IOException {
+        while (running > 0) {
+            Result result;
+            try {
+                result = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for scan results");
+            }
+            if (!ScanBuffer.isEnd(result)) {
+                return result;
+            }
+            running--;
+            for (ScanBuffer worker : workers) {
+                if (worker.getError() != null) {
+                    close();
+                    ScanBuffer.rethrow(worker.getError());
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        running = 0;
+        for (ScanBuffer worker : workers) {
+            worker.cancel();
+        }
+        queue.clear();
+    }
+
+    @Override
+    public boolean renewLease() {
+        return false;
+    }
+
+    @Override
+    public ScanMetrics getScanMetrics() {
+        return null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.hbase.schema;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 列族定义,没有声明的属性使用HBase默认值,也不参与差异比较
+ */
+public class FamilySchema {
+
+    private String name;
+
+    private DataBlockEncoding dataBlockEncoding;
+
+    private Compression.Algorithm compression;
+
+    private BloomType bloomType;
+
+    private DataSize blockSize;
+
+    /**
+     * 为空或0表示永不过期
+     */
+    private Duration ttl;
+
+    private Integer maxVersions;
+
+    private Boolean inMemory;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public DataBlockEncoding getDataBlockEncoding() {
+        return dataBlockEncoding;
+    }
+
+    public void setDataBlockEncoding(DataBlockEncoding dataBlockEncoding) {
+        this.dataBlockEncoding = dataBlockEncoding;
+    }
+
+    public Compression.Algorithm getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression.Algorithm compression) {
+        this.compression = compression;
+    }
+
+    public BloomType getBloomType() {
+        return bloomType;
+    }
+
+    public void setBloomType(BloomType bloomType) {
+        this.bloomType = bloomType;
+    }
+
+    public DataSize getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(DataSize blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Integer getMaxVersions() {
+        return maxVersions;
+    }
+
+    public void setMaxVersions(Integer maxVersions) {
+        this.maxVersions = maxVersions;
+    }
+
+    public Boolean getInMemory() {
+        return inMemory;
+    }
+
+    public void setInMemory(Boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public ColumnFamilyDescriptor toDescriptor() {
+        return applyTo(ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes(name))).build();
+    }
+
+    /**
+     * 在已有列族的基础上覆盖声明过的属性,未声明的属性保持原样
+     *
+     * @param builder
+     * @return
+     */
+    ColumnFamilyDescriptorBuilder applyTo(ColumnFamilyDescriptorBuilder builder) {
+        if (dataBlockEncoding != null) {
+            builder.setDataBlockEncoding(dataBlockEncoding);
+        }
+        if (compression != null) {
+            builder.setCompressionType(compression);
+        }
+        if (bloomType != null) {
+            builder.setBloomFilterType(bloomType);
+        }
+        if (blockSize != null) {
+            builder.setBlocksize((int) blockSize.toBytes());
+        }
+        if (ttl != null) {
+            builder.setTimeToLive(ttlSeconds());
+        }
+        if (maxVersions != null) {
+            builder.setMaxVersions(maxVersions);
+        }
+        if (inMemory != null) {
+            builder.setInMemory(inMemory);
+        }
+        return builder;
+    }
+
+    /**
+     * 与线上列族比较声明过的属性
+     *
+     * @param table
+     * @param live
+     * @return
+     */
+    List<SchemaDrift> diff(String table, ColumnFamilyDescriptor live) {
+        List<SchemaDrift> drifts = new ArrayList<>();
+        compare(drifts, table, "DATA_BLOCK_ENCODING", dataBlockEncoding, live.getDataBlockEncoding());
+        compare(drifts, table, "COMPRESSION", compression, live.getCompressionType());
+        compare(drifts, table, "BLOOMFILTER", bloomType, live.getBloomFilterType());
+        compare(drifts, table, "BLOCKSIZE", blockSize == null ? null : (int) blockSize.toBytes(), live.getBlocksize());
+        compare(drifts, table, "TTL", ttl == null ? null : ttlSeconds(), live.getTimeToLive());
+        compare(drifts, table, "VERSIONS", maxVersions, live.getMaxVersions());
+        compare(drifts, table, "IN_MEMORY", inMemory, live.isInMemory());
+        return drifts;
+    }
+
+    private void compare(List<SchemaDrift> drifts, String table, String property, Object declared, Object actual) {
+        if (declared != null && !Objects.equals(declared, actual)) {
+            drifts.add(new SchemaDrift(table, name, property, String.valueOf(declared), String.valueOf(actual)));
+        }
+    }
+
+    private int ttlSeconds() {
+        return ttl.isZero() || ttl.getSeconds() >= HConstants.FOREVER ? HConstants.FOREVER : (int) ttl.getSeconds();
+    }
+}
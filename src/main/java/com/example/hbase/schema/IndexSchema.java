@@ -0,0 +1,36 @@
+package com.example.hbase.schema;
+
+import com.example.hbase.index.IndexDefinition;
+
+/**
+ * 二级索引定义,对应表定义中indexes下的一项
+ */
+public class IndexSchema {
+
+    private String name;
+
+    /**
+     * 被索引的列,格式为family:qualifier
+     */
+    private String column;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public IndexDefinition toDefinition() {
+        return IndexDefinition.of(name, column);
+    }
+}
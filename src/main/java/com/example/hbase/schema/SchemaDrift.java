@@ -0,0 +1,60 @@
+package com.example.hbase.schema;
+
+/**
+ * 声明的表结构与线上表结构之间的一处差异
+ */
+public class SchemaDrift {
+
+    /**
+     * 线上缺少声明的列族
+     */
+    public static final String MISSING_FAMILY = "MISSING_FAMILY";
+
+    /**
+     * 线上存在未声明的列族,只报告不删除
+     */
+    public static final String UNDECLARED_FAMILY = "UNDECLARED_FAMILY";
+
+    private final String table;
+
+    private final String family;
+
+    private final String property;
+
+    private final String declared;
+
+    private final String actual;
+
+    public SchemaDrift(String table, String family, String property, String declared, String actual) {
+        this.table = table;
+        this.family = family;
+        this.property = property;
+        this.declared = declared;
+        this.actual = actual;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getDeclared() {
+        return declared;
+    }
+
+    public String getActual() {
+        return actual;
+    }
+
+    @Override
+    public String toString() {
+        return table + ":" + family + " " + property + " declared=" + declared + " actual=" + actual;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.hbase.schema;
+
+import com.example.hbase.core.HbaseSystemException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 按声明的表结构在启动时建表,并报告已有表与声明之间的差异
+ * <p>
+ * 不存在的表按预分区点创建,声明了索引的表同时创建索引表;已存在的表只比较声明过的列族属性,
+ * applyChanges为true时补上缺少的列族、修改不一致的列族属性。任何情况下都不会删除表或列族,未声明的列族只报告
+ */
+public class SchemaManager {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaManager.class);
+
+    private final Connection connection;
+
+    private final List<TableSchema> tables;
+
+    private final ResourceLoader resourceLoader;
+
+    private final boolean applyChanges;
+
+    private volatile List<SchemaDrift> drifts = Collections.emptyList();
+
+    /**
+     * @param connection
+     * @param tables         声明的表
+     * @param resourceLoader 读取行键样本文件
+     * @param applyChanges   是否把差异应用到线上表
+     */
+    public SchemaManager(Connection connection, List<TableSchema> tables, ResourceLoader resourceLoader,
+                         boolean applyChanges) {
+        this.connection = connection;
+        this.tables = tables;
+        this.resourceLoader = resourceLoader;
+        this.applyChanges = applyChanges;
+    }
+
+    /**
+     * 读取yml格式的表定义,根节点为tables
+     *
+     * @param resource
+     * @return
+     */
+    public static List<TableSchema> load(Resource resource) {
+        try {
+            Binder binder = new Binder(ConfigurationPropertySources.from(
+                    new YamlPropertySourceLoader().load(resource.getDescription(), resource)));
+            return binder.bind("tables", Bindable.listOf(TableSchema.class)).orElse(Collections.emptyList());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load HBase schema from " + resource, e);
+        }
+    }
+
+    public List<TableSchema> getTables() {
+        return tables;
+    }
+
+    /**
+     * 最近一次reconcile发现的差异
+     *
+     * @return
+     */
+    public List<SchemaDrift> getDrifts() {
+        return drifts;
+    }
+
+    /**
+     * 建表并比较差异,返回发现的差异(包括本次已经修正的)
+     *
+     * @return
+     */
+    public List<SchemaDrift> reconcile() {
+        List<SchemaDrift> found = new ArrayList<>();
+        try (Admin admin = connection.getAdmin()) {
+            for (TableSchema table : tables) {
+                found.addAll(reconcile(admin, table));
+                TableSchema indexTable = table.indexTable();
+                if (indexTable != null) {
+                    found.addAll(reconcile(admin, indexTable));
+                }
+            }
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to reconcile HBase schema", e);
+        }
+        for (SchemaDrift drift : found) {
+            log.warn("Schema drift {}{}", drift, applyChanges && isFixable(drift) ? " (applied)" : "");
+        }
+        drifts = Collections.unmodifiableList(found);
+        return drifts;
+    }
+
+    private List<SchemaDrift> reconcile(Admin admin, TableSchema table) throws IOException {
+        TableName tableName = table.getTableName();
+        if (!admin.tableExists(tableName)) {
+            byte[][] splitKeys = SplitPoints.of(table.getSplits(), resourceLoader);
+            log.info("Creating table {} with {} regions", tableName, splitKeys.length + 1);
+            if (splitKeys.length == 0) {
+                admin.createTable(table.toDescriptor());
+            } else {
+                admin.createTable(table.toDescriptor(), splitKeys);
+            }
+            return Collections.emptyList();
+        }
+        TableDescriptor live = admin.getDescriptor(tableName);
+        List<SchemaDrift> found = diff(table, live);
+        if (applyChanges) {
+            for (FamilySchema family : table.getFamilies()) {
+                ColumnFamilyDescriptor liveFamily = live.getColumnFamily(Bytes.toBytes(family.getName()));
+                if (liveFamily == null) {
+                    admin.addColumnFamily(tableName, family.toDescriptor());
+                } else if (!family.diff(table.getName(), liveFamily).isEmpty()) {
+                    admin.modifyColumnFamily(tableName,
+                            family.applyTo(ColumnFamilyDescriptorBuilder.newBuilder(liveFamily)).build());
+                }
+            }
+        }
+        return found;
+    }
+
+    static List<SchemaDrift> diff(TableSchema table, TableDescriptor live) {
+        List<SchemaDrift> found = new ArrayList<>();
+        Set<String> declared = new HashSet<>();
+        for (FamilySchema family : table.getFamilies()) {
+            declared.add(family.getName());
+            ColumnFamilyDescriptor liveFamily = live.getColumnFamily(Bytes.toBytes(family.getName()));
+            if (liveFamily == null) {
+                found.add(new SchemaDrift(table.getName(), family.getName(), SchemaDrift.MISSING_FAMILY,
+                        "present", "absent"));
+            } else {
+                found.addAll(family.diff(table.getName(), liveFamily));
+            }
+        }
+        for (ColumnFamilyDescriptor liveFamily : live.getColumnFamilies()) {
+            if (!declared.contains(liveFamily.getNameAsString())) {
+                found.add(new SchemaDrift(table.getName(), liveFamily.getNameAsString(),
+                        SchemaDrift.UNDECLARED_FAMILY, "absent", "present"));
+            }
+        }
+        return found;
+    }
+
+    private static boolean isFixable(SchemaDrift drift) {
+        return !SchemaDrift.UNDECLARED_FAMILY.equals(drift.getProperty());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.hbase.schema;
+
+import com.example.hbase.rowkey.SaltedRowKeyCodec;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 计算建表时的预分区点
+ */
+public final class SplitPoints {
+
+    private static final byte[][] NONE = new byte[0][];
+
+    private SplitPoints() {
+    }
+
+    /**
+     * 按表定义中的预分区方式计算分区点
+     *
+     * @param splits
+     * @param resourceLoader 用于读取样本文件
+     * @return 没有声明预分区时返回空数组
+     */
+    public static byte[][] of(SplitSchema splits, ResourceLoader resourceLoader) {
+        if (!splits.getKeys().isEmpty()) {
+            byte[][] keys = splits.getKeys().stream().map(Bytes::toBytesBinary).toArray(byte[][]::new);
+            Arrays.sort(keys, Bytes.BYTES_COMPARATOR);
+            return keys;
+        }
+        if (splits.getSaltBuckets() != null) {
+            return new SaltedRowKeyCodec(splits.getSaltBuckets()).splitKeys();
+        }
+        if (splits.getSample() != null) {
+            return fromSample(readSample(resourceLoader.getResource(splits.getSample())), splits.getRegions());
+        }
+        return NONE;
+    }
+
+    /**
+     * 按样本的分位点切分,使每个region分到大致相同数量的样本行
+     * <p>
+     * 分区点取分位点行键的最短前缀,只要它仍大于前一个样本行键即可,分区点越短meta和索引越小
+     *
+     * @param sample  行键样本,不要求有序
+     * @param regions 期望的region数
+     * @return 有序的分区点,样本中重复行键过多时可能少于regions - 1个
+     */
+    public static byte[][] fromSample(List<byte[]> sample, int regions) {
+        if (regions < 1) {
+            throw new IllegalArgumentException("Regions must be positive: " + regions);
+        }
+        byte[][] sorted = sample.toArray(new byte[0][]);
+        Arrays.sort(sorted, Bytes.BYTES_COMPARATOR);
+        List<byte[]> splitKeys = new ArrayList<>(regions - 1);
+        for (int i = 1; i < regions; i++) {
+            int index = (int) ((long) i * sorted.length / regions);
+            if (index >= sorted.length) {
+                break;
+            }
+            byte[] quantile = sorted[index];
+            //同一个行键不能跨region,向前找到第一个比它小的样本
+            int previous = index - 1;
+            while (previous >= 0 && Bytes.equals(sorted[previous], quantile)) {
+                previous--;
+            }
+            if (previous < 0) {
+                continue;
+            }
+            byte[] splitKey = shortestSeparator(sorted[previous], quantile);
+            if (splitKeys.isEmpty() || Bytes.compareTo(splitKeys.get(splitKeys.size() - 1), splitKey) < 0) {
+                splitKeys.add(splitKey);
+            }
+        }
+        return splitKeys.toArray(new byte[0][]);
+    }
+
+    /**
+     * 大于lower且不大于upper的最短的upper前缀
+     */
+    static byte[] shortestSeparator(byte[] lower, byte[] upper) {
+        for (int length = 1; length < upper.length; length++) {
+            if (Bytes.compareTo(upper, 0, length, lower, 0, lower.length) > 0) {
+                return Arrays.copyOf(upper, length);
+            }
+        }
+        return upper;
+    }
+
+    private static List<byte[]> readSample(Resource resource) {
+        List<byte[]> sample = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    sample.add(Bytes.toBytesBinary(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read row key sample " + resource, e);
+        }
+        return sample;
+    }
+}
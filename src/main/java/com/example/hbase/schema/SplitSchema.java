@@ -0,0 +1,62 @@
+package com.example.hbase.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 建表时的预分区方式,按keys、salt-buckets、sample的顺序取第一个声明了的,都没有时建成单个region
+ */
+public class SplitSchema {
+
+    /**
+     * 直接给出的分区点,按Bytes.toBytesBinary解析,可以用\x00形式写二进制字节
+     */
+    private List<String> keys = new ArrayList<>();
+
+    /**
+     * 使用SaltedRowKeyCodec时的桶数,每个桶一个region
+     */
+    private Integer saltBuckets;
+
+    /**
+     * 行键样本文件,每行一个行键,格式同keys
+     */
+    private String sample;
+
+    /**
+     * 按样本切分的region数
+     */
+    private int regions = 16;
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+
+    public Integer getSaltBuckets() {
+        return saltBuckets;
+    }
+
+    public void setSaltBuckets(Integer saltBuckets) {
+        this.saltBuckets = saltBuckets;
+    }
+
+    public String getSample() {
+        return sample;
+    }
+
+    public void setSample(String sample) {
+        this.sample = sample;
+    }
+
+    public int getRegions() {
+        return regions;
+    }
+
+    public void setRegions(int regions) {
+        this.regions = regions;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.hbase.schema;
+
+import com.example.hbase.index.IndexedTable;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 表定义,对应hbase-schema.yml中tables下的一项
+ */
+public class TableSchema {
+
+    private String name;
+
+    private List<FamilySchema> families = new ArrayList<>();
+
+    private SplitSchema splits = new SplitSchema();
+
+    private List<IndexSchema> indexes = new ArrayList<>();
+
+    /**
+     * 每个region的副本数,大于1时可以用TIMELINE一致性读副本
+     */
+    private int regionReplication = 1;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<FamilySchema> getFamilies() {
+        return families;
+    }
+
+    public void setFamilies(List<FamilySchema> families) {
+        this.families = families;
+    }
+
+    public SplitSchema getSplits() {
+        return splits;
+    }
+
+    public void setSplits(SplitSchema splits) {
+        this.splits = splits;
+    }
+
+    public List<IndexSchema> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(List<IndexSchema> indexes) {
+        this.indexes = indexes;
+    }
+
+    public int getRegionReplication() {
+        return regionReplication;
+    }
+
+    public void setRegionReplication(int regionReplication) {
+        this.regionReplication = regionReplication;
+    }
+
+    public TableName getTableName() {
+        return TableName.valueOf(name);
+    }
+
+    public TableDescriptor toDescriptor() {
+        TableDescriptorBuilder builder = TableDescriptorBuilder.newBuilder(getTableName())
+                .setRegionReplication(regionReplication);
+        for (FamilySchema family : families) {
+            builder.setColumnFamily(family.toDescriptor());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 声明了索引时对应的索引表定义,索引行键前缀很长,用FAST_DIFF编码
+     *
+     * @return 没有索引时返回null
+     */
+    public TableSchema indexTable() {
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        FamilySchema family = new FamilySchema();
+        family.setName(Bytes.toString(IndexedTable.INDEX_FAMILY));
+        family.setDataBlockEncoding(DataBlockEncoding.FAST_DIFF);
+        family.setBloomType(BloomType.ROW);
+        TableSchema indexTable = new TableSchema();
+        indexTable.setName(IndexedTable.indexTableOf(getTableName()).getNameAsString());
+        indexTable.setFamilies(Collections.singletonList(family));
+        return indexTable;
+    }
+}
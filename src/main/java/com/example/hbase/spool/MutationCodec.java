@@ -0,0 +1,106 @@
+package com.example.hbase.spool;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * spool记录的序列化:类型(1字节)、表名、行键、mutation时间戳、cell个数,之后每个cell是长度加KeyValue字节
+ * <p>
+ * 只支持Put和Delete:重放可能重复执行,Increment/Append不是幂等的。
+ * 没有指定时间戳的cell在写入spool时就填上spool分配的时间戳(本地时间,同一spool内严格递增),
+ * 重放多少次结果都一样,也不会覆盖重放期间其他地方写入的新版本;
+ * 例外是只删最新一个版本的Delete(Type.Delete),它的时间戳由服务端解析,保持不变。
+ * mutation的属性、TTL、durability不保存
+ */
+final class MutationCodec {
+
+    private static final byte PUT = 0;
+
+    private static final byte DELETE = 1;
+
+    private MutationCodec() {
+    }
+
+    static byte[] encode(TableName tableName, Mutation mutation, long now) {
+        byte kind;
+        if (mutation instanceof Put) {
+            kind = PUT;
+        } else if (mutation instanceof Delete) {
+            kind = DELETE;
+        } else {
+            throw new IllegalArgumentException("Only Put and Delete can be spooled, got "
+                    + mutation.getClass().getSimpleName());
+        }
+        byte[] table = tableName.getName();
+        byte[] row = mutation.getRow();
+        byte[] stamp = Bytes.toBytes(now);
+        List<KeyValue> cells = new ArrayList<>();
+        int size = 1 + 2 + table.length + 2 + row.length + 8 + 4;
+        for (List<Cell> family : mutation.getFamilyCellMap().values()) {
+            for (Cell cell : family) {
+                KeyValue kv = KeyValueUtil.copyToNewKeyValue(cell);
+                if (kv.getTypeByte() != KeyValue.Type.Delete.getCode()) {
+                    kv.updateLatestStamp(stamp);
+                }
+                cells.add(kv);
+                size += 4 + kv.getLength();
+            }
+        }
+        long timestamp = mutation.getTimestamp() == HConstants.LATEST_TIMESTAMP ? now : mutation.getTimestamp();
+        ByteBuffer buffer = ByteBuffer.allocate(size)
+                .put(kind)
+                .putShort((short) table.length).put(table)
+                .putShort((short) row.length).put(row)
+                .putLong(timestamp)
+                .putInt(cells.size());
+        for (KeyValue kv : cells) {
+            buffer.putInt(kv.getLength()).put(kv.getBuffer(), kv.getOffset(), kv.getLength());
+        }
+        return buffer.array();
+    }
+
+    static SpooledMutation decode(ByteBuffer buffer) throws IOException {
+        byte kind = buffer.get();
+        byte[] table = new byte[buffer.getShort()];
+        buffer.get(table);
+        byte[] row = new byte[buffer.getShort()];
+        buffer.get(row);
+        long timestamp = buffer.getLong();
+        Mutation mutation = kind == PUT ? new Put(row, timestamp) : new Delete(row, timestamp);
+        int cells = buffer.getInt();
+        for (int i = 0; i < cells; i++) {
+            byte[] kv = new byte[buffer.getInt()];
+            buffer.get(kv);
+            if (kind == PUT) {
+                ((Put) mutation).add(new KeyValue(kv));
+            } else {
+                ((Delete) mutation).add(new KeyValue(kv));
+            }
+        }
+        return new SpooledMutation(TableName.valueOf(table), mutation);
+    }
+
+    static final class SpooledMutation {
+
+        final TableName tableName;
+
+        final Mutation mutation;
+
+        SpooledMutation(TableName tableName, Mutation mutation) {
+            this.tableName = tableName;
+            this.mutation = mutation;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.hbase.spool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * spool的一个段文件,创建时按固定大小整体映射到内存
+ * <p>
+ * 文件头是magic和段序号,之后是连续的记录:payload长度(4字节)、CRC32(4字节)、写入时间(8字节)、payload。
+ * 写入时先写CRC、时间和payload,最后写长度,再发布新的limit;文件剩余部分是0,长度为0即结束。
+ * 恢复时从头校验,遇到长度越界或CRC不符就认为后面是崩溃时没写完的数据,只重放之前的记录
+ */
+final class Segment {
+
+    static final String SUFFIX = ".seg";
+
+    static final int MAGIC = 0x48535031;
+
+    static final int HEADER = 12;
+
+    static final int RECORD_HEADER = 16;
+
+    final long sequence;
+
+    final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private final ByteBuffer writer;
+
+    /**
+     * 已发布的记录末尾,只由持有spool锁的写入方修改
+     */
+    private volatile int limit;
+
+    /**
+     * 不再写入,读到limit即读完
+     */
+    private volatile boolean sealed;
+
+    /**
+     * 恢复时校验通过的记录数
+     */
+    private int recovered;
+
+    /**
+     * 恢复时是否在有效记录之后发现了损坏的数据
+     */
+    private boolean truncated;
+
+    private Segment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        this.writer = buffer.duplicate();
+    }
+
+    static Path path(Path directory, long sequence) {
+        return directory.resolve(String.format("%020d%s", sequence, SUFFIX));
+    }
+
+    static long sequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    static Segment create(Path directory, long sequence, int size) throws IOException {
+        Path path = path(directory, sequence);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(4, sequence);
+        Segment segment = new Segment(sequence, path, buffer);
+        segment.limit = HEADER;
+        return segment;
+    }
+
+    /**
+     * 打开崩溃或停止前留下的段,校验全部记录,打开后只读
+     */
+    static Segment open(Path path) throws IOException {
+        long sequence = sequence(path);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER) {
+                throw new IOException("Spool segment " + path + " is too short");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getLong(4) != sequence) {
+            throw new IOException("Spool segment " + path + " has an invalid header");
+        }
+        Segment segment = new Segment(sequence, path, buffer);
+        int position = HEADER;
+        while (position + RECORD_HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            int end = position + RECORD_HEADER + length;
+            if (length < 0 || end > buffer.capacity()
+                    || buffer.getInt(position + 4) != checksum(buffer, position, length)) {
+                segment.truncated = true;
+                break;
+            }
+            segment.recovered++;
+            position = end;
+        }
+        segment.limit = position;
+        segment.sealed = true;
+        return segment;
+    }
+
+    /**
+     * 追加一条记录,空间不足时返回false,调用方持有spool锁
+     */
+    boolean append(byte[] payload, long appendedAt) {
+        int position = limit;
+        int end = position + RECORD_HEADER + payload.length;
+        if (end > buffer.capacity()) {
+            return false;
+        }
+        writer.position(position + 8);
+        writer.putLong(appendedAt).put(payload);
+        writer.putInt(position + 4, checksum(appendedAt, payload));
+        writer.putInt(position, payload.length);
+        limit = end;
+        return true;
+    }
+
+    /**
+     * 读取position处的记录,还没有发布时返回null
+     */
+    Record read(int position) {
+        if (position + RECORD_HEADER > limit) {
+            return null;
+        }
+        ByteBuffer reader = buffer.duplicate();
+        int length = reader.getInt(position);
+        long appendedAt = reader.getLong(position + 8);
+        int start = position + RECORD_HEADER;
+        reader.limit(start + length);
+        reader.position(start);
+        return new Record(reader.slice(), appendedAt, start + length);
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int remaining() {
+        return buffer.capacity() - limit;
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    int getRecovered() {
+        return recovered;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 把映射中的脏页写到磁盘
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * 映射在缓冲区被回收时释放,Linux上删除仍被映射的文件没有问题
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static int checksum(ByteBuffer buffer, int position, int length) {
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(position + RECORD_HEADER);
+        byte[] payload = new byte[length];
+        reader.get(payload);
+        return checksum(buffer.getLong(position + 8), payload);
+    }
+
+    /**
+     * 覆盖写入时间和payload
+     */
+    private static int checksum(long appendedAt, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, appendedAt).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static final class Record {
+
+        final ByteBuffer payload;
+
+        final long appendedAt;
+
+        final int next;
+
+        Record(ByteBuffer payload, long appendedAt, int next) {
+            this.payload = payload;
+            this.appendedAt = appendedAt;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,656 @@
+package com.example.hbase.spool;
+
+import com.example.hbase.bulk.DeadLetterQueue;
+import com.example.hbase.bulk.FailedMutation;
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.spool.MutationCodec.SpooledMutation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotEnabledException;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地持久化的写缓冲,集群变慢、region迁移或短暂不可用时吸收写入,线程安全
+ * <p>
+ * 1.append把Put/Delete序列化后追加到内存映射的段文件,返回时数据已经在本机page cache中(fsync=true时已经落盘),
+ * 进程崩溃不会丢失,调用方不等待HBase<br>
+ * 2.后台线程按写入顺序读取,每批最多batchSize条,每张表一次Table.batch;同一批内同一行只出现一次,
+ * 同一行的多次写入按写入顺序生效;还有数据等待重放时立即读下一批,读空才等待drainInterval<br>
+ * 3.一批全部完成后推进检查点,读完并且不再写入的段文件删除<br>
+ * 4.可重试的失败在retryBackoff后只重试失败的部分,不可重试的进入死信队列,不阻塞后面的数据<br>
+ * 5.启动时校验目录中留下的段文件,从检查点继续重放;已经写入但还没推进检查点的记录会再写一次,
+ * 由于写入spool时已经固定了时间戳(见MutationCodec),重放是幂等的。
+ * 每条mutation的时间戳严格递增(取本地时间和上一个时间戳加1中较大的),
+ * 否则同一毫秒内先删除再写入同一行时,删除标记和新值时间戳相同,新值会被删除标记遮住
+ * <p>
+ * 段文件个数达到上限时append抛出HbaseSystemException,整批都不写入,由调用方决定降级还是直接写HBase。
+ * close不等待排空,剩余数据留在磁盘上下次启动继续;需要排空时先调用awaitDrained。同一目录只能被一个实例打开
+ */
+public class WriteSpool implements Closeable, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteSpool.class);
+
+    static final String CHECKPOINT = "checkpoint";
+
+    static final String LOCK = "spool.lock";
+
+    private final HbaseTemplate template;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final boolean fsync;
+
+    private final int batchSize;
+
+    private final long drainIntervalMs;
+
+    private final long retryBackoffMs;
+
+    private final DeadLetterQueue deadLetterQueue;
+
+    /**
+     * 从旧到新的全部段,最后一个是正在写入的段
+     */
+    private final Deque<Segment> segments = new ConcurrentLinkedDeque<>();
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    /**
+     * 下一条要重放的记录:段序号(8字节)和段内位置(4字节)
+     */
+    private final MappedByteBuffer checkpoint;
+
+    private final AtomicLong depth = new AtomicLong();
+
+    private final AtomicLong depthBytes = new AtomicLong();
+
+    /**
+     * 最近分配的mutation时间戳
+     */
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    private final LongAdder appended = new LongAdder();
+
+    private final LongAdder drained = new LongAdder();
+
+    private final LongAdder deadLettered = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final Object drainSignal = new Object();
+
+    private final Object backoff = new Object();
+
+    private final Thread drainer;
+
+    private boolean drainRequested;
+
+    private volatile boolean closed;
+
+    /**
+     * 正在写入的段,由this保护
+     */
+    private Segment active;
+
+    private long nextSequence = 1;
+
+    /**
+     * 重放位置,只由后台线程访问
+     */
+    private Segment head;
+
+    private int position;
+
+    /**
+     * 正在重放的最早一条记录的写入时间
+     */
+    private volatile long headAppendedAt;
+
+    /**
+     * @param template        共享连接
+     * @param directory       段文件目录,不存在时创建
+     * @param segmentSize     单个段文件的大小,也是单条mutation序列化后的上限
+     * @param maxSize         段文件总大小上限,至少两个段
+     * @param fsync           每次append后是否把映射写到磁盘,false时只保证进程崩溃不丢,不保证断电不丢
+     * @param batchSize       每批重放的最大mutation数
+     * @param drainIntervalMs 不满一批时的重放间隔
+     * @param retryBackoffMs  重放失败后的等待时间
+     * @param deadLetterQueue 不可重试的mutation
+     */
+    public WriteSpool(HbaseTemplate template, Path directory, int segmentSize, long maxSize, boolean fsync,
+                      int batchSize, long drainIntervalMs, long retryBackoffMs, DeadLetterQueue deadLetterQueue) {
+        this.template = template;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(2, maxSize / segmentSize);
+        this.fsync = fsync;
+        this.batchSize = batchSize;
+        this.drainIntervalMs = drainIntervalMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.deadLetterQueue = deadLetterQueue;
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve(LOCK), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            lock = lockChannel.tryLock();
+            if (lock == null) {
+                lockChannel.close();
+                throw new HbaseSystemException("Write spool " + directory + " is used by another process");
+            }
+            try (FileChannel channel = FileChannel.open(directory.resolve(CHECKPOINT), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, 12);
+            }
+            recover();
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to open write spool " + directory, e);
+        }
+        this.drainer = new Thread(this::drainLoop, "write-spool-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void append(String tableName, Mutation mutation) {
+        append(tableName, Collections.singletonList(mutation));
+    }
+
+    /**
+     * 追加到spool,返回后即使进程崩溃也会在下次启动时写入HBase
+     *
+     * @param tableName
+     * @param mutations 只能是Put或Delete
+     * @throws HbaseSystemException spool已满
+     */
+    public void append(String tableName, List<? extends Mutation> mutations) {
+        if (closed) {
+            throw new IllegalStateException("Write spool " + directory + " is closed");
+        }
+        TableName table = TableName.valueOf(tableName);
+        long now = System.currentTimeMillis();
+        List<byte[]> payloads = new ArrayList<>(mutations.size());
+        for (Mutation mutation : mutations) {
+            long timestamp = lastTimestamp.accumulateAndGet(now, (last, current) -> Math.max(current, last + 1));
+            byte[] payload = MutationCodec.encode(table, mutation, timestamp);
+            if (Segment.HEADER + Segment.RECORD_HEADER + payload.length > segmentSize) {
+                throw new IllegalArgumentException("Mutation of " + payload.length
+                        + " bytes does not fit in a spool segment of " + segmentSize + " bytes");
+            }
+            payloads.add(payload);
+        }
+        synchronized (this) {
+            //写入任何一条之前确定能全部放下并建好需要的新段,一批要么全部写入要么全部拒绝
+            int needed = segmentsNeeded(payloads);
+            if (needed < 0) {
+                rejected.add(payloads.size());
+                throw new HbaseSystemException("Write spool " + directory + " is full, "
+                        + depth.get() + " mutations waiting to drain");
+            }
+            List<Segment> created = createSegments(needed);
+            int next = 0;
+            for (byte[] payload : payloads) {
+                if (active.remaining() < Segment.RECORD_HEADER + payload.length) {
+                    roll(created.get(next++));
+                }
+                //先计入深度再发布,后台线程减去时不会出现负数
+                depth.incrementAndGet();
+                depthBytes.addAndGet(Segment.RECORD_HEADER + payload.length);
+                active.append(payload, now);
+            }
+            if (fsync) {
+                active.force();
+            }
+        }
+        appended.add(payloads.size());
+        if (depth.get() >= batchSize) {
+            requestDrain();
+        }
+    }
+
+    /**
+     * 等待已经append的数据全部重放完
+     *
+     * @param timeoutMs
+     * @return 超时返回false
+     * @throws InterruptedException
+     */
+    public boolean awaitDrained(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        requestDrain();
+        synchronized (drainSignal) {
+            while (depth.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) {
+                    return false;
+                }
+                drainSignal.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        requestDrain();
+        synchronized (backoff) {
+            backoff.notifyAll();
+        }
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            active.force();
+        }
+        checkpoint.force();
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to release lock of write spool {}", directory, e);
+        }
+        log.info("Closed write spool {}, {} mutations left to drain", directory, depth.get());
+    }
+
+    /**
+     * 还没有写入HBase的mutation数
+     */
+    public long getDepth() {
+        return depth.get();
+    }
+
+    public long getDepthBytes() {
+        return depthBytes.get();
+    }
+
+    public int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * 正在重放的最早一条记录已经等待的时间,没有积压时为0
+     */
+    public long getLagMillis() {
+        long appendedAt = headAppendedAt;
+        return depth.get() == 0 || appendedAt == 0 ? 0 : Math.max(0, System.currentTimeMillis() - appendedAt);
+    }
+
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    public long getDrained() {
+        return drained.sum();
+    }
+
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("hbase.spool.depth", this, WriteSpool::getDepth).register(registry);
+        Gauge.builder("hbase.spool.depth.bytes", this, WriteSpool::getDepthBytes).register(registry);
+        Gauge.builder("hbase.spool.segments", this, WriteSpool::getSegments).register(registry);
+        TimeGauge.builder("hbase.spool.lag", this, TimeUnit.MILLISECONDS, WriteSpool::getLagMillis)
+                .register(registry);
+        FunctionCounter.builder("hbase.spool.mutations", this, WriteSpool::getAppended)
+                .tag("result", "appended").register(registry);
+        FunctionCounter.builder("hbase.spool.mutations", this, WriteSpool::getDrained)
+                .tag("result", "drained").register(registry);
+        FunctionCounter.builder("hbase.spool.mutations", this, WriteSpool::getDeadLettered)
+                .tag("result", "dead_lettered").register(registry);
+        FunctionCounter.builder("hbase.spool.mutations", this, WriteSpool::getRejected)
+                .tag("result", "rejected").register(registry);
+        FunctionCounter.builder("hbase.spool.batches", this, WriteSpool::getBatches).register(registry);
+        FunctionCounter.builder("hbase.spool.retries", this, WriteSpool::getRetries).register(registry);
+    }
+
+    /**
+     * 打开目录中留下的段,检查点之前的段已经重放完,直接删除
+     */
+    private void recover() throws IOException {
+        long checkpointSequence = checkpoint.getLong(0);
+        int checkpointPosition = checkpoint.getInt(8);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(Segment.SUFFIX))
+                    .sorted(Comparator.comparingLong(Segment::sequence))
+                    .collect(Collectors.toList());
+        }
+        for (Path path : files) {
+            long sequence = Segment.sequence(path);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (sequence < checkpointSequence) {
+                Files.delete(path);
+                continue;
+            }
+            Segment segment;
+            try {
+                segment = Segment.open(path);
+            } catch (IOException e) {
+                log.error("Skipping unreadable spool segment {}", path, e);
+                Files.move(path, path.resolveSibling(path.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
+                continue;
+            }
+            if (segment.isTruncated()) {
+                log.warn("Spool segment {} has a torn tail after {} records, replaying only those", path,
+                        segment.getRecovered());
+            }
+            int start = Segment.HEADER;
+            if (sequence == checkpointSequence) {
+                start = Math.max(Segment.HEADER, Math.min(checkpointPosition, segment.limit()));
+            }
+            if (head == null) {
+                head = segment;
+                position = start;
+            }
+            Segment.Record record;
+            for (int next = start; (record = segment.read(next)) != null; next = record.next) {
+                depth.incrementAndGet();
+            }
+            depthBytes.addAndGet(segment.limit() - start);
+            segments.addLast(segment);
+        }
+        active = Segment.create(directory, nextSequence++, segmentSize);
+        segments.addLast(active);
+        if (head == null) {
+            head = active;
+            position = Segment.HEADER;
+        }
+        saveCheckpoint();
+        if (depth.get() > 0) {
+            log.info("Recovered {} mutations in {} segments from write spool {}", depth.get(), segments.size() - 1,
+                    directory);
+        }
+    }
+
+    /**
+     * 按段内实际的排列计算写入这些记录需要的新段数,段尾放不下一条记录的部分不能使用;
+     * 后台线程只会删除段,检查通过后空间不会变少
+     *
+     * @return 超过段数上限时返回-1
+     */
+    private int segmentsNeeded(List<byte[]> payloads) {
+        int remaining = active.remaining();
+        int needed = 0;
+        for (byte[] payload : payloads) {
+            int size = Segment.RECORD_HEADER + payload.length;
+            if (remaining < size) {
+                needed++;
+                remaining = segmentSize - Segment.HEADER;
+            }
+            remaining -= size;
+        }
+        return segments.size() + needed <= maxSegments ? needed : -1;
+    }
+
+    /**
+     * 创建失败时删除已经创建的段,这时还没有写入任何记录
+     */
+    private List<Segment> createSegments(int count) {
+        List<Segment> created = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                created.add(Segment.create(directory, nextSequence++, segmentSize));
+            }
+        } catch (IOException e) {
+            for (Segment segment : created) {
+                try {
+                    segment.delete();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new HbaseSystemException("Failed to create spool segment in " + directory, e);
+        }
+        return created;
+    }
+
+    private void roll(Segment next) {
+        Segment previous = active;
+        previous.force();
+        active = next;
+        //先放入新段再封闭旧段,后台线程读完封闭的段时一定能找到下一个段
+        segments.addLast(active);
+        previous.seal();
+    }
+
+    private void saveCheckpoint() {
+        checkpoint.putLong(0, head.sequence);
+        checkpoint.putInt(8, position);
+    }
+
+    private void requestDrain() {
+        synchronized (drainSignal) {
+            drainRequested = true;
+            drainSignal.notifyAll();
+        }
+    }
+
+    private void drainLoop() {
+        while (!closed) {
+            boolean more;
+            try {
+                more = drainOnce();
+            } catch (RuntimeException | IOException e) {
+                log.error("Draining write spool {} failed", directory, e);
+                more = false;
+            }
+            if (more) {
+                continue;
+            }
+            synchronized (drainSignal) {
+                if (!drainRequested && !closed) {
+                    try {
+                        drainSignal.wait(drainIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                drainRequested = false;
+            }
+        }
+    }
+
+    /**
+     * 重放一批,遇到重复的行或段末尾时这一批会少于batchSize条
+     *
+     * @return 是否还有已经发布的记录等待重放,关闭时中途放弃返回false
+     */
+    private boolean drainOnce() throws IOException {
+        advanceHead();
+        List<SpooledMutation> batch = new ArrayList<>();
+        Map<TableName, Set<byte[]>> rows = new HashMap<>();
+        int end = position;
+        Segment.Record record;
+        while (batch.size() < batchSize && (record = head.read(end)) != null) {
+            SpooledMutation spooled = MutationCodec.decode(record.payload);
+            if (!rows.computeIfAbsent(spooled.tableName, t -> new TreeSet<>(Bytes.BYTES_COMPARATOR))
+                    .add(spooled.mutation.getRow())) {
+                //同一行留到下一批,保证按写入顺序生效
+                break;
+            }
+            if (batch.isEmpty()) {
+                headAppendedAt = record.appendedAt;
+            }
+            batch.add(spooled);
+            end = record.next;
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+        Map<TableName, List<Mutation>> byTable = new LinkedHashMap<>();
+        for (SpooledMutation spooled : batch) {
+            byTable.computeIfAbsent(spooled.tableName, t -> new ArrayList<>()).add(spooled.mutation);
+        }
+        int failed = 0;
+        for (Map.Entry<TableName, List<Mutation>> entry : byTable.entrySet()) {
+            int result = apply(entry.getKey(), entry.getValue());
+            if (result < 0) {
+                return false;
+            }
+            failed += result;
+        }
+        int bytes = end - position;
+        position = end;
+        saveCheckpoint();
+        advanceHead();
+        depth.addAndGet(-batch.size());
+        depthBytes.addAndGet(-bytes);
+        drained.add(batch.size() - failed);
+        batches.increment();
+        synchronized (drainSignal) {
+            drainSignal.notifyAll();
+        }
+        return head.read(position) != null;
+    }
+
+    /**
+     * 读完并且已经封闭的段删除,检查点移到下一个段
+     */
+    private void advanceHead() throws IOException {
+        //先判断封闭再读limit,封闭之后limit不再变化
+        while (head.isSealed() && position >= head.limit()) {
+            Segment finished = segments.pollFirst();
+            head = segments.peekFirst();
+            position = Segment.HEADER;
+            saveCheckpoint();
+            finished.delete();
+        }
+    }
+
+    /**
+     * 写入一张表的mutation,可重试的失败等待后重试,直到全部成功或者进入死信队列
+     *
+     * @return 进入死信队列的个数,关闭时中途放弃返回-1
+     */
+    private int apply(TableName tableName, List<Mutation> mutations) {
+        List<Mutation> remaining = mutations;
+        int attempts = 0;
+        int failed = 0;
+        while (true) {
+            attempts++;
+            Object[] results = new Object[remaining.size()];
+            Throwable error = null;
+            List<Mutation> batch = remaining;
+            try {
+                template.execute(tableName, table -> {
+                    try {
+                        table.batch(batch, results);
+                    } catch (RetriesExhaustedWithDetailsException e) {
+                        //失败的位置在results中
+                    }
+                    return null;
+                });
+            } catch (HbaseSystemException e) {
+                error = e.getCause() != null ? e.getCause() : e;
+            }
+            List<Mutation> retry = new ArrayList<>();
+            Iterator<Mutation> it = batch.iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                Mutation mutation = it.next();
+                Throwable cause = results[i] instanceof Throwable ? (Throwable) results[i]
+                        : results[i] == null ? error : null;
+                if (cause == null) {
+                    continue;
+                }
+                if (cause instanceof DoNotRetryIOException && !(cause instanceof TableNotEnabledException)) {
+                    failed++;
+                    deadLettered.increment();
+                    deadLetterQueue.accept(new FailedMutation(tableName, mutation, cause, attempts));
+                } else {
+                    retry.add(mutation);
+                }
+            }
+            if (retry.isEmpty()) {
+                return failed;
+            }
+            retries.add(retry.size());
+            log.warn("Failed to drain {} mutations to {}, retrying in {} ms", retry.size(), tableName, retryBackoffMs,
+                    error);
+            synchronized (backoff) {
+                if (!closed) {
+                    try {
+                        backoff.wait(retryBackoffMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return -1;
+                    }
+                }
+            }
+            if (closed) {
+                return -1;
+            }
+            remaining = retry;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.hbase.transfer;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 导出文件格式:每行一个cell,字段为row,family,qualifier,timestamp,value
+ * <p>
+ * 可打印ASCII字符原样写出,逗号、反斜杠和其他字节写成\xNN,与Bytes.toStringBinary/toBytesBinary兼容,
+ * 因此一行只由ASCII字符组成,字段内不会出现逗号和换行。读写都使用可复用的缓冲区,不为每个字段创建字符串
+ */
+final class CellCsv {
+
+    static final String HEADER = "row,family,qualifier,timestamp,value\n";
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private CellCsv() {
+    }
+
+    /**
+     * 把cell编码到可复用的缓冲区,写满后整块写到out
+     */
+    static final class Writer {
+
+        private final OutputStream out;
+
+        private final byte[] buffer;
+
+        private int position;
+
+        Writer(OutputStream out, int bufferSize) {
+            this.out = out;
+            this.buffer = new byte[bufferSize];
+        }
+
+        void header() throws IOException {
+            byte[] header = HEADER.getBytes(StandardCharsets.US_ASCII);
+            for (byte b : header) {
+                put(b);
+            }
+        }
+
+        void write(Cell cell) throws IOException {
+            escape(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+            put((byte) ',');
+            escape(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+            put((byte) ',');
+            escape(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+            put((byte) ',');
+            for (byte b : Long.toString(cell.getTimestamp()).getBytes(StandardCharsets.US_ASCII)) {
+                put(b);
+            }
+            put((byte) ',');
+            escape(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            put((byte) '\n');
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        private void escape(byte[] bytes, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                int b = bytes[i] & 0xFF;
+                if (b >= 0x20 && b < 0x7F && b != ',' && b != '\\') {
+                    put((byte) b);
+                } else {
+                    put((byte) '\\');
+                    put((byte) 'x');
+                    put(HEX[b >> 4]);
+                    put(HEX[b & 0xF]);
+                }
+            }
+        }
+
+        private void put(byte b) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = b;
+        }
+    }
+
+    /**
+     * 按行读取并解析cell,行缓冲区按需扩大后复用
+     */
+    static final class Reader {
+
+        private final InputStream in;
+
+        private final byte[] input;
+
+        private int inputPosition;
+
+        private int inputLimit;
+
+        private byte[] line = new byte[256];
+
+        private int lineLength;
+
+        private final ByteArrayOutputStream field = new ByteArrayOutputStream();
+
+        private long bytesRead;
+
+        private boolean headerSkipped;
+
+        Reader(InputStream in, int bufferSize) {
+            this.in = in;
+            this.input = new byte[bufferSize];
+        }
+
+        /**
+         * @return 文件结束时返回null
+         */
+        KeyValue next() throws IOException {
+            while (readLine()) {
+                if (!headerSkipped) {
+                    headerSkipped = true;
+                    continue;
+                }
+                if (lineLength > 0) {
+                    return parse();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 已读取的解压后字节数
+         */
+        long getBytesRead() {
+            return bytesRead;
+        }
+
+        private KeyValue parse() throws IOException {
+            int[] commas = new int[4];
+            int found = 0;
+            for (int i = 0; i < lineLength && found < 4; i++) {
+                if (line[i] == ',') {
+                    commas[found++] = i;
+                }
+            }
+            if (found < 4) {
+                throw new IOException("Malformed cell line: " + new String(line, 0, lineLength,
+                        StandardCharsets.US_ASCII));
+            }
+            byte[] row = unescape(0, commas[0]);
+            byte[] family = unescape(commas[0] + 1, commas[1]);
+            byte[] qualifier = unescape(commas[1] + 1, commas[2]);
+            long timestamp = Long.parseLong(new String(line, commas[2] + 1, commas[3] - commas[2] - 1,
+                    StandardCharsets.US_ASCII));
+            byte[] value = unescape(commas[3] + 1, lineLength);
+            return new KeyValue(row, family, qualifier, timestamp, value);
+        }
+
+        private byte[] unescape(int from, int to) {
+            field.reset();
+            for (int i = from; i < to; i++) {
+                if (line[i] == '\\' && i + 3 < to && line[i + 1] == 'x') {
+                    field.write(Character.digit(line[i + 2], 16) << 4 | Character.digit(line[i + 3], 16));
+                    i += 3;
+                } else {
+                    field.write(line[i]);
+                }
+            }
+            return field.toByteArray();
+        }
+
+        private boolean readLine() throws IOException {
+            lineLength = 0;
+            while (true) {
+                if (inputPosition == inputLimit) {
+                    inputLimit = in.read(input, 0, input.length);
+                    inputPosition = 0;
+                    if (inputLimit <= 0) {
+                        inputLimit = 0;
+                        return lineLength > 0;
+                    }
+                    bytesRead += inputLimit;
+                }
+                byte b = input[inputPosition++];
+                if (b == '\n') {
+                    return true;
+                }
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.hbase.transfer;
+
+import com.example.hbase.page.Paginator;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 导出目录中的manifest文件,记录第一次导出时的表名、scan指纹和按region切分的行键区间
+ * <p>
+ * 续传时沿用这里的区间而不是重新读取region边界,region在两次导出之间分裂或合并也不影响已完成的文件。
+ * 指纹与{@link Paginator#fingerprint(TableName, Scan)}相同,范围、列或过滤器不同的scan不能续传到同一目录
+ */
+final class ExportManifest {
+
+    static final String FILE_NAME = "manifest";
+
+    private ExportManifest() {
+    }
+
+    /**
+     * @return 每个区间为{start, stop};manifest不存在时返回null
+     */
+    static List<byte[][]> read(Path directory, TableName tableName, Scan scan) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        String[] header = lines.isEmpty() ? new String[]{""} : lines.get(0).split("\t", -1);
+        if (!header[0].equals(tableName.getNameAsString())) {
+            throw new IllegalStateException(directory + " contains an export of another table");
+        }
+        if (header.length < 2 || !header[1].equals(Integer.toHexString(Paginator.fingerprint(tableName, scan)))) {
+            throw new IllegalStateException(directory + " contains an export of a different scan");
+        }
+        List<byte[][]> ranges = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t", -1);
+            ranges.add(new byte[][]{Bytes.toBytesBinary(fields[0]), Bytes.toBytesBinary(fields[1])});
+        }
+        return ranges;
+    }
+
+    static void write(Path directory, TableName tableName, Scan scan, List<byte[][]> ranges) throws IOException {
+        StringBuilder sb = new StringBuilder(tableName.getNameAsString()).append('\t')
+                .append(Integer.toHexString(Paginator.fingerprint(tableName, scan))).append('\n');
+        for (byte[][] range : ranges) {
+            sb.append(Bytes.toStringBinary(range[0])).append('\t').append(Bytes.toStringBinary(range[1])).append('\n');
+        }
+        Path temp = directory.resolve(FILE_NAME + ".part");
+        Files.write(temp, sb.toString().getBytes(StandardCharsets.US_ASCII));
+        Files.move(temp, directory.resolve(FILE_NAME), StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.hbase.transfer;
+
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.ScanTuner;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按region并行把表导出成gzip压缩的cell文件,每个region一个文件
+ * <p>
+ * 每个region只占用一个scanner、一个编码缓冲区和一个gzip缓冲区,内存与表大小无关。
+ * region文件先写成.part,写完后原子改名;再次导出到同一目录时跳过已完成的文件,重做未完成的文件
+ */
+public class TableExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(TableExporter.class);
+
+    static final String SUFFIX = ".csv.gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HbaseTemplate template;
+
+    private final ParallelScanner scanner;
+
+    private final Scheduler scheduler;
+
+    private final int parallelism;
+
+    /**
+     * @param template
+     * @param scanner     读取region边界
+     * @param pool        执行导出的线程池
+     * @param parallelism 同时导出的最大region数
+     */
+    public TableExporter(HbaseTemplate template, ParallelScanner scanner, ExecutorService pool, int parallelism) {
+        this.template = template;
+        this.scanner = scanner;
+        this.scheduler = Schedulers.fromExecutorService(pool);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 续传时scan必须与第一次导出时相同,否则抛出IllegalStateException
+     *
+     * @param tableName
+     * @param scan      导出的范围和列,不能是反向scan
+     * @param directory 导出目录,不存在时自动创建
+     * @return
+     */
+    public TransferReport export(String tableName, Scan scan, Path directory) {
+        if (scan.isReversed()) {
+            throw new IllegalArgumentException("Export scan must not be reversed");
+        }
+        long start = System.nanoTime();
+        TableName table = TableName.valueOf(tableName);
+        List<byte[][]> ranges;
+        try {
+            Files.createDirectories(directory);
+            ranges = ExportManifest.read(directory, table, scan);
+            if (ranges == null) {
+                ranges = new ArrayList<>();
+                for (Scan subScan : scanner.split(table, scan)) {
+                    ranges.add(new byte[][]{subScan.getStartRow(), subScan.getStopRow()});
+                }
+                ExportManifest.write(directory, table, scan, ranges);
+            }
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to prepare export directory " + directory, e);
+        }
+        List<byte[][]> regions = ranges;
+        TransferReport report = Flux.range(0, regions.size())
+                .flatMap(i -> Mono.fromCallable(() -> exportRegion(table, scan, regions.get(i), directory, i))
+                        .subscribeOn(scheduler), parallelism)
+                .reduce(new TransferReport(0, 0, 0, 0, 0, 0, 0), TransferReport::plus)
+                .block()
+                .withElapsed(System.nanoTime() - start);
+        log.info("Exported {} to {}: {}", tableName, directory, report);
+        return report;
+    }
+
+    static String fileName(int region) {
+        return String.format("region-%05d%s", region, SUFFIX);
+    }
+
+    private TransferReport exportRegion(TableName tableName, Scan scan, byte[][] range, Path directory, int region)
+            throws IOException {
+        Path file = directory.resolve(fileName(region));
+        if (Files.exists(file)) {
+            return new TransferReport(0, 1, 0, 0, 0, 0, 0);
+        }
+        Scan subScan = ScanTuner.allowPartialRows(new Scan(scan));
+        subScan.withStartRow(range[0], !Bytes.equals(range[0], scan.getStartRow()) || scan.includeStartRow());
+        subScan.withStopRow(range[1], Bytes.equals(range[1], scan.getStopRow()) && scan.includeStopRow());
+        Path part = directory.resolve(fileName(region) + ".part");
+        long[] counts = new long[2];
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+            CellCsv.Writer writer = new CellCsv.Writer(out, BUFFER_SIZE);
+            writer.header();
+            template.execute(tableName, table -> {
+                try (ResultScanner results = table.getScanner(subScan)) {
+                    for (Result result : results) {
+                        for (Cell cell : result.rawCells()) {
+                            writer.write(cell);
+                        }
+                        if (!result.mayHaveMoreCellsInRow()) {
+                            counts[0]++;
+                        }
+                        counts[1] += result.size();
+                    }
+                }
+                return null;
+            });
+            writer.flush();
+        }
+        Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+        return new TransferReport(1, 0, counts[0], counts[1], Files.size(file), 0, 0);
+    }
+}
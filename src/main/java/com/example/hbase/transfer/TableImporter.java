@@ -0,0 +1,116 @@
+package com.example.hbase.transfer;
+
+import com.example.hbase.bulk.BulkWriter;
+import com.example.hbase.bulk.BulkWriterFactory;
+import com.example.hbase.core.HbaseSystemException;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 把TableExporter导出的文件并行写回表中
+ * <p>
+ * 同一行连续的cell合成一个Put,通过BulkWriter批量写入,BulkWriter的内存额度用完时读取线程阻塞,内存占用有上限。
+ * cell保留原来的时间戳,重复导入同一批文件的结果相同,中断后可以直接重新导入
+ */
+public class TableImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(TableImporter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BulkWriterFactory writerFactory;
+
+    private final Scheduler scheduler;
+
+    private final int parallelism;
+
+    /**
+     * @param writerFactory
+     * @param pool          读取文件的线程池
+     * @param parallelism   同时读取的最大文件数
+     */
+    public TableImporter(BulkWriterFactory writerFactory, ExecutorService pool, int parallelism) {
+        this.writerFactory = writerFactory;
+        this.scheduler = Schedulers.fromExecutorService(pool);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 导入目录下所有已完成的region文件
+     *
+     * @param tableName 目标表,可以与导出的表不同
+     * @param directory
+     * @return
+     */
+    public TransferReport importFrom(String tableName, Path directory) {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(TableExporter.SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new HbaseSystemException("Failed to list " + directory, e);
+        }
+        TransferReport report;
+        try (BulkWriter writer = writerFactory.create(tableName)) {
+            report = Flux.fromIterable(files)
+                    .flatMap(file -> Mono.fromCallable(() -> importFile(writer, file)).subscribeOn(scheduler),
+                            parallelism)
+                    .reduce(new TransferReport(0, 0, 0, 0, 0, 0, 0), TransferReport::plus)
+                    .block();
+            writer.flush();
+            report = report.plus(new TransferReport(0, 0, 0, 0, 0, writer.getDeadLettered(), 0));
+        }
+        report = report.withElapsed(System.nanoTime() - start);
+        log.info("Imported {} into {}: {}", directory, tableName, report);
+        return report;
+    }
+
+    private TransferReport importFile(BulkWriter writer, Path file) throws IOException {
+        long rows = 0;
+        long cells = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE)) {
+            CellCsv.Reader reader = new CellCsv.Reader(in, BUFFER_SIZE);
+            Put put = null;
+            KeyValue cell;
+            while ((cell = reader.next()) != null) {
+                if (put == null || !CellUtil.matchingRows(cell, put.getRow())) {
+                    if (put != null) {
+                        writer.write(put);
+                        rows++;
+                    }
+                    put = new Put(CellUtil.cloneRow(cell));
+                }
+                put.add(cell);
+                cells++;
+            }
+            if (put != null) {
+                writer.write(put);
+                rows++;
+            }
+            return new TransferReport(1, 0, rows, cells, channel.size(), 0, 0);
+        }
+    }
+}
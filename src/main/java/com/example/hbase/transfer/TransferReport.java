@@ -0,0 +1,101 @@
+package com.example.hbase.transfer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次导出或导入的统计
+ */
+public class TransferReport {
+
+    private final int files;
+
+    private final int skippedFiles;
+
+    private final long rows;
+
+    private final long cells;
+
+    private final long bytes;
+
+    private final long failed;
+
+    private final long elapsedNanos;
+
+    TransferReport(int files, int skippedFiles, long rows, long cells, long bytes, long failed, long elapsedNanos) {
+        this.files = files;
+        this.skippedFiles = skippedFiles;
+        this.rows = rows;
+        this.cells = cells;
+        this.bytes = bytes;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    TransferReport plus(TransferReport other) {
+        return new TransferReport(files + other.files, skippedFiles + other.skippedFiles, rows + other.rows,
+                cells + other.cells, bytes + other.bytes, failed + other.failed, elapsedNanos);
+    }
+
+    TransferReport withElapsed(long elapsedNanos) {
+        return new TransferReport(files, skippedFiles, rows, cells, bytes, failed, elapsedNanos);
+    }
+
+    /**
+     * 本次处理的文件数(每个region一个文件)
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * 导出时之前已经完成而跳过的region文件数
+     */
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getCells() {
+        return cells;
+    }
+
+    /**
+     * 写入或读取的压缩后文件字节数
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 导入时重试耗尽进入死信队列的行数
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+        return perSecond(rows);
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferReport{files=%d, skipped=%d, rows=%d, cells=%d, bytes=%d, failed=%d, "
+                        + "elapsed=%dms, rows/s=%.0f, bytes/s=%.0f}", files, skippedFiles, rows, cells, bytes, failed,
+                getElapsedMillis(), getRowsPerSecond(), getBytesPerSecond());
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.hbase.warmup;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseClientMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动预热:打开共享连接,读取各表全部region的位置放进客户端的meta缓存,可选地对每个region发一次只取一个行键的读,
+ * 让部署后第一批请求不再为zookeeper和hbase:meta查询付出延迟
+ * <p>
+ * 作为SmartLifecycle在所有单例(包括按hbase-schema.yml建表)初始化之后、web server启动之前执行;
+ * async=false时阻塞启动直到预热结束,async=true时在后台线程执行,由WarmupHealthIndicator报告是否完成。
+ * 预热失败只记录日志和状态,不阻止应用启动
+ */
+public class ConnectionWarmup implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionWarmup.class);
+
+    /**
+     * web server的SmartLifecycle在Integer.MAX_VALUE - 1阶段启动,预热要在它之前
+     */
+    static final int PHASE = 0;
+
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    private final HbaseTemplate template;
+
+    private final List<String> tables;
+
+    private final boolean primingReads;
+
+    private final boolean async;
+
+    private final HbaseClientMetrics clientMetrics;
+
+    private final AtomicInteger regions = new AtomicInteger();
+
+    private final AtomicInteger primed = new AtomicInteger();
+
+    private volatile State state = State.PENDING;
+
+    private volatile List<TableName> warmedTables = new ArrayList<>();
+
+    private volatile long durationNanos;
+
+    private volatile Throwable error;
+
+    private volatile Thread worker;
+
+    /**
+     * @param template      共享连接
+     * @param tables        预热的表,为空时预热所有用户表
+     * @param primingReads  是否对每个region发一次读
+     * @param async         是否在后台线程执行
+     * @param clientMetrics 预热完成后重置第一次请求的耗时指标,可以为null
+     */
+    public ConnectionWarmup(HbaseTemplate template, List<String> tables, boolean primingReads, boolean async,
+                            HbaseClientMetrics clientMetrics) {
+        this.template = template;
+        this.tables = tables;
+        this.primingReads = primingReads;
+        this.async = async;
+        this.clientMetrics = clientMetrics;
+    }
+
+    @Override
+    public void start() {
+        if (state != State.PENDING) {
+            return;
+        }
+        state = State.RUNNING;
+        if (!async) {
+            warmup();
+            return;
+        }
+        Thread thread = new Thread(this::warmup, "hbase-warmup");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return state != State.PENDING;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public List<TableName> getTables() {
+        return warmedTables;
+    }
+
+    /**
+     * 放进meta缓存的region数
+     */
+    public int getRegions() {
+        return regions.get();
+    }
+
+    /**
+     * 成功发出预热读的region数
+     */
+    public int getPrimed() {
+        return primed.get();
+    }
+
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("hbase.warmup.duration", this, TimeUnit.NANOSECONDS, w -> w.durationNanos)
+                .register(registry);
+        Gauge.builder("hbase.warmup.regions", this, ConnectionWarmup::getRegions).register(registry);
+        Gauge.builder("hbase.warmup.completed", this, w -> w.state == State.COMPLETED ? 1 : 0).register(registry);
+    }
+
+    void warmup() {
+        long start = System.nanoTime();
+        try {
+            List<TableName> names = tableNames();
+            warmedTables = names;
+            List<CompletableFuture<Void>> reads = new ArrayList<>();
+            for (TableName tableName : names) {
+                List<HRegionLocation> locations = prefetch(tableName);
+                regions.addAndGet(locations.size());
+                if (primingReads) {
+                    for (HRegionLocation location : locations) {
+                        reads.add(CompletableFuture.runAsync(() -> prime(tableName, location), template.getPool()));
+                    }
+                }
+            }
+            CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])).join();
+            durationNanos = System.nanoTime() - start;
+            state = State.COMPLETED;
+            log.info("Warmed up {} regions of {} in {} ms, {} priming reads", regions.get(), names,
+                    getDurationMillis(), primed.get());
+        } catch (RuntimeException | IOException e) {
+            durationNanos = System.nanoTime() - start;
+            error = e;
+            state = State.FAILED;
+            log.error("Warm-up of HBase connection failed after {} ms", getDurationMillis(), e);
+        } finally {
+            if (clientMetrics != null) {
+                clientMetrics.resetFirstRequests();
+            }
+        }
+    }
+
+    private List<TableName> tableNames() throws IOException {
+        if (!tables.isEmpty()) {
+            List<TableName> names = new ArrayList<>(tables.size());
+            for (String table : tables) {
+                names.add(TableName.valueOf(table));
+            }
+            return names;
+        }
+        try (Admin admin = template.getConnection().getAdmin()) {
+            return Arrays.asList(admin.listTableNames());
+        }
+    }
+
+    /**
+     * getAllRegionLocations扫描hbase:meta并把结果放进连接的region位置缓存
+     */
+    private List<HRegionLocation> prefetch(TableName tableName) throws IOException {
+        try (RegionLocator locator = template.getConnection().getRegionLocator(tableName)) {
+            return locator.getAllRegionLocations();
+        }
+    }
+
+    /**
+     * 在region范围内取一个行键,建立到region server的RPC连接并加载索引块,失败不影响预热结果
+     */
+    private void prime(TableName tableName, HRegionLocation location) {
+        Scan scan = new Scan()
+                .withStartRow(location.getRegion().getStartKey())
+                .withStopRow(location.getRegion().getEndKey())
+                .setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()))
+                .setLimit(1)
+                .setCaching(1);
+        try {
+            template.execute(tableName, table -> {
+                try (ResultScanner scanner = table.getScanner(scan)) {
+                    return scanner.next();
+                }
+            });
+            primed.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.warn("Priming read of {} failed", location.getRegion().getRegionNameAsString(), e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.hbase.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * 预热进行中为OUT_OF_SERVICE,完成后为UP,失败为DOWN;加入readiness组后可以让负载均衡在预热完成前不转发流量
+ */
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final ConnectionWarmup warmup;
+
+    public WarmupHealthIndicator(ConnectionWarmup warmup) {
+        this.warmup = warmup;
+    }
+
+    @Override
+    public Health health() {
+        ConnectionWarmup.State state = warmup.getState();
+        Health.Builder builder;
+        switch (state) {
+            case COMPLETED:
+                builder = Health.up();
+                break;
+            case FAILED:
+                builder = Health.down(warmup.getError() instanceof Exception ? (Exception) warmup.getError()
+                        : new IllegalStateException("Warm-up failed", warmup.getError()));
+                break;
+            default:
+                builder = Health.outOfService();
+        }
+        return builder.withDetail("state", state)
+                .withDetail("tables", warmup.getTables().size())
+                .withDetail("regions", warmup.getRegions())
+                .withDetail("primed", warmup.getPrimed())
+                .withDetail("durationMillis", warmup.getDurationMillis())
+                .build();
+    }
+}
@@ -14,7 +14,12 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.AbstractEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.test.context.junit.jupiter.DisabledIf;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -23,9 +28,27 @@ import java.util.List;
 import java.util.NavigableMap;
 
 
+/**
+ * 默认使用in-memory profile在进程内运行,不依赖集群;对真实集群运行时用-Dspring.profiles.active覆盖,
+ * 例如-Dspring.profiles.active=default
+ */
 @SpringBootTest
+@ActiveProfiles(resolver = HbaseApplicationTests.SystemPropertyProfiles.class)
 class HbaseApplicationTests {
 
+    /**
+     * {@code @ActiveProfiles}写死的profile会覆盖spring.profiles.active,这里先读系统属性,没有设置时才用in-memory
+     */
+    static class SystemPropertyProfiles implements ActiveProfilesResolver {
+
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            String active = System.getProperty(AbstractEnvironment.ACTIVE_PROFILES_PROPERTY_NAME);
+            return StringUtils.hasText(active) ? StringUtils.commaDelimitedListToStringArray(active.replace(" ", ""))
+                    : new String[]{"in-memory"};
+        }
+    }
+
     @Autowired
     private Connection connection;
 
@@ -42,6 +65,8 @@ class HbaseApplicationTests {
     }
 
     @Test
+    @DisabledIf(expression = "${hbase.schema.enabled:false}", reason = "mytable is created from hbase-schema.yml",
+            loadContext = true)
     void testInsertTestTable() throws IOException {
         TableName myTable = TableName.valueOf("mytable");
         TableDescriptorBuilder tableDescriptorBuilder = TableDescriptorBuilder.newBuilder(myTable);
@@ -174,7 +199,6 @@ class HbaseApplicationTests {
             }
         }
         table.close();
-        connection.close();
     }
 
     @Test
@@ -730,6 +754,8 @@ class HbaseApplicationTests {
     }
 
     @Test
+    @DisabledIf(expression = "${hbase.client.in-memory:false}",
+            reason = "visibility labels need the VisibilityController coprocessor of a real cluster", loadContext = true)
     void testAdmin() throws Throwable {
       /*  System.out.println(clusterMetrics.getHBaseVersion());
         System.out.println(clusterMetrics.getMasterName());
@@ -0,0 +1,181 @@
+package com.example.hbase.aggregate;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.mapper.OrderedCodecs;
+import com.example.hbase.memory.RecordingConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+class AggregatorTests {
+
+    private static final TableName TABLE = TableName.valueOf("myage");
+
+    private static final byte[] FAMILY = Bytes.toBytes("mycf");
+
+    private static final String[] ADDRESSES = {"beijing", "hangzhou", "shanghai"};
+
+    private final RecordingConnection connection = new RecordingConnection();
+
+    private ExecutorService pool;
+
+    private Aggregator aggregator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newCachedThreadPool();
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                            .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build(),
+                    new byte[][]{Bytes.toBytes("row3"), Bytes.toBytes("row6")});
+        }
+        HbaseTemplate template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        //row1..row9,age为10*i,address轮流取三个城市,row9没有age
+        List<Put> puts = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            Put put = new Put(Bytes.toBytes("row" + i))
+                    .addColumn(FAMILY, Bytes.toBytes("address"), Bytes.toBytes(ADDRESSES[i % 3]));
+            if (i < 9) {
+                put.addColumn(FAMILY, Bytes.toBytes("age"), Bytes.toBytes(10 * i));
+            }
+            puts.add(put);
+        }
+        template.put(TABLE.getNameAsString(), puts);
+        ParallelScanner scanner = new ParallelScanner(template, pool, 2, 100, 1 << 20, 10);
+        aggregator = new Aggregator(template, scanner, pool, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testCountScansKeysOnlyPerRegion() throws IOException {
+        assertThat(aggregator.aggregate("myage", new Scan(), Aggregations.count())).isEqualTo(9);
+        List<Scan> scans = connection.getScans();
+        assertThat(scans).hasSize(3);
+        FilterList filter = (FilterList) scans.get(0).getFilter();
+        assertThat(filter.getFilters()).hasSize(2);
+        assertThat(filter.getFilters().get(0)).isInstanceOf(FirstKeyOnlyFilter.class);
+        assertThat(filter.getFilters().get(1)).isInstanceOf(KeyOnlyFilter.class);
+        //每行只返回一个不带值的cell
+        List<Result> results = new ArrayList<>();
+        for (Scan scan : scans) {
+            try (Table table = connection.getTable(TABLE); ResultScanner rows = table.getScanner(scan)) {
+                rows.forEach(results::add);
+            }
+        }
+        assertThat(results).hasSize(9).allSatisfy(result -> {
+            assertThat(result.size()).isEqualTo(1);
+            assertThat(result.rawCells()[0].getValueLength()).isZero();
+        });
+    }
+
+    @Test
+    void testNumericAggregatesReadOnlyTheirColumn() {
+        LongSummaryStatistics stats = aggregator.aggregate("myage", new Scan(),
+                Aggregations.longStats("mycf:age", NumberEncoding.INT));
+        assertThat(stats.getCount()).isEqualTo(8);
+        assertThat(stats.getSum()).isEqualTo(360);
+        assertThat(stats.getMin()).isEqualTo(10);
+        assertThat(stats.getMax()).isEqualTo(80);
+        assertThat(connection.getScans()).allMatch(scan -> scan.getFamilyMap().get(FAMILY).size() == 1);
+        assertThat(aggregator.aggregate("myage", new Scan().withStartRow(Bytes.toBytes("row5")),
+                Aggregations.avg("mycf:age", NumberEncoding.INT))).isEqualTo(65.0);
+        assertThat(aggregator.aggregate("myage", new Scan().withStartRow(Bytes.toBytes("row9")),
+                Aggregations.max("mycf:age", NumberEncoding.INT))).isNull();
+    }
+
+    @Test
+    void testGroupByAndDistinct() {
+        SortedMap<String, Long> sums = aggregator.aggregate("myage", new Scan(),
+                Aggregations.groupBy("mycf:address", Aggregations.sum("mycf:age", NumberEncoding.INT)));
+        assertThat(sums).containsExactly(
+                entry("beijing", 30L + 60), entry("hangzhou", 10L + 40 + 70), entry("shanghai", 20L + 50 + 80));
+        assertThat(aggregator.aggregate("myage", new Scan(),
+                Aggregations.groupBy("mycf:address", Aggregations.count()))).containsValues(3L, 3L, 3L);
+        assertThat(aggregator.aggregate("myage", new Scan(), Aggregations.distinct("mycf:address"))).isEqualTo(3);
+    }
+
+    @Test
+    void testStreamEmitsProgressPerRegion() {
+        List<AggregateProgress<Long>> progress = aggregator.stream("myage", new Scan(), Aggregations.count())
+                .collectList().block();
+        assertThat(progress).hasSize(3);
+        assertThat(progress).extracting(AggregateProgress::getCompletedRegions).containsExactly(1, 2, 3);
+        assertThat(progress.get(2).isComplete()).isTrue();
+        assertThat(progress.get(2).getResult()).isEqualTo(9);
+        assertThat(progress.get(0).getResult()).isLessThan(9);
+    }
+
+    @Test
+    void testHyperLogLogEstimateAndMerge() {
+        HyperLogLog left = new HyperLogLog(14);
+        HyperLogLog right = new HyperLogLog(14);
+        HyperLogLog all = new HyperLogLog(14);
+        for (int i = 0; i < 100_000; i++) {
+            byte[] value = Bytes.toBytes("user" + i);
+            (i % 2 == 0 ? left : right).add(value, 0, value.length);
+            all.add(value, 0, value.length);
+        }
+        left.merge(right);
+        assertThat(left.estimate()).isEqualTo(all.estimate());
+        assertThat((double) all.estimate()).isCloseTo(100_000, within(3_000.0));
+        HyperLogLog small = new HyperLogLog(14);
+        for (int i = 0; i < 1000; i++) {
+            byte[] value = Bytes.toBytes(i % 100);
+            small.add(value, 0, value.length);
+        }
+        assertThat((double) small.estimate()).isCloseTo(100, within(2.0));
+    }
+
+    private static Map.Entry<String, Long> entry(String key, long value) {
+        return new AbstractMap.SimpleEntry<>(key, value);
+    }
+
+    @Test
+    void testOrderedEncodingsDecodeWithoutAllocation() {
+        for (int value : new int[]{Integer.MIN_VALUE, -1, 0, 9, 10, Integer.MAX_VALUE}) {
+            byte[] bytes = OrderedCodecs.INT32.encode(value);
+            assertThat(NumberEncoding.ORDERED_INT32.toLong(bytes, 0, bytes.length)).isEqualTo(value);
+        }
+        for (long value : new long[]{Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE}) {
+            byte[] bytes = OrderedCodecs.INT64.encode(value);
+            assertThat(NumberEncoding.ORDERED_INT64.toLong(bytes, 0, bytes.length)).isEqualTo(value);
+        }
+        for (double value : new double[]{-1e300, -0.5, 0.0, 0.5, 1e300, Double.NEGATIVE_INFINITY}) {
+            byte[] bytes = OrderedCodecs.FLOAT64.encode(value);
+            assertThat(NumberEncoding.ORDERED_FLOAT64.toDouble(bytes, 0, bytes.length)).isEqualTo(value);
+        }
+    }
+}
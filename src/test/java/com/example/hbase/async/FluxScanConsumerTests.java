@@ -0,0 +1,110 @@
+package com.example.hbase.async;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.Cursor;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.test.StepVerifier;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FluxScanConsumerTests {
+
+    @Test
+    void testSuspendUntilDownstreamRequests() {
+        FakeController controller = new FakeController();
+        AtomicReference<FluxScanConsumer> consumerRef = new AtomicReference<>();
+        StepVerifier.create(newFlux(consumerRef), 2)
+                .then(() -> consumerRef.get().onNext(new Result[]{row("row1"), row("row2")}, controller))
+                .expectNextCount(2)
+                .then(() -> assertThat(controller.suspended.get()).isEqualTo(1))
+                .thenRequest(1)
+                .then(() -> assertThat(controller.resumed.get()).isEqualTo(1))
+                .then(() -> consumerRef.get().onNext(new Result[]{row("row3")}, controller))
+                .expectNextCount(1)
+                .then(() -> consumerRef.get().onComplete())
+                .verifyComplete();
+    }
+
+    @Test
+    void testCancelInsideOnNextTerminatesScanner() {
+        FakeController controller = new FakeController();
+        AtomicReference<FluxScanConsumer> consumerRef = new AtomicReference<>();
+        StepVerifier.create(newFlux(consumerRef), 1)
+                .then(() -> consumerRef.get().onNext(new Result[]{row("row1")}, controller))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+        assertThat(controller.suspended.get()).isZero();
+        assertThat(controller.terminated.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testCancelWhileSuspendedResumesAndTerminates() {
+        FakeController controller = new FakeController();
+        AtomicReference<FluxScanConsumer> consumerRef = new AtomicReference<>();
+        BaseSubscriber<Result> subscriber = new BaseSubscriber<Result>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+        };
+        newFlux(consumerRef).subscribe(subscriber);
+        consumerRef.get().onNext(new Result[]{row("row1")}, controller);
+        assertThat(controller.suspended.get()).isEqualTo(1);
+
+        subscriber.cancel();
+        assertThat(controller.resumed.get()).isEqualTo(1);
+        consumerRef.get().onNext(new Result[]{row("row2")}, controller);
+        assertThat(controller.terminated.get()).isEqualTo(1);
+    }
+
+    private static Flux<Result> newFlux(AtomicReference<FluxScanConsumer> consumerRef) {
+        return Flux.create(sink -> {
+            FluxScanConsumer consumer = new FluxScanConsumer(sink);
+            sink.onRequest(consumer::request);
+            sink.onCancel(consumer::cancel);
+            consumerRef.set(consumer);
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    private static Result row(String row) {
+        byte[] key = Bytes.toBytes(row);
+        return Result.create(new KeyValue[]{new KeyValue(key, Bytes.toBytes("cf1"), Bytes.toBytes("name"), key)});
+    }
+
+    private static class FakeController implements AdvancedScanResultConsumer.ScanController {
+
+        private final AtomicInteger suspended = new AtomicInteger();
+
+        private final AtomicInteger resumed = new AtomicInteger();
+
+        private final AtomicInteger terminated = new AtomicInteger();
+
+        @Override
+        public AdvancedScanResultConsumer.ScanResumer suspend() {
+            suspended.incrementAndGet();
+            return resumed::incrementAndGet;
+        }
+
+        @Override
+        public void terminate() {
+            terminated.incrementAndGet();
+        }
+
+        @Override
+        public Optional<Cursor> cursor() {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.hbase.bulk;
+
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkWriterTests {
+
+    private final AtomicReference<BufferedMutator.ExceptionListener> listener = new AtomicReference<>();
+
+    private BufferedMutator mutator;
+
+    private HbaseTemplate template;
+
+    private InMemoryDeadLetterQueue deadLetterQueue;
+
+    @BeforeEach
+    void setUp() {
+        mutator = mock(BufferedMutator.class);
+        template = mock(HbaseTemplate.class);
+        when(template.getBufferedMutator(any(BufferedMutatorParams.class))).thenAnswer(invocation -> {
+            listener.set(invocation.<BufferedMutatorParams>getArgument(0).getListener());
+            return mutator;
+        });
+        deadLetterQueue = new InMemoryDeadLetterQueue(10);
+    }
+
+    private static Put put(String row) {
+        return new Put(Bytes.toBytes(row)).addColumn(Bytes.toBytes("mycf"), Bytes.toBytes("name"), Bytes.toBytes(row));
+    }
+
+    private BulkWriter newWriter(int maxPendingBytes, long flushIntervalMs) {
+        return new BulkWriter(template, new BufferedMutatorParams(TableName.valueOf("mytable")), maxPendingBytes,
+                flushIntervalMs, 2, deadLetterQueue);
+    }
+
+    @Test
+    void testProducerBlocksUntilFlushReleasesBudget() throws Exception {
+        Put first = put("row1");
+        BulkWriter writer = newWriter((int) first.heapSize(), TimeUnit.HOURS.toMillis(1));
+        writer.write(first);
+
+        CountDownLatch written = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                writer.write(put("row2"));
+                written.countDown();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+        //额度用完后第二次写入被阻塞,直到超过阈值触发的后台flush释放额度
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(mutator, atLeastOnce()).flush();
+        writer.close();
+        verify(mutator).close();
+    }
+
+    @Test
+    void testFailedMutationsAreRetriedThenDeadLettered() throws Exception {
+        BulkWriter writer = newWriter(1 << 20, TimeUnit.HOURS.toMillis(1));
+        Put put = put("row1");
+        writer.write(put);
+
+        for (int i = 0; i < 3; i++) {
+            listener.get().onException(new RetriesExhaustedWithDetailsException(
+                    Collections.singletonList(new IOException("region moved")),
+                    Collections.<Row>singletonList(put), Collections.singletonList("rs1:16020")), mutator);
+            writer.flush();
+        }
+        //第一次写入 + 两次重试,第三次失败后进入死信
+        verify(mutator, times(3)).mutate(put);
+        assertThat(writer.getRetried()).isEqualTo(2);
+        //重试不计入写入数
+        assertThat(writer.getWritten()).isEqualTo(1);
+        assertThat(deadLetterQueue.drain()).extracting(FailedMutation::getAttempts).containsExactly(3);
+        writer.close();
+    }
+
+    @Test
+    void testDoNotRetryGoesStraightToDeadLetter() throws Exception {
+        BulkWriter writer = newWriter(1 << 20, TimeUnit.HOURS.toMillis(1));
+        Put put = put("row1");
+        writer.write(put);
+        listener.get().onException(new RetriesExhaustedWithDetailsException(
+                Collections.singletonList(new DoNotRetryIOException("no such family")),
+                Collections.<Row>singletonList(put), Collections.singletonList("rs1:16020")), mutator);
+        writer.close();
+        assertThat(writer.getRetried()).isZero();
+        assertThat(writer.getDeadLettered()).isEqualTo(1);
+    }
+}
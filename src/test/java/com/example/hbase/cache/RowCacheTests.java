@@ -0,0 +1,137 @@
+package com.example.hbase.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RowCacheTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] ROW = Bytes.toBytes("row1");
+
+    private static final byte[] FAMILY = Bytes.toBytes("cf1");
+
+    private Table table;
+
+    private RowCache rowCache;
+
+    private static Result person(String name) {
+        return Result.create(new Cell[]{
+                new KeyValue(ROW, FAMILY, Bytes.toBytes("age"), 1L, Bytes.toBytes(18)),
+                new KeyValue(ROW, FAMILY, Bytes.toBytes("name"), 1L, Bytes.toBytes(name))
+        });
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        table = mock(Table.class);
+        when(table.getName()).thenReturn(TABLE);
+        when(table.get(any(Get.class))).thenReturn(person("zhangsan"));
+        rowCache = new RowCache(Collections.singleton(TABLE), 1024 * 1024, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testHitServesDecodedCopy() throws IOException {
+        Result first = rowCache.get(table, new Get(ROW));
+        Result second = rowCache.get(table, new Get(ROW));
+        verify(table, times(1)).get(any(Get.class));
+        assertThat(second.rawCells()).hasSize(2);
+        assertThat(Bytes.toString(second.getValue(FAMILY, Bytes.toBytes("name")))).isEqualTo("zhangsan");
+        assertThat(Bytes.toInt(second.getValue(FAMILY, Bytes.toBytes("age")))).isEqualTo(18);
+        assertThat(Bytes.equals(second.getRow(), first.getRow())).isTrue();
+    }
+
+    @Test
+    void testProjectionsAreCachedSeparately() throws IOException {
+        rowCache.get(table, new Get(ROW));
+        rowCache.get(table, new Get(ROW).addColumn(FAMILY, Bytes.toBytes("name")));
+        rowCache.get(table, new Get(ROW).addColumn(FAMILY, Bytes.toBytes("name")));
+        verify(table, times(2)).get(any(Get.class));
+    }
+
+    @Test
+    void testInvalidateDropsAllProjections() throws IOException {
+        rowCache.get(table, new Get(ROW));
+        rowCache.get(table, new Get(ROW).addFamily(FAMILY));
+        when(table.get(any(Get.class))).thenReturn(person("lisi"));
+        rowCache.invalidate(TABLE, Bytes.toBytes("row1"));
+
+        Result result = rowCache.get(table, new Get(ROW));
+        assertThat(Bytes.toString(result.getValue(FAMILY, Bytes.toBytes("name")))).isEqualTo("lisi");
+        verify(table, times(3)).get(any(Get.class));
+    }
+
+    @Test
+    void testLoadRacingWithInvalidationIsNotStored() throws IOException {
+        when(table.get(any(Get.class))).thenAnswer(invocation -> {
+            //回源期间有写入完成并失效了这一行
+            rowCache.invalidate(TABLE, ROW);
+            return person("zhangsan");
+        });
+        rowCache.get(table, new Get(ROW));
+        assertThat(rowCache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void testUncacheableGetsAndTablesBypassCache() throws IOException {
+        rowCache.get(table, new Get(ROW).setFilter(new FirstKeyOnlyFilter()));
+        rowCache.get(table, new Get(ROW).readVersions(3));
+        Table other = mock(Table.class);
+        when(other.getName()).thenReturn(TableName.valueOf("other"));
+        when(other.get(any(Get.class))).thenReturn(Result.EMPTY_RESULT);
+        rowCache.get(other, new Get(ROW));
+        assertThat(rowCache.estimatedSize()).isZero();
+    }
+
+    @Test
+    void testEmptyResultIsCached() throws IOException {
+        when(table.get(any(Get.class))).thenReturn(Result.EMPTY_RESULT);
+        assertThat(rowCache.get(table, new Get(ROW)).isEmpty()).isTrue();
+        assertThat(rowCache.get(table, new Get(ROW)).isEmpty()).isTrue();
+        verify(table, times(1)).get(any(Get.class));
+    }
+
+    @Test
+    void testHitAndMissMetrics() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        rowCache.bindTo(registry);
+        rowCache.get(table, new Get(ROW));
+        rowCache.get(table, new Get(ROW));
+        rowCache.get(table, new Get(ROW).addFamily(FAMILY));
+        rowCache.cleanUp();
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("hbase.cache.bytes").gauge().value()).isPositive();
+    }
+
+    @Test
+    void testProjectionsPerRowAreBounded() {
+        CachedRow row = CachedRow.of(new byte[]{0}, new byte[0]);
+        for (int i = 1; i < 20; i++) {
+            row = row.with(new byte[]{(byte) i}, new byte[0]);
+        }
+        assertThat(row.size()).isEqualTo(CachedRow.MAX_PROJECTIONS);
+        assertThat(row.find(new byte[]{0})).isNull();
+        assertThat(row.find(new byte[]{19})).isNotNull();
+    }
+}
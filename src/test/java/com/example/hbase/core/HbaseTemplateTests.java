@@ -0,0 +1,142 @@
+package com.example.hbase.core;
+
+import com.example.hbase.cache.RowCache;
+import com.example.hbase.memory.InMemoryConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.query.Predicate;
+import com.example.hbase.query.Query;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HbaseTemplateTests {
+
+    private Connection connection;
+
+    private ExecutorService pool;
+
+    private Table table;
+
+    private HbaseTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        connection = mock(Connection.class);
+        pool = mock(ExecutorService.class);
+        table = mock(Table.class);
+        TableBuilder builder = mock(TableBuilder.class);
+        when(builder.build()).thenReturn(table);
+        when(connection.getTableBuilder(eq(TableName.valueOf("myTable")), eq(pool))).thenReturn(builder);
+        template = new HbaseTemplate(connection, pool, new HbaseConnectionMetrics());
+    }
+
+    @Test
+    void testTableIsClosedAfterCallback() throws IOException {
+        String value = template.execute("myTable", t -> "ok");
+        assertThat(value).isEqualTo("ok");
+        verify(table).close();
+    }
+
+    @Test
+    void testCheckedExceptionIsWrapped() throws IOException {
+        Put put = new Put("row1".getBytes());
+        doThrow(new IOException("boom")).when(table).put(put);
+        assertThatThrownBy(() -> template.put("myTable", put))
+                .isInstanceOf(HbaseSystemException.class)
+                .hasCauseInstanceOf(IOException.class);
+        verify(table).close();
+    }
+
+    @Test
+    void testMutatorUsesSharedPool() throws IOException {
+        BufferedMutator mutator = mock(BufferedMutator.class);
+        when(connection.getBufferedMutator(any(BufferedMutatorParams.class))).thenAnswer(invocation -> {
+            BufferedMutatorParams params = invocation.getArgument(0);
+            assertThat(params.getPool()).isSameAs(pool);
+            return mutator;
+        });
+        template.executeMutator("myTable", m -> m.mutate(new Put("row1".getBytes())));
+        verify(mutator).flush();
+        verify(mutator).close();
+    }
+
+    @Test
+    void testPutInvalidatesCachedRow() throws IOException {
+        TableName tableName = TableName.valueOf("myTable");
+        when(table.getName()).thenReturn(tableName);
+        when(table.get(any(Get.class))).thenReturn(Result.EMPTY_RESULT);
+        RowCache rowCache = new RowCache(Collections.singleton(tableName), 1024 * 1024, Duration.ofMinutes(1));
+        HbaseTemplate cached = new HbaseTemplate(connection, pool, new HbaseConnectionMetrics(), rowCache);
+
+        cached.get("myTable", "row1", (result, rowNum) -> result);
+        cached.get("myTable", "row1", (result, rowNum) -> result);
+        verify(table, times(1)).get(any(Get.class));
+
+        cached.put("myTable", new Put("row1".getBytes()).addColumn("cf1".getBytes(), "name".getBytes(), "lisi".getBytes()));
+        cached.get("myTable", "row1", (result, rowNum) -> result);
+        verify(table, times(2)).get(any(Get.class));
+    }
+
+    @Test
+    void testFindByQueryStripsFilterOnlyColumns() throws IOException {
+        InMemoryConnection memory = new InMemoryConnection();
+        TableName tableName = TableName.valueOf("myTable");
+        byte[] cf1 = Bytes.toBytes("cf1");
+        try (Admin admin = memory.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(tableName)
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.of(cf1)).build());
+        }
+        HbaseTemplate inMemory = new HbaseTemplate(memory, pool, new HbaseConnectionMetrics());
+        List<Put> puts = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            puts.add(new Put(Bytes.toBytes("row" + i))
+                    .addColumn(cf1, Bytes.toBytes("name"), Bytes.toBytes(i % 2 == 0 ? "even" : "odd"))
+                    .addColumn(cf1, Bytes.toBytes("nick"), Bytes.toBytes("n" + i)));
+        }
+        inMemory.put("myTable", puts);
+
+        //只为过滤读取的cf1:name不交给mapper,嵌套FilterList和编译后的过滤器一样
+        for (boolean compiled : new boolean[]{false, true}) {
+            Query query = Query.from(tableName).select("cf1:nick").where(Predicate.eq("cf1:name", "even"));
+            List<Result> selected = inMemory.find(compiled ? query.compiled() : query, (result, rowNum) -> result);
+            assertThat(selected).extracting(result -> Bytes.toString(result.getRow()))
+                    .containsExactly("row2", "row4", "row6");
+            assertThat(selected).allSatisfy(result -> {
+                assertThat(result.size()).isEqualTo(1);
+                assertThat(result.containsColumn(cf1, Bytes.toBytes("nick"))).isTrue();
+            });
+        }
+        //整列族选择时过滤列本来就在结果中,保留
+        assertThat(inMemory.find(Query.from(tableName).select("cf1").where(Predicate.eq("cf1:name", "even")),
+                (result, rowNum) -> result.size())).containsExactly(2, 2, 2);
+    }
+}
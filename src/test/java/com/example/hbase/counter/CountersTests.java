@@ -0,0 +1,172 @@
+package com.example.hbase.counter;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.InMemoryConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CountersTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] CF1 = Bytes.toBytes("cf1");
+
+    private static final byte[] CF2 = Bytes.toBytes("cf2");
+
+    private static final byte[] HITS = Bytes.toBytes("hits");
+
+    private final InMemoryConnection connection = new InMemoryConnection();
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newFixedThreadPool(4);
+        template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF1)).build(),
+                    new byte[][]{Bytes.toBytes("row3"), Bytes.toBytes("row6")});
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private long stored(String row, byte[] family) throws IOException {
+        try (Table table = connection.getTable(TABLE)) {
+            byte[] value = table.get(new Get(Bytes.toBytes(row)).addColumn(family, HITS)).getValue(family, HITS);
+            return value == null ? 0L : Bytes.toLong(value);
+        }
+    }
+
+    @Test
+    void testConcurrentIncrementsBecomeFewBatchedCalls() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try (Counters counters = new Counters(template, TABLE, TimeUnit.HOURS.toMillis(1), 100_000)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(writers.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        counters.increment(Bytes.toBytes("row" + i % 9), CF1, HITS);
+                        if (i % 20_000 == 0) {
+                            counters.flush();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            counters.flush();
+
+            long total = 0;
+            for (int i = 0; i < 9; i++) {
+                total += stored("row" + i, CF1);
+                assertThat(counters.getPending(Bytes.toBytes("row" + i), CF1, HITS)).isZero();
+            }
+            assertThat(total).isEqualTo(800_000);
+            assertThat(counters.getIncrements()).isEqualTo(800_000);
+            //每次flush最多三个region各一次调用
+            assertThat(counters.getCalls()).isLessThanOrEqualTo(counters.getFlushes() * 3);
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReadsMergePendingDeltas() throws IOException {
+        try (Counters counters = new Counters(template, TABLE, TimeUnit.HOURS.toMillis(1), 100_000)) {
+            byte[] row = Bytes.toBytes("row1");
+            counters.increment(row, CF1, HITS, 5);
+            assertThat(stored("row1", CF1)).isZero();
+            assertThat(counters.get(row, CF1, HITS)).isEqualTo(5);
+
+            counters.flush();
+            counters.increment(row, CF1, HITS, 2);
+            assertThat(stored("row1", CF1)).isEqualTo(5);
+            assertThat(counters.get(row, CF1, HITS)).isEqualTo(7);
+
+            //没有新增量的计数器在下一轮flush后移除
+            counters.flush();
+            counters.flush();
+            assertThat(counters.getPendingKeys()).isZero();
+            assertThat(counters.get(row, CF1, HITS)).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void testFailedDeltasAreRetriedAndFlushedOnClose() throws IOException {
+        Counters counters = new Counters(template, TABLE, TimeUnit.HOURS.toMillis(1), 100_000);
+        byte[] row = Bytes.toBytes("row7");
+        counters.increment(row, CF2, HITS, 3);
+        counters.increment(Bytes.toBytes("row1"), CF1, HITS, 1);
+
+        //cf2还不存在,这一行的增量放回本地,其他region不受影响
+        counters.flush();
+        assertThat(counters.getFailures()).isEqualTo(1);
+        assertThat(counters.getPending(row, CF2, HITS)).isEqualTo(3);
+        assertThat(stored("row1", CF1)).isEqualTo(1);
+
+        try (Admin admin = connection.getAdmin()) {
+            admin.addColumnFamily(TABLE, ColumnFamilyDescriptorBuilder.of(CF2));
+        }
+        counters.increment(row, CF2, HITS, 4);
+        counters.close();
+        assertThat(stored("row7", CF2)).isEqualTo(7);
+    }
+
+    @Test
+    void testIncrementsRacingCloseAreFlushed() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        Counters counters = new Counters(template, TABLE, 1, 100_000);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(writers.submit(() -> {
+                long accepted = 0;
+                try {
+                    while (true) {
+                        counters.increment(Bytes.toBytes("row1"), CF1, HITS);
+                        accepted++;
+                    }
+                } catch (IllegalStateException e) {
+                    return accepted;
+                }
+            }));
+        }
+        Thread.sleep(50);
+        counters.close();
+        long accepted = 0;
+        for (Future<Long> future : futures) {
+            accepted += future.get();
+        }
+        writers.shutdown();
+        //close返回时所有被接受的increment都已写入
+        assertThat(stored("row1", CF1)).isEqualTo(accepted).isPositive();
+        assertThat(counters.getPending(Bytes.toBytes("row1"), CF1, HITS)).isZero();
+    }
+}
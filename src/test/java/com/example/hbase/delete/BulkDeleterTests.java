@@ -0,0 +1,160 @@
+package com.example.hbase.delete;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.InMemoryConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.query.Query;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.example.hbase.query.Predicate.eq;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class BulkDeleterTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] CF1 = Bytes.toBytes("cf1");
+
+    private static final byte[] CF2 = Bytes.toBytes("cf2");
+
+    private static final byte[] NAME = Bytes.toBytes("name");
+
+    private final InMemoryConnection connection = new InMemoryConnection();
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    private ParallelScanner scanner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newCachedThreadPool();
+        template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        scanner = new ParallelScanner(template, pool, 4, 0, 0, 100);
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                            .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF1))
+                            .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF2)).build(),
+                    new byte[][]{Bytes.toBytes("b"), Bytes.toBytes("c")});
+        }
+        List<Put> puts = new ArrayList<>();
+        for (String prefix : new String[]{"a", "b", "c"}) {
+            for (int i = 0; i < 100; i++) {
+                puts.add(new Put(Bytes.toBytes(String.format("%s%03d", prefix, i)))
+                        .addColumn(CF1, Bytes.toBytes("state"), Bytes.toBytes(i % 10 == 0 ? "expired" : "active"))
+                        .addColumn(CF1, NAME, Bytes.toBytes("name" + i))
+                        .addColumn(CF2, Bytes.toBytes("payload"), Bytes.toBytes(i)));
+            }
+        }
+        template.put(TABLE.getNameAsString(), puts);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private List<String> rows(Scan scan) throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (Table table = connection.getTable(TABLE); ResultScanner results = table.getScanner(scan)) {
+            for (Result result : results) {
+                rows.add(Bytes.toString(result.getRow()));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void testDeletePrefixAndRangeAcrossRegions() throws IOException {
+        BulkDeleter deleter = new BulkDeleter(template, scanner, pool, 2, 30, 0);
+
+        DeleteProgress progress = deleter.deletePrefix(TABLE.getNameAsString(), Bytes.toBytes("b0"));
+        assertThat(progress.getRows()).isEqualTo(100);
+        assertThat(progress.getBatches()).isEqualTo(4);
+        assertThat(progress.isComplete()).isTrue();
+        assertThat(rows(new Scan())).hasSize(200).noneMatch(row -> row.startsWith("b"));
+
+        //跨越a、c两个region
+        progress = deleter.deleteRange(TABLE.getNameAsString(), Bytes.toBytes("a050"), Bytes.toBytes("c050"));
+        assertThat(progress.getRows()).isEqualTo(100);
+        assertThat(progress.getTotalRegions()).isEqualTo(3);
+        assertThat(rows(new Scan())).hasSize(100).startsWith("a000").endsWith("c099").contains("a049", "c050");
+    }
+
+    @Test
+    void testDeleteByPredicateAndFamily() throws IOException {
+        BulkDeleter deleter = new BulkDeleter(template, scanner, pool, 4, 1000, 0);
+
+        DeleteProgress progress = deleter.delete(Query.from(TABLE).where(eq("cf1:state", "expired")));
+        assertThat(progress.getRows()).isEqualTo(30);
+        assertThat(rows(new Scan())).hasSize(270).doesNotContain("a000", "b010", "c090");
+
+        //只选择了cf2时只删除cf2
+        deleter.delete(TABLE.getNameAsString(), new Scan().withStartRow(Bytes.toBytes("c")).addFamily(CF2));
+        assertThat(rows(new Scan().addFamily(CF2))).hasSize(180);
+        assertThat(rows(new Scan().addFamily(CF1))).hasSize(270);
+    }
+
+    @Test
+    void testDeleteByQueryOnlyDeletesSelectedColumns() throws IOException {
+        BulkDeleter deleter = new BulkDeleter(template, scanner, pool, 2, 30, 0);
+        //条件列cf1:state只为过滤读取,不删除
+        DeleteProgress progress = deleter.delete(Query.from(TABLE).select("cf1:name")
+                .where(eq("cf1:state", "expired")));
+        assertThat(progress.getRows()).isEqualTo(30);
+        assertThat(rows(new Scan().addColumn(CF1, NAME))).hasSize(270).doesNotContain("a000", "b010", "c090");
+        assertThat(rows(new Scan().addColumn(CF1, Bytes.toBytes("state")))).hasSize(300);
+        assertThat(rows(new Scan().addFamily(CF2))).hasSize(300);
+    }
+
+    @Test
+    void testThrottleAndProgressStream() {
+        BulkDeleter deleter = new BulkDeleter(template, scanner, pool, 4, 50, 1000);
+        long start = System.nanoTime();
+        List<DeleteProgress> progress = deleter.stream(TABLE.getNameAsString(), new Scan()).collectList().block();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        //300行每秒1000行,6批中第一批不等待
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(200);
+        assertThat(progress).hasSize(9);
+        assertThat(progress.get(progress.size() - 1).getRows()).isEqualTo(300);
+        assertThat(progress).extracting(DeleteProgress::getRows).isSorted();
+    }
+
+    @Test
+    void testTruncatePreservesSplits() throws IOException {
+        BulkDeleter deleter = new BulkDeleter(template, scanner, pool, 4, 1000, 0);
+        deleter.truncate(TABLE.getNameAsString(), true);
+        try (Admin admin = connection.getAdmin()) {
+            assertThat(admin.isTableEnabled(TABLE)).isTrue();
+            assertThat(admin.getRegions(TABLE)).hasSize(3);
+        }
+        assertThat(rows(new Scan())).isEmpty();
+
+        deleter.truncate(TABLE.getNameAsString(), false);
+        try (Admin admin = connection.getAdmin()) {
+            assertThat(admin.getRegions(TABLE)).hasSize(1);
+        }
+    }
+}
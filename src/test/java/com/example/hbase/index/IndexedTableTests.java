@@ -0,0 +1,234 @@
+package com.example.hbase.index;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.RecordingConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class IndexedTableTests {
+
+    private static final TableName TABLE = TableName.valueOf("myage");
+
+    private static final TableName INDEX_TABLE = TableName.valueOf("myage_idx");
+
+    private static final byte[] FAMILY = Bytes.toBytes("mycf");
+
+    private static final byte[] AGE = Bytes.toBytes("age");
+
+    private static final byte[] NAME = Bytes.toBytes("name");
+
+    /**
+     * 按写入顺序记录的表名
+     */
+    private final List<TableName> writes = new ArrayList<>();
+
+    /**
+     * 写完数据表后执行一次,模拟并发写入
+     */
+    private Runnable afterDataWrite;
+
+    private final RecordingConnection connection = new RecordingConnection() {
+
+        @Override
+        protected Table record(TableName tableName, Table table) throws IOException {
+            Table recording = super.record(tableName, table);
+            doAnswer(invocation -> {
+                writes.add(tableName);
+                table.put((List<Put>) invocation.getArgument(0));
+                Runnable interleaved = afterDataWrite;
+                if (tableName.equals(TABLE) && interleaved != null) {
+                    afterDataWrite = null;
+                    interleaved.run();
+                }
+                return null;
+            }).when(recording).put(anyList());
+            doAnswer(invocation -> {
+                writes.add(tableName);
+                table.delete((Delete) invocation.getArgument(0));
+                return null;
+            }).when(recording).delete(any(Delete.class));
+            doAnswer(invocation -> {
+                writes.add(tableName);
+                table.delete((List<Delete>) invocation.getArgument(0));
+                return null;
+            }).when(recording).delete(anyList());
+            return recording;
+        }
+    };
+
+    private ExecutorService pool;
+
+    private IndexedTable indexedTable;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newSingleThreadExecutor();
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build());
+            admin.createTable(TableDescriptorBuilder.newBuilder(INDEX_TABLE)
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.of(IndexedTable.INDEX_FAMILY)).build());
+        }
+        HbaseTemplate template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        indexedTable = new IndexedTable(template, TABLE,
+                Arrays.asList(IndexDefinition.of("age", "mycf:age"), IndexDefinition.of("name", "mycf:name")), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testIndexRowsSortByValueAndRoundTrip() {
+        byte[] withZero = {'a', 0, 'b'};
+        byte[] row = {'r', 0, 1};
+        byte[] indexRow = IndexKeys.indexRow("name", withZero, row);
+        assertThat(IndexKeys.value(indexRow)).isEqualTo(withZero);
+        assertThat(IndexKeys.dataRow(indexRow)).isEqualTo(row);
+        //"a" < "a\0b" < "a\1" 转义后保持同样的顺序
+        byte[] a = IndexKeys.indexRow("name", Bytes.toBytes("a"), Bytes.toBytes("z"));
+        byte[] a1 = IndexKeys.indexRow("name", new byte[]{'a', 1}, Bytes.toBytes("a"));
+        assertThat(Bytes.compareTo(a, indexRow)).isNegative();
+        assertThat(Bytes.compareTo(indexRow, a1)).isNegative();
+        assertThat(Bytes.compareTo(IndexKeys.indexPrefix("name"), a)).isNegative();
+        assertThat(Bytes.compareTo(a1, IndexKeys.indexEnd("name"))).isNegative();
+    }
+
+    @Test
+    void testPutWritesIndexBeforeDataAndRemovesOldEntry() throws IOException {
+        indexedTable.put(person("row1", "20", "zhangsan"));
+        assertThat(writes).containsExactly(INDEX_TABLE, TABLE);
+        writes.clear();
+
+        indexedTable.put(new Put(Bytes.toBytes("row1")).addColumn(FAMILY, AGE, Bytes.toBytes("21")));
+        assertThat(writes).containsExactly(INDEX_TABLE, TABLE, INDEX_TABLE);
+        assertThat(indexRows()).containsExactly("age\\x0021\\x00\\x01row1", "name\\x00zhangsan\\x00\\x01row1");
+
+        writes.clear();
+        indexedTable.put(new Put(Bytes.toBytes("row1")).addColumn(FAMILY, Bytes.toBytes("address"), Bytes.toBytes("x")));
+        assertThat(writes).containsExactly(TABLE);
+    }
+
+    @Test
+    void testConcurrentRevertKeepsLiveEntry() throws IOException {
+        indexedTable.put(person("row1", "20", "zhangsan"));
+        //A把20改成21,写完数据后、删除旧索引行前,B读到21并改回20
+        afterDataWrite = () -> indexedTable.put(new Put(Bytes.toBytes("row1"))
+                .addColumn(FAMILY, AGE, Bytes.toBytes("20")));
+        indexedTable.put(new Put(Bytes.toBytes("row1")).addColumn(FAMILY, AGE, Bytes.toBytes("21")));
+
+        assertThat(indexRows()).contains("age\\x0020\\x00\\x01row1").doesNotContain("age\\x0021\\x00\\x01row1");
+        assertThat(rows(indexedTable.findEqual("age", Bytes.toBytes("20")))).containsExactly("row1");
+    }
+
+    @Test
+    void testDeleteRemovesEntries() throws IOException {
+        indexedTable.put(Arrays.asList(person("row1", "20", "zhangsan"), person("row2", "30", "lisi")));
+        indexedTable.delete(new Delete(Bytes.toBytes("row1")));
+        assertThat(indexRows()).containsExactly("age\\x0030\\x00\\x01row2", "name\\x00lisi\\x00\\x01row2");
+    }
+
+    @Test
+    void testLookupSkipsStaleEntries() throws IOException {
+        indexedTable.put(Arrays.asList(person("row1", "20", "zhangsan"), person("row2", "30", "lisi"),
+                person("row3", "20", "wangwu"), person("row4", "25", "zhaoliu")));
+        //模拟写完索引后数据写入失败留下的多余索引行
+        put(INDEX_TABLE, IndexedTable.entry(indexedTable.index("age"), Bytes.toBytes("20"), Bytes.toBytes("row2")));
+
+        assertThat(rows(indexedTable.findEqual("age", Bytes.toBytes("20")))).containsExactly("row1", "row3");
+        assertThat(indexedTable.getStaleHits()).isEqualTo(1);
+        assertThat(indexedTable.findEqual("age", Bytes.toBytes("2"))).isEmpty();
+        assertThat(indexedTable.findRange("age", Bytes.toBytes("21"), Bytes.toBytes("30"),
+                (result, rowNum) -> Bytes.toString(result.getValue(FAMILY, NAME)))).containsExactly("zhaoliu");
+        assertThat(rows(indexedTable.findRange("age", Bytes.toBytes("25"), null))).containsExactly("row4", "row2");
+        assertThat(rows(indexedTable.findRange("name", null, Bytes.toBytes("m")))).containsExactly("row2");
+        assertThatThrownBy(() -> indexedTable.findEqual("address", Bytes.toBytes("x")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCheckerFindsAndRepairsStaleAndMissingEntries() throws IOException {
+        indexedTable.put(Arrays.asList(person("row1", "20", "zhangsan"), person("row2", "30", "lisi")));
+        long old = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+        //一小时前留下的多余索引行,刚写入的多余索引行在宽限时间内,不算过期
+        put(INDEX_TABLE, new Put(IndexKeys.indexRow("age", Bytes.toBytes("40"), Bytes.toBytes("row1")))
+                .addColumn(IndexedTable.INDEX_FAMILY, new byte[0], old, new byte[0]));
+        put(INDEX_TABLE, IndexedTable.entry(indexedTable.index("age"), Bytes.toBytes("50"), Bytes.toBytes("row2")));
+        //绕过IndexedTable写入的数据
+        put(TABLE, person("row3", "60", "wangwu"));
+
+        IndexChecker checker = new IndexChecker(indexedTable, Duration.ofMinutes(1), 2);
+        IndexReport report = checker.check("age", false);
+        assertThat(report.getEntries()).isEqualTo(4);
+        assertThat(report.getRows()).isEqualTo(3);
+        assertThat(report.getStale()).isEqualTo(1);
+        assertThat(report.getMissing()).isEqualTo(1);
+        assertThat(report.isConsistent()).isFalse();
+
+        assertThat(checker.rebuild("age").isRepaired()).isTrue();
+        assertThat(rows(indexedTable.findEqual("age", Bytes.toBytes("60")))).containsExactly("row3");
+        IndexReport after = checker.check("age", false);
+        assertThat(after.getStale()).isZero();
+        assertThat(after.getMissing()).isZero();
+        assertThat(after.getEntries()).isEqualTo(4);
+    }
+
+    private static Put person(String row, String age, String name) {
+        return new Put(Bytes.toBytes(row))
+                .addColumn(FAMILY, AGE, Bytes.toBytes(age))
+                .addColumn(FAMILY, NAME, Bytes.toBytes(name));
+    }
+
+    private static List<String> rows(List<Result> results) {
+        return results.stream().map(result -> Bytes.toString(result.getRow())).collect(Collectors.toList());
+    }
+
+    private List<String> indexRows() throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (Table table = connection.getTable(INDEX_TABLE); ResultScanner scanner = table.getScanner(new Scan())) {
+            for (Result result : scanner) {
+                rows.add(Bytes.toStringBinary(result.getRow()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 绕过IndexedTable直接写入
+     */
+    private void put(TableName name, Put put) throws IOException {
+        try (Table table = connection.getTable(name)) {
+            table.put(put);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.hbase.loader;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RowLoaderTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final ServerName RS1 = ServerName.valueOf("rs1", 16020, 1L);
+
+    private static final ServerName RS2 = ServerName.valueOf("rs2", 16020, 1L);
+
+    private final List<List<Get>> calls = new CopyOnWriteArrayList<>();
+
+    private ExecutorService pool;
+
+    private Table table;
+
+    private HbaseTemplate template;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newFixedThreadPool(4);
+        table = mock(Table.class);
+        TableBuilder builder = mock(TableBuilder.class);
+        when(builder.build()).thenReturn(table);
+        RegionLocator locator = mock(RegionLocator.class);
+        //row0*在rs1上,其他行在rs2上
+        when(locator.getRegionLocation(any(byte[].class))).thenAnswer(invocation -> {
+            byte[] row = invocation.getArgument(0);
+            ServerName server = Bytes.toString(row).startsWith("row0") ? RS1 : RS2;
+            return new HRegionLocation(RegionInfoBuilder.newBuilder(TABLE).build(), server);
+        });
+        Connection connection = mock(Connection.class);
+        when(connection.getTableBuilder(any(TableName.class), any())).thenReturn(builder);
+        when(connection.getRegionLocator(TABLE)).thenReturn(locator);
+        when(table.get(anyList())).thenAnswer(invocation -> {
+            List<Get> gets = new ArrayList<>(invocation.getArgument(0));
+            calls.add(gets);
+            Result[] results = new Result[gets.size()];
+            for (int i = 0; i < results.length; i++) {
+                byte[] row = gets.get(i).getRow();
+                results[i] = Result.create(new Cell[]{new KeyValue(row, Bytes.toBytes("cf1"), Bytes.toBytes("name"), row)});
+            }
+            return results;
+        });
+        template = new HbaseTemplate(connection, pool, new HbaseConnectionMetrics());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentGetsAreBatchedPerServer() throws Exception {
+        try (RowLoader loader = new RowLoader(template, TABLE, Get::new, 100, TimeUnit.MILLISECONDS.toNanos(200))) {
+            List<CompletableFuture<Result>> futures = new ArrayList<>();
+            for (String row : new String[]{"row01", "row02", "row11", "row12", "row13"}) {
+                futures.add(loader.load(Bytes.toBytes(row)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(Bytes.toString(futures.get(i).get(5, TimeUnit.SECONDS).getRow()))
+                        .isEqualTo(new String[]{"row01", "row02", "row11", "row12", "row13"}[i]);
+            }
+            assertThat(calls).hasSize(2);
+            assertThat(calls).extracting(List::size).containsExactlyInAnyOrder(2, 3);
+            assertThat(loader.getBatches()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testInFlightRowIsSharedSingleFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            List<Get> gets = invocation.getArgument(0);
+            calls.add(gets);
+            return new Result[]{Result.EMPTY_RESULT};
+        }).when(table).get(anyList());
+        try (RowLoader loader = new RowLoader(template, TABLE, Get::new, 100, 0)) {
+            CompletableFuture<Result> first = loader.load(Bytes.toBytes("row01"));
+            CompletableFuture<Result> second = loader.load(Bytes.toBytes("row01"));
+            assertThat(second).isSameAs(first);
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).isEmpty()).isTrue();
+            assertThat(loader.getCoalesced()).isEqualTo(1);
+            assertThat(loader.get(Bytes.toBytes("row01"))).isNull();
+            //完成后的请求不再复用,第二次get重新发出
+            assertThat(calls).hasSize(2);
+        }
+    }
+
+    @Test
+    void testFailureReachesEveryCallerInGroup() throws Exception {
+        doThrow(new IOException("boom")).when(table).get(anyList());
+        try (RowLoader loader = new RowLoader(template, TABLE, Get::new, 100, TimeUnit.MILLISECONDS.toNanos(50))) {
+            CompletableFuture<Result> a = loader.load(Bytes.toBytes("row11"));
+            CompletableFuture<Result> b = loader.load(Bytes.toBytes("row12"));
+            assertThatThrownBy(a::join).isInstanceOf(CompletionException.class).hasRootCauseInstanceOf(IOException.class);
+            assertThatThrownBy(b::join).isInstanceOf(CompletionException.class).hasRootCauseInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void testCloseDrainsQueuedRequests() throws Exception {
+        RowLoader loader = new RowLoader(template, TABLE, Get::new, 1, TimeUnit.MILLISECONDS.toNanos(50));
+        List<CompletableFuture<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(loader.load(Bytes.toBytes("row1" + i)));
+        }
+        loader.close();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertThat(calls).hasSize(10);
+        assertThatThrownBy(() -> loader.load(Bytes.toBytes("row01"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testLoadRacingCloseAlwaysCompletes() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                RowLoader loader = new RowLoader(template, TABLE, Get::new, 10, 0);
+                List<CompletableFuture<Result>> futures = new CopyOnWriteArrayList<>();
+                CountDownLatch started = new CountDownLatch(4);
+                for (int t = 0; t < 4; t++) {
+                    int thread = t;
+                    callers.execute(() -> {
+                        started.countDown();
+                        for (int i = 0; ; i++) {
+                            try {
+                                futures.add(loader.load(Bytes.toBytes("row" + thread + "-" + i)));
+                            } catch (IllegalStateException e) {
+                                return;
+                            }
+                        }
+                    });
+                }
+                started.await();
+                loader.close();
+                //每个返回的future要么有结果,要么以IllegalStateException结束,不会一直挂起
+                CompletableFuture.allOf(futures.stream().map(f -> f.handle((r, e) -> null))
+                        .toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.hbase.mapper;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EntityMapperTests {
+
+    @HbaseTable("myage")
+    static class Person {
+
+        @RowKey
+        private String id;
+
+        @Column(family = "mycf")
+        private String name;
+
+        @Column(family = "mycf")
+        private int age;
+
+        @Column(family = "mycf", qualifier = "address")
+        private String city;
+
+        @Column(family = "info")
+        private BigDecimal salary;
+
+        @Column(family = "info")
+        private Long visits;
+    }
+
+    static class NotAnEntity {
+    }
+
+    @HbaseTable("events")
+    static class Event {
+
+        @RowKey(codec = OrderedCodecs.Int64.class)
+        private long id;
+
+        @Column(family = "e", codec = OrderedCodecs.Int32.class)
+        private int score;
+
+        @Column(family = "e", codec = OrderedCodecs.Timestamp.class)
+        private Instant at;
+
+        @Column(family = "e", codec = OrderedCodecs.Decimal.class)
+        private BigDecimal amount;
+    }
+
+    @HbaseTable("flags")
+    static class Flags {
+
+        @RowKey
+        private String id;
+
+        @Column(family = "f")
+        private boolean active;
+
+        @Column(family = "f")
+        private double score;
+
+        @Column(family = "f")
+        private Boolean verified;
+
+        @Column(family = "f")
+        private Float ratio;
+    }
+
+    private static Result toResult(Put put) {
+        List<Cell> cells = new ArrayList<>();
+        put.getFamilyCellMap().values().forEach(cells::addAll);
+        cells.sort(CellComparator.getInstance());
+        return Result.create(cells);
+    }
+
+    @Test
+    void testRoundTrip() {
+        Person person = new Person();
+        person.id = "row1";
+        person.name = "zhangsan";
+        person.age = 18;
+        person.city = "beijing";
+        person.salary = new BigDecimal("1234.50");
+
+        EntityMapper<Person> mapper = EntityMapper.of(Person.class);
+        Put put = mapper.toPut(person);
+        assertThat(put.has(Bytes.toBytes("mycf"), Bytes.toBytes("address"))).isTrue();
+        //null的对象字段不写入
+        assertThat(put.has(Bytes.toBytes("info"), Bytes.toBytes("visits"))).isFalse();
+
+        Person decoded = mapper.mapRow(toResult(put), 0);
+        assertThat(decoded.id).isEqualTo("row1");
+        assertThat(decoded.name).isEqualTo("zhangsan");
+        assertThat(decoded.age).isEqualTo(18);
+        assertThat(decoded.city).isEqualTo("beijing");
+        assertThat(decoded.salary).isEqualByComparingTo("1234.50");
+        assertThat(decoded.visits).isNull();
+        assertThat(mapper.getTableName().getNameAsString()).isEqualTo("myage");
+    }
+
+    @Test
+    void testOnlyLatestVersionAndUnmappedColumnsIgnored() {
+        byte[] row = Bytes.toBytes("row2");
+        byte[] family = Bytes.toBytes("mycf");
+        List<Cell> cells = new ArrayList<>();
+        cells.add(new KeyValue(row, family, Bytes.toBytes("address"), 1L, Bytes.toBytes("hangzhou")));
+        cells.add(new KeyValue(row, family, Bytes.toBytes("name"), 2L, Bytes.toBytes("lisi")));
+        cells.add(new KeyValue(row, family, Bytes.toBytes("name"), 1L, Bytes.toBytes("old")));
+        cells.add(new KeyValue(row, family, Bytes.toBytes("sex"), 1L, Bytes.toBytes("男")));
+        cells.sort(CellComparator.getInstance());
+
+        Person decoded = EntityMapper.of(Person.class).mapRow(Result.create(cells), 0);
+        assertThat(decoded.name).isEqualTo("lisi");
+        assertThat(decoded.city).isEqualTo("hangzhou");
+        assertThat(decoded.age).isZero();
+    }
+
+    @Test
+    void testOrderedCodecsRoundTripOnPrimitiveFields() {
+        Event event = new Event();
+        event.id = -42L;
+        event.score = 9;
+        event.at = Instant.ofEpochSecond(1_600_000_000L, 123_456_789);
+        event.amount = new BigDecimal("-0.25");
+
+        EntityMapper<Event> mapper = EntityMapper.of(Event.class);
+        Put put = mapper.toPut(event);
+        assertThat(put.getRow()).isEqualTo(OrderedCodecs.INT64.encode(-42L));
+
+        Event decoded = mapper.mapRow(toResult(put), 0);
+        assertThat(decoded.id).isEqualTo(-42L);
+        assertThat(decoded.score).isEqualTo(9);
+        assertThat(decoded.at).isEqualTo(event.at);
+        assertThat(decoded.amount).isEqualByComparingTo("-0.25");
+    }
+
+    @Test
+    void testOrderedEncodingsSortLikeTheirValues() {
+        Random random = new Random(7);
+        List<Object[]> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            values.add(new Object[]{random.nextInt(), random.nextLong(), random.nextGaussian() * 1e6,
+                    BigDecimal.valueOf(random.nextLong(), random.nextInt(10)),
+                    Instant.ofEpochSecond(random.nextInt(), random.nextInt(1_000_000_000)),
+                    Integer.toString(random.nextInt(1000))});
+        }
+        assertSortsLike(values, 0, OrderedCodecs.INT32);
+        assertSortsLike(values, 1, OrderedCodecs.INT64);
+        assertSortsLike(values, 2, OrderedCodecs.FLOAT64);
+        assertSortsLike(values, 3, OrderedCodecs.DECIMAL);
+        assertSortsLike(values, 4, OrderedCodecs.TIMESTAMP);
+        assertSortsLike(values, 5, OrderedCodecs.TEXT);
+        //Bytes编码下"9">"10"、-1>1,保序编码下与数值顺序一致
+        assertThat(Bytes.compareTo(Bytes.toBytes("9"), Bytes.toBytes("10"))).isPositive();
+        assertThat(Bytes.compareTo(OrderedCodecs.INT32.encode(9), OrderedCodecs.INT32.encode(10))).isNegative();
+        assertThat(Bytes.compareTo(OrderedCodecs.INT32.encode(-1), OrderedCodecs.INT32.encode(1))).isNegative();
+
+        CompositeCodec composite = OrderedCodecs.composite(OrderedCodecs.TEXT, OrderedCodecs.INT64);
+        byte[] key = composite.encode(new Object[]{"user", 7L});
+        assertThat(composite.decode(key, 0, key.length)).containsExactly("user", 7L);
+        assertThat(Bytes.startsWith(key, composite.prefix("user"))).isTrue();
+        assertThat(Bytes.startsWith(composite.encode(new Object[]{"users", 7L}), composite.prefix("user"))).isFalse();
+        assertThat(Bytes.compareTo(key, composite.encode(new Object[]{"user", 10L}))).isNegative();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void assertSortsLike(List<Object[]> values, int column, OrderedValueCodec codec) {
+        List<Object> byValue = new ArrayList<>();
+        for (Object[] row : values) {
+            byValue.add(row[column]);
+        }
+        List<byte[]> byBytes = new ArrayList<>();
+        for (Object value : byValue) {
+            byte[] encoded = codec.encode(value);
+            assertThat(codec.decode(encoded, 0, encoded.length)).isEqualTo(value instanceof BigDecimal
+                    ? ((BigDecimal) value).stripTrailingZeros() : value);
+            byBytes.add(encoded);
+        }
+        byValue.sort((a, b) -> ((Comparable) a).compareTo(b));
+        byBytes.sort(Bytes.BYTES_COMPARATOR);
+        for (int i = 0; i < byValue.size(); i++) {
+            Object decoded = codec.decode(byBytes.get(i), 0, byBytes.get(i).length);
+            assertThat(((Comparable) decoded).compareTo(byValue.get(i))).isZero();
+        }
+    }
+
+    @Test
+    void testEmptyResultMapsToNull() {
+        assertThat(EntityMapper.of(Person.class).mapRow(Result.EMPTY_RESULT, 0)).isNull();
+    }
+
+    @Test
+    void testMissingAnnotationIsRejected() {
+        assertThatThrownBy(() -> EntityMapper.of(NotAnEntity.class)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testFixedWidthValuesRequireTheirLength() {
+        EntityMapper<Flags> mapper = EntityMapper.of(Flags.class);
+        Flags flags = new Flags();
+        flags.id = "row1";
+        flags.active = true;
+        flags.score = 0.5;
+        flags.verified = false;
+        flags.ratio = 1.5f;
+        Flags decoded = mapper.mapRow(toResult(mapper.toPut(flags)), 0);
+        assertThat(decoded.active).isTrue();
+        assertThat(decoded.score).isEqualTo(0.5);
+        assertThat(decoded.verified).isFalse();
+        assertThat(decoded.ratio).isEqualTo(1.5f);
+
+        byte[] row = Bytes.toBytes("row1");
+        byte[] family = Bytes.toBytes("f");
+        for (String column : new String[]{"active", "verified"}) {
+            Result empty = Result.create(new Cell[]{new KeyValue(row, family, Bytes.toBytes(column), new byte[0])});
+            assertThatThrownBy(() -> mapper.mapRow(empty, 0)).isInstanceOf(IllegalArgumentException.class);
+        }
+        for (String column : new String[]{"score", "ratio"}) {
+            Result narrow = Result.create(new Cell[]{new KeyValue(row, family, Bytes.toBytes(column), new byte[2])});
+            assertThatThrownBy(() -> mapper.mapRow(narrow, 0)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.hbase.memory;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.query.Query;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.regionserver.NoSuchColumnFamilyException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.hbase.query.Predicate.and;
+import static com.example.hbase.query.Predicate.eq;
+import static com.example.hbase.query.Predicate.gt;
+import static com.example.hbase.query.Predicate.or;
+import static com.example.hbase.query.Predicate.rowPrefix;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class InMemoryConnectionTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] CF1 = Bytes.toBytes("cf1");
+
+    private static final byte[] CF2 = Bytes.toBytes("cf2");
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private final InMemoryConnection connection = new InMemoryConnection(HBaseConfiguration.create(), clock::get);
+
+    private Table table;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(CF1).setMaxVersions(3).build())
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(CF2).setTimeToLive(10).build())
+                    .build(), new byte[][]{Bytes.toBytes("row4"), Bytes.toBytes("row2")});
+        }
+        table = connection.getTable(TABLE);
+    }
+
+    private void put(String row, byte[] family, String qualifier, String value) throws IOException {
+        table.put(new Put(Bytes.toBytes(row)).addColumn(family, Bytes.toBytes(qualifier), Bytes.toBytes(value)));
+    }
+
+    private List<String> rows(Scan scan) throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (ResultScanner scanner = table.getScanner(scan)) {
+            for (Result result : scanner) {
+                rows.add(Bytes.toString(result.getRow()));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void testVersionsTtlAndDeletes() throws IOException {
+        for (int i = 1; i <= 4; i++) {
+            clock.incrementAndGet();
+            put("row1", CF1, "name", "v" + i);
+        }
+        put("row1", CF2, "tag", "t");
+
+        Result latest = table.get(new Get(Bytes.toBytes("row1")));
+        assertThat(Bytes.toString(latest.getValue(CF1, Bytes.toBytes("name")))).isEqualTo("v4");
+        assertThat(Bytes.toString(latest.getValue(CF2, Bytes.toBytes("tag")))).isEqualTo("t");
+        //maxVersions=3,最旧的版本已经丢弃
+        Result all = table.get(new Get(Bytes.toBytes("row1")).readAllVersions());
+        assertThat(all.getColumnCells(CF1, Bytes.toBytes("name"))).hasSize(3);
+
+        //删除最新版本后露出上一个版本
+        table.delete(new Delete(Bytes.toBytes("row1")).addColumn(CF1, Bytes.toBytes("name")));
+        assertThat(Bytes.toString(table.get(new Get(Bytes.toBytes("row1"))).getValue(CF1, Bytes.toBytes("name"))))
+                .isEqualTo("v3");
+
+        //cf2的TTL为10秒
+        clock.addAndGet(11_000L);
+        assertThat(table.get(new Get(Bytes.toBytes("row1"))).containsColumn(CF2, Bytes.toBytes("tag"))).isFalse();
+
+        table.delete(new Delete(Bytes.toBytes("row1")));
+        assertThat(table.exists(new Get(Bytes.toBytes("row1")))).isFalse();
+    }
+
+    @Test
+    void testFiltersFollowRegionServerSemantics() throws IOException {
+        for (int i = 1; i <= 6; i++) {
+            put("row" + i, CF1, "name", i % 2 == 0 ? "even" : "odd");
+            put("row" + i, CF1, "nick", "n" + i);
+        }
+
+        Scan ranges = new Scan().setFilter(new MultiRowRangeFilter(Arrays.asList(
+                new MultiRowRangeFilter.RowRange("row2", true, "row3", false),
+                new MultiRowRangeFilter.RowRange("row5", true, "row9", false))));
+        assertThat(rows(ranges)).containsExactly("row2", "row5", "row6");
+
+        //ColumnPrefixFilter在行内按提示跳到前缀所在的列
+        Scan prefix = new Scan().setFilter(new ColumnPrefixFilter(Bytes.toBytes("ni")));
+        try (ResultScanner scanner = table.getScanner(prefix)) {
+            Result result = scanner.next();
+            assertThat(result.size()).isEqualTo(1);
+            assertThat(result.containsColumn(CF1, Bytes.toBytes("nick"))).isTrue();
+        }
+
+        assertThat(rows(new Scan().setFilter(new PageFilter(2)))).containsExactly("row1", "row2");
+        assertThat(rows(new Scan().setReversed(true).withStartRow(Bytes.toBytes("row4")).setLimit(2)))
+                .containsExactly("row4", "row3");
+
+        //compiled查询的PredicateFilter经过序列化后在这里执行
+        HbaseTemplate template = new HbaseTemplate(connection, mock(ExecutorService.class),
+                mock(HbaseConnectionMetrics.class));
+        Query query = Query.from(TABLE)
+                .where(or(and(rowPrefix(Bytes.toBytes("row1")), eq("cf1:name", "odd")),
+                        and(rowPrefix(Bytes.toBytes("row4")), gt("cf1:nick", Bytes.toBytes("n3")))));
+        List<String> nested = template.find(query, (result, rowNum) -> Bytes.toString(result.getRow()));
+        List<String> compiled = template.find(query.compiled(), (result, rowNum) -> Bytes.toString(result.getRow()));
+        assertThat(nested).containsExactly("row1", "row4");
+        assertThat(compiled).isEqualTo(nested);
+    }
+
+    @Test
+    void testScanBatchAndMetrics() throws IOException {
+        Put wide = new Put(Bytes.toBytes("row1"));
+        for (int i = 0; i < 5; i++) {
+            wide.addColumn(CF1, Bytes.toBytes("c" + i), Bytes.toBytes(i));
+        }
+        table.put(wide);
+        put("row2", CF1, "c0", "x");
+        put("row3", CF1, "c0", "x");
+
+        Scan scan = new Scan().setBatch(2).setCaching(1);
+        scan.setScanMetricsEnabled(true);
+        List<Integer> sizes = new ArrayList<>();
+        try (ResultScanner scanner = table.getScanner(scan)) {
+            for (Result result : scanner) {
+                sizes.add(result.size());
+            }
+            assertThat(scanner.getScanMetrics().countOfRowsScanned.get()).isEqualTo(3);
+            assertThat(scanner.getScanMetrics().countOfRPCcalls.get()).isEqualTo(3);
+        }
+        assertThat(sizes).containsExactly(2, 2, 1, 1, 1);
+    }
+
+    @Test
+    void testAtomicOperationsAndBatchFailures() throws IOException {
+        byte[] row = Bytes.toBytes("row1");
+        byte[] counter = Bytes.toBytes("counter");
+        assertThat(table.incrementColumnValue(row, CF1, counter, 5)).isEqualTo(5);
+        assertThat(table.incrementColumnValue(row, CF1, counter, 2)).isEqualTo(7);
+
+        Put put = new Put(row).addColumn(CF1, Bytes.toBytes("state"), Bytes.toBytes("new"));
+        byte[] state = Bytes.toBytes("state");
+        assertThat(table.checkAndMutate(row, CF1).qualifier(state).ifNotExists().thenPut(put)).isTrue();
+        assertThat(table.checkAndMutate(row, CF1).qualifier(state).ifNotExists().thenPut(put)).isFalse();
+        assertThat(table.checkAndMutate(row, CF1).qualifier(Bytes.toBytes("state"))
+                .ifMatches(CompareOperator.EQUAL, Bytes.toBytes("new"))
+                .thenDelete(new Delete(row).addColumns(CF1, Bytes.toBytes("state")))).isTrue();
+
+        List<Put> puts = Arrays.asList(new Put(Bytes.toBytes("row2")).addColumn(CF1, counter, Bytes.toBytes("a")),
+                new Put(Bytes.toBytes("row3")).addColumn(Bytes.toBytes("nope"), counter, Bytes.toBytes("b")));
+        assertThatThrownBy(() -> table.put(puts))
+                .isInstanceOfSatisfying(RetriesExhaustedWithDetailsException.class, e -> {
+                    assertThat(e.getNumExceptions()).isEqualTo(1);
+                    assertThat(e.getCause(0)).isInstanceOf(NoSuchColumnFamilyException.class);
+                });
+        assertThat(table.exists(new Get(Bytes.toBytes("row2")))).isTrue();
+
+        try (BufferedMutator mutator = connection.getBufferedMutator(TABLE)) {
+            mutator.mutate(new Put(Bytes.toBytes("row9")).addColumn(CF1, counter, Bytes.toBytes("c")));
+            assertThat(table.exists(new Get(Bytes.toBytes("row9")))).isFalse();
+        }
+        assertThat(table.exists(new Get(Bytes.toBytes("row9")))).isTrue();
+    }
+
+    @Test
+    void testAdminAndRegions() throws IOException {
+        Admin admin = connection.getAdmin();
+        try (RegionLocator locator = connection.getRegionLocator(TABLE)) {
+            assertThat(locator.getStartKeys().length).isEqualTo(3);
+            assertThat(locator.getRegionLocation(Bytes.toBytes("row3")).getRegion().getStartKey())
+                    .isEqualTo(Bytes.toBytes("row2"));
+        }
+        put("row1", CF1, "name", "x");
+
+        admin.disableTable(TABLE);
+        assertThatThrownBy(() -> table.get(new Get(Bytes.toBytes("row1"))))
+                .hasMessageContaining(TABLE.getNameAsString());
+        admin.truncateTable(TABLE, true);
+        assertThat(admin.isTableEnabled(TABLE)).isTrue();
+        assertThat(table.exists(new Get(Bytes.toBytes("row1")))).isFalse();
+        assertThat(admin.getRegions(TABLE)).hasSize(3);
+
+        admin.disableTable(TABLE);
+        admin.deleteTable(TABLE);
+        assertThat(admin.tableExists(TABLE)).isFalse();
+        assertThatThrownBy(() -> table.put(new Put(Bytes.toBytes("row1")).addColumn(CF1, CF1, CF1)))
+                .isInstanceOf(TableNotFoundException.class);
+        assertThatThrownBy(admin::getClusterMetrics).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.hbase.memory;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 记录每次getScanner实际收到的Scan的InMemoryConnection,过滤器、投影和limit仍由InMemoryConnection按RegionServer语义执行
+ * <p>
+ * 返回的Table是委托给InMemoryTable的Mockito mock,子类可以覆盖{@link #record(TableName, Table)}继续打桩
+ */
+public class RecordingConnection extends InMemoryConnection {
+
+    private final List<Scan> scans = new CopyOnWriteArrayList<>();
+
+    public List<Scan> getScans() {
+        return scans;
+    }
+
+    @Override
+    public Table getTable(TableName tableName) {
+        try {
+            return record(tableName, super.getTable(tableName));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 子类可以覆盖,在返回的mock上继续打桩,打桩时用table执行实际的读写
+     *
+     * @param tableName
+     * @param table     InMemoryTable
+     * @return 委托给table的mock
+     */
+    protected Table record(TableName tableName, Table table) throws IOException {
+        Table recording = mock(Table.class, delegatesTo(table));
+        doAnswer(invocation -> {
+            Scan scan = invocation.getArgument(0);
+            scans.add(scan);
+            return table.getScanner(scan);
+        }).when(recording).getScanner(any(Scan.class));
+        return recording;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.hbase.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.ArrayBackedTag;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Tag;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InstrumentedConnectionTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private Table table;
+
+    private SimpleMeterRegistry registry;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() {
+        table = mock(Table.class);
+        TableBuilder builder = mock(TableBuilder.class);
+        when(builder.build()).thenReturn(table);
+        Connection raw = mock(Connection.class);
+        when(raw.getTableBuilder(any(TableName.class), any())).thenReturn(builder);
+        registry = new SimpleMeterRegistry();
+        HbaseClientMetrics metrics = new HbaseClientMetrics();
+        metrics.bindTo(registry);
+        connection = new InstrumentedConnection(raw, metrics);
+    }
+
+    private Table open() {
+        return connection.getTableBuilder(TABLE, mock(ExecutorService.class)).build();
+    }
+
+    private double counter(String name, String tag, String value) {
+        return registry.get(name).tag("table", "myTable").tag(tag, value).counter().count();
+    }
+
+    @Test
+    void testGetRecordsLatencyRowsAndBytes() throws IOException {
+        byte[] row = Bytes.toBytes("row1");
+        KeyValue kv = new KeyValue(row, Bytes.toBytes("cf1"), Bytes.toBytes("name"), 1L, Bytes.toBytes("zhangsan"));
+        when(table.get(any(Get.class))).thenReturn(Result.create(new Cell[]{kv}));
+
+        open().get(new Get(row));
+
+        assertThat(registry.get("hbase.client.operation").tag("operation", "get").timer().count()).isEqualTo(1);
+        assertThat(counter("hbase.client.rows", "operation", "get")).isEqualTo(1);
+        assertThat(counter("hbase.client.bytes", "direction", "in")).isEqualTo(kv.getLength());
+    }
+
+    @Test
+    void testSizesFollowKeyValueFormatWithTags() {
+        KeyValue tagged = new KeyValue(Bytes.toBytes("row1"), Bytes.toBytes("cf1"), Bytes.toBytes("name"), 1L,
+                Bytes.toBytes("zhangsan"), new Tag[]{new ArrayBackedTag((byte) 1, "ttl")});
+        assertThat(Sizes.of(tagged)).isEqualTo(tagged.getLength());
+        assertThat(Sizes.of(Result.create(new Cell[]{tagged, tagged}))).isEqualTo(tagged.getLength() * 2L);
+    }
+
+    @Test
+    void testFailuresAreCounted() throws IOException {
+        Put put = new Put(Bytes.toBytes("row1")).addColumn(Bytes.toBytes("cf1"), Bytes.toBytes("name"), Bytes.toBytes("a"));
+        doThrow(new IOException("boom")).when(table).put(put);
+
+        Table instrumented = open();
+        assertThatThrownBy(() -> instrumented.put(put)).isInstanceOf(IOException.class);
+        assertThat(counter("hbase.client.operation.errors", "operation", "put")).isEqualTo(1);
+        assertThat(counter("hbase.client.bytes", "direction", "out")).isZero();
+    }
+
+    @Test
+    void testScannerReportsSelectivityOnClose() throws IOException {
+        ResultScanner scanner = mock(ResultScanner.class);
+        ScanMetrics scanMetrics = new ScanMetrics();
+        scanMetrics.countOfRowsScanned.set(10);
+        scanMetrics.countOfRowsFiltered.set(8);
+        scanMetrics.countOfRPCcalls.set(3);
+        Result one = Result.create(new Cell[]{new KeyValue(Bytes.toBytes("row1"), 1L)});
+        when(scanner.next()).thenReturn(one, one, null);
+        when(scanner.getScanMetrics()).thenReturn(scanMetrics);
+        when(table.getScanner(any(Scan.class))).thenReturn(scanner);
+
+        try (ResultScanner results = open().getScanner(new Scan())) {
+            while (results.next() != null) {
+                //读完为止
+            }
+        }
+
+        ArgumentCaptor<Scan> issued = ArgumentCaptor.forClass(Scan.class);
+        verify(table).getScanner(issued.capture());
+        assertThat(issued.getValue().isScanMetricsEnabled()).isTrue();
+        assertThat(counter("hbase.client.rows", "operation", "scan")).isEqualTo(2);
+        assertThat(counter("hbase.client.scan.rows", "result", "scanned")).isEqualTo(10);
+        assertThat(counter("hbase.client.scan.rows", "result", "filtered")).isEqualTo(8);
+        assertThat(counter("hbase.client.scan.rpc", "type", "call")).isEqualTo(3);
+    }
+
+    @Test
+    void testTunerSizesCachingFromObservedRowWidths() throws IOException {
+        Connection raw = mock(Connection.class);
+        when(raw.getTable(TABLE)).thenReturn(table);
+        KeyValue kv = new KeyValue(Bytes.toBytes("row1"), Bytes.toBytes("cf1"), Bytes.toBytes("name"), 1L,
+                new byte[100]);
+        ScanTuner tuner = new ScanTuner(kv.getLength() * 50L, 10000, 1000);
+        tuner.bindTo(registry);
+        Connection tuned = new InstrumentedConnection(raw, null, tuner);
+        ResultScanner scanner = mock(ResultScanner.class);
+        ScanMetrics scanMetrics = new ScanMetrics();
+        scanMetrics.countOfRPCcalls.set(4);
+        Result head = Result.create(new Cell[]{kv}, null, false, true);
+        Result tail = Result.create(new Cell[]{kv});
+        when(scanner.next()).thenReturn(head, tail, tail, null);
+        when(scanner.getScanMetrics()).thenReturn(scanMetrics);
+        Scan full = new Scan();
+        when(table.getScanner(any(Scan.class))).thenReturn(scanner);
+
+        try (ResultScanner results = tuned.getTable(TABLE).getScanner(full)) {
+            while (results.next() != null) {
+                //读完为止
+            }
+        }
+
+        //调用方的Scan不被修改
+        assertThat(full.getCacheBlocks()).isTrue();
+        assertThat(full.isScanMetricsEnabled()).isFalse();
+        ArgumentCaptor<Scan> issued = ArgumentCaptor.forClass(Scan.class);
+        verify(table).getScanner(issued.capture());
+        assertThat(issued.getValue().getCacheBlocks()).isFalse();
+        assertThat(issued.getValue().getCaching()).isEqualTo(-1);
+        //第一行拆成两个Result,按两行、三个cell统计
+        ScanTuner.Settings settings = tuner.settings(TABLE);
+        assertThat(settings.getRowBytes()).isEqualTo(kv.getLength() * 1.5);
+        assertThat(settings.getCaching()).isEqualTo(34);
+        assertThat(registry.get("hbase.client.scan.round.trips").tag("tuned", "false").summary().totalAmount())
+                .isEqualTo(4);
+        assertThat(registry.get("hbase.client.scan.tuning").tag("param", "caching").gauge().value()).isEqualTo(34);
+
+        Scan range = new Scan().withStartRow(Bytes.toBytes("row1")).withStopRow(Bytes.toBytes("row9"));
+        tuned.getTable(TABLE).getScanner(range).close();
+        verify(table, times(2)).getScanner(issued.capture());
+        Scan issuedRange = issued.getValue();
+        assertThat(range.getCaching()).isEqualTo(-1);
+        assertThat(issuedRange.getCacheBlocks()).isTrue();
+        assertThat(issuedRange.getCaching()).isEqualTo(34);
+        assertThat(issuedRange.getMaxResultSize()).isEqualTo(kv.getLength() * 50L);
+        assertThat(issuedRange.getBatch()).isEqualTo(-1);
+
+        //声明过使用block cache的全表扫描保留调用方的设置
+        tuned.getTable(TABLE).getScanner(ScanTuner.cacheBlocks(new Scan())).close();
+        verify(table, times(3)).getScanner(issued.capture());
+        assertThat(issued.getValue().getCacheBlocks()).isTrue();
+    }
+
+    @Test
+    void testOnlyWholeRowScansFeedRowWidths() throws IOException {
+        assertThat(ScanTuner.readsWholeRows(new Scan().addFamily(Bytes.toBytes("cf1")))).isTrue();
+        assertThat(ScanTuner.readsWholeRows(new Scan().setLimit(1))).isFalse();
+        assertThat(ScanTuner.readsWholeRows(new Scan().addColumn(Bytes.toBytes("cf1"), Bytes.toBytes("name"))))
+                .isFalse();
+        assertThat(ScanTuner.readsWholeRows(new Scan().setFilter(new FilterList(new FirstKeyOnlyFilter()))))
+                .isFalse();
+
+        Connection raw = mock(Connection.class);
+        when(raw.getTable(TABLE)).thenReturn(table);
+        ScanTuner tuner = new ScanTuner(1024, 10000, 100);
+        tuner.bindTo(registry);
+        ResultScanner scanner = mock(ResultScanner.class);
+        ScanMetrics scanMetrics = new ScanMetrics();
+        scanMetrics.countOfRPCcalls.set(1);
+        when(scanner.next()).thenReturn(Result.create(new Cell[]{new KeyValue(Bytes.toBytes("row1"),
+                Bytes.toBytes("cf1"), Bytes.toBytes("name"), 1L, new byte[0])}), (Result) null);
+        when(scanner.getScanMetrics()).thenReturn(scanMetrics);
+        when(table.getScanner(any(Scan.class))).thenReturn(scanner);
+
+        //只返回行键的scan不影响整行scan的参数,RPC次数照常记录
+        new InstrumentedConnection(raw, null, tuner).getTable(TABLE)
+                .getScanner(new Scan().setFilter(new KeyOnlyFilter())).close();
+        assertThat(tuner.settings(TABLE)).isNull();
+        assertThat(registry.get("hbase.client.scan.round.trips").tag("tuned", "false").summary().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testWideRowsAreSplitOnlyForScansThatAcceptPartialRows() {
+        ScanTuner tuner = new ScanTuner(1024, 10000, 100);
+        tuner.observe(TABLE, 10, 5000, 40960, 8192, -1, false, true);
+
+        Scan whole = new Scan().withStartRow(Bytes.toBytes("a"));
+        assertThat(tuner.tune(TABLE, whole)).isTrue();
+        assertThat(whole.getCaching()).isEqualTo(1);
+        assertThat(whole.getBatch()).isEqualTo(-1);
+        assertThat(whole.getAllowPartialResults()).isFalse();
+
+        Scan partial = ScanTuner.allowPartialRows(new Scan().withStartRow(Bytes.toBytes("a")));
+        tuner.tune(TABLE, partial);
+        assertThat(partial.getBatch()).isEqualTo(100);
+        assertThat(partial.getAllowPartialResults()).isTrue();
+
+        Scan explicit = ScanTuner.allowPartialRows(new Scan().setCaching(7).setBatch(3));
+        tuner.tune(TABLE, explicit);
+        assertThat(explicit.getCaching()).isEqualTo(7);
+        assertThat(explicit.getBatch()).isEqualTo(3);
+    }
+
+    @Test
+    void testUnboundMetricsRecordNothing() throws IOException {
+        Connection raw = mock(Connection.class);
+        when(raw.getTable(TABLE)).thenReturn(table);
+        when(table.get(any(Get.class))).thenReturn(Result.EMPTY_RESULT);
+        new InstrumentedConnection(raw, new HbaseClientMetrics()).getTable(TABLE).get(new Get(Bytes.toBytes("row1")));
+        assertThat(new HbaseClientMetrics().forTable(TABLE)).isNull();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.hbase.page;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.core.RowMapper;
+import com.example.hbase.memory.RecordingConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.query.Predicate;
+import com.example.hbase.query.Query;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.example.hbase.query.Predicate.eq;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class PaginatorTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] CF1 = Bytes.toBytes("cf1");
+
+    private static final RowMapper<String> ROW = (result, rowNum) -> Bytes.toString(result.getRow());
+
+    private final RecordingConnection connection = new RecordingConnection();
+
+    private ExecutorService pool;
+
+    private Paginator paginator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newSingleThreadExecutor();
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF1)).build());
+        }
+        HbaseTemplate template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        List<Put> puts = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%02d", i));
+            puts.add(new Put(row).addColumn(CF1, Bytes.toBytes("name"), row)
+                    .addColumn(CF1, Bytes.toBytes("state"), Bytes.toBytes(i % 2 == 0 ? "even" : "odd")));
+        }
+        template.put(TABLE.getNameAsString(), puts);
+        paginator = new Paginator(template, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testPagesResumeAfterLastRow() {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes("row03"));
+        Page<String> first = paginator.page(TABLE, scan, 10, null, ROW);
+        assertThat(first.getItems()).hasSize(10).startsWith("row03").endsWith("row12");
+        assertThat(first.hasNext()).isTrue();
+
+        Page<String> second = paginator.page(TABLE, scan, 10, first.getCursor(), ROW);
+        assertThat(second.getItems()).hasSize(10).startsWith("row13").endsWith("row22");
+        Page<String> last = paginator.page(TABLE, scan, 10, second.getCursor(), ROW);
+        assertThat(last.getItems()).containsExactly("row23", "row24", "row25");
+        assertThat(last.getCursor()).isNull();
+
+        Scan resumed = connection.getScans().get(1);
+        assertThat(resumed.getStartRow()).isEqualTo(Bytes.toBytes("row12"));
+        assertThat(resumed.includeStartRow()).isFalse();
+        assertThat(resumed.getLimit()).isEqualTo(11);
+        assertThat(resumed.getCaching()).isEqualTo(11);
+        //原Scan不被修改
+        assertThat(scan.getLimit()).isEqualTo(-1);
+    }
+
+    @Test
+    void testExactlyFullLastPageHasNoCursor() {
+        Query query = Query.from(TABLE).where(Predicate.rowPrefix(Bytes.toBytes("row1")));
+        Page<String> page = paginator.page(query, 10, null, ROW);
+        assertThat(page.getItems()).hasSize(10).startsWith("row10").endsWith("row19");
+        assertThat(page.hasNext()).isFalse();
+        assertThat(paginator.page(Query.from(TABLE).where(Predicate.and(Predicate.rowGe(Bytes.toBytes("b")),
+                Predicate.rowLt(Bytes.toBytes("a")))), 10, null, ROW).getItems()).isEmpty();
+        assertThat(connection.getScans()).hasSize(1);
+    }
+
+    @Test
+    void testCursorIsBoundToItsQuery() {
+        String cursor = paginator.page(TABLE, new Scan(), 5, null, ROW).getCursor();
+        assertThat(cursor).doesNotContain("row");
+        assertThatThrownBy(() -> paginator.page(TABLE, new Scan().addFamily(Bytes.toBytes("cf1")), 5, cursor, ROW))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different query");
+        assertThat(paginator.page(TABLE, new Scan().setCaching(3), 5, cursor, ROW).getItems()).startsWith("row06");
+        assertThatThrownBy(() -> paginator.page(TABLE, new Scan(), 5, "!!", ROW))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> paginator.page(TABLE, new Scan(), 101, null, ROW))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testQueryPagesOnlyContainSelectedColumns() {
+        Query query = Query.from(TABLE).select("cf1:name").where(eq("cf1:state", "even"));
+        RowMapper<Result> mapper = (result, rowNum) -> result;
+        Page<Result> first = paginator.page(query, 5, null, mapper);
+        Page<Result> second = paginator.page(query, 10, first.getCursor(), mapper);
+        assertThat(first.getItems()).extracting(result -> Bytes.toString(result.getRow()))
+                .containsExactly("row02", "row04", "row06", "row08", "row10");
+        assertThat(second.getItems()).extracting(result -> Bytes.toString(result.getRow()))
+                .containsExactly("row12", "row14", "row16", "row18", "row20", "row22", "row24");
+        assertThat(second.getCursor()).isNull();
+        //过滤条件读取的cf1:state不出现在结果中
+        assertThat(first.getItems()).allSatisfy(result -> {
+            assertThat(result.size()).isEqualTo(1);
+            assertThat(result.containsColumn(CF1, Bytes.toBytes("name"))).isTrue();
+        });
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.hbase.query;
+
+import com.example.hbase.mapper.OrderedCodecs;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.hbase.query.Predicate.and;
+import static com.example.hbase.query.Predicate.eq;
+import static com.example.hbase.query.Predicate.gt;
+import static com.example.hbase.query.Predicate.lt;
+import static com.example.hbase.query.Predicate.ne;
+import static com.example.hbase.query.Predicate.or;
+import static com.example.hbase.query.Predicate.rowGe;
+import static com.example.hbase.query.Predicate.rowLe;
+import static com.example.hbase.query.Predicate.rowLt;
+import static com.example.hbase.query.Predicate.rowBetween;
+import static com.example.hbase.query.Predicate.rowPrefix;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryPlannerTests {
+
+    @Test
+    void testRowComparisonBecomesStopRow() {
+        Scan scan = Query.from("myTable").where(rowLe(Bytes.toBytes("row3"))).plan().getScan();
+        assertThat(scan.getStartRow()).isEmpty();
+        assertThat(scan.getStopRow()).isEqualTo(Bytes.toBytes("row3\0"));
+        assertThat(scan.getFilter()).isNull();
+    }
+
+    @Test
+    void testPrefixWithValueConditionUsesRowPrefixFilter() {
+        QueryPlan plan = Query.from("myTable")
+                .where(and(rowPrefix(Bytes.toBytes("row1")), eq("cf1:sex", "男")))
+                .plan();
+        Scan scan = plan.getScan();
+        assertThat(scan.getStartRow()).isEqualTo(Bytes.toBytes("row1"));
+        assertThat(scan.getStopRow()).isEqualTo(Bytes.toBytes("row2"));
+        assertThat(scan.getFilter()).isInstanceOf(SingleColumnValueFilter.class);
+        assertThat(((SingleColumnValueFilter) scan.getFilter()).getFilterIfMissing()).isTrue();
+        assertThat(plan.explain()).contains("row prefix 'row1' -> setRowPrefixFilter", "columns: all");
+    }
+
+    @Test
+    void testSelectProjectsFamiliesAndColumns() {
+        Scan scan = Query.from("myTable").select("cf1:name", "cf2", "cf2:age").plan().getScan();
+        assertThat(scan.getFamilyMap()).hasSize(2);
+        assertThat(scan.getFamilyMap().get(Bytes.toBytes("cf2"))).isNull();
+        assertThat(scan.getFamilyMap().get(Bytes.toBytes("cf1"))).containsExactly(Bytes.toBytes("name"));
+        assertThat(scan.getFilter()).isNull();
+    }
+
+    @Test
+    void testNestedQueryKeepsMinimalResidualAndReadsFilterColumns() {
+        QueryPlan plan = Query.from("myage")
+                .select("mycf:name")
+                .where(and(or(eq("mycf:address", "beijing"), eq("mycf:address", "shanghai")),
+                        and(eq("mycf:name", "zhangsan"), rowGe(Bytes.toBytes("row2")))))
+                .limit(10)
+                .plan();
+        Scan scan = plan.getScan();
+        assertThat(scan.getStartRow()).isEqualTo(Bytes.toBytes("row2"));
+        assertThat(scan.getLimit()).isEqualTo(10);
+        assertThat(scan.getFamilyMap().get(Bytes.toBytes("mycf")))
+                .containsExactly(Bytes.toBytes("address"), Bytes.toBytes("name"));
+        FilterList filter = (FilterList) scan.getFilter();
+        assertThat(filter.getOperator()).isEqualTo(FilterList.Operator.MUST_PASS_ALL);
+        assertThat(filter.getFilters()).hasSize(2);
+        assertThat(((FilterList) filter.getFilters().get(0)).getOperator())
+                .isEqualTo(FilterList.Operator.MUST_PASS_ONE);
+        assertThat(plan.explain()).isEqualTo("table:   myage\n"
+                + "rows:    row in ['row2', end) -> start/stop row\n"
+                + "columns: mycf:name + mycf:address (read for filter)\n"
+                + "filter:  (mycf:address = 'beijing' OR mycf:address = 'shanghai') AND mycf:name = 'zhangsan'\n"
+                + "limit:   10");
+    }
+
+    @Test
+    void testDisjointRangesAndUnsatisfiablePredicates() {
+        QueryPlan ranges = Query.from("myTable")
+                .where(or(and(rowPrefix(Bytes.toBytes("a")), gt("cf1:age", Bytes.toBytes(20))),
+                        rowPrefix(Bytes.toBytes("c"))))
+                .plan();
+        Scan scan = ranges.getScan();
+        assertThat(scan.getStartRow()).isEqualTo(Bytes.toBytes("a"));
+        assertThat(scan.getStopRow()).isEqualTo(Bytes.toBytes("d"));
+        FilterList filter = (FilterList) scan.getFilter();
+        assertThat(filter.getFilters().get(0)).isInstanceOf(MultiRowRangeFilter.class);
+        assertThat(ranges.explain()).contains("row in ['a', 'b'), ['c', 'd') -> start/stop row + MultiRowRangeFilter",
+                "filter:  row in ['a', 'b'), ['c', 'd') AND ((row prefix 'a' AND cf1:age > '\\x00\\x00\\x00\\x14')"
+                        + " OR row prefix 'c')");
+
+        QueryPlan empty = Query.from("myTable")
+                .where(and(rowGe(Bytes.toBytes("row5")), rowLt(Bytes.toBytes("row3")), eq("cf1:name", "x")))
+                .plan();
+        assertThat(empty.isEmpty()).isTrue();
+        assertThat(empty.getScan()).isNull();
+        assertThat(empty.explain()).contains("no scan issued");
+
+        QueryPlan union = Query.from("myTable")
+                .where(or(rowPrefix(Bytes.toBytes("row1")), rowPrefix(Bytes.toBytes("row2"))))
+                .plan();
+        assertThat(union.getScan().getStartRow()).isEqualTo(Bytes.toBytes("row1"));
+        assertThat(union.getScan().getStopRow()).isEqualTo(Bytes.toBytes("row3"));
+        assertThat(union.getScan().getFilter()).isNull();
+    }
+
+    @Test
+    void testOrderedCodecConditionsCompareNumerically() {
+        Scan scan = Query.from("myage")
+                .where(and(Predicate.rowPrefix(OrderedCodecs.composite(OrderedCodecs.TEXT, OrderedCodecs.INT64), "u1"),
+                        gt("mycf:age", OrderedCodecs.INT32, 9)))
+                .plan().getScan();
+        SingleColumnValueFilter filter = (SingleColumnValueFilter) scan.getFilter();
+        //比较器的值在左边:9 < 10说明年龄10满足age > 9
+        assertThat(filter.getComparator().compareTo(OrderedCodecs.INT32.encode(10))).isNegative();
+        assertThat(filter.getComparator().compareTo(OrderedCodecs.INT32.encode(8))).isPositive();
+        assertThat(scan.getStartRow()).isEqualTo(OrderedCodecs.TEXT.encode("u1"));
+
+        Scan range = Query.from("events").where(rowBetween(OrderedCodecs.INT64, -5L, 5L)).plan().getScan();
+        assertThat(range.getStartRow()).isEqualTo(OrderedCodecs.INT64.encode(-5L));
+        assertThat(range.getStopRow()).isEqualTo(OrderedCodecs.INT64.encode(5L));
+        assertThat(range.getFilter()).isNull();
+    }
+
+    @Test
+    void testCompiledFilterMatchesNestedFilterList() throws Exception {
+        Predicate where = or(and(rowPrefix(Bytes.toBytes("row0000")), eq("cf2:e", "1")),
+                and(rowGe(Bytes.toBytes("row0002")), nestedPredicate()));
+        QueryPlan plan = Query.from("myTable").where(where).compiled().plan();
+        FilterList filter = (FilterList) plan.getScan().getFilter();
+        assertThat(filter.getFilters().get(0)).isInstanceOf(MultiRowRangeFilter.class);
+        assertThat(filter.getFilters().get(1)).isInstanceOf(PredicateFilter.class);
+        assertThat(plan.explain()).contains("-> PredicateFilter");
+
+        Predicate residual = QueryPlanner.split(where).residual;
+        Filter nested = residual.toFilter();
+        PredicateFilter compiled = PredicateFilter.parseFrom(PredicateFilter.of(residual).toByteArray());
+        Random random = new Random(7);
+        int accepted = 0;
+        for (int i = 0; i < 2000; i++) {
+            List<Cell> row = row(random, i);
+            boolean expected = accepts(nested, row);
+            assertThat(accepts(compiled, row)).as("row %d", i).isEqualTo(expected);
+            accepted += expected ? 1 : 0;
+        }
+        assertThat(accepted).isBetween(1, 1999);
+    }
+
+    /**
+     * 深层嵌套的条件,每个列都出现多次
+     */
+    private static Predicate nestedPredicate() {
+        return or(
+                and(eq("cf1:a", "1"), or(gt("cf1:b", Bytes.toBytes("3")), lt("cf2:e", Bytes.toBytes("2")))),
+                and(ne("cf1:c", Bytes.toBytes("0")), or(eq("cf1:d", "2"), and(eq("cf2:f", "1"), eq("cf1:a", "3")))),
+                and(eq("cf2:e", "4"), or(eq("cf1:b", "1"), or(eq("cf1:d", "0"), gt("cf2:f", Bytes.toBytes("2"))))));
+    }
+
+    /**
+     * 随机的一行,列按存储顺序排列,值为0到4,有的列缺失,有的列有两个版本
+     */
+    private static List<Cell> row(Random random, int index) {
+        byte[] row = Bytes.toBytes(String.format("row%06d", index));
+        List<Cell> cells = new ArrayList<>();
+        for (String column : new String[]{"cf1:a", "cf1:b", "cf1:c", "cf1:d", "cf2:e", "cf2:f"}) {
+            if (random.nextInt(5) == 0) {
+                continue;
+            }
+            Column c = Column.of(column);
+            int versions = random.nextInt(4) == 0 ? 2 : 1;
+            for (int v = versions; v > 0; v--) {
+                cells.add(new KeyValue(row, c.family, c.qualifier, v,
+                        Bytes.toBytes(Integer.toString(random.nextInt(5)))));
+            }
+        }
+        if (cells.isEmpty()) {
+            cells.add(new KeyValue(row, Bytes.toBytes("cf1"), Bytes.toBytes("z"), 1L, Bytes.toBytes("x")));
+        }
+        return cells;
+    }
+
+    /**
+     * 与RegionServer相同的调用顺序:reset、filterRowKey、逐个filterCell直到NEXT_ROW、filterRow
+     *
+     * @return 这一行是否返回给客户端
+     */
+    private static boolean accepts(Filter filter, List<Cell> cells) throws IOException {
+        filter.reset();
+        if (filter.filterAllRemaining() || filter.filterRowKey(cells.get(0))) {
+            return false;
+        }
+        boolean included = false;
+        for (Cell cell : cells) {
+            Filter.ReturnCode code = filter.filterCell(cell);
+            if (code == Filter.ReturnCode.INCLUDE || code == Filter.ReturnCode.INCLUDE_AND_NEXT_COL
+                    || code == Filter.ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW) {
+                included = true;
+            }
+            if (code == Filter.ReturnCode.NEXT_ROW || code == Filter.ReturnCode.INCLUDE_AND_SEEK_NEXT_ROW) {
+                break;
+            }
+        }
+        return included && !(filter.hasFilterRow() && filter.filterRow());
+    }
+}
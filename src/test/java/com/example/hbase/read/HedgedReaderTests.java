@@ -0,0 +1,137 @@
+package com.example.hbase.read;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Consistency;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HedgedReaderTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] ROW = Bytes.toBytes("row1");
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    private final Table table = mock(Table.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private HedgedReader reader(int replicas, Duration minDelay, Duration maxDelay) throws IOException {
+        Connection connection = mock(Connection.class);
+        TableBuilder builder = mock(TableBuilder.class);
+        when(builder.build()).thenReturn(table);
+        when(connection.getTableBuilder(TABLE, pool)).thenReturn(builder);
+        Admin admin = mock(Admin.class);
+        when(connection.getAdmin()).thenReturn(admin);
+        when(admin.getDescriptor(TABLE))
+                .thenReturn(TableDescriptorBuilder.newBuilder(TABLE).setRegionReplication(replicas).build());
+        HbaseTemplate template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        HedgedReader reader = new HedgedReader(template, pool, ReadMode.STRONG,
+                Collections.singletonMap(TABLE, ReadMode.HEDGED), 0.9, minDelay, maxDelay, 10);
+        reader.bindTo(registry);
+        return reader;
+    }
+
+    private static Result result(boolean stale) {
+        return Result.create(new Cell[]{new KeyValue(ROW, Bytes.toBytes("cf1"), Bytes.toBytes("name"), 1L,
+                Bytes.toBytes(stale ? "old" : "new"))}, null, stale);
+    }
+
+    @Test
+    void testSlowPrimaryIsHedgedToReplica() throws Exception {
+        HedgedReader reader = reader(2, Duration.ofMillis(1), Duration.ofMillis(20));
+        when(table.get(any(Get.class))).thenAnswer(invocation -> {
+            Get get = invocation.getArgument(0);
+            if (get.getReplicaId() == 1) {
+                return result(true);
+            }
+            Thread.sleep(500);
+            return result(false);
+        });
+
+        Result result = reader.get(TABLE, new Get(ROW));
+
+        assertThat(result.isStale()).isTrue();
+        verify(table).get(argThat((Get get) -> get.getReplicaId() == 1
+                && get.getConsistency() == Consistency.TIMELINE));
+        assertThat(registry.get("hbase.client.read.stale").counter().count()).isEqualTo(1);
+        assertThat(registry.get("hbase.client.read.hedges").tag("winner", "replica").counter().count()).isEqualTo(1);
+        assertThat(registry.get("hbase.client.read").tag("mode", "hedged").tag("hedged", "true").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testFastPrimaryIsNotHedged() throws Exception {
+        HedgedReader reader = reader(2, Duration.ofMillis(200), Duration.ofSeconds(1));
+        when(table.get(any(Get.class))).thenReturn(result(false));
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(reader.get(TABLE, new Get(ROW)).isStale()).isFalse();
+        }
+
+        verify(table, never()).get(argThat((Get get) -> get.getReplicaId() >= 0));
+        assertThat(registry.get("hbase.client.read").tag("mode", "hedged").tag("hedged", "false").timer().count())
+                .isEqualTo(20);
+        //两个完整窗口之后等待时间按主region延迟估算,不再是上限
+        assertThat(reader.hedgeDelay(TABLE)).isEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void testTableWithoutReplicasReadsPrimaryOnly() throws Exception {
+        HedgedReader reader = reader(1, Duration.ofMillis(1), Duration.ofMillis(1));
+        when(table.get(any(Get.class))).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return result(false);
+        });
+
+        assertThat(reader.get(TABLE, new Get(ROW)).isStale()).isFalse();
+        verify(table, never()).get(argThat((Get get) -> get.getReplicaId() >= 0));
+    }
+
+    @Test
+    void testLatencyBucketsBoundTheirValues() {
+        for (long micros : new long[]{0, 3, 4, 7, 8, 9, 1000, 123456}) {
+            int bucket = LatencyWindow.bucket(micros);
+            assertThat(LatencyWindow.upperBoundMicros(bucket)).isGreaterThanOrEqualTo(micros);
+            assertThat(bucket == 0 || LatencyWindow.upperBoundMicros(bucket - 1) < micros).isTrue();
+        }
+        LatencyWindow window = new LatencyWindow(100, 0.9);
+        for (int i = 1; i <= 100; i++) {
+            window.record(i * 1_000_000L);
+        }
+        assertThat(window.percentileNanos()).isBetween(90_000_000L, 110_000_000L);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.hbase.rowkey;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.filter.RowFilter;
+import org.apache.hadoop.hbase.filter.SubstringComparator;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RowKeyTemplateTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] FAMILY = Bytes.toBytes("cf1");
+
+    private final SaltedRowKeyCodec codec = new SaltedRowKeyCodec(4);
+
+    /**
+     * 按存储行键排好序的表内容
+     */
+    private final TreeSet<byte[]> stored = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    private RowKeyTemplate rowKeyTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            stored.add(codec.encode(Bytes.toBytes(String.format("row%02d", i))));
+        }
+        pool = Executors.newCachedThreadPool();
+        template = mock(HbaseTemplate.class);
+        Table table = mock(Table.class);
+        when(template.getTable(TABLE)).thenReturn(table);
+        when(table.getScanner(any(Scan.class))).thenAnswer(invocation -> new ListScanner(invocation.getArgument(0)));
+        ParallelScanner scanner = new ParallelScanner(template, pool, 2, 100, 1 << 20, 2);
+        rowKeyTemplate = new RowKeyTemplate(template, scanner, TABLE, codec);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testSaltSpreadsSequentialKeysAndRoundTrips() {
+        Set<Byte> buckets = new HashSet<>();
+        for (byte[] row : stored) {
+            buckets.add(row[0]);
+            assertThat(codec.encode(codec.decode(row))).isEqualTo(row);
+        }
+        assertThat(buckets).hasSize(4);
+        assertThat(codec.splitKeys()).isDeepEqualTo(new byte[][]{{1}, {2}, {3}});
+    }
+
+    @Test
+    void testRangeScanIsMergedInLogicalOrder() throws IOException {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes("row05")).withStopRow(Bytes.toBytes("row12"), true);
+        assertThat(collect(rowKeyTemplate.scan(scan)))
+                .containsExactly("row05", "row06", "row07", "row08", "row09", "row10", "row11", "row12");
+    }
+
+    @Test
+    void testPrefixFilterAndLimitApplyToLogicalKeys() throws IOException {
+        Scan scan = new Scan().setFilter(new PrefixFilter(Bytes.toBytes("row1"))).setLimit(3);
+        assertThat(BucketScans.expand(scan, codec)).hasSize(4).allMatch(subScan -> subScan.getFilter() == null);
+        assertThat(collect(rowKeyTemplate.scan(scan))).containsExactly("row10", "row11", "row12");
+    }
+
+    @Test
+    void testMultiRowRangeFilterBecomesOneSubScanPerBucket() throws IOException {
+        Scan scan = new Scan().setFilter(new MultiRowRangeFilter(Arrays.asList(
+                new RowRange(Bytes.toBytes("row02"), true, Bytes.toBytes("row04"), false),
+                new RowRange(Bytes.toBytes("row15"), false, Bytes.toBytes("row17"), true))));
+        List<Scan> subScans = BucketScans.expand(scan, codec);
+        assertThat(subScans).hasSize(4).allMatch(subScan -> subScan.getFilter() instanceof MultiRowRangeFilter);
+        assertThat(collect(rowKeyTemplate.scan(scan))).containsExactly("row02", "row03", "row16", "row17");
+    }
+
+    @Test
+    void testRowKeyFiltersAreRejected() {
+        Scan scan = new Scan().setFilter(new FilterList(
+                new RowFilter(CompareOperator.EQUAL, new SubstringComparator("row1"))));
+        assertThatThrownBy(() -> rowKeyTemplate.scan(scan)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rowKeyTemplate.scan(new Scan().setReversed(true)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testPutIsWrittenWithStoredKey() {
+        byte[] key = Bytes.toBytes("row01");
+        rowKeyTemplate.put(new Put(key).addColumn(FAMILY, Bytes.toBytes("name"), Bytes.toBytes("zhangsan")));
+        ArgumentCaptor<Put> captor = ArgumentCaptor.forClass(Put.class);
+        verify(template).put(eq("myTable"), captor.capture());
+        Put put = captor.getValue();
+        assertThat(put.getRow()).isEqualTo(codec.encode(key));
+        assertThat(put.get(FAMILY, Bytes.toBytes("name"))).hasSize(1);
+        assertThat(CellUtil.cloneRow(put.get(FAMILY, Bytes.toBytes("name")).get(0))).isEqualTo(codec.encode(key));
+    }
+
+    @Test
+    void testHashPrefixKeepsEntityInOneBucket() {
+        HashPrefixRowKeyCodec hashPrefix = new HashPrefixRowKeyCodec(4, 16);
+        byte[] user = Bytes.toBytes("u001");
+        byte[] newer = hashPrefix.encode(ReverseTimestamp.key(user, 2000L));
+        byte[] older = hashPrefix.encode(ReverseTimestamp.key(user, 1000L));
+        assertThat(newer[0]).isEqualTo(older[0]);
+        assertThat(Bytes.compareTo(newer, older)).isNegative();
+        assertThat(ReverseTimestamp.timestamp(hashPrefix.decode(older))).isEqualTo(1000L);
+
+        Scan byUser = new Scan().setFilter(new PrefixFilter(user));
+        assertThat(BucketScans.expand(byUser, hashPrefix)).hasSize(1);
+        byte[][] range = ReverseTimestamp.range(user, 1000L, 2001L);
+        Scan byTime = new Scan().withStartRow(range[0]).withStopRow(range[1]);
+        assertThat(BucketScans.expand(byTime, hashPrefix)).hasSize(1);
+        assertThat(BucketScans.expand(new Scan(), hashPrefix)).hasSize(16);
+    }
+
+    private static List<String> collect(ResultScanner scanner) {
+        List<String> result = new ArrayList<>();
+        for (Result r : scanner) {
+            result.add(Bytes.toString(r.getRow()));
+        }
+        scanner.close();
+        return result;
+    }
+
+    /**
+     * 按scan的行键区间和MultiRowRangeFilter从内存数据中返回结果
+     */
+    private class ListScanner implements ResultScanner {
+
+        private final Iterator<byte[]> iterator;
+
+        ListScanner(Scan scan) {
+            List<RowRange> ranges = scan.getFilter() instanceof MultiRowRangeFilter
+                    ? ((MultiRowRangeFilter) scan.getFilter()).getRowRanges() : null;
+            iterator = stored.stream()
+                    .filter(key -> Bytes.compareTo(key, scan.getStartRow()) >= 0)
+                    .filter(key -> scan.getStopRow().length == 0 || Bytes.compareTo(key, scan.getStopRow()) < 0)
+                    .filter(key -> ranges == null || ranges.stream().anyMatch(range -> range.contains(key)))
+                    .collect(Collectors.toList())
+                    .iterator();
+        }
+
+        @Override
+        public Result next() {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            byte[] row = iterator.next();
+            return Result.create(new KeyValue[]{new KeyValue(row, FAMILY, Bytes.toBytes("name"), row)});
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean renewLease() {
+            return false;
+        }
+
+        @Override
+        public ScanMetrics getScanMetrics() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.hbase.scan;
+
+import com.example.hbase.core.HbaseTemplate;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ParallelScannerTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[][] START_KEYS = {Bytes.toBytes(""), Bytes.toBytes("row3"), Bytes.toBytes("row5"), Bytes.toBytes("row7")};
+
+    private static final byte[][] END_KEYS = {Bytes.toBytes("row3"), Bytes.toBytes("row5"), Bytes.toBytes("row7"), Bytes.toBytes("")};
+
+    private final List<String> rows = new ArrayList<>();
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            rows.add("row" + i);
+        }
+        pool = Executors.newCachedThreadPool();
+        template = mock(HbaseTemplate.class);
+        Table table = mock(Table.class);
+        when(template.getTable(TABLE)).thenReturn(table);
+        when(table.getScanner(any(Scan.class))).thenAnswer(invocation -> new ListScanner(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private ParallelScanner newScanner(int parallelism) {
+        return new ParallelScanner(template, pool, parallelism, 100, 1 << 20, 2);
+    }
+
+    @Test
+    void testSplitClipsToScanRange() {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes("row4")).withStopRow(Bytes.toBytes("row7"));
+        List<Scan> subScans = newScanner(2).split(scan, START_KEYS, END_KEYS);
+        assertThat(subScans).hasSize(2);
+        assertThat(Bytes.toString(subScans.get(0).getStartRow())).isEqualTo("row4");
+        assertThat(Bytes.toString(subScans.get(0).getStopRow())).isEqualTo("row5");
+        assertThat(Bytes.toString(subScans.get(1).getStartRow())).isEqualTo("row5");
+        assertThat(Bytes.toString(subScans.get(1).getStopRow())).isEqualTo("row7");
+        assertThat(subScans.get(1).getCaching()).isEqualTo(100);
+    }
+
+    @Test
+    void testInclusiveStopRowKeepsRegionStartingAtIt() {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes("row1")).withStopRow(Bytes.toBytes("row5"), true);
+        List<Scan> subScans = newScanner(2).split(scan, START_KEYS, END_KEYS);
+        assertThat(subScans).hasSize(3);
+        assertThat(subScans.get(2).includeStopRow()).isTrue();
+    }
+
+    @Test
+    void testOrderedScanMatchesSerialOrder() throws IOException {
+        List<Scan> subScans = newScanner(2).split(new Scan(), START_KEYS, END_KEYS);
+        try (ResultScanner scanner = newScanner(2).scan(TABLE, subScans, ScanOrder.ROW_KEY)) {
+            assertThat(collect(scanner)).containsExactlyElementsOf(rows);
+        }
+    }
+
+    @Test
+    void testUnorderedScanReturnsEveryRow() throws IOException {
+        List<Scan> subScans = newScanner(3).split(new Scan(), START_KEYS, END_KEYS);
+        try (ResultScanner scanner = newScanner(3).scan(TABLE, subScans, ScanOrder.UNORDERED)) {
+            assertThat(collect(scanner)).containsExactlyInAnyOrderElementsOf(rows);
+        }
+    }
+
+    @Test
+    void testLimitAppliesToMergedResults() throws IOException {
+        RegionLocator locator = mock(RegionLocator.class);
+        Connection connection = mock(Connection.class);
+        when(template.getConnection()).thenReturn(connection);
+        when(connection.getRegionLocator(TABLE)).thenReturn(locator);
+        when(locator.getStartEndKeys()).thenReturn(new Pair<>(START_KEYS, END_KEYS));
+        try (ResultScanner scanner = newScanner(2).scan(TABLE.getNameAsString(), new Scan().setLimit(3),
+                ScanOrder.ROW_KEY)) {
+            assertThat(collect(scanner)).containsExactly("row0", "row1", "row2");
+        }
+        try (ResultScanner scanner = newScanner(4).scan(TABLE.getNameAsString(), new Scan().setLimit(3),
+                ScanOrder.UNORDERED)) {
+            assertThat(collect(scanner)).hasSize(3);
+        }
+    }
+
+    @Test
+    void testOrderedScanReadsDirectlyWhenPoolIsBusy() throws IOException {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            //唯一的线程被占住,预取任务一直排队
+            single.execute(() -> {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            ParallelScanner scanner = new ParallelScanner(template, single, 2, 100, 1 << 20, 2);
+            List<Scan> subScans = scanner.split(new Scan(), START_KEYS, END_KEYS);
+            long start = System.nanoTime();
+            try (ResultScanner results = scanner.scan(TABLE, subScans, ScanOrder.ROW_KEY)) {
+                assertThat(collect(results)).containsExactlyElementsOf(rows);
+            }
+            assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(2000);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    private static List<String> collect(ResultScanner scanner) {
+        List<String> result = new ArrayList<>();
+        for (Result r : scanner) {
+            result.add(Bytes.toString(r.getRow()));
+        }
+        return result;
+    }
+
+    /**
+     * 按scan的行键区间从内存数据中返回结果
+     */
+    private class ListScanner implements ResultScanner {
+
+        private final Iterator<String> iterator;
+
+        ListScanner(Scan scan) {
+            List<String> matched = new ArrayList<>();
+            for (String row : rows) {
+                byte[] key = Bytes.toBytes(row);
+                boolean afterStart = Bytes.compareTo(key, scan.getStartRow()) >= 0;
+                int stopCmp = Bytes.compareTo(key, scan.getStopRow());
+                boolean beforeStop = scan.getStopRow().length == 0 || stopCmp < 0 || (stopCmp == 0 && scan.includeStopRow());
+                if (afterStart && beforeStop) {
+                    matched.add(row);
+                }
+            }
+            iterator = (scan.getLimit() > 0 && matched.size() > scan.getLimit()
+                    ? matched.subList(0, scan.getLimit()) : matched).iterator();
+        }
+
+        @Override
+        public Result next() {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            byte[] row = Bytes.toBytes(iterator.next());
+            return Result.create(new KeyValue[]{new KeyValue(row, Bytes.toBytes("cf1"), Bytes.toBytes("name"), row)});
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean renewLease() {
+            return false;
+        }
+
+        @Override
+        public ScanMetrics getScanMetrics() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.hbase.schema;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SchemaManagerTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private Admin admin;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        admin = mock(Admin.class);
+        connection = mock(Connection.class);
+        when(connection.getAdmin()).thenReturn(admin);
+    }
+
+    private static TableSchema myTable() {
+        List<TableSchema> tables = SchemaManager.load(new ClassPathResource("hbase-schema.yml"));
+        return tables.stream().filter(t -> t.getName().equals("myTable")).findFirst().orElseThrow(AssertionError::new);
+    }
+
+    @Test
+    void testLoadBindsFamilySettings() {
+        TableSchema table = myTable();
+        FamilySchema cf1 = table.getFamilies().get(0);
+        assertThat(cf1.getDataBlockEncoding()).isEqualTo(DataBlockEncoding.FAST_DIFF);
+        assertThat(cf1.getBloomType()).isEqualTo(BloomType.ROW);
+        assertThat(cf1.getBlockSize().toBytes()).isEqualTo(64 * 1024);
+        assertThat(SplitPoints.of(table.getSplits(), new DefaultResourceLoader()))
+                .isDeepEqualTo(new byte[][]{Bytes.toBytes("row2"), Bytes.toBytes("row4")});
+    }
+
+    @Test
+    void testSampleSplitsAtShortestQuantilePrefixes() {
+        List<byte[]> sample = new ArrayList<>();
+        for (char c = 'a'; c <= 'h'; c++) {
+            for (int i = 0; i < 10; i++) {
+                sample.add(Bytes.toBytes(c + "user" + i));
+            }
+        }
+        Collections.shuffle(sample);
+        List<String> splits = toStrings(SplitPoints.fromSample(sample, 4));
+        assertThat(splits).containsExactly("c", "e", "g");
+
+        List<byte[]> skewed = new ArrayList<>(Collections.nCopies(90, Bytes.toBytes("hot")));
+        skewed.add(Bytes.toBytes("zz"));
+        assertThat(SplitPoints.fromSample(skewed, 4)).isEmpty();
+    }
+
+    @Test
+    void testMissingTableIsCreatedPreSplit() throws IOException {
+        TableSchema table = myTable();
+        when(admin.tableExists(TABLE)).thenReturn(false);
+
+        List<SchemaDrift> drifts = new SchemaManager(connection, Collections.singletonList(table),
+                new DefaultResourceLoader(), false).reconcile();
+
+        assertThat(drifts).isEmpty();
+        ArgumentCaptor<TableDescriptor> descriptor = ArgumentCaptor.forClass(TableDescriptor.class);
+        ArgumentCaptor<byte[][]> splitKeys = ArgumentCaptor.forClass(byte[][].class);
+        verify(admin).createTable(descriptor.capture(), splitKeys.capture());
+        assertThat(splitKeys.getValue().length).isEqualTo(2);
+        ColumnFamilyDescriptor cf1 = descriptor.getValue().getColumnFamily(Bytes.toBytes("cf1"));
+        assertThat(cf1.getDataBlockEncoding()).isEqualTo(DataBlockEncoding.FAST_DIFF);
+        assertThat(cf1.getBlocksize()).isEqualTo(64 * 1024);
+    }
+
+    @Test
+    void testDriftIsReportedAndOnlyAppliedWhenEnabled() throws IOException {
+        TableSchema table = myTable();
+        TableDescriptor live = TableDescriptorBuilder.newBuilder(TABLE)
+                .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes("cf1"))
+                        .setDataBlockEncoding(DataBlockEncoding.FAST_DIFF).setBlocksize(64 * 1024)
+                        .setBloomFilterType(BloomType.NONE).build())
+                .setColumnFamily(ColumnFamilyDescriptorBuilder.of("old"))
+                .build();
+        when(admin.tableExists(TABLE)).thenReturn(true);
+        when(admin.getDescriptor(TABLE)).thenReturn(live);
+
+        List<SchemaDrift> drifts = new SchemaManager(connection, Collections.singletonList(table),
+                new DefaultResourceLoader(), false).reconcile();
+        assertThat(drifts.stream().map(d -> d.getFamily() + "." + d.getProperty()).collect(Collectors.toList()))
+                .containsExactlyInAnyOrder("cf1.BLOOMFILTER", "cf2." + SchemaDrift.MISSING_FAMILY,
+                        "old." + SchemaDrift.UNDECLARED_FAMILY);
+        verify(admin, never()).modifyColumnFamily(any(), any());
+
+        new SchemaManager(connection, Collections.singletonList(table), new DefaultResourceLoader(), true).reconcile();
+        ArgumentCaptor<ColumnFamilyDescriptor> modified = ArgumentCaptor.forClass(ColumnFamilyDescriptor.class);
+        verify(admin).modifyColumnFamily(eq(TABLE), modified.capture());
+        assertThat(modified.getValue().getBloomFilterType()).isEqualTo(BloomType.ROW);
+        verify(admin).addColumnFamily(eq(TABLE), any(ColumnFamilyDescriptor.class));
+        verify(admin, never()).deleteColumnFamily(any(), any());
+    }
+
+    private static List<String> toStrings(byte[][] keys) {
+        List<String> result = new ArrayList<>();
+        for (byte[] key : keys) {
+            result.add(Bytes.toString(key));
+        }
+        return result;
+    }
+}
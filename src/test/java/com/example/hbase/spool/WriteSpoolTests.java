@@ -0,0 +1,296 @@
+package com.example.hbase.spool;
+
+import com.example.hbase.bulk.FailedMutation;
+import com.example.hbase.core.HbaseSystemException;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.InMemoryConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class WriteSpoolTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] CF1 = Bytes.toBytes("cf1");
+
+    private static final byte[] CF2 = Bytes.toBytes("cf2");
+
+    private static final byte[] NAME = Bytes.toBytes("name");
+
+    private final InMemoryConnection connection = new InMemoryConnection();
+
+    private final List<FailedMutation> deadLetters = new CopyOnWriteArrayList<>();
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newFixedThreadPool(4);
+        template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                            .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF1)).build(),
+                    new byte[][]{Bytes.toBytes("row3"), Bytes.toBytes("row6")});
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private WriteSpool spool(int segmentSize, long maxSize) {
+        return new WriteSpool(template, directory, segmentSize, maxSize, false, 100, 10, 20, deadLetters::add);
+    }
+
+    private static Put put(String row, String value) {
+        return new Put(Bytes.toBytes(row)).addColumn(CF1, NAME, Bytes.toBytes(value));
+    }
+
+    private List<String> rows() throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (Table table = connection.getTable(TABLE); ResultScanner results = table.getScanner(new Scan())) {
+            for (Result result : results) {
+                rows.add(Bytes.toString(result.getRow()));
+            }
+        }
+        return rows;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(Segment.SUFFIX)).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testDrainsInOrderAcrossSegments() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (WriteSpool spool = spool(4096, 1 << 20)) {
+            spool.bindTo(registry);
+            for (int i = 0; i < 500; i++) {
+                spool.append(TABLE.getNameAsString(), put(String.format("row%03d", i), "v" + i));
+            }
+            //同一行的写入和删除按顺序生效
+            spool.append(TABLE.getNameAsString(), put("row000", "overwritten"));
+            spool.append(TABLE.getNameAsString(), new Delete(Bytes.toBytes("row001")));
+            spool.append(TABLE.getNameAsString(), new Delete(Bytes.toBytes("row002")));
+            spool.append(TABLE.getNameAsString(), put("row002", "restored"));
+
+            assertThat(spool.awaitDrained(10_000)).isTrue();
+            assertThat(rows()).hasSize(499).doesNotContain("row001");
+            try (Table table = connection.getTable(TABLE)) {
+                assertThat(table.get(new Get(Bytes.toBytes("row000"))).getValue(CF1, NAME))
+                        .isEqualTo(Bytes.toBytes("overwritten"));
+                assertThat(table.get(new Get(Bytes.toBytes("row002"))).getValue(CF1, NAME))
+                        .isEqualTo(Bytes.toBytes("restored"));
+            }
+            assertThat(spool.getDrained()).isEqualTo(504);
+            assertThat(spool.getDepth()).isZero();
+            assertThat(spool.getDepthBytes()).isZero();
+            //读完的段已经删除,只剩正在写入的段
+            assertThat(segments()).hasSize(1);
+            assertThat(registry.get("hbase.spool.mutations").tag("result", "drained").functionCounter().count())
+                    .isEqualTo(504);
+        }
+    }
+
+    @Test
+    void testSameRowMutationsInOneCallGetIncreasingTimestamps() throws Exception {
+        try (Admin admin = connection.getAdmin()) {
+            admin.disableTable(TABLE);
+        }
+        WriteSpool spool = spool(1 << 16, 1 << 20);
+        //同一次append里的删除和写入时间戳不同,删除标记不会遮住之后的新值
+        spool.append(TABLE.getNameAsString(), Arrays.asList(put("row1", "old"), new Delete(Bytes.toBytes("row1")),
+                put("row1", "new")));
+        spool.append(TABLE.getNameAsString(), Arrays.asList(new Delete(Bytes.toBytes("row2")), put("row2", "v2")));
+        spool.close();
+
+        Segment segment = Segment.open(segments().get(0));
+        List<Long> timestamps = new ArrayList<>();
+        for (Segment.Record record = segment.read(Segment.HEADER); record != null;
+             record = segment.read(record.next)) {
+            Mutation mutation = MutationCodec.decode(record.payload).mutation;
+            timestamps.add(mutation.getTimestamp());
+            for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+                for (Cell cell : cells) {
+                    assertThat(cell.getTimestamp()).isEqualTo(mutation.getTimestamp());
+                }
+            }
+        }
+        assertThat(timestamps).hasSize(5).isSorted().doesNotHaveDuplicates();
+
+        try (Admin admin = connection.getAdmin()) {
+            admin.enableTable(TABLE);
+        }
+        try (WriteSpool recovered = spool(1 << 16, 1 << 20)) {
+            assertThat(recovered.awaitDrained(10_000)).isTrue();
+        }
+        try (Table table = connection.getTable(TABLE)) {
+            assertThat(table.get(new Get(Bytes.toBytes("row1"))).getValue(CF1, NAME)).isEqualTo(Bytes.toBytes("new"));
+            assertThat(table.get(new Get(Bytes.toBytes("row2"))).getValue(CF1, NAME)).isEqualTo(Bytes.toBytes("v2"));
+        }
+    }
+
+    @Test
+    void testHotRowDrainsWithoutWaitingForInterval() throws Exception {
+        //间隔很长,只有读空时才等待,同一行拆成的多批连续重放
+        try (WriteSpool spool = new WriteSpool(template, directory, 1 << 16, 1 << 20, false, 100, 60_000, 20,
+                deadLetters::add)) {
+            List<Put> puts = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                puts.add(put("row1", "v" + i));
+            }
+            spool.append(TABLE.getNameAsString(), puts);
+            assertThat(spool.awaitDrained(10_000)).isTrue();
+            assertThat(spool.getBatches()).isEqualTo(200);
+            try (Table table = connection.getTable(TABLE)) {
+                assertThat(table.get(new Get(Bytes.toBytes("row1"))).getValue(CF1, NAME))
+                        .isEqualTo(Bytes.toBytes("v199"));
+            }
+        }
+    }
+
+    @Test
+    void testRejectsWholeListThatDoesNotFit() throws Exception {
+        try (Admin admin = connection.getAdmin()) {
+            admin.disableTable(TABLE);
+        }
+        int record = Segment.RECORD_HEADER + MutationCodec.encode(TABLE, put("row1", "v1"), 1L).length;
+        //每段只放得下一条,按总字节数还有三条的空间,按段排列只能放两条
+        int segmentSize = Segment.HEADER + record + record / 2 + 1;
+        try (WriteSpool spool = spool(segmentSize, 2L * segmentSize)) {
+            List<Put> three = Arrays.asList(put("row1", "v1"), put("row2", "v2"), put("row3", "v3"));
+            assertThatThrownBy(() -> spool.append(TABLE.getNameAsString(), three))
+                    .isInstanceOf(HbaseSystemException.class).hasMessageContaining("full");
+            assertThat(spool.getDepth()).isZero();
+            assertThat(spool.getAppended()).isZero();
+            assertThat(spool.getRejected()).isEqualTo(3);
+            assertThat(spool.getSegments()).isEqualTo(1);
+
+            spool.append(TABLE.getNameAsString(), three.subList(0, 2));
+            assertThat(spool.getDepth()).isEqualTo(2);
+            assertThat(spool.getAppended()).isEqualTo(2);
+            assertThat(spool.getSegments()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testRecoversAfterOutageAndTornTail() throws Exception {
+        try (Admin admin = connection.getAdmin()) {
+            admin.disableTable(TABLE);
+        }
+        WriteSpool spool = spool(1 << 16, 1 << 20);
+        for (int i = 0; i < 10; i++) {
+            spool.append(TABLE.getNameAsString(), put("row" + i, "v" + i));
+        }
+        //表不可用时留在spool里重试
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spool.getRetries() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(spool.getRetries()).isPositive();
+        assertThat(spool.getDepth()).isEqualTo(10);
+        spool.close();
+
+        //模拟崩溃时没写完的一条记录
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            int position = Segment.HEADER;
+            while (true) {
+                length.clear();
+                channel.read(length, position);
+                int size = length.getInt(0);
+                if (size == 0) {
+                    break;
+                }
+                position += Segment.RECORD_HEADER + size;
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4}), position);
+        }
+
+        try (Admin admin = connection.getAdmin()) {
+            admin.enableTable(TABLE);
+        }
+        try (WriteSpool recovered = spool(1 << 16, 1 << 20)) {
+            //没写完的记录被丢弃,之前的10条全部重放
+            assertThat(recovered.awaitDrained(10_000)).isTrue();
+            assertThat(recovered.getDrained()).isEqualTo(10);
+            assertThat(rows()).hasSize(10);
+        }
+        assertThat(segments()).hasSize(1);
+        assertThat(deadLetters).isEmpty();
+    }
+
+    @Test
+    void testDeadLettersAndRejectsWhenFull() throws Exception {
+        try (WriteSpool spool = spool(4096, 8192)) {
+            spool.append(TABLE.getNameAsString(), new Put(Bytes.toBytes("row1")).addColumn(CF2, NAME, NAME));
+            spool.append(TABLE.getNameAsString(), put("row2", "v2"));
+            assertThat(spool.awaitDrained(10_000)).isTrue();
+            assertThat(deadLetters).hasSize(1);
+            assertThat(deadLetters.get(0).getMutation().getRow()).isEqualTo(Bytes.toBytes("row1"));
+            assertThat(rows()).containsExactly("row2");
+
+            assertThatThrownBy(() -> spool.append(TABLE.getNameAsString(),
+                    new Increment(Bytes.toBytes("row1")).addColumn(CF1, NAME, 1)))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            try (Admin admin = connection.getAdmin()) {
+                admin.disableTable(TABLE);
+            }
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    spool.append(TABLE.getNameAsString(), put("row" + i, "v" + i));
+                }
+            }).isInstanceOf(HbaseSystemException.class).hasMessageContaining("full");
+            assertThat(spool.getRejected()).isPositive();
+            assertThat(spool.getSegments()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.hbase.transfer;
+
+import com.example.hbase.bulk.BulkWriter;
+import com.example.hbase.bulk.BulkWriterFactory;
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.RecordingConnection;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.scan.ParallelScanner;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TableExporterTests {
+
+    private static final TableName TABLE = TableName.valueOf("myTable");
+
+    private static final byte[] FAMILY = Bytes.toBytes("cf1");
+
+    /**
+     * 每行按列排序的cell
+     */
+    private final List<List<Cell>> rows = new ArrayList<>();
+
+    private final RecordingConnection connection = new RecordingConnection();
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService pool;
+
+    private TableExporter exporter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newCachedThreadPool();
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TABLE)
+                            .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build(),
+                    new byte[][]{Bytes.toBytes("row05"), Bytes.toBytes("row10")});
+        }
+        HbaseTemplate template = new HbaseTemplate(connection, pool, mock(HbaseConnectionMetrics.class));
+        //20行,值中带逗号、反斜杠、换行和非ASCII字节
+        List<Put> puts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%02d", i));
+            List<Cell> cells = new ArrayList<>();
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("name"), 1000L + i, Bytes.toBytes("张,\\n\n" + i)));
+            cells.add(new KeyValue(row, FAMILY, new byte[]{0, ','}, 7L, new byte[]{(byte) 0xFF, 0}));
+            cells.sort(CellComparator.getInstance());
+            rows.add(cells);
+            Put put = new Put(row);
+            for (Cell cell : cells) {
+                put.add(cell);
+            }
+            puts.add(put);
+        }
+        template.put(TABLE.getNameAsString(), puts);
+        exporter = new TableExporter(template, new ParallelScanner(template, pool, 2, 100, 1 << 20, 10), pool, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testExportIsResumablePerRegion() throws IOException {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes("row02"));
+        TransferReport report = exporter.export("myTable", scan, directory);
+        assertThat(report.getFiles()).isEqualTo(3);
+        assertThat(report.getRows()).isEqualTo(18);
+        assertThat(report.getCells()).isEqualTo(36);
+        assertThat(report.getBytes()).isPositive();
+        assertThat(report.getRowsPerSecond()).isPositive();
+        assertThat(Files.exists(directory.resolve(TableExporter.fileName(1)))).isTrue();
+
+        //删掉一个region文件并留下未完成的.part,再次导出只重做这个region
+        Files.delete(directory.resolve(TableExporter.fileName(1)));
+        Files.write(directory.resolve(TableExporter.fileName(1) + ".part"), new byte[]{1, 2, 3});
+        List<Scan> scans = connection.getScans();
+        scans.clear();
+        TransferReport resumed = exporter.export("myTable", scan, directory);
+        assertThat(resumed.getFiles()).isEqualTo(1);
+        assertThat(resumed.getSkippedFiles()).isEqualTo(2);
+        assertThat(resumed.getRows()).isEqualTo(5);
+        assertThat(scans).hasSize(1);
+        assertThat(scans.get(0).getStartRow()).isEqualTo(Bytes.toBytes("row05"));
+        assertThat(scans.get(0).getStopRow()).isEqualTo(Bytes.toBytes("row10"));
+    }
+
+    @Test
+    void testImportRestoresCellsExactly() throws IOException {
+        exporter.export("myTable", new Scan(), directory);
+        List<Put> puts = new CopyOnWriteArrayList<>();
+        BulkWriter writer = mock(BulkWriter.class);
+        doAnswer(invocation -> puts.add(invocation.getArgument(0))).when(writer).write(any(Mutation.class));
+        BulkWriterFactory factory = mock(BulkWriterFactory.class);
+        when(factory.create("copy")).thenReturn(writer);
+
+        TransferReport report = new TableImporter(factory, pool, 2).importFrom("copy", directory);
+        assertThat(report.getFiles()).isEqualTo(3);
+        assertThat(report.getRows()).isEqualTo(20);
+        assertThat(report.getCells()).isEqualTo(40);
+        assertThat(puts).hasSize(20);
+        for (Put put : puts) {
+            int i = Integer.parseInt(Bytes.toString(put.getRow()).substring(3));
+            List<Cell> expected = rows.get(i);
+            List<Cell> actual = new ArrayList<>();
+            put.getFamilyCellMap().values().forEach(actual::addAll);
+            assertThat(actual).hasSize(2);
+            for (int c = 0; c < 2; c++) {
+                assertThat(CellUtil.equals(actual.get(c), expected.get(c))).isTrue();
+                assertThat(CellUtil.cloneValue(actual.get(c))).isEqualTo(CellUtil.cloneValue(expected.get(c)));
+            }
+        }
+    }
+
+    @Test
+    void testResumeRequiresTheSameScan() throws IOException {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes("row02"));
+        exporter.export("myTable", scan, directory);
+        assertThatThrownBy(() -> exporter.export("myTable", new Scan().withStartRow(Bytes.toBytes("row03")), directory))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("different scan");
+        assertThatThrownBy(() -> exporter.export("myTable", new Scan(scan).addFamily(FAMILY), directory))
+                .isInstanceOf(IllegalStateException.class);
+        //caching不影响导出的内容
+        assertThat(exporter.export("myTable", new Scan(scan).setCaching(7), directory).getSkippedFiles())
+                .isEqualTo(3);
+        assertThatThrownBy(() -> exporter.export("myTable", new Scan().setReversed(true), directory.resolve("other")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(Files.exists(directory.resolve("other"))).isFalse();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.hbase.warmup;
+
+import com.example.hbase.core.HbaseTemplate;
+import com.example.hbase.memory.InMemoryConnection;
+import com.example.hbase.metrics.HbaseClientMetrics;
+import com.example.hbase.metrics.HbaseConnectionMetrics;
+import com.example.hbase.metrics.InstrumentedConnection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ConnectionWarmupTests {
+
+    private static final byte[] CF1 = Bytes.toBytes("cf1");
+
+    private final InMemoryConnection connection = new InMemoryConnection();
+
+    private final HbaseClientMetrics clientMetrics = new HbaseClientMetrics();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ExecutorService pool;
+
+    private HbaseTemplate template;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = Executors.newFixedThreadPool(4);
+        clientMetrics.bindTo(registry);
+        template = new HbaseTemplate(new InstrumentedConnection(connection, clientMetrics, null), pool,
+                mock(HbaseConnectionMetrics.class));
+        try (Admin admin = connection.getAdmin()) {
+            admin.createTable(TableDescriptorBuilder.newBuilder(TableName.valueOf("myTable"))
+                            .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF1)).build(),
+                    new byte[][]{Bytes.toBytes("row3"), Bytes.toBytes("row6")});
+            admin.createTable(TableDescriptorBuilder.newBuilder(TableName.valueOf("myage"))
+                    .setColumnFamily(ColumnFamilyDescriptorBuilder.of(CF1)).build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testWarmupAllTablesWithPrimingReads() {
+        ConnectionWarmup warmup = new ConnectionWarmup(template, Collections.emptyList(), true, false, clientMetrics);
+        WarmupHealthIndicator health = new WarmupHealthIndicator(warmup);
+        assertThat(health.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmup.start();
+        assertThat(warmup.getState()).isEqualTo(ConnectionWarmup.State.COMPLETED);
+        assertThat(warmup.getTables()).hasSize(2);
+        assertThat(warmup.getRegions()).isEqualTo(4);
+        assertThat(warmup.getPrimed()).isEqualTo(4);
+        Health result = health.health();
+        assertThat(result.getStatus()).isEqualTo(Status.UP);
+        assertThat(result.getDetails()).containsEntry("regions", 4);
+
+        warmup.bindTo(registry);
+        assertThat(registry.get("hbase.warmup.regions").gauge().value()).isEqualTo(4);
+        assertThat(registry.get("hbase.warmup.completed").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void testFirstRequestIsMeasuredAfterWarmup() {
+        ConnectionWarmup warmup = new ConnectionWarmup(template, Collections.singletonList("myTable"), true, false,
+                clientMetrics);
+        warmup.start();
+        assertThat(warmup.getRegions()).isEqualTo(3);
+
+        //预热读记一次,预热之后的第一次调用再记一次
+        assertThat(registry.get("hbase.client.first.request").tag("table", "myTable").timer().count()).isEqualTo(1);
+        template.execute("myTable", table -> table.get(new Get(Bytes.toBytes("row1"))));
+        template.execute("myTable", table -> table.get(new Get(Bytes.toBytes("row2"))));
+        assertThat(registry.get("hbase.client.first.request").tag("table", "myTable").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testFailedWarmupReportsDown() {
+        ConnectionWarmup warmup = new ConnectionWarmup(template, Arrays.asList("myTable", "missing"), false, true,
+                null);
+        warmup.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (warmup.getState() == ConnectionWarmup.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertThat(warmup.getState()).isEqualTo(ConnectionWarmup.State.FAILED);
+        assertThat(new WarmupHealthIndicator(warmup).health().getStatus()).isEqualTo(Status.DOWN);
+        warmup.stop();
+    }
+}